@@ -2,8 +2,10 @@ package com.cantinho_emocoes;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class CatinhoEmocoesApplication {
 
 	public static void main(String[] args) {
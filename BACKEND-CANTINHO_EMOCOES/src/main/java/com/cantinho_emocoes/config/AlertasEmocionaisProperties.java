@@ -0,0 +1,42 @@
+package com.cantinho_emocoes.config;
+
+import com.cantinho_emocoes.model.Emocao;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Regras do alerta de emoções difíceis (app.alertas.*): cada regra dispara quando a criança registra
+ * uma das emoções, com intensidade mínima, a quantidade de vezes indicada dentro da janela.
+ * Depois de um alerta, a mesma regra não avisa de novo sobre a mesma criança antes do intervalo.
+ */
+@ConfigurationProperties(prefix = "app.alertas")
+public record AlertasEmocionaisProperties(boolean ativo, List<Regra> regras) {
+
+    public AlertasEmocionaisProperties {
+        regras = regras == null ? List.of() : List.copyOf(regras);
+    }
+
+    public record Regra(String nome, Set<Emocao> emocoes, int intensidadeMinima, int ocorrencias,
+                        Duration janela, Duration intervalo) {
+
+        public Regra {
+            if (nome == null || nome.isBlank()) {
+                throw new IllegalArgumentException("Regra de alerta sem nome.");
+            }
+            if (emocoes == null || emocoes.isEmpty()) {
+                throw new IllegalArgumentException("Regra de alerta '" + nome + "' sem emoções.");
+            }
+            emocoes = Set.copyOf(emocoes);
+            ocorrencias = Math.max(1, ocorrencias);
+            janela = janela != null ? janela : Duration.ofDays(7);
+            intervalo = intervalo != null ? intervalo : janela;
+        }
+
+        public boolean seAplica(Emocao emocao, int intensidade) {
+            return emocao != null && emocoes.contains(emocao) && intensidade >= intensidadeMinima;
+        }
+    }
+}
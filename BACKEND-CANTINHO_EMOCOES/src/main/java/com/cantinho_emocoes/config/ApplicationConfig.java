@@ -1,5 +1,6 @@
 package com.cantinho_emocoes.config;
 
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -14,7 +15,7 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import com.cantinho_emocoes.repository.UsuarioRepository;
 
 @Configuration
-
+@EnableConfigurationProperties(AlertasEmocionaisProperties.class)
 public class ApplicationConfig {
 
     private final UsuarioRepository usuarioRepository;
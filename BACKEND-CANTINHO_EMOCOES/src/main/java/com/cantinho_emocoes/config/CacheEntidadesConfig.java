@@ -0,0 +1,95 @@
+package com.cantinho_emocoes.config;
+
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.Properties;
+import java.util.function.ToLongFunction;
+
+/**
+ * Cache de segundo nível do Hibernate em Caffeine (via JCache), com as regiões de app.cache.regioes.
+ *
+ * Métricas por região: cache.entidades.requisicoes{regiao, resultado=acerto|falta} e
+ * cache.entidades.taxa_acerto{regiao} (de 0 a 1), tiradas das estatísticas do Hibernate.
+ */
+@Configuration
+@EnableConfigurationProperties(CacheEntidadesProperties.class)
+public class CacheEntidadesConfig {
+
+    static final String REGIAO_CONSULTAS = "consultas";
+
+    @Bean(destroyMethod = "close")
+    public CacheManager cacheManagerEntidades(CacheEntidadesProperties propriedades) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("cantinho-emocoes:entidades"), getClass().getClassLoader(), new Properties());
+        propriedades.regioes().forEach((nome, regiao) -> {
+            CaffeineConfiguration<Object, Object> configuracao = configuracaoBase();
+            configuracao.setMaximumSize(OptionalLong.of(regiao.tamanhoMaximo()));
+            configuracao.setExpireAfterWrite(OptionalLong.of(regiao.validade().toNanos()));
+            cacheManager.createCache(nomeDaRegiao(nome), configuracao);
+        });
+        // Última escrita em cada tabela, que invalida as consultas em cache: não pode perder entradas
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, configuracaoBase());
+        return cacheManager;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer cacheEntidadesHibernate(CacheManager cacheManagerEntidades) {
+        return propriedades -> propriedades.put(ConfigSettings.CACHE_MANAGER, cacheManagerEntidades);
+    }
+
+    @Bean
+    public MeterBinder metricasCacheEntidades(EntityManagerFactory entityManagerFactory, CacheEntidadesProperties propriedades) {
+        return registry -> {
+            Statistics estatisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+            for (String nome : propriedades.regioes().keySet()) {
+                String regiao = nomeDaRegiao(nome);
+                FunctionCounter.builder("cache.entidades.requisicoes", estatisticas, e -> contar(e, regiao, CacheRegionStatistics::getHitCount))
+                        .tag("regiao", nome).tag("resultado", "acerto").register(registry);
+                FunctionCounter.builder("cache.entidades.requisicoes", estatisticas, e -> contar(e, regiao, CacheRegionStatistics::getMissCount))
+                        .tag("regiao", nome).tag("resultado", "falta").register(registry);
+                Gauge.builder("cache.entidades.taxa_acerto", estatisticas, e -> taxaDeAcerto(e, regiao))
+                        .tag("regiao", nome).register(registry);
+            }
+        };
+    }
+
+    // Os resultados de consultas ficam na região padrão do Hibernate
+    static String nomeDaRegiao(String nome) {
+        return REGIAO_CONSULTAS.equals(nome) ? RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME : nome;
+    }
+
+    private static CaffeineConfiguration<Object, Object> configuracaoBase() {
+        CaffeineConfiguration<Object, Object> configuracao = new CaffeineConfiguration<>();
+        configuracao.setStoreByValue(false); // o Hibernate já guarda cópias desmontadas das entidades
+        return configuracao;
+    }
+
+    private static long contar(Statistics estatisticas, String regiao, ToLongFunction<CacheRegionStatistics> contador) {
+        CacheRegionStatistics daRegiao = estatisticas.getCacheRegionStatistics(regiao);
+        return daRegiao != null ? contador.applyAsLong(daRegiao) : 0;
+    }
+
+    private static double taxaDeAcerto(Statistics estatisticas, String regiao) {
+        long acertos = contar(estatisticas, regiao, CacheRegionStatistics::getHitCount);
+        long total = acertos + contar(estatisticas, regiao, CacheRegionStatistics::getMissCount);
+        return total == 0 ? Double.NaN : (double) acertos / total;
+    }
+}
@@ -0,0 +1,27 @@
+package com.cantinho_emocoes.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * Regiões do cache de segundo nível do Hibernate (app.cache.regioes.<nome>.*): quantas entradas cabem e
+ * por quanto tempo cada uma vale depois de gravada. A região "consultas" guarda os resultados das
+ * consultas marcadas como cacheáveis; as demais têm o nome usado no @Cache das entidades.
+ */
+@ConfigurationProperties(prefix = "app.cache")
+public record CacheEntidadesProperties(Map<String, Regiao> regioes) {
+
+    public CacheEntidadesProperties {
+        regioes = regioes == null ? Map.of() : Map.copyOf(regioes);
+    }
+
+    public record Regiao(long tamanhoMaximo, Duration validade) {
+
+        public Regiao {
+            tamanhoMaximo = tamanhoMaximo > 0 ? tamanhoMaximo : 1000;
+            validade = validade != null ? validade : Duration.ofMinutes(10);
+        }
+    }
+}
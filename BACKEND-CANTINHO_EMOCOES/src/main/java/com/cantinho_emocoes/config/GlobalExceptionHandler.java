@@ -6,6 +6,7 @@ import org.springframework.security.core.AuthenticationException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.Map;
 
@@ -27,6 +28,17 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorResponse, HttpStatus.UNAUTHORIZED); // 401 é mais apropriado para falha de login
     }
 
+    /**
+     * Erros com status definido pelo próprio controller (ex: validação em endpoints de streaming,
+     * que não podem devolver um Map no corpo).
+     * @return O status da exceção com a mensagem no formato {"error": ...}.
+     */
+    @ExceptionHandler(ResponseStatusException.class)
+    public ResponseEntity<Map<String, String>> handleResponseStatusException(ResponseStatusException ex, WebRequest request) {
+        String mensagem = ex.getReason() != null ? ex.getReason() : ex.getStatusCode().toString();
+        return new ResponseEntity<>(Map.of("error", mensagem), ex.getStatusCode());
+    }
+
     /**
      * Captura qualquer outra exceção inesperada que possa ocorrer.
      * @param ex A exceção genérica.
@@ -0,0 +1,88 @@
+package com.cantinho_emocoes.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.orm.jpa.JpaVendorAdapter;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+
+/**
+ * Réplica de leitura (app.replica.ativo=true): substitui o DataSource do Spring Boot por dois pools,
+ * primario (spring.datasource.*) e replica (app.replica.*), escolhidos pelo RoteamentoLeituraDataSource.
+ * Flyway, escritas e consultas fora de transação continuam na primária.
+ *
+ * Métricas por pool em hikaricp.connections.*{pool=primario|replica}; roteamento em banco.leituras e
+ * estado da réplica em banco.replica.atraso / banco.replica.disponivel.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.replica", name = "ativo", havingValue = "true")
+@EnableConfigurationProperties(ReplicaLeituraProperties.class)
+public class ReplicaLeituraConfig {
+
+    // Réplica fora do ar entre duas verificações: a leitura espera no máximo isso antes de ir para a primária
+    private static final long ESPERA_CONEXAO_REPLICA_MS = 2000;
+
+    @Bean(destroyMethod = "close")
+    public RoteamentoLeituraDataSource roteamentoLeituraDataSource(DataSourceProperties primaria,
+                                                                   ReplicaLeituraProperties replica,
+                                                                   Environment environment,
+                                                                   MeterRegistry meterRegistry) {
+        HikariDataSource poolPrimario = primaria.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        Binder.get(environment).bind("spring.datasource.hikari", Bindable.ofInstance(poolPrimario));
+        poolPrimario.setPoolName("primario");
+        poolPrimario.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+
+        HikariDataSource poolReplica = new HikariDataSource();
+        poolReplica.setPoolName("replica");
+        poolReplica.setJdbcUrl(replica.url());
+        poolReplica.setUsername(StringUtils.hasText(replica.username()) ? replica.username() : primaria.determineUsername());
+        poolReplica.setPassword(StringUtils.hasText(replica.password()) ? replica.password() : primaria.determinePassword());
+        poolReplica.setDriverClassName(primaria.determineDriverClassName());
+        poolReplica.setMaximumPoolSize(replica.maximoConexoes());
+        poolReplica.setConnectionTimeout(ESPERA_CONEXAO_REPLICA_MS);
+        poolReplica.setReadOnly(true);
+        poolReplica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+
+        return new RoteamentoLeituraDataSource(poolPrimario, poolReplica, replica.atrasoMaximo(), meterRegistry);
+    }
+
+    // A conexão só é escolhida no primeiro comando, com a transação (e o readOnly) já iniciada
+    @Bean
+    @Primary
+    public DataSource dataSource(RoteamentoLeituraDataSource roteamento) {
+        return new LazyConnectionDataSourceProxy(roteamento);
+    }
+
+    // Mesmo adaptador que o Spring Boot criaria, só que com o RoteamentoLeituraJpaDialect
+    @Bean
+    public JpaVendorAdapter jpaVendorAdapter(JpaProperties jpa, RoteamentoLeituraDataSource roteamento) {
+        HibernateJpaVendorAdapter adaptador = new HibernateJpaVendorAdapter() {
+            private final HibernateJpaDialect dialeto = new RoteamentoLeituraJpaDialect(roteamento);
+
+            @Override
+            public HibernateJpaDialect getJpaDialect() {
+                return dialeto;
+            }
+        };
+        adaptador.setShowSql(jpa.isShowSql());
+        if (jpa.getDatabase() != null) adaptador.setDatabase(jpa.getDatabase());
+        if (jpa.getDatabasePlatform() != null) adaptador.setDatabasePlatform(jpa.getDatabasePlatform());
+        adaptador.setGenerateDdl(jpa.isGenerateDdl());
+        return adaptador;
+    }
+}
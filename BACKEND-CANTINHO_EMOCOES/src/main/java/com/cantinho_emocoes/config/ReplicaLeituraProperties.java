@@ -0,0 +1,22 @@
+package com.cantinho_emocoes.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Réplica de leitura do PostgreSQL (app.replica.*). Usuário e senha vazios reaproveitam os da
+ * primária (spring.datasource.*). Com o atraso acima de atrasoMaximo, as leituras voltam para a primária.
+ */
+@ConfigurationProperties(prefix = "app.replica")
+public record ReplicaLeituraProperties(boolean ativo, String url, String username, String password,
+                                       int maximoConexoes, Duration atrasoMaximo) {
+
+    public ReplicaLeituraProperties {
+        if (ativo && (url == null || url.isBlank())) {
+            throw new IllegalArgumentException("app.replica.ativo=true exige app.replica.url.");
+        }
+        maximoConexoes = maximoConexoes > 0 ? maximoConexoes : 10;
+        atrasoMaximo = atrasoMaximo != null ? atrasoMaximo : Duration.ofSeconds(10);
+    }
+}
@@ -0,0 +1,162 @@
+package com.cantinho_emocoes.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.time.Duration;
+
+/**
+ * Escolhe o pool de cada conexão: transações somente leitura (@Transactional(readOnly = true), o que
+ * inclui findById/findAll dos repositórios) vão para a réplica; todo o resto, para a primária.
+ *
+ * A réplica só recebe leituras enquanto o atraso medido em verificarReplica() estiver dentro do limite.
+ * Atrasada, fora do ar ou sem conexão disponível, as leituras voltam para a primária até a próxima
+ * verificação boa. Fica atrás de um LazyConnectionDataSourceProxy: a conexão só é pedida no primeiro
+ * comando, quando a transação já está marcada como somente leitura.
+ *
+ * O RoteamentoLeituraJpaDialect decide o destino no início da transação (usarReplica()) e o deixa
+ * ligado a ela com esta instância como chave: decidida a primária, a leitura não vai para a réplica
+ * mesmo que ela volte antes do primeiro comando.
+ */
+public class RoteamentoLeituraDataSource extends AbstractDataSource implements Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(RoteamentoLeituraDataSource.class);
+
+    // Em dia: já aplicou tudo o que a primária tinha escrito no início da verificação. Senão, o atraso
+    // é o tempo desde a última transação aplicada, limitado ao tempo desde a última verificação em dia
+    // (depois de um período sem escritas, a última transação aplicada pode ser antiga).
+    private static final String SQL_ATRASO = """
+            SELECT pg_is_in_recovery(),
+                   COALESCE(pg_last_wal_replay_lsn() >= CAST(? AS pg_lsn), false),
+                   EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp())
+            """;
+
+    private final HikariDataSource primario;
+    private final HikariDataSource replica;
+    private final Duration atrasoMaximo;
+    private final Counter leiturasNaReplica;
+    private final Counter leiturasNaPrimaria;
+
+    // Começa indisponível: nenhuma leitura vai para a réplica antes da primeira verificação
+    private volatile boolean replicaDisponivel = false;
+    private volatile double atrasoSegundos = Double.NaN;
+    private volatile boolean verificada = false;
+    private long emDiaEm = -1; // System.nanoTime() da última verificação em dia
+
+    public RoteamentoLeituraDataSource(HikariDataSource primario, HikariDataSource replica, Duration atrasoMaximo,
+                                       MeterRegistry meterRegistry) {
+        this.primario = primario;
+        this.replica = replica;
+        this.atrasoMaximo = atrasoMaximo;
+        this.leiturasNaReplica = Counter.builder("banco.leituras").tag("destino", "replica").register(meterRegistry);
+        this.leiturasNaPrimaria = Counter.builder("banco.leituras").tag("destino", "primario").register(meterRegistry);
+        Gauge.builder("banco.replica.atraso", this, r -> r.atrasoSegundos).baseUnit("seconds").register(meterRegistry);
+        Gauge.builder("banco.replica.disponivel", this, r -> r.replicaDisponivel ? 1 : 0).register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return primario.getConnection();
+        }
+        if (replicaDisponivel && !Boolean.FALSE.equals(TransactionSynchronizationManager.getResource(this))) {
+            try {
+                Connection conexao = replica.getConnection();
+                leiturasNaReplica.increment();
+                return conexao;
+            } catch (SQLException e) {
+                marcarIndisponivel("sem conexão (" + e.getMessage() + ")");
+            }
+        }
+        leiturasNaPrimaria.increment();
+        return primario.getConnection();
+    }
+
+    /** Se uma leitura que começa agora deve ir para a réplica. */
+    public boolean usarReplica() {
+        return replicaDisponivel;
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Os pools já têm usuário e senha configurados.");
+    }
+
+    /** Mede o atraso da réplica e decide se ela continua recebendo as leituras. */
+    @Scheduled(fixedDelayString = "${app.replica.verificacao-ms:5000}")
+    public void verificarReplica() {
+        long inicio = System.nanoTime();
+        try {
+            String posicaoPrimaria;
+            try (Connection conexao = primario.getConnection();
+                 Statement st = conexao.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT CAST(pg_current_wal_lsn() AS text)")) {
+                rs.next();
+                posicaoPrimaria = rs.getString(1);
+            }
+            try (Connection conexao = replica.getConnection();
+                 PreparedStatement ps = conexao.prepareStatement(SQL_ATRASO)) {
+                ps.setString(1, posicaoPrimaria);
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    // Fora de standby (ex.: aponta para a própria primária) não há o que esperar
+                    if (!rs.getBoolean(1) || rs.getBoolean(2)) {
+                        emDiaEm = inicio;
+                        atualizar(0);
+                    } else {
+                        double atraso = rs.getDouble(3);
+                        if (rs.wasNull()) atraso = Double.MAX_VALUE;
+                        if (emDiaEm >= 0) atraso = Math.min(atraso, (System.nanoTime() - emDiaEm) / 1e9);
+                        if (atraso == Double.MAX_VALUE) {
+                            marcarIndisponivel("ainda não aplicou nenhuma transação");
+                        } else {
+                            atualizar(atraso);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            atrasoSegundos = Double.NaN;
+            marcarIndisponivel("falha na verificação (" + e.getMessage() + ")");
+        }
+        verificada = true;
+    }
+
+    private void atualizar(double atraso) {
+        atrasoSegundos = atraso;
+        if (atraso * 1000 > atrasoMaximo.toMillis()) {
+            marcarIndisponivel(String.format("atraso de %.1fs, limite de %ds", atraso, atrasoMaximo.toSeconds()));
+        } else if (!replicaDisponivel) {
+            replicaDisponivel = true;
+            log.info("Réplica de leitura disponível (atraso de {}s): leituras voltam para a réplica.",
+                    String.format("%.1f", atraso));
+        }
+    }
+
+    private void marcarIndisponivel(String motivo) {
+        if (replicaDisponivel || !verificada) {
+            log.warn("Réplica de leitura fora de uso: {}. Leituras vão para a primária.", motivo);
+        }
+        replicaDisponivel = false;
+    }
+
+    @Override
+    public void close() {
+        replica.close();
+        primario.close();
+    }
+}
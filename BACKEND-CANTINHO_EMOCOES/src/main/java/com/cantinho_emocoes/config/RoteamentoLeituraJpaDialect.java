@@ -0,0 +1,92 @@
+package com.cantinho_emocoes.config;
+
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.resource.jdbc.spi.LogicalConnectionImplementor;
+import org.springframework.orm.jpa.vendor.HibernateJpaDialect;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.SQLException;
+
+/**
+ * Faz cada transação somente leitura usar uma conexão só dela, devolvida ao pool quando termina.
+ *
+ * Com o open-in-view a sessão do Hibernate dura a requisição inteira e segura a conexão entre uma
+ * transação e outra: uma conexão da réplica, pega numa leitura, seria reaproveitada pela escrita
+ * seguinte da mesma requisição (e uma da primária, pega antes, prenderia a leitura na primária).
+ * Soltando a conexão em volta da leitura, o RoteamentoLeituraDataSource escolhe o pool a cada vez.
+ *
+ * Leitura que vai para a réplica não grava no cache de segundo nível (CacheStoreMode.BYPASS): a réplica pode
+ * estar até app.replica.atraso-maximo atrás, e o que ela devolve logo depois de uma remoção do cache
+ * (CacheEntidadesService) ficaria lá, velho, até o fim do TTL. Só leituras na primária enchem o cache.
+ */
+class RoteamentoLeituraJpaDialect extends HibernateJpaDialect {
+
+    // Propriedade JPA, e não Session.setCacheMode: o find() do Hibernate lê o modo das propriedades da sessão
+    private static final String MODO_GRAVACAO_CACHE = "jakarta.persistence.cache.storeMode";
+
+    private record TransacaoLeitura(Object dadosOriginais, SessionImplementor sessao, Object modoAnterior,
+                                    Object destinoAnterior) {}
+
+    private final RoteamentoLeituraDataSource roteamento;
+
+    RoteamentoLeituraJpaDialect(RoteamentoLeituraDataSource roteamento) {
+        this.roteamento = roteamento;
+    }
+
+    @Override
+    public Object beginTransaction(EntityManager entityManager, TransactionDefinition definition)
+            throws PersistenceException, SQLException, TransactionException {
+        if (!definition.isReadOnly()) {
+            return super.beginTransaction(entityManager, definition);
+        }
+        SessionImplementor sessao = getSession(entityManager);
+        liberarConexao(sessao);
+
+        // O destino é decidido uma vez e vale para a transação inteira (ver RoteamentoLeituraDataSource)
+        boolean naReplica = roteamento.usarReplica();
+        Object destinoAnterior = TransactionSynchronizationManager.unbindResourceIfPossible(roteamento);
+        TransactionSynchronizationManager.bindResource(roteamento, naReplica);
+        Object modoAnterior = sessao.getProperties().get(MODO_GRAVACAO_CACHE);
+        if (naReplica) sessao.setProperty(MODO_GRAVACAO_CACHE, CacheStoreMode.BYPASS);
+
+        try {
+            return new TransacaoLeitura(super.beginTransaction(entityManager, definition), sessao, modoAnterior,
+                    destinoAnterior);
+        } catch (SQLException | RuntimeException e) {
+            restaurar(sessao, modoAnterior, destinoAnterior);
+            throw e;
+        }
+    }
+
+    @Override
+    public void cleanupTransaction(Object transactionData) {
+        if (!(transactionData instanceof TransacaoLeitura leitura)) {
+            super.cleanupTransaction(transactionData);
+            return;
+        }
+        super.cleanupTransaction(leitura.dadosOriginais());
+        liberarConexao(leitura.sessao());
+        restaurar(leitura.sessao(), leitura.modoAnterior(), leitura.destinoAnterior());
+    }
+
+    // Volta ao que valia antes (uma leitura REQUIRES_NEW dentro de outra encontra o destino da de fora)
+    private void restaurar(SessionImplementor sessao, Object modoAnterior, Object destinoAnterior) {
+        sessao.setProperty(MODO_GRAVACAO_CACHE, modoAnterior != null ? modoAnterior : CacheStoreMode.USE);
+        TransactionSynchronizationManager.unbindResourceIfPossible(roteamento);
+        if (destinoAnterior != null) {
+            TransactionSynchronizationManager.bindResource(roteamento, destinoAnterior);
+        }
+    }
+
+    private static void liberarConexao(SessionImplementor sessao) {
+        LogicalConnectionImplementor conexao = sessao.getJdbcCoordinator().getLogicalConnection();
+        if (conexao.isOpen() && conexao.isPhysicallyConnected()) {
+            conexao.manualDisconnect();
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.cantinho_emocoes.config;
 
 import com.cantinho_emocoes.security.JwtAuthFilter;
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationProvider;
@@ -36,11 +37,17 @@ public class SecurityConfig {
             .cors(cors -> cors.configurationSource(corsConfigurationSource()))
             .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
             .authorizeHttpRequests(authorize -> authorize
+                // Despachos assíncronos (SSE) e de erro já foram autorizados na requisição original
+                .dispatcherTypeMatchers(DispatcherType.ASYNC, DispatcherType.ERROR).permitAll()
+
                 // Rotas Públicas (Login, Cadastro, Health Check, Imagens)
                 .requestMatchers("/auth/**", "/api/health", "/uploads/**").permitAll()
                 
                 // Rotas de Admin (Aceita tanto 'ADMIN' quanto 'ADMINISTRADOR' para evitar erros)
                 .requestMatchers("/api/admin/**").hasAnyRole("ADMIN", "ADMINISTRADOR")
+
+                // Métricas (Actuator): apenas administradores
+                .requestMatchers("/actuator/**").hasAnyRole("ADMIN", "ADMINISTRADOR")
                 
                 // Rotas de Responsável
                 .requestMatchers("/api/responsavel/**").hasRole("RESPONSAVEL")
@@ -1,9 +1,14 @@
 package com.cantinho_emocoes.controller;
 
 import com.cantinho_emocoes.dto.DashboardStatsDTO;
+import com.cantinho_emocoes.dto.MapaCalorEmocoesDTO;
 import com.cantinho_emocoes.model.*;
 import com.cantinho_emocoes.repository.*;
+import com.cantinho_emocoes.service.MapaCalorEmocoesService;
+import com.cantinho_emocoes.service.ParticionamentoService;
+import com.cantinho_emocoes.service.RankingService;
 import com.cantinho_emocoes.service.UsuarioService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
@@ -23,17 +28,26 @@ public class AdminController {
     private final AtividadeRepository atividadeRepository;
     private final UsuarioService usuarioService;
     private final PasswordEncoder passwordEncoder;
+    private final MapaCalorEmocoesService mapaCalorEmocoesService;
+    private final RankingService rankingService;
+    private final ParticionamentoService particionamentoService;
 
     public AdminController(UsuarioRepository usuarioRepository, 
                            DiarioRepository diarioRepository,
                            AtividadeRepository atividadeRepository,
                            UsuarioService usuarioService,
-                           PasswordEncoder passwordEncoder) {
+                           PasswordEncoder passwordEncoder,
+                           MapaCalorEmocoesService mapaCalorEmocoesService,
+                           RankingService rankingService,
+                           ParticionamentoService particionamentoService) {
         this.usuarioRepository = usuarioRepository;
         this.diarioRepository = diarioRepository;
         this.atividadeRepository = atividadeRepository;
         this.usuarioService = usuarioService;
         this.passwordEncoder = passwordEncoder;
+        this.mapaCalorEmocoesService = mapaCalorEmocoesService;
+        this.rankingService = rankingService;
+        this.particionamentoService = particionamentoService;
     }
 
     @GetMapping("/dashboard/stats")
@@ -48,7 +62,7 @@ public class AdminController {
     // --- DTOs DE LEITURA ---
     public record UsuarioSimplesDTO(Long id, String nome, String email, String perfil, String responsavelNome) {}
     public record AtividadeDTO(Long id, String tipo, String conteudo, LocalDateTime dataRealizacao, Long alunoId, String alunoNome) {}
-    public record DiarioDTO(Long id, String emocao, int intensidade, String relato, LocalDateTime dataRegistro, Long alunoId, String alunoNome) {}
+    public record DiarioDTO(Long id, Emocao emocao, int intensidade, String relato, LocalDateTime dataRegistro, Long alunoId, String alunoNome) {}
 
     // --- USUÁRIOS ---
     @GetMapping("/usuarios")
@@ -113,7 +127,7 @@ public class AdminController {
 
     @GetMapping("/atividades")
     public ResponseEntity<List<AtividadeDTO>> listarAtividades() {
-        List<AtividadeDTO> lista = atividadeRepository.findAll().stream()
+        List<AtividadeDTO> lista = atividadeRepository.findAllComAluno().stream()
             .map(a -> new AtividadeDTO(
                 a.getId(), 
                 a.getTipo(), 
@@ -167,9 +181,18 @@ public class AdminController {
     }
 
     // --- DIÁRIOS ---
+    // Período padrão: os últimos 30 dias (a tabela é particionada por mês; só esses meses são lidos)
     @GetMapping("/diarios")
-    public ResponseEntity<List<DiarioDTO>> listarDiarios() {
-        List<DiarioDTO> lista = diarioRepository.findAll().stream()
+    public ResponseEntity<?> listarDiarios(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate inicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fim) {
+        LocalDate dataFim = fim != null ? fim : LocalDate.now();
+        LocalDate dataInicio = inicio != null ? inicio : dataFim.minusDays(29);
+        if (dataFim.isBefore(dataInicio)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "A data final é anterior à inicial."));
+        }
+        List<DiarioDTO> lista = diarioRepository.findComDependenteNoPeriodo(
+                dataInicio.atStartOfDay(), dataFim.plusDays(1).atStartOfDay()).stream()
             .map(d -> new DiarioDTO(d.getId(), d.getEmocao(), d.getIntensidade(), d.getRelato(), 
                 d.getDataRegistro(), d.getDependente().getId(), d.getDependente().getNome()))
             .collect(Collectors.toList());
@@ -183,10 +206,20 @@ public class AdminController {
         Diario d = diarioRepository.findById(req.id)
             .orElseThrow(() -> new RuntimeException("Diário não encontrado"));
         
-        if (req.emocao != null) d.setEmocao(req.emocao);
+        if (req.emocao != null) {
+            try {
+                d.setEmocao(Emocao.doNome(req.emocao));
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
+        }
         if (req.intensidade != null) d.setIntensidade(req.intensidade);
         if (req.relato != null) d.setRelato(req.relato);
-        if (req.dataRegistro != null) d.setDataRegistro(req.dataRegistro);
+        if (req.dataRegistro != null) {
+            // A tabela não tem partição DEFAULT: o mês de destino precisa existir
+            particionamentoService.garantirParticao("diarios", req.dataRegistro.toLocalDate());
+            d.setDataRegistro(req.dataRegistro);
+        }
 
         diarioRepository.save(d);
         return ResponseEntity.ok(Map.of("message", "Diário atualizado!"));
@@ -197,4 +230,65 @@ public class AdminController {
         diarioRepository.deleteById(id);
         return ResponseEntity.ok(Map.of("message", "Excluído!"));
     }
-}
\ No newline at end of file
+
+    // --- MAPA DE CALOR DAS EMOÇÕES (servido pelo cubo, sem varrer os diários) ---
+    // Sem filtros: a escola inteira. responsavelId: uma turma. alunoIds: um grupo qualquer.
+    @GetMapping("/emocoes/mapa-calor")
+    public ResponseEntity<?> getMapaCalor(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate inicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fim,
+            @RequestParam(required = false) String emocao,
+            @RequestParam(required = false) Long responsavelId,
+            @RequestParam(required = false) List<Long> alunoIds) {
+        LocalDate dataFim = fim != null ? fim : LocalDate.now();
+        LocalDate dataInicio = inicio != null ? inicio : dataFim.minusDays(29);
+        if (dataFim.isBefore(dataInicio)) {
+            return ResponseEntity.badRequest().body(Map.of("error", "A data final é anterior à inicial."));
+        }
+        Emocao filtroEmocao;
+        try {
+            filtroEmocao = Emocao.doNome(emocao);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        MapaCalorEmocoesDTO mapa;
+        if (alunoIds != null && !alunoIds.isEmpty()) {
+            mapa = mapaCalorEmocoesService.dosAlunos(alunoIds, dataInicio, dataFim, filtroEmocao);
+        } else if (responsavelId != null) {
+            mapa = mapaCalorEmocoesService.daTurma(responsavelId, dataInicio, dataFim, filtroEmocao);
+        } else {
+            mapa = mapaCalorEmocoesService.daEscola(dataInicio, dataFim, filtroEmocao);
+        }
+        return ResponseEntity.ok(mapa);
+    }
+
+    @PostMapping("/emocoes/mapa-calor/reconstruir")
+    public ResponseEntity<?> reconstruirMapaCalor() {
+        mapaCalorEmocoesService.reconstruir();
+        return ResponseEntity.ok(Map.of("message", "Mapa de calor reconstruído a partir dos diários."));
+    }
+
+    // --- RANKING DE XP (escola inteira ou a turma de um responsável) ---
+    @GetMapping("/ranking")
+    public ResponseEntity<?> getRanking(
+            @RequestParam(required = false) String escopo,
+            @RequestParam(required = false) String periodo,
+            @RequestParam(required = false) Long responsavelId,
+            @RequestParam(defaultValue = "10") int limite) {
+        try {
+            RankingService.Escopo tipoEscopo = responsavelId == null && escopo == null
+                    ? RankingService.Escopo.ESCOLA : RankingService.Escopo.de(escopo);
+            return ResponseEntity.ok(rankingService.consultar(tipoEscopo, RankingService.Periodo.de(periodo),
+                    responsavelId, Math.max(1, Math.min(limite, 100)), null));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/ranking/reconstruir")
+    public ResponseEntity<?> reconstruirRanking() {
+        rankingService.reconstruir();
+        return ResponseEntity.ok(Map.of("message", "Ranking recarregado do banco."));
+    }
+}
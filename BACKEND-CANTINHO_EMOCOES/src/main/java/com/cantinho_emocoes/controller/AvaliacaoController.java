@@ -1,17 +1,33 @@
 package com.cantinho_emocoes.controller;
 
+import com.cantinho_emocoes.dto.LoteRelatoriosRequestDTO;
 import com.cantinho_emocoes.model.Avaliacao;
 import com.cantinho_emocoes.model.TipoAvaliacao;
 import com.cantinho_emocoes.model.Usuario;
 import com.cantinho_emocoes.repository.AvaliacaoRepository;
 import com.cantinho_emocoes.repository.UsuarioRepository;
+import com.cantinho_emocoes.service.LoteRelatorios;
+import com.cantinho_emocoes.service.LoteRelatoriosService;
+import com.cantinho_emocoes.service.QuestoesAvaliacao;
+import com.cantinho_emocoes.service.RelatorioAvaliacao;
+import com.cantinho_emocoes.service.RelatorioAvaliacaoService;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.*;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/api/avaliacoes")
@@ -20,84 +36,25 @@ public class AvaliacaoController {
 
     private final AvaliacaoRepository avaliacaoRepository;
     private final UsuarioRepository usuarioRepository;
+    private final QuestoesAvaliacao questoesAvaliacao;
+    private final RelatorioAvaliacaoService relatorioService;
+    private final LoteRelatoriosService loteRelatoriosService;
 
-    public AvaliacaoController(AvaliacaoRepository avaliacaoRepository, UsuarioRepository usuarioRepository) {
+    public AvaliacaoController(AvaliacaoRepository avaliacaoRepository, UsuarioRepository usuarioRepository,
+                               QuestoesAvaliacao questoesAvaliacao, RelatorioAvaliacaoService relatorioService,
+                               LoteRelatoriosService loteRelatoriosService) {
         this.avaliacaoRepository = avaliacaoRepository;
         this.usuarioRepository = usuarioRepository;
+        this.questoesAvaliacao = questoesAvaliacao;
+        this.relatorioService = relatorioService;
+        this.loteRelatoriosService = loteRelatoriosService;
     }
 
     @GetMapping("/templates")
     public ResponseEntity<Map<String, Map<String, Object>>> getTemplatesAvaliacao() {
         Map<String, Map<String, Object>> templates = new HashMap<>();
-
-        // --- EF: ESCUTA, FALA, PENSAMENTO E IMAGINAÇÃO (13 ITENS) ---
-        Map<String, String> ef = new HashMap<>();
-        ef.put("1", "RECONHECE QUANDO É CHAMADO POR SEU NOME E IDENTIFICA OS NOMES DE PESSOAS DO SEU CONVIVIO.");
-        ef.put("2", "DEMONSTRA INTERESSE AO OUVIR LEITURAS, POEMAS, MÚSICAS, HISTÓRIAS LIDAS OU CONTADAS.");
-        ef.put("3", "IDENTIFICA ELEMENTOS DAS ILUSTRAÇÕES DE HISTÓRIAS DOS LIVROS OU OUTROS.");
-        ef.put("4", "IMITA AS VARIAÇÕES DE ENTONAÇÃO E GESTOS, EXPERIMENTANDO AS MÚLTIPLAS LINGUAGENS.");
-        ef.put("5", "COMUNICA-SE COM OUTRAS PESSOAS USANDO MOVIMENTOS, GESTOS OU OUTRAS MANIFESTAÇÕES EXPRESSIVAS.");
-        ef.put("6", "RECONHECE A ESCRITA DO SEU PRÓPRIO NOME.");
-        ef.put("7", "RECONHECE SEMELHANÇAS E DIFERENÇAS ENTRE O SEU NOME E O DOS COLEGAS.");
-        ef.put("8", "APRECIA A ESCRITA DE PEQUENAS HISTÓRIAS.");
-        ef.put("9", "PERGUNTA E RESPONDE PERGUNTAS SOBRE FATOS DE HISTÓRIAS NARRADAS.");
-        ef.put("10", "IDENTIFICA CENÁRIOS, PERSONAGENS E PRINCIPAIS ACONTECIMENTOS A PARTIR DE ILUSTRAÇÕES.");
-        ef.put("11", "RELATA EXPERIÊNCIAS E FATOS ACONTECIDOS.");
-        ef.put("12", "ESCREVE SEU NOME UTILIZANDO ESCRITA ESPONTÂNEA OU CONVENCIONAL.");
-        ef.put("13", "FOLHEIA LIVROS, ESCOLHENDO AQUELES QUE MAIS GOSTAM, ORIENTANDO-SE POR TEMAS E ILUSTRAÇÕES.");
-        templates.put("EF", Map.of("titulo", "Escuta, Fala, Pensamento e Imaginação (EF)", "questoes", ef));
-
-        // --- EO: EU, O OUTRO, O NÓS (13 ITENS) ---
-        Map<String, String> eo = new HashMap<>();
-        eo.put("1", "INTERAGE COM CRIANÇAS DA MESMA E DE OUTRAS FAIXAS ETÁRIAS E COM ADULTOS.");
-        eo.put("2", "COMUNICA NECESSIDADES, DESEJOS E EMOÇÕES.");
-        eo.put("3", "COMPARTILHA, EXPLORA E ORGANIZA OS OBJETOS E ESPAÇOS COM CRIANÇAS E ADULTOS.");
-        eo.put("4", "COMUNICA-SE COM OS COLEGAS E OS ADULTOS, BUSCANDO COMPREENDÊ-LOS E FAZENDO-SE COMPREENDER.");
-        eo.put("5", "OBEDECE A REGRAS E NORMAS SOCIAIS, NA PARTICIPAÇÃO DE BRINCADEIRAS.");
-        eo.put("6", "UTILIZA SUAS HABILIDADES COMUNICATIVAS, PARA RESOLVER CONFLITOS.");
-        eo.put("7", "APRESENTA INDEPENDÊNCIA RECONHECENDO SUAS CONQUISTAS E LIMITAÇÕES.");
-        eo.put("8", "COMUNICA SUAS IDEIAS E SENTIMENTOS.");
-        eo.put("9", "EXPLORA OS ESPAÇOS DO COTIDIANO, COM ATITUDE DE CURIOSIDADE.");
-        eo.put("10", "VALORIZA SUA IDENTIDADE PESSOAL E CULTURAL.");
-        eo.put("11", "DEMONSTRA EMPATIA PELOS OUTROS, PERCEBENDO QUE AS PESSOAS TÊM DIFERENTES SENTIMENTOS.");
-        eo.put("12", "DESCOBRE SUAS POSSIBILIDADES E OS LIMITES DE SEU CORPO NAS BRINCADEIRAS.");
-        eo.put("13", "AMPLIA AS RELAÇÕES INTERPESSOAIS DESENVOLVENDO ATITUDES DE PARTICIPAÇÃO E COOPERAÇÃO.");
-        templates.put("EO", Map.of("titulo", "Eu, o Outro, o Nós (EO)", "questoes", eo));
-
-        // --- TS: TRAÇOS, SONS, CORES E FORMAS (13 ITENS) ---
-        Map<String, String> ts = new HashMap<>();
-        ts.put("1", "EXPLORA SONS PRODUZIDOS COM O PRÓPRIO CORPO E COM OBJETOS DO AMBIENTE.");
-        ts.put("2", "TRAÇA MARCAS GRÁFICAS EM DIFERENTES SUPORTES, FAZENDO O USO DE DIFERENTES RECURSOS.");
-        ts.put("3", "PERCEBE A INTENSIDADE DOS SONS E DOS RITMOS, MOVIMENTANDO-SE DE ACORDO COM A MELODIA.");
-        ts.put("4", "UTILIZA MATERIAIS VARIADOS COM POSSIBILIDADE DE MANIPULAÇÃO, EXPLORANDO CORES, TEXTURAS.");
-        ts.put("5", "UTILIZA DIFERENTES ESTRATÉGIAS E LINGUAGENS PARA EXPRESSAR-SE.");
-        ts.put("6", "EXPRESSA LIVREMENTE EMOÇÕES, NECESSIDADES E IDEIAS ATRAVÉS DE SUAS PRODUÇÕES ARTÍSTICAS.");
-        ts.put("7", "VALORIZA AS PRODUÇÕES ARTÍSTICAS INDIVIDUAIS E COLETIVAS.");
-        ts.put("8", "RECONHECE AS QUALIDADES DO SOM (DURAÇÃO, ALTURA, INTENSIDADE, TIMBRE).");
-        ts.put("9", "PERCEBE A INTENSIDADE DOS SONS E OS RITMOS DAS MELODIAS ECOADAS PELO PRÓPRIO CORPO.");
-        ts.put("10", "DESENVOLVE HABILIDADES DE APRECIAÇÃO E LEITURA DE IMAGENS, DESENHOS, ESCULTURAS.");
-        ts.put("11", "RESPEITA AS DIFERENTES CULTURAS E IDENTIDADES.");
-        ts.put("12", "PARTICIPA DE DECISÕES E AÇÕES RELATIVAS À ORGANIZAÇÃO DO AMBIENTE.");
-        ts.put("13", "RECONHECE E VALORIZA O SEU PERTENCIMENTO ÉTNICO-RACIAL, DE GÊNERO E DE CRENÇA.");
-        templates.put("TS", Map.of("titulo", "Traços, Sons, Cores e Formas (TS)", "questoes", ts));
-
-        // --- ET: ESPAÇOS, TEMPOS, QUANTIDADES (13 ITENS) ---
-        Map<String, String> et = new HashMap<>();
-        et.put("1", "RECONHECE E IDENTIFICA ODORES, CORES, SABORES, TEMPERATURAS, CONSISTÊNCIA.");
-        et.put("2", "VIVENCIA DIFERENTES RITMOS, VELOCIDADES E FLUXOS NAS INTERAÇÕES E BRINCADEIRAS.");
-        et.put("3", "EXPERIMENTA LIVREMENTE AS DIVERSAS FORMAS DE DESLOCAMENTO NO ESPAÇO.");
-        et.put("4", "EXPLORA O AMBIENTE INTERNO ESCOLAR POR MEIO DE PASSEIOS.");
-        et.put("5", "OBSERVA, RELATA E DESCREVE INCIDENTES DO COTIDIANO.");
-        et.put("6", "CLASSIFICA OBJETOS, A PARTIR DE DETERMINADOS ATRIBUTOS (TAMANHO, MASSA, COR).");
-        et.put("7", "CONTA ORALMENTE OBJETOS PESSOAIS, LIVROS, ENTRE OUTROS.");
-        et.put("8", "REGISTRA QUANTIDADES EM DIFERENTES FORMAS (NÚMEROS, GRÁFICOS, OBJETOS).");
-        et.put("9", "ESTABELECE RELAÇÕES DE COMPARAÇÃO, OBSERVANDO SUAS PROPRIEDADES.");
-        et.put("10", "CLASSIFICA OBJETOS E FIGURAS DE ACORDO COM SUAS SEMELHANÇAS E DIFERENÇAS.");
-        et.put("11", "RECONHECE, RELATA E CONSTRÓI SUA LINHA DO TEMPO.");
-        et.put("12", "RELACIONA NÚMEROS ÀS SUAS RESPECTIVAS QUANTIDADES.");
-        et.put("13", "REGISTRA QUANTIDADE, COM ESCRITA NUMÉRICA, A PARTIR DO USO SOCIAL DO NÚMERO.");
-        templates.put("ET", Map.of("titulo", "Espaços, Tempos, Quantidades (ET)", "questoes", et));
-
+        questoesAvaliacao.todos().forEach((tipo, modelo) ->
+                templates.put(tipo.name(), Map.of("titulo", modelo.titulo(), "questoes", modelo.questoes())));
         return ResponseEntity.ok(templates);
     }
 
@@ -154,4 +111,118 @@ public class AvaliacaoController {
     public ResponseEntity<List<Avaliacao>> listarAvaliacoes(@PathVariable Long childId) {
         return ResponseEntity.ok(avaliacaoRepository.findByAlunoIdOrderByDataAvaliacaoDesc(childId));
     }
-}
\ No newline at end of file
+
+    // --- RELATÓRIO EM PDF (gerado em segundo plano) ---
+    // Devolve o pedido com o link do PDF; se já existe um PDF das mesmas avaliações, vem pronto (200)
+    @PostMapping("/relatorio")
+    public ResponseEntity<?> solicitarRelatorio(@RequestHeader("x-child-id") Long childId,
+                                                @RequestParam("unidade") String unidade) {
+        if (unidade.isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Informe a unidade."));
+        }
+        if (!usuarioRepository.existsById(childId)) {
+            return ResponseEntity.status(404).body(Map.of("error", "Aluno não encontrado"));
+        }
+        RelatorioAvaliacao relatorio = relatorioService.solicitar(childId, unidade);
+        Map<String, Object> resposta = Map.of(
+                "id", relatorio.getId(),
+                "status", relatorio.getStatus(),
+                "url", "/api/avaliacoes/relatorio/" + relatorio.getId() + "/pdf");
+        return relatorio.getStatus() == RelatorioAvaliacao.Status.CONCLUIDO
+                ? ResponseEntity.ok(resposta)
+                : ResponseEntity.accepted().body(resposta);
+    }
+
+    @GetMapping("/relatorio/{id}")
+    public ResponseEntity<?> statusRelatorio(@PathVariable String id) {
+        return relatorioService.buscar(id)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(404).body(Map.of("error", "Relatório não encontrado ou expirado.")));
+    }
+
+    @GetMapping("/relatorio/{id}/pdf")
+    public ResponseEntity<?> baixarRelatorio(@PathVariable String id) {
+        RelatorioAvaliacao relatorio = relatorioService.buscar(id).orElse(null);
+        if (relatorio == null) {
+            return ResponseEntity.status(404).body(Map.of("error", "Relatório não encontrado ou expirado."));
+        }
+        if (relatorio.getStatus() != RelatorioAvaliacao.Status.CONCLUIDO) {
+            return ResponseEntity.status(409).body(Map.of("error", "Relatório ainda não está pronto.", "status", relatorio.getStatus()));
+        }
+        String nomeArquivo = "avaliacao_" + relatorio.getAlunoId() + "_"
+                + relatorio.getUnidade().replaceAll("[^\\p{L}\\p{N}]+", "_") + ".pdf";
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.inline().filename(nomeArquivo, StandardCharsets.UTF_8).build().toString())
+                .contentType(MediaType.APPLICATION_PDF)
+                .body(relatorio.getPdf());
+    }
+
+    // --- BOLETINS DA TURMA (lote em segundo plano: ZIP com um PDF por aluno, ou um PDF único) ---
+    @PostMapping("/relatorio/lote")
+    public ResponseEntity<?> iniciarLote(@RequestBody LoteRelatoriosRequestDTO dto,
+                                         @AuthenticationPrincipal UserDetails userDetails) {
+        if (dto.unidade() == null || dto.unidade().isBlank()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Informe a unidade."));
+        }
+        LoteRelatorios.Formato formato;
+        try {
+            formato = LoteRelatorios.Formato.de(dto.formato());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        // Só alunos do próprio professor; sem lista, a turma inteira em ordem alfabética
+        Usuario professor = usuarioRepository.findByEmail(userDetails.getUsername())
+                .orElseThrow(() -> new RuntimeException("Usuário não encontrado"));
+        Map<Long, Usuario> turma = professor.getDependentes().stream()
+                .collect(Collectors.toMap(Usuario::getId, Function.identity()));
+        List<Usuario> selecionados = dto.alunoIds() == null || dto.alunoIds().isEmpty()
+                ? turma.values().stream().sorted(Comparator.comparing(Usuario::getNome, String.CASE_INSENSITIVE_ORDER)).toList()
+                : dto.alunoIds().stream().distinct().map(turma::get).filter(Objects::nonNull).toList();
+        if (selecionados.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Nenhum aluno da sua turma foi selecionado."));
+        }
+
+        LoteRelatorios lote = loteRelatoriosService.iniciar(dto.unidade(),
+                selecionados.stream().map(a -> new LoteRelatoriosService.AlunoLote(a.getId(), a.getNome())).toList(),
+                formato);
+        return ResponseEntity.accepted().body(Map.of(
+                "id", lote.getId(),
+                "status", lote.getStatus(),
+                "total", lote.getTotal(),
+                "url", "/api/avaliacoes/relatorio/lote/" + lote.getId() + "/arquivo"));
+    }
+
+    @GetMapping("/relatorio/lote/{id}")
+    public ResponseEntity<?> statusLote(@PathVariable String id) {
+        return loteRelatoriosService.buscar(id)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(404).body(Map.of("error", "Lote não encontrado ou expirado.")));
+    }
+
+    @DeleteMapping("/relatorio/lote/{id}")
+    public ResponseEntity<?> cancelarLote(@PathVariable String id) {
+        return loteRelatoriosService.cancelar(id)
+                .<ResponseEntity<?>>map(lote -> ResponseEntity.ok(Map.of("message", "Cancelamento solicitado.", "status", lote.getStatus())))
+                .orElseGet(() -> ResponseEntity.status(404).body(Map.of("error", "Lote não encontrado ou expirado.")));
+    }
+
+    @GetMapping("/relatorio/lote/{id}/arquivo")
+    public ResponseEntity<?> baixarLote(@PathVariable String id) {
+        LoteRelatorios lote = loteRelatoriosService.buscar(id).orElse(null);
+        if (lote == null) {
+            return ResponseEntity.status(404).body(Map.of("error", "Lote não encontrado ou expirado."));
+        }
+        if (lote.getStatus() != LoteRelatorios.Status.CONCLUIDO) {
+            return ResponseEntity.status(409).body(Map.of("error", "O lote não está concluído.", "status", lote.getStatus()));
+        }
+        String nomeArquivo = "boletins_" + lote.getUnidade().replaceAll("[^\\p{L}\\p{N}]+", "_")
+                + "." + lote.getFormato().getExtensao();
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(nomeArquivo, StandardCharsets.UTF_8).build().toString())
+                .contentType(MediaType.parseMediaType(lote.getFormato().getContentType()))
+                .body(lote.getArquivo());
+    }
+}
@@ -1,15 +1,29 @@
 package com.cantinho_emocoes.controller;
 
+import com.cantinho_emocoes.dto.ArquivoBackupDTO;
+import com.cantinho_emocoes.service.AcompanhamentoBackupService;
+import com.cantinho_emocoes.service.BackupAgendadoService;
+import com.cantinho_emocoes.service.BackupNativoService;
 import com.cantinho_emocoes.service.BackupService;
+import com.cantinho_emocoes.service.FormatoBackup;
+import com.cantinho_emocoes.service.OperacaoBackup;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.FileSystemResource;
-import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -17,49 +31,171 @@ import java.util.Map;
 public class BackupController {
 
     private final BackupService backupService;
+    private final AcompanhamentoBackupService acompanhamento;
+    private final BackupAgendadoService backupAgendado;
 
-    public BackupController(BackupService backupService) {
+    // Sem multipart não há o limite do Spring: o restore confere o Content-Length
+    @Value("${app.backup.restore.tamanho-maximo:500MB}")
+    private DataSize tamanhoMaximoRestore;
+
+    public BackupController(BackupService backupService, AcompanhamentoBackupService acompanhamento,
+                            BackupAgendadoService backupAgendado) {
         this.backupService = backupService;
+        this.acompanhamento = acompanhamento;
+        this.backupAgendado = backupAgendado;
     }
 
+    // Download em streaming: a saída do pg_dump vai direto para a resposta, sem arquivo temporário.
+    // formato = sql (padrão) | gzip | custom | nativo (zip via COPY, não precisa do pg_dump) | diferencial
+    // No diferencial, "base" é o nome de um backup nativo guardado no servidor (GET /arquivos)
+    // O tipo declarado precisa ser ResponseEntity<StreamingResponseBody> para o Spring fazer o streaming,
+    // por isso os erros de validação saem como ResponseStatusException (ver GlobalExceptionHandler).
     @GetMapping("/download")
-    public ResponseEntity<Resource> downloadBackup() {
+    public ResponseEntity<StreamingResponseBody> downloadBackup(@RequestParam(value = "formato", defaultValue = "sql") String formato,
+                                                                @RequestParam(value = "base", required = false) String base) {
+        FormatoBackup formatoBackup;
+        try {
+            formatoBackup = FormatoBackup.de(formato);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+
+        BackupNativoService.Manifesto manifestoBase = null;
+        if (formatoBackup == FormatoBackup.DIFERENCIAL) {
+            if (base == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Informe o backup base (parâmetro 'base').");
+            }
+            try {
+                manifestoBase = backupAgendado.lerManifesto(base)
+                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Backup base não encontrado: " + base));
+            } catch (IOException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Backup base inválido: " + e.getMessage());
+            }
+        }
+        BackupNativoService.Manifesto baseDiferencial = manifestoBase;
+
+        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
+        String nomeArquivo = "backup_cantinho_" + timestamp + "." + formatoBackup.getExtensao();
+
+        StreamingResponseBody corpo = saida -> {
+            try {
+                if (baseDiferencial != null) {
+                    backupService.gerarBackupDiferencial(saida, baseDiferencial);
+                } else {
+                    backupService.gerarBackup(saida, formatoBackup);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Backup interrompido.", e);
+            }
+        };
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + nomeArquivo)
+                .contentType(MediaType.parseMediaType(formatoBackup.getContentType()))
+                .body(corpo);
+    }
+
+    // Progresso dos backups/restaurações em andamento e dos últimos finalizados
+    @GetMapping("/progresso")
+    public ResponseEntity<List<OperacaoBackup>> listarProgresso() {
+        return ResponseEntity.ok(acompanhamento.listar());
+    }
+
+    // Backups guardados no servidor (agendados ou gerados pelo POST abaixo), mais recentes primeiro
+    @GetMapping("/arquivos")
+    public ResponseEntity<?> listarArquivos() {
         try {
-            File backupFile = backupService.gerarBackup();
-            FileSystemResource resource = new FileSystemResource(backupFile);
-
-            HttpHeaders headers = new HttpHeaders();
-            headers.add(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + backupFile.getName());
-            headers.add(HttpHeaders.CONTENT_TYPE, "application/sql");
-
-            return ResponseEntity.ok()
-                    .headers(headers)
-                    .contentLength(backupFile.length())
-                    .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                    .body(resource);
+            List<ArquivoBackupDTO> arquivos = backupAgendado.listarArquivos();
+            return ResponseEntity.ok(arquivos);
+        } catch (IOException e) {
+            return ResponseEntity.status(500).body(Map.of("error", "Erro ao listar backups: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/arquivos/{nome}")
+    public ResponseEntity<?> baixarArquivo(@PathVariable String nome) {
+        return backupAgendado.buscarArquivo(nome)
+                .<ResponseEntity<?>>map(caminho -> ResponseEntity.ok()
+                        .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + nome)
+                        .contentType(MediaType.APPLICATION_OCTET_STREAM)
+                        .body(new FileSystemResource(caminho)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Gera agora um backup na pasta do servidor, com a mesma retenção/verificação do agendado
+    @PostMapping("/arquivos")
+    public ResponseEntity<?> gerarArquivo() {
+        try {
+            String nome = backupAgendado.executar();
+            return ResponseEntity.ok(Map.of("message", "Backup gerado.", "nome", nome));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(409).body(Map.of("error", e.getMessage()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(500).body(Map.of("error", "Backup interrompido."));
         } catch (Exception e) {
-            e.printStackTrace();
-            return ResponseEntity.internalServerError().build();
+            return ResponseEntity.status(500).body(Map.of("error", "Erro ao gerar backup: " + e.getMessage()));
         }
     }
 
-    @PostMapping("/restore")
-    public ResponseEntity<?> restoreBackup(@RequestParam("file") MultipartFile file) {
-        if (file.isEmpty()) {
+    // Upload "cru" do painel (Content-Type: application/octet-stream, nome do arquivo em ?nome=), sem
+    // multipart: a requisição só grava o corpo num arquivo temporário e responde 202 com o id da operação.
+    // A restauração roda em segundo plano: acompanhe pelo GET /restore/{id}.
+    @PostMapping(value = "/restore/stream", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<?> restoreBackupStream(HttpServletRequest request,
+                                                 @RequestParam(value = "nome", defaultValue = "upload") String nome) {
+        long tamanho = request.getContentLengthLong();
+        if (tamanho < 0) {
+            return ResponseEntity.status(HttpStatus.LENGTH_REQUIRED).body(Map.of("error", "Informe o Content-Length do arquivo."));
+        }
+        if (tamanho == 0) {
             return ResponseEntity.badRequest().body(Map.of("error", "Arquivo vazio."));
         }
-        
-        String fileName = file.getOriginalFilename();
-        if (fileName == null || (!fileName.endsWith(".sql") && !fileName.endsWith(".dum") && !fileName.endsWith(".dump"))) {
-             return ResponseEntity.badRequest().body(Map.of("error", "Formato inválido. Use .sql ou .dum"));
+        if (tamanho > tamanhoMaximoRestore.toBytes()) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(Map.of("error",
+                    "Arquivo maior que o limite de " + tamanhoMaximoRestore.toMegabytes() + "MB."));
+        }
+        if (!nome.endsWith(".sql") && !nome.endsWith(".sql.gz")
+                && !nome.endsWith(".dum") && !nome.endsWith(".dump") && !nome.endsWith(".zip")) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Formato inválido. Use .sql, .sql.gz, .dump ou .zip"));
         }
 
+        try (InputStream entrada = request.getInputStream()) {
+            OperacaoBackup operacao = backupService.restaurarBackup(entrada, tamanho, nome);
+            return respostaRestauracao(operacao);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return ResponseEntity.status(500).body(Map.of("error", "Erro ao restaurar: " + e.getMessage()));
+        }
+    }
+
+    // Restore paralelo (pg_restore -j) de um backup em formato diretório já salvo na pasta de backups
+    @PostMapping("/restore/diretorio")
+    public ResponseEntity<?> restoreDiretorio(@RequestParam("nome") String nome,
+                                              @RequestParam(value = "jobs", required = false) Integer jobs) {
         try {
-            backupService.restaurarBackup(file);
-            return ResponseEntity.ok(Map.of("message", "Banco restaurado com sucesso!"));
+            return respostaRestauracao(backupService.restaurarDiretorio(nome, jobs));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
         } catch (Exception e) {
             e.printStackTrace();
             return ResponseEntity.status(500).body(Map.of("error", "Erro ao restaurar: " + e.getMessage()));
         }
     }
-}
\ No newline at end of file
+
+    @GetMapping("/restore/{id}")
+    public ResponseEntity<?> statusRestauracao(@PathVariable String id) {
+        return acompanhamento.buscar(id)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    private ResponseEntity<?> respostaRestauracao(OperacaoBackup operacao) {
+        return ResponseEntity.accepted().body(Map.of(
+                "message", "Restauração iniciada.",
+                "id", operacao.getId(),
+                "status", "/api/admin/backup/restore/" + operacao.getId()
+        ));
+    }
+}
@@ -1,9 +1,11 @@
 package com.cantinho_emocoes.controller;
 
 import com.cantinho_emocoes.model.Diario;
+import com.cantinho_emocoes.model.Emocao;
 import com.cantinho_emocoes.model.Usuario;
 import com.cantinho_emocoes.repository.DiarioRepository;
 import com.cantinho_emocoes.repository.UsuarioRepository;
+import com.cantinho_emocoes.service.ParticionamentoService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -22,10 +24,13 @@ public class DiarioController {
 
     private final DiarioRepository diarioRepository;
     private final UsuarioRepository usuarioRepository;
+    private final ParticionamentoService particionamentoService;
 
-    public DiarioController(DiarioRepository diarioRepository, UsuarioRepository usuarioRepository) {
+    public DiarioController(DiarioRepository diarioRepository, UsuarioRepository usuarioRepository,
+                            ParticionamentoService particionamentoService) {
         this.diarioRepository = diarioRepository;
         this.usuarioRepository = usuarioRepository;
+        this.particionamentoService = particionamentoService;
     }
 
     @GetMapping("/meus")
@@ -47,8 +52,18 @@ public class DiarioController {
         Usuario crianca = usuarioRepository.findById(childId)
                 .orElseThrow(() -> new RuntimeException("Criança não encontrada"));
 
+        Emocao emocao;
+        try {
+            emocao = Emocao.doNome((String) payload.get("emocao"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+        if (emocao == null) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Informe a emoção."));
+        }
+
         Diario diario = new Diario();
-        diario.setEmocao((String) payload.get("emocao"));
+        diario.setEmocao(emocao);
         diario.setIntensidade((Integer) payload.get("intensidade"));
         diario.setRelato((String) payload.get("relato"));
         
@@ -76,7 +91,7 @@ public class DiarioController {
 
         Diario novoDiario = new Diario();
         
-        novoDiario.setEmocao("CRIATIVO"); 
+        novoDiario.setEmocao(Emocao.CRIATIVO); 
         
         novoDiario.setIntensidade(5); 
         novoDiario.setRelato("Atividade de Desenho"); 
@@ -101,7 +116,12 @@ public class DiarioController {
                 .orElseThrow(() -> new RuntimeException("Registro de Diário não encontrado com ID: " + diarioId));
 
         if (payload.containsKey("emocao")) {
-            diarioExistente.setEmocao((String) payload.get("emocao"));
+            try {
+                Emocao emocao = Emocao.doNome((String) payload.get("emocao"));
+                if (emocao != null) diarioExistente.setEmocao(emocao);
+            } catch (IllegalArgumentException e) {
+                return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+            }
         }
         
         if (payload.containsKey("intensidade")) {
@@ -120,6 +140,8 @@ public class DiarioController {
              try {
                  // Converte a string para LocalDateTime
                  LocalDateTime novaData = LocalDateTime.parse(novaDataStr);
+                 // A tabela não tem partição DEFAULT: o mês de destino precisa existir
+                 particionamentoService.garantirParticao("diarios", novaData.toLocalDate());
                  diarioExistente.setDataRegistro(novaData);
              } catch (DateTimeParseException e) {
                  return ResponseEntity.badRequest().body(Map.of("error", "Formato de data inválido. Use ISO-8601 (ex: 2025-12-08T10:00:00)."));
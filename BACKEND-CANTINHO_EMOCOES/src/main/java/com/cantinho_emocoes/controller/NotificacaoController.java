@@ -0,0 +1,93 @@
+package com.cantinho_emocoes.controller;
+
+import com.cantinho_emocoes.dto.NotificacaoDTO;
+import com.cantinho_emocoes.model.Usuario;
+import com.cantinho_emocoes.security.TicketStreamService;
+import com.cantinho_emocoes.service.NotificacaoService;
+import com.cantinho_emocoes.service.NotificacaoStreamHub;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/notificacoes")
+public class NotificacaoController {
+
+    private final NotificacaoService notificacaoService;
+    private final NotificacaoStreamHub streamHub;
+    private final TicketStreamService ticketStreamService;
+
+    public NotificacaoController(NotificacaoService notificacaoService, NotificacaoStreamHub streamHub,
+                                 TicketStreamService ticketStreamService) {
+        this.notificacaoService = notificacaoService;
+        this.streamHub = streamHub;
+        this.ticketStreamService = ticketStreamService;
+    }
+
+    // --- CANAL EM TEMPO REAL (SSE) ---
+    // Autenticado pelo cabeçalho Authorization; o ticket devolvido abre uma única conexão em
+    // GET /stream?ticket=... dentro da validade.
+    @PostMapping("/stream/ticket")
+    public ResponseEntity<?> emitirTicketStream(@AuthenticationPrincipal Usuario usuario) {
+        return ResponseEntity.ok(Map.of(
+                "ticket", ticketStreamService.emitir(usuario.getEmail()),
+                "validadeSegundos", ticketStreamService.getValidadeSegundos()));
+    }
+
+    // O ticket já foi consumido na primeira conexão: para reconectar, o cliente pede outro e informa o
+    // último ID de evento recebido em ?ultimoId= (o EventSource criado à mão não envia Last-Event-ID).
+    // O ID do evento é um cursor opaco, não o da notificação; o reenvio pode repetir notificações já
+    // recebidas, e o cliente descarta as repetidas pelo campo id dos dados.
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter stream(
+            @AuthenticationPrincipal Usuario usuario,
+            @RequestHeader(value = "Last-Event-ID", required = false) String ultimoEventoId,
+            @RequestParam(value = "ultimoId", required = false) String ultimoId) {
+        return streamHub.conectar(usuario.getId(), ultimoEventoId != null ? ultimoEventoId : ultimoId);
+    }
+
+    @GetMapping
+    public ResponseEntity<List<NotificacaoDTO>> listar(@AuthenticationPrincipal Usuario usuario) {
+        return ResponseEntity.ok(notificacaoService.listarNotificacoesDoUsuario(usuario).stream()
+                .map(NotificacaoDTO::de)
+                .toList());
+    }
+
+    // --- BADGE DE NÃO LIDAS (servido do contador em memória) ---
+    @GetMapping("/nao-lidas/contagem")
+    public ResponseEntity<?> contarNaoLidas(@AuthenticationPrincipal Usuario usuario) {
+        return ResponseEntity.ok(Map.of("total", notificacaoService.contarNaoLidas(usuario.getId())));
+    }
+
+    // --- MARCAR COMO LIDA (uma, várias ou todas) ---
+    public record MarcarLidasRequest(List<Long> ids) {}
+
+    @PatchMapping("/{id}/lida")
+    public ResponseEntity<?> marcarComoLida(@PathVariable Long id, @AuthenticationPrincipal Usuario usuario) {
+        int alteradas = notificacaoService.marcarComoLidas(usuario.getId(), List.of(id));
+        return ResponseEntity.ok(Map.of("atualizadas", alteradas));
+    }
+
+    // Só as notificações listadas em "ids"; seleção vazia é recusada (para todas, use /lidas/todas)
+    @PatchMapping("/lidas")
+    public ResponseEntity<?> marcarComoLidas(@AuthenticationPrincipal Usuario usuario,
+                                             @RequestBody(required = false) MarcarLidasRequest request) {
+        if (request == null || request.ids() == null || request.ids().isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("error",
+                    "Informe as notificações em \"ids\". Para marcar todas, use PATCH /api/notificacoes/lidas/todas."));
+        }
+        int alteradas = notificacaoService.marcarComoLidas(usuario.getId(), request.ids());
+        return ResponseEntity.ok(Map.of("atualizadas", alteradas));
+    }
+
+    @PatchMapping("/lidas/todas")
+    public ResponseEntity<?> marcarTodasComoLidas(@AuthenticationPrincipal Usuario usuario) {
+        int alteradas = notificacaoService.marcarTodasComoLidas(usuario.getId());
+        return ResponseEntity.ok(Map.of("atualizadas", alteradas));
+    }
+}
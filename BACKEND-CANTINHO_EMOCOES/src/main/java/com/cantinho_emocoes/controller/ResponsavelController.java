@@ -3,18 +3,35 @@ package com.cantinho_emocoes.controller;
 import com.cantinho_emocoes.dto.*;
 import com.cantinho_emocoes.model.*;
 import com.cantinho_emocoes.repository.*;
+import com.cantinho_emocoes.service.AnaliseEmocoesService;
+import com.cantinho_emocoes.service.ExportacaoService;
+import com.cantinho_emocoes.service.GraficoEmocoesService;
+import com.cantinho_emocoes.service.MapaCalorEmocoesService;
+import com.cantinho_emocoes.service.RankingService;
 import com.cantinho_emocoes.service.UsuarioService; // Importante
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @RestController
@@ -26,12 +43,25 @@ public class ResponsavelController {
     private final DiarioRepository diarioRepository;
     private final PasswordEncoder passwordEncoder;
     private final UsuarioService usuarioService; // Injeção do Service
+    private final ExportacaoService exportacaoService;
+    private final GraficoEmocoesService graficoEmocoesService;
+    private final AnaliseEmocoesService analiseEmocoesService;
+    private final MapaCalorEmocoesService mapaCalorEmocoesService;
+    private final RankingService rankingService;
 
-    public ResponsavelController(UsuarioRepository u, DiarioRepository dr, PasswordEncoder passwordEncoder, UsuarioService usuarioService) {
+    public ResponsavelController(UsuarioRepository u, DiarioRepository dr, PasswordEncoder passwordEncoder, UsuarioService usuarioService,
+                                 ExportacaoService exportacaoService, GraficoEmocoesService graficoEmocoesService,
+                                 AnaliseEmocoesService analiseEmocoesService, MapaCalorEmocoesService mapaCalorEmocoesService,
+                                 RankingService rankingService) {
         this.usuarioRepository = u;
         this.diarioRepository = dr;
         this.passwordEncoder = passwordEncoder;
         this.usuarioService = usuarioService;
+        this.exportacaoService = exportacaoService;
+        this.graficoEmocoesService = graficoEmocoesService;
+        this.analiseEmocoesService = analiseEmocoesService;
+        this.mapaCalorEmocoesService = mapaCalorEmocoesService;
+        this.rankingService = rankingService;
     }
 
     private Usuario getUsuario(String email) {
@@ -39,6 +69,17 @@ public class ResponsavelController {
                 .orElseThrow(() -> new RuntimeException("Usuário não encontrado"));
     }
 
+    // Filho do usuário logado (404 se não existe, 403 se é de outro responsável)
+    private Usuario getFilhoDoResponsavel(Long id, UserDetails userDetails) {
+        Usuario pai = getUsuario(userDetails.getUsername());
+        Usuario filho = usuarioRepository.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Filho não encontrado"));
+        if (filho.getResponsavel() == null || !filho.getResponsavel().getId().equals(pai.getId())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Acesso negado.");
+        }
+        return filho;
+    }
+
     @PostMapping("/dependentes")
     public ResponseEntity<?> criarDependente(@RequestBody DependenteDTO dto, @AuthenticationPrincipal UserDetails userDetails) {
         Usuario pai = getUsuario(userDetails.getUsername());
@@ -93,30 +134,33 @@ public class ResponsavelController {
              }
         }
 
-        List<Diario> diarios = diarioRepository.findByDependenteIdOrderByDataRegistroDesc(id);
+        LocalDateTime inicioHoje = LocalDate.now().atStartOfDay();
+        LocalDateTime inicioSemana = LocalDateTime.now().minusDays(7);
+        LocalDateTime inicioMes = LocalDateTime.now().minusDays(30);
+
+        // Só os últimos 30 dias vêm inteiros (partições do período); gráfico e últimos registros saem
+        // deles e só descem mais quando a criança não registrou o bastante no mês (ver maisRecentes)
+        List<Diario> doMes = diarioRepository.findByDependenteIdAndDataRegistroGreaterThanEqualOrderByDataRegistroDesc(id, inicioMes);
 
-        List<DiarioDTO> historicoGrafico = diarios.stream()
-                .filter(d -> !"CRIATIVO".equalsIgnoreCase(d.getEmocao())) 
-                .limit(20)
+        List<DiarioDTO> historicoGrafico = maisRecentes(id, doMes, inicioMes, 20, Emocao.CRIATIVO,
+                desde -> diarioRepository.findTop20ByDependenteIdAndEmocaoNotAndDataRegistroGreaterThanEqualOrderByDataRegistroDesc(id, Emocao.CRIATIVO, desde))
+                .stream()
                 .sorted((d1, d2) -> d1.getDataRegistro().compareTo(d2.getDataRegistro()))
                 .map(this::converterDiarioParaDTO)
                 .collect(Collectors.toList());
 
-        List<DiarioDTO> ultimosRegistros = diarios.stream()
-                .limit(5)
+        List<DiarioDTO> ultimosRegistros = maisRecentes(id, doMes, inicioMes, 5, null,
+                desde -> diarioRepository.findTop5ByDependenteIdAndDataRegistroGreaterThanEqualOrderByDataRegistroDesc(id, desde))
+                .stream()
                 .map(this::converterDiarioParaDTO)
                 .collect(Collectors.toList());
 
-        LocalDateTime inicioHoje = LocalDate.now().atStartOfDay();
-        LocalDateTime inicioSemana = LocalDateTime.now().minusDays(7);
-        LocalDateTime inicioMes = LocalDateTime.now().minusDays(30);
-
-        Map<String, Long> statsHoje = contarEmocoes(diarios, inicioHoje);
-        Map<String, Long> statsSemana = contarEmocoes(diarios, inicioSemana);
-        Map<String, Long> statsMes = contarEmocoes(diarios, inicioMes);
+        Map<String, Long> statsHoje = contarEmocoes(doMes, inicioHoje);
+        Map<String, Long> statsSemana = contarEmocoes(doMes, inicioSemana);
+        Map<String, Long> statsMes = contarEmocoes(doMes, inicioMes);
 
         return ResponseEntity.ok(Map.of(
-            "totalRegistros", diarios.size(), 
+            "totalRegistros", diarioRepository.contarPeloCubo(id),
             "historicoGrafico", historicoGrafico,
             "ultimosRegistros", ultimosRegistros,
             "statsHoje", statsHoje,
@@ -125,6 +169,208 @@ public class ResponsavelController {
         ));
     }
 
+    /**
+     * Os {@code quantidade} diários mais recentes (sem a emoção {@code excluida}), do mais novo para o mais antigo.
+     * Saem dos últimos 30 dias já lidos; se faltar, o cubo diz até que dia descer e a busca só abre as
+     * partições desse período, nunca o histórico inteiro. O cubo não conta desenhos: sem emoções
+     * suficientes para chegar à quantidade, os desenhos anteriores ao primeiro registro ficam de fora.
+     */
+    private List<Diario> maisRecentes(Long dependenteId, List<Diario> doMes, LocalDateTime inicioMes, int quantidade,
+                                      Emocao excluida, Function<LocalDateTime, List<Diario>> buscarDesde) {
+        List<Diario> recentes = doMes.stream()
+                .filter(d -> d.getEmocao() != excluida)
+                .limit(quantidade)
+                .toList();
+        if (recentes.size() == quantidade) return recentes;
+
+        LocalDateTime desde = diarioRepository.inicioDosMaisRecentes(dependenteId, quantidade);
+        if (desde == null || !desde.isBefore(inicioMes)) return recentes;
+        return buscarDesde.apply(desde);
+    }
+
+    // --- XP E NÍVEL DO FILHO (gamificação) ---
+    @GetMapping("/dependentes/{id}/perfil")
+    public ResponseEntity<PerfilDTO> getPerfilDependente(@PathVariable Long id, @AuthenticationPrincipal UserDetails userDetails) {
+        getFilhoDoResponsavel(id, userDetails);
+        return ResponseEntity.ok(usuarioService.getPerfilDoDependente(id));
+    }
+
+    // --- RANKING DE XP (turma ou escola, total ou da semana), servido da memória ---
+    // Ex: /ranking?escopo=turma&periodo=semana&limite=10&alunoId=3
+    @GetMapping("/ranking")
+    public ResponseEntity<RankingDTO> getRanking(
+            @RequestParam(required = false) String escopo,
+            @RequestParam(required = false) String periodo,
+            @RequestParam(defaultValue = "10") int limite,
+            @RequestParam(required = false) Long alunoId,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        Usuario professor = getUsuario(userDetails.getUsername());
+        if (alunoId != null) getFilhoDoResponsavel(alunoId, userDetails);
+
+        RankingService.Escopo tipoEscopo;
+        RankingService.Periodo tipoPeriodo;
+        try {
+            tipoEscopo = RankingService.Escopo.de(escopo);
+            tipoPeriodo = RankingService.Periodo.de(periodo);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        return ResponseEntity.ok(rankingService.consultar(tipoEscopo, tipoPeriodo, professor.getId(),
+                Math.max(1, Math.min(limite, 100)), alunoId));
+    }
+
+    // --- GRÁFICO DE EMOÇÕES COMO IMAGEM (PNG/SVG pronto, para celulares fracos, relatórios e e-mail) ---
+    // Ex: /dependentes/3/grafico?formato=svg&largura=800&altura=400&dias=30
+    @GetMapping("/dependentes/{id}/grafico")
+    public ResponseEntity<byte[]> getGraficoImagem(@PathVariable Long id,
+                                                   @RequestParam(defaultValue = "png") String formato,
+                                                   @RequestParam(defaultValue = "600") int largura,
+                                                   @RequestParam(defaultValue = "300") int altura,
+                                                   @RequestParam(defaultValue = "30") int dias,
+                                                   @AuthenticationPrincipal UserDetails userDetails,
+                                                   WebRequest request) {
+        getFilhoDoResponsavel(id, userDetails);
+
+        GraficoEmocoesService.Formato tipo;
+        try {
+            tipo = GraficoEmocoesService.Formato.de(formato);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+        // Limites para ninguém pedir uma imagem gigante (ou vazia)
+        int w = Math.max(200, Math.min(largura, 2000));
+        int h = Math.max(120, Math.min(altura, 1200));
+        int periodo = Math.max(1, Math.min(dias, 365));
+
+        String etag = "\"" + graficoEmocoesService.chave(id, periodo, w, h, tipo) + "\"";
+        if (request.checkNotModified(etag)) {
+            return null; // 304: o navegador já tem esta imagem
+        }
+        GraficoEmocoesService.Imagem imagem = graficoEmocoesService.obter(id, periodo, w, h, tipo);
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .contentType(MediaType.parseMediaType(tipo.getContentType()))
+                .body(imagem.conteudo());
+    }
+
+    // --- TENDÊNCIAS EMOCIONAIS (média móvel, sequências, semana a semana, transições) ---
+    // Ex: /dependentes/3/analise?inicio=2025-03-01&fim=2025-03-31&janela=7&emocao=TRISTE
+    @GetMapping("/dependentes/{id}/analise")
+    public ResponseEntity<AnaliseEmocoesDTO> getAnaliseEmocoes(
+            @PathVariable Long id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate inicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fim,
+            @RequestParam(defaultValue = "7") int janela,
+            @RequestParam(required = false) String emocao,
+            @RequestParam(defaultValue = "2") int minimoDias,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        getFilhoDoResponsavel(id, userDetails);
+
+        // Sem datas: os últimos 30 dias
+        LocalDate dataFim = fim != null ? fim : LocalDate.now();
+        LocalDate dataInicio = inicio != null ? inicio : dataFim.minusDays(29);
+        if (dataFim.isBefore(dataInicio)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A data final é anterior à inicial.");
+        }
+        if (dataInicio.plusYears(2).isBefore(dataFim)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Período máximo de 2 anos.");
+        }
+        int janelaDias = Math.max(1, Math.min(janela, 90));
+        Emocao filtroEmocao = filtroEmocao(emocao);
+
+        return ResponseEntity.ok(analiseEmocoesService.analisar(id, dataInicio, dataFim, janelaDias,
+                filtroEmocao, Math.max(1, minimoDias)));
+    }
+
+    // --- MAPA DE CALOR DA TURMA (dia, dia da semana x hora, emoção) ---
+    // Sem alunoIds: a turma toda. Com alunoIds: só os informados que são da turma.
+    @GetMapping("/emocoes/mapa-calor")
+    public ResponseEntity<MapaCalorEmocoesDTO> getMapaCalorTurma(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate inicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fim,
+            @RequestParam(required = false) String emocao,
+            @RequestParam(required = false) List<Long> alunoIds,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        Usuario professor = getUsuario(userDetails.getUsername());
+
+        LocalDate dataFim = fim != null ? fim : LocalDate.now();
+        LocalDate dataInicio = inicio != null ? inicio : dataFim.minusDays(29);
+        if (dataFim.isBefore(dataInicio)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A data final é anterior à inicial.");
+        }
+        Emocao filtroEmocao = filtroEmocao(emocao);
+
+        if (alunoIds == null || alunoIds.isEmpty()) {
+            return ResponseEntity.ok(mapaCalorEmocoesService.daTurma(professor.getId(), dataInicio, dataFim, filtroEmocao));
+        }
+        List<Long> daTurma = professor.getDependentes().stream()
+                .map(Usuario::getId)
+                .filter(alunoIds::contains)
+                .toList();
+        if (daTurma.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Nenhum dos alunos informados é da sua turma.");
+        }
+        return ResponseEntity.ok(mapaCalorEmocoesService.dosAlunos(daTurma, dataInicio, dataFim, filtroEmocao));
+    }
+
+    // --- EXPORTAÇÃO COMPLETA DO FILHO (ZIP em streaming: JSONs + desenhos em PNG) ---
+    @GetMapping("/dependentes/{id}/export")
+    public ResponseEntity<StreamingResponseBody> exportarDependente(@PathVariable Long id, @AuthenticationPrincipal UserDetails userDetails) {
+        Usuario pai = getUsuario(userDetails.getUsername());
+        Usuario filho = usuarioRepository.findById(id)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Filho não encontrado"));
+        // Aqui a verificação é obrigatória: o arquivo contém todo o histórico da criança
+        if (filho.getResponsavel() == null || !filho.getResponsavel().getId().equals(pai.getId())) {
+            throw new ResponseStatusException(HttpStatus.FORBIDDEN, "Acesso negado.");
+        }
+
+        String nomeArquivo = "cantinho_" + filho.getNome().replaceAll("[^\\p{L}\\p{N}]+", "_")
+                + "_" + LocalDate.now() + ".zip";
+        StreamingResponseBody corpo = saida -> exportacaoService.exportarDependente(id, saida);
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(nomeArquivo, StandardCharsets.UTF_8).build().toString())
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .body(corpo);
+    }
+
+    // --- DESENHOS DA TURMA (ZIP em streaming, uma pasta por aluno) ---
+    // Ex: ?tipo=VOGAL&conteudo=A para todas as "VOGAL A" da semana. Sem datas, vale a semana atual.
+    @GetMapping("/desenhos/export")
+    public ResponseEntity<StreamingResponseBody> exportarDesenhosTurma(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate inicio,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate fim,
+            @RequestParam(required = false) String tipo,
+            @RequestParam(required = false) String conteudo,
+            @RequestParam(defaultValue = "true") boolean diarios,
+            @AuthenticationPrincipal UserDetails userDetails) {
+        Usuario professor = getUsuario(userDetails.getUsername());
+
+        LocalDate dataInicio = inicio != null ? inicio : LocalDate.now().with(DayOfWeek.MONDAY);
+        LocalDate dataFim = fim != null ? fim : LocalDate.now();
+        if (dataFim.isBefore(dataInicio)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "A data final é anterior à inicial.");
+        }
+        String filtroTipo = tipo == null || tipo.isBlank() ? null : tipo.trim().toUpperCase();
+        String filtroConteudo = conteudo == null || conteudo.isBlank() ? null : conteudo.trim().toUpperCase();
+
+        StringBuilder nomeArquivo = new StringBuilder("desenhos_turma_").append(dataInicio).append("_").append(dataFim);
+        if (filtroTipo != null) nomeArquivo.append("_").append(filtroTipo);
+        if (filtroConteudo != null) nomeArquivo.append("_").append(filtroConteudo);
+        String nome = nomeArquivo.toString().replaceAll("[^\\p{L}\\p{N}_-]+", "-") + ".zip";
+
+        StreamingResponseBody corpo = saida -> exportacaoService.exportarDesenhosTurma(professor.getId(),
+                dataInicio.atStartOfDay(), dataFim.plusDays(1).atStartOfDay(), filtroTipo, filtroConteudo, diarios, saida);
+
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(nome, StandardCharsets.UTF_8).build().toString())
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .body(corpo);
+    }
+
     // --- NOVOS ENDPOINTS PARA GERENCIAMENTO E CORREÇÃO DE AVATAR ---
 
     @PutMapping("/dependentes/{id}/avatar")
@@ -151,6 +397,14 @@ public class ResponsavelController {
 
     // --- Métodos Auxiliares ---
 
+    private static Emocao filtroEmocao(String emocao) {
+        try {
+            return Emocao.doNome(emocao);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
     private DiarioDTO converterDiarioParaDTO(Diario d) {
         return new DiarioDTO(d.getId(), d.getEmocao(), d.getIntensidade(), d.getRelato(), d.getDesenhoBase64(), d.getDataRegistro());
     }
@@ -158,7 +412,7 @@ public class ResponsavelController {
     private Map<String, Long> contarEmocoes(List<Diario> todos, LocalDateTime dataCorte) {
         return todos.stream()
                 .filter(d -> d.getDataRegistro().isAfter(dataCorte)) 
-                .filter(d -> !"CRIATIVO".equalsIgnoreCase(d.getEmocao())) 
-                .collect(Collectors.groupingBy(Diario::getEmocao, Collectors.counting()));
+                .filter(d -> !d.getEmocao().isDesenho())
+                .collect(Collectors.groupingBy(d -> d.getEmocao().name(), Collectors.counting()));
     }
 }
\ No newline at end of file
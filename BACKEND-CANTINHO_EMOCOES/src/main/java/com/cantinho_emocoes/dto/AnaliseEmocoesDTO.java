@@ -0,0 +1,31 @@
+package com.cantinho_emocoes.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Tendências emocionais de uma criança num período (tudo calculado no banco).
+ */
+public record AnaliseEmocoesDTO(
+    Long dependenteId,
+    LocalDate inicio,
+    LocalDate fim,
+    int janelaDias,
+    List<MediaMovel> mediaMovel,
+    List<Sequencia> sequencias,
+    List<VariacaoSemanal> semanas,
+    List<Transicao> transicoes
+) {
+    /** Intensidade média do dia e dos últimos janelaDias dias (dias sem registro entram vazios). */
+    public record MediaMovel(LocalDate dia, long registros, Double mediaDia, Double mediaMovel) {}
+
+    /** Dias seguidos em que a emoção foi registrada pelo menos uma vez. */
+    public record Sequencia(String emocao, LocalDate inicio, LocalDate fim, int dias) {}
+
+    /** Registros e intensidade da semana (segunda-feira) contra a semana anterior; emocao TODAS = total da semana. */
+    public record VariacaoSemanal(LocalDate semana, String emocao, long registros, long registrosSemanaAnterior,
+                                  Double mediaIntensidade, Double mediaSemanaAnterior) {}
+
+    /** Quantas vezes um registro com a emoção "de" foi seguido por um com "para". */
+    public record Transicao(String de, String para, long vezes, double percentual) {}
+}
@@ -0,0 +1,12 @@
+package com.cantinho_emocoes.dto;
+
+import java.time.LocalDateTime;
+
+public record ArquivoBackupDTO(
+    String nome,
+    long tamanho,
+    LocalDateTime geradoEm,
+    String sha256,
+    boolean verificado,
+    boolean diferencial
+) {}
@@ -0,0 +1,12 @@
+package com.cantinho_emocoes.dto;
+
+import java.time.LocalDateTime;
+
+// Atividade sem o desenho: prefixoDesenho é só o começo do data URL (null se não houver desenho)
+public record AtividadeExportacaoDTO(
+    Long id,
+    String tipo,
+    String conteudo,
+    LocalDateTime dataRealizacao,
+    String prefixoDesenho
+) {}
@@ -0,0 +1,19 @@
+package com.cantinho_emocoes.dto;
+
+import com.cantinho_emocoes.model.Emocao;
+import java.time.LocalDateTime;
+
+// Desenho de um diário ou atividade, com o aluno, para gerar arquivos de imagem (exportações)
+public record DesenhoDTO(
+    Long id,
+    Long alunoId,
+    String alunoNome,
+    String rotulo,
+    LocalDateTime data,
+    String desenhoBase64
+) {
+    // Desenhos de diários: o rótulo é o nome da emoção
+    public DesenhoDTO(Long id, Long alunoId, String alunoNome, Emocao emocao, LocalDateTime data, String desenhoBase64) {
+        this(id, alunoId, alunoNome, emocao.name(), data, desenhoBase64);
+    }
+}
@@ -1,10 +1,11 @@
 package com.cantinho_emocoes.dto;
 
+import com.cantinho_emocoes.model.Emocao;
 import java.time.LocalDateTime;
 
 public record DiarioDTO(
     Long id,
-    String emocao,
+    Emocao emocao,
     int intensidade,
     String relato,
 
@@ -0,0 +1,14 @@
+package com.cantinho_emocoes.dto;
+
+import com.cantinho_emocoes.model.Emocao;
+import java.time.LocalDateTime;
+
+// Diário sem o desenho: prefixoDesenho é só o começo do data URL (null se não houver desenho)
+public record DiarioExportacaoDTO(
+    Long id,
+    Emocao emocao,
+    int intensidade,
+    String relato,
+    LocalDateTime dataRegistro,
+    String prefixoDesenho
+) {}
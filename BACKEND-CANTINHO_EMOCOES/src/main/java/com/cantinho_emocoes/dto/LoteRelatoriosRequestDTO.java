@@ -0,0 +1,10 @@
+package com.cantinho_emocoes.dto;
+
+import java.util.List;
+
+// alunoIds vazio = turma inteira do professor; formato = zip (padrão) ou pdf (um único arquivo)
+public record LoteRelatoriosRequestDTO(
+    String unidade,
+    List<Long> alunoIds,
+    String formato
+) {}
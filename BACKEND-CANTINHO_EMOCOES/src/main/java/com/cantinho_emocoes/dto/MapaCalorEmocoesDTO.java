@@ -0,0 +1,20 @@
+package com.cantinho_emocoes.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Mapa de calor das emoções de um grupo de alunos (ou da escola) no período.
+ * Cada recorte só preenche as suas colunas: dias (dia + emoção), diaSemanaHora
+ * (dia da semana 1 = segunda .. 7 = domingo, hora e emoção) e emocoes (total por emoção).
+ */
+public record MapaCalorEmocoesDTO(
+    LocalDate inicio,
+    LocalDate fim,
+    List<Celula> dias,
+    List<Celula> diaSemanaHora,
+    List<Celula> emocoes
+) {
+    public record Celula(LocalDate dia, Integer diaSemana, Integer hora, String emocao,
+                         long registros, double mediaIntensidade) {}
+}
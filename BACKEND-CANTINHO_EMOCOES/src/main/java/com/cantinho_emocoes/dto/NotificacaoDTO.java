@@ -0,0 +1,17 @@
+package com.cantinho_emocoes.dto;
+
+import com.cantinho_emocoes.model.Notificacao;
+import java.time.LocalDateTime;
+
+public record NotificacaoDTO(
+    Long id,
+    String mensagem,
+    String link,
+    LocalDateTime dataEnvio,
+    boolean lido,
+    String cor
+) {
+    public static NotificacaoDTO de(Notificacao n) {
+        return new NotificacaoDTO(n.getId(), n.getMensagem(), n.getLink(), n.getDataEnvio(), n.isLido(), n.getCor());
+    }
+}
@@ -8,6 +8,6 @@ public record PerfilDTO(
     String avatarUrl,
     int nivel,
     int xp,
-    int metaXp, // Mantido para compatibilidade, podemos usar para gamificação futura
+    int metaXp, // XP total para chegar ao próximo nível
     Set<String> conquistas // Simplificado para Strings por enquanto
 ) {}
\ No newline at end of file
@@ -0,0 +1,11 @@
+package com.cantinho_emocoes.dto;
+
+import com.cantinho_emocoes.model.Emocao;
+import java.time.LocalDateTime;
+
+// Registro do diário sem relato nem desenho, para gráficos
+public record PontoEmocaoDTO(
+    Emocao emocao,
+    int intensidade,
+    LocalDateTime dataRegistro
+) {}
@@ -0,0 +1,16 @@
+package com.cantinho_emocoes.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+// Ranking de XP: os primeiros e, se pedido, a posição de um aluno (null se ele ainda não pontuou no período)
+public record RankingDTO(
+    String escopo,     // TURMA ou ESCOLA
+    String periodo,    // TOTAL ou SEMANA
+    LocalDate semana,  // segunda-feira da semana (só no período SEMANA)
+    int participantes,
+    List<Posicao> primeiros,
+    Posicao aluno
+) {
+    public record Posicao(Integer posicao, Long alunoId, String nome, String avatarUrl, long xp) {}
+}
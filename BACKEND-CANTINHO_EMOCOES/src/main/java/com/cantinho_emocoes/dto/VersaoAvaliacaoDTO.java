@@ -0,0 +1,10 @@
+package com.cantinho_emocoes.dto;
+
+import java.time.LocalDateTime;
+
+// Identifica o estado das avaliações de um aluno numa unidade (chave do cache de relatórios)
+public record VersaoAvaliacaoDTO(
+    long total,
+    LocalDateTime ultimaAlteracao,
+    Long maiorId
+) {}
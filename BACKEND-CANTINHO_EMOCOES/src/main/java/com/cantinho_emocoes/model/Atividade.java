@@ -1,11 +1,18 @@
 package com.cantinho_emocoes.model;
 
+import com.cantinho_emocoes.service.AtividadeListener;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "atividades")
+@Table(name = "atividades", indexes = {
+    // Histórico de atividades de um aluno, mais recentes primeiro (criado em db/migration/V6)
+    @Index(name = "idx_atividades_aluno_data", columnList = "aluno_id, data_realizacao")
+})
+@EntityListeners(AtividadeListener.class)
 public class Atividade {
 
     @Id
@@ -22,6 +29,7 @@ public class Atividade {
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "aluno_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE) // apagado pelo banco junto com o usuário (db/migration/V7)
     @JsonIgnore
     private Usuario aluno;
 
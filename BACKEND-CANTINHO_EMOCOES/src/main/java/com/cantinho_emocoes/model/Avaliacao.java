@@ -2,11 +2,16 @@ package com.cantinho_emocoes.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
 import java.time.LocalDateTime;
 import java.util.Map;
 
 @Entity
-@Table(name = "avaliacoes")
+@Table(name = "avaliacoes", indexes = {
+    // Avaliação de um aluno por tipo e unidade (criado em db/migration/V6)
+    @Index(name = "idx_avaliacoes_aluno_tipo_unidade", columnList = "aluno_id, tipo, unidade")
+})
 public class Avaliacao {
 
     @Id
@@ -22,12 +27,14 @@ public class Avaliacao {
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "aluno_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE) // apagado pelo banco junto com o usuário (db/migration/V7)
     @JsonIgnore
     private Usuario aluno;
 
     // Armazena as respostas como JSON ou Map simples (Ex: "1": "S", "2": "N")
     // Para simplificar no Postgres sem configurar conversores complexos, vamos usar ElementCollection
     @ElementCollection
+    @OnDelete(action = OnDeleteAction.CASCADE)
     @CollectionTable(name = "avaliacao_respostas", joinColumns = @JoinColumn(name = "avaliacao_id"))
     @MapKeyColumn(name = "numero_questao")
     @Column(name = "resposta") // S, N, NA
@@ -0,0 +1,86 @@
+package com.cantinho_emocoes.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Caixa de saída de e-mails (padrão "outbox").
+ * A mensagem é gravada na mesma transação da regra de negócio e enviada
+ * depois, em segundo plano, pelo despacho da CaixaSaidaEmailService.
+ */
+@Entity
+@Table(name = "caixa_saida_emails")
+public class CaixaSaidaEmail {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String destinatario;
+
+    @Column(nullable = false)
+    private String assunto;
+
+    @Column(columnDefinition = "TEXT", nullable = false)
+    private String corpoHtml;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private StatusEmail status = StatusEmail.PENDENTE;
+
+    private int tentativas = 0;
+
+    // Quando a mensagem pode ser (re)enviada. Enquanto ENVIANDO, funciona como prazo da reserva.
+    @Column(name = "proxima_tentativa", nullable = false)
+    private LocalDateTime proximaTentativa;
+
+    @Column(columnDefinition = "TEXT")
+    private String ultimoErro;
+
+    @Column(nullable = false)
+    private LocalDateTime dataCriacao;
+
+    private LocalDateTime dataEnvio;
+
+    public CaixaSaidaEmail() {}
+
+    public CaixaSaidaEmail(String destinatario, String assunto, String corpoHtml) {
+        this.destinatario = destinatario;
+        this.assunto = assunto;
+        this.corpoHtml = corpoHtml;
+        this.dataCriacao = LocalDateTime.now();
+        this.proximaTentativa = this.dataCriacao;
+    }
+
+    // Getters e Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getDestinatario() { return destinatario; }
+    public void setDestinatario(String destinatario) { this.destinatario = destinatario; }
+
+    public String getAssunto() { return assunto; }
+    public void setAssunto(String assunto) { this.assunto = assunto; }
+
+    public String getCorpoHtml() { return corpoHtml; }
+    public void setCorpoHtml(String corpoHtml) { this.corpoHtml = corpoHtml; }
+
+    public StatusEmail getStatus() { return status; }
+    public void setStatus(StatusEmail status) { this.status = status; }
+
+    public int getTentativas() { return tentativas; }
+    public void setTentativas(int tentativas) { this.tentativas = tentativas; }
+
+    public LocalDateTime getProximaTentativa() { return proximaTentativa; }
+    public void setProximaTentativa(LocalDateTime proximaTentativa) { this.proximaTentativa = proximaTentativa; }
+
+    public String getUltimoErro() { return ultimoErro; }
+    public void setUltimoErro(String ultimoErro) { this.ultimoErro = ultimoErro; }
+
+    public LocalDateTime getDataCriacao() { return dataCriacao; }
+    public void setDataCriacao(LocalDateTime dataCriacao) { this.dataCriacao = dataCriacao; }
+
+    public LocalDateTime getDataEnvio() { return dataEnvio; }
+    public void setDataEnvio(LocalDateTime dataEnvio) { this.dataEnvio = dataEnvio; }
+}
@@ -1,19 +1,31 @@
 package com.cantinho_emocoes.model;
 
+import com.cantinho_emocoes.service.DiarioListener;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+import org.hibernate.annotations.PartitionKey;
 import java.time.LocalDateTime;
 
+// Particionada por mês de data_registro (db/migration/V8__particoes_diarios.sql)
 @Entity
-@Table(name = "diarios")
+@Table(name = "diarios", indexes = {
+    // Histórico de uma criança por data: dashboard, gráficos e análises (funções de janela).
+    // Com a emoção em smallint, emocao e intensidade cabem no índice e as análises nem leem a tabela.
+    @Index(name = "idx_diarios_dependente_data_emocao", columnList = "dependente_id, data_registro, emocao, intensidade")
+})
+@EntityListeners(DiarioListener.class)
 public class Diario {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    // Código smallint da tabela emocoes (ver EmocaoConverter); no JSON continua o nome: FELIZ, TRISTE...
+    @Convert(converter = EmocaoConverter.class)
     @Column(nullable = false)
-    private String emocao; // FELIZ, TRISTE, BRAVO...
+    private Emocao emocao;
 
     private int intensidade; // 1 a 5
     
@@ -24,16 +36,20 @@ public class Diario {
     @Column(columnDefinition = "TEXT")
     private String desenhoBase64;
 
+    // Entra no WHERE dos UPDATE/DELETE da entidade: só a partição do mês é tocada
+    @PartitionKey
+    @Column(nullable = false)
     private LocalDateTime dataRegistro;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "dependente_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE) // apagado pelo banco junto com o usuário (db/migration/V7)
     @JsonIgnore 
     private Usuario dependente;
 
     public Diario() {}
 
-    public Diario(String emocao, int intensidade, String relato, LocalDateTime dataRegistro, Usuario dependente) {
+    public Diario(Emocao emocao, int intensidade, String relato, LocalDateTime dataRegistro, Usuario dependente) {
         this.emocao = emocao;
         this.intensidade = intensidade;
         this.relato = relato;
@@ -45,8 +61,8 @@ public class Diario {
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
     
-    public String getEmocao() { return emocao; }
-    public void setEmocao(String emocao) { this.emocao = emocao; }
+    public Emocao getEmocao() { return emocao; }
+    public void setEmocao(Emocao emocao) { this.emocao = emocao; }
     
     public int getIntensidade() { return intensidade; }
     public void setIntensidade(int intensidade) { this.intensidade = intensidade; }
@@ -1,10 +1,49 @@
 package com.cantinho_emocoes.model;
 
+/**
+ * Emoções do diário. No banco fica só o código (smallint), com a tabela de referência emocoes
+ * (db/migration/V4__codigo_emocoes.sql) guardando o nome; os códigos nunca mudam nem são reaproveitados.
+ */
 public enum Emocao {
-    FELIZ,
-    TRISTE,
-    BRAVO, // Raiva
-    MEDO,
-    CALMO,
-    ANSIOSO
-}
\ No newline at end of file
+    FELIZ(1),
+    TRISTE(2),
+    BRAVO(3), // Raiva
+    MEDO(4),
+    CALMO(5),
+    ANSIOSO(6),
+    NOJINHO(7),
+    CRIATIVO(8, true); // Registro só de desenho, fora das análises de humor
+
+    private final short codigo;
+    private final boolean desenho;
+
+    Emocao(int codigo) {
+        this(codigo, false);
+    }
+
+    Emocao(int codigo, boolean desenho) {
+        this.codigo = (short) codigo;
+        this.desenho = desenho;
+    }
+
+    public short getCodigo() { return codigo; }
+
+    public boolean isDesenho() { return desenho; }
+
+    public static Emocao doCodigo(short codigo) {
+        for (Emocao emocao : values()) {
+            if (emocao.codigo == codigo) return emocao;
+        }
+        throw new IllegalArgumentException("Código de emoção desconhecido: " + codigo);
+    }
+
+    /** Aceita o nome em qualquer caixa; null ou vazio vira null. */
+    public static Emocao doNome(String nome) {
+        if (nome == null || nome.isBlank()) return null;
+        try {
+            return valueOf(nome.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Emoção inválida: " + nome);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.cantinho_emocoes.model;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+// Grava a emoção como o código smallint da tabela emocoes
+@Converter
+public class EmocaoConverter implements AttributeConverter<Emocao, Short> {
+
+    @Override
+    public Short convertToDatabaseColumn(Emocao emocao) {
+        return emocao == null ? null : emocao.getCodigo();
+    }
+
+    @Override
+    public Emocao convertToEntityAttribute(Short codigo) {
+        return codigo == null ? null : Emocao.doCodigo(codigo);
+    }
+}
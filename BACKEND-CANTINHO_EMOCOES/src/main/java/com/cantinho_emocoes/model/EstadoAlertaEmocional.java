@@ -0,0 +1,55 @@
+package com.cantinho_emocoes.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Estado incremental de uma regra de alerta para uma criança: os momentos das ocorrências que
+ * ainda estão dentro da janela (no máximo o número de ocorrências da regra) e o último alerta.
+ * Só é lido e gravado quando chega um diário que se encaixa na regra.
+ */
+@Entity
+@Table(name = "estados_alerta_emocional", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_estado_alerta_dependente_regra", columnNames = {"dependente_id", "regra"})
+})
+public class EstadoAlertaEmocional {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Só o id: a FK para usuarios é ON DELETE CASCADE (db/migration/V7), o estado sai junto com o aluno
+    @Column(name = "dependente_id", nullable = false)
+    private Long dependenteId;
+
+    @Column(nullable = false)
+    private String regra;
+
+    @Column(nullable = false)
+    private LocalDateTime[] ocorrencias = new LocalDateTime[0];
+
+    private LocalDateTime ultimoAlerta;
+
+    @Column(nullable = false)
+    private int totalAlertas;
+
+    public EstadoAlertaEmocional() {}
+
+    // Getters e Setters
+    public Long getId() { return id; }
+
+    public Long getDependenteId() { return dependenteId; }
+    public void setDependenteId(Long dependenteId) { this.dependenteId = dependenteId; }
+
+    public String getRegra() { return regra; }
+    public void setRegra(String regra) { this.regra = regra; }
+
+    public LocalDateTime[] getOcorrencias() { return ocorrencias; }
+    public void setOcorrencias(LocalDateTime[] ocorrencias) { this.ocorrencias = ocorrencias; }
+
+    public LocalDateTime getUltimoAlerta() { return ultimoAlerta; }
+    public void setUltimoAlerta(LocalDateTime ultimoAlerta) { this.ultimoAlerta = ultimoAlerta; }
+
+    public int getTotalAlertas() { return totalAlertas; }
+    public void setTotalAlertas(int totalAlertas) { this.totalAlertas = totalAlertas; }
+}
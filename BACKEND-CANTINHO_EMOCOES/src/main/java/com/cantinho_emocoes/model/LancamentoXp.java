@@ -0,0 +1,50 @@
+package com.cantinho_emocoes.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Lançamento do extrato de XP de uma criança. Só recebe INSERTs: o saldo em usuarios.xp é a soma
+ * dos lançamentos, e a chave única (usuario, motivo, referencia) impede que o mesmo diário ou
+ * atividade renda XP duas vezes.
+ */
+@Entity
+@Table(name = "lancamentos_xp", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_lancamento_xp_origem", columnNames = {"usuario_id", "motivo", "referencia_id"})
+}, indexes = {
+    // XP da semana de uma criança (ranking semanal)
+    @Index(name = "idx_lancamentos_xp_usuario_data", columnList = "usuario_id, data_lancamento")
+})
+public class LancamentoXp {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Só o id: a FK para usuarios é ON DELETE CASCADE (db/migration/V7), o extrato sai junto com o aluno
+    @Column(name = "usuario_id", nullable = false)
+    private Long usuarioId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private MotivoXp motivo;
+
+    @Column(name = "referencia_id", nullable = false)
+    private Long referenciaId;
+
+    @Column(nullable = false)
+    private int pontos;
+
+    @Column(nullable = false)
+    private LocalDateTime dataLancamento;
+
+    public LancamentoXp() {}
+
+    // Getters (imutável depois de gravado)
+    public Long getId() { return id; }
+    public Long getUsuarioId() { return usuarioId; }
+    public MotivoXp getMotivo() { return motivo; }
+    public Long getReferenciaId() { return referenciaId; }
+    public int getPontos() { return pontos; }
+    public LocalDateTime getDataLancamento() { return dataLancamento; }
+}
@@ -0,0 +1,8 @@
+package com.cantinho_emocoes.model;
+
+// O que rendeu XP; junto com a referência (id do diário ou da atividade) identifica o lançamento
+public enum MotivoXp {
+    DIARIO,
+    ATIVIDADE,
+    TAREFA // Atividade que cumpriu uma tarefa atribuída pelo professor (bônus, além da ATIVIDADE)
+}
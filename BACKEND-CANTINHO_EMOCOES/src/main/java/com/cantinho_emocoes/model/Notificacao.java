@@ -1,11 +1,16 @@
 package com.cantinho_emocoes.model;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
 import java.time.LocalDateTime;
 
 
 @Entity
-@Table(name = "notificacoes")
+@Table(name = "notificacoes", indexes = {
+    // Atende a contagem de não lidas, a marcação em lote e a listagem por data
+    @Index(name = "idx_notificacoes_usuario_lido_data", columnList = "usuario_id, lido, data_envio")
+})
 public class Notificacao {
 
     @Id
@@ -14,6 +19,7 @@ public class Notificacao {
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "usuario_id", nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE) // apagado pelo banco junto com o usuário (db/migration/V7)
     private Usuario usuario;
 
     @Column(columnDefinition = "TEXT", nullable = false)
@@ -21,7 +27,7 @@ public class Notificacao {
 
     private String link;
 
-    @Column(nullable = false)
+    @Column(name = "data_envio", nullable = false)
     private LocalDateTime dataEnvio;
 
 
@@ -0,0 +1,8 @@
+package com.cantinho_emocoes.model;
+
+public enum StatusEmail {
+    PENDENTE,  // Aguardando envio (ou nova tentativa)
+    ENVIANDO,  // Reservado por um despacho em andamento
+    ENVIADO,
+    FALHOU     // Esgotou as tentativas
+}
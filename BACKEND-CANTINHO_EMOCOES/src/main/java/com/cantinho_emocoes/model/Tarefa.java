@@ -2,10 +2,19 @@ package com.cantinho_emocoes.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "tarefas")
+@Table(name = "tarefas", indexes = {
+    // Tarefas de um aluno, mais recentes primeiro (criado em db/migration/V6)
+    @Index(name = "idx_tarefas_aluno_data", columnList = "aluno_id, data_criacao")
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "tarefas")
 public class Tarefa {
 
     @Id
@@ -20,6 +29,7 @@ public class Tarefa {
     // --- NOVO CAMPO: Aluno para quem a tarefa foi atribuída ---
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "aluno_id") 
+    @OnDelete(action = OnDeleteAction.CASCADE) // apagado pelo banco junto com o usuário (db/migration/V7)
     @JsonIgnore
     private Usuario aluno; 
 
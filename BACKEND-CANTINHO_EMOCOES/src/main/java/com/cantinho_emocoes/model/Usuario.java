@@ -2,6 +2,11 @@ package com.cantinho_emocoes.model;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+import org.hibernate.annotations.SQLRestriction;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -13,7 +18,15 @@ import java.util.List;
 import java.util.ArrayList;
 
 @Entity
-@Table(name = "usuarios")
+@Table(name = "usuarios", indexes = {
+    // Dependentes de um responsável (turma) e busca pelo token de redefinição de senha (db/migration/V6)
+    @Index(name = "idx_usuarios_responsavel", columnList = "responsavel_id"),
+    @Index(name = "idx_usuarios_reset_token", columnList = "reset_token")
+})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "usuarios") // região e validade em app.cache.regioes
+// Excluídos ficam invisíveis até o expurgo apagar a linha (ver UsuarioService e ExpurgoUsuariosService)
+@SQLRestriction("excluido_em IS NULL")
 public class Usuario implements UserDetails {
 
     @Id
@@ -53,29 +66,18 @@ public class Usuario implements UserDetails {
     // Filho aponta para o Pai (Responsável)
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "responsavel_id")
+    @OnDelete(action = OnDeleteAction.CASCADE)
     @JsonIgnore
     private Usuario responsavel;
 
     // Pai tem vários Filhos
-    @OneToMany(mappedBy = "responsavel", cascade = CascadeType.ALL, orphanRemoval = true)
+    // Em cache: quem cria filhos sem passar pela lista limpa a coleção (CacheEntidadesService)
+    @OneToMany(mappedBy = "responsavel")
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "usuarios-dependentes")
     private List<Usuario> dependentes = new ArrayList<>();
 
-    // --- CORREÇÃO DO ERRO 500 (CASCADE) ---
-    // Agora, ao apagar o aluno, o banco apaga tudo relacionado a ele automaticamente.
-
-    @OneToMany(mappedBy = "dependente", cascade = CascadeType.ALL, orphanRemoval = true)
-    private List<Diario> diarios = new ArrayList<>();
-
-    @OneToMany(mappedBy = "aluno", cascade = CascadeType.ALL, orphanRemoval = true)
-    private List<Atividade> atividades = new ArrayList<>();
-
-    @OneToMany(mappedBy = "aluno", cascade = CascadeType.ALL, orphanRemoval = true)
-    private List<Avaliacao> avaliacoes = new ArrayList<>();
-
-    // --- CORREÇÃO: Adicionando relacionamento com Tarefa para CASCADE ---
-    @OneToMany(mappedBy = "aluno", cascade = CascadeType.ALL, orphanRemoval = true)
-    private List<Tarefa> tarefas = new ArrayList<>(); 
-    // --------------------------------------------------------------------
+    // Diários, atividades, avaliações, tarefas, notificações e extrato de XP não são mapeados aqui:
+    // saem pelo ExpurgoUsuariosService e pelas chaves ON DELETE CASCADE (db/migration/V7).
 
     // --- Recuperação de Senha ---
     @Column(name = "reset_token")
@@ -85,12 +87,18 @@ public class Usuario implements UserDetails {
     private LocalDateTime resetTokenExpiresAt;
     
     // --- Gamificação ---
-    @Column(name = "xp")
+    // Só o GamificacaoService altera (UPDATE atômico xp = xp + ?): salvar a entidade nunca sobrescreve o saldo
+    @Column(name = "xp", updatable = false)
     private int xp = 0;
 
-    @Column(name = "nivel")
+    @Column(name = "nivel", updatable = false)
     private int nivel = 1;
 
+    // Exclusão lógica: preenchido ao excluir, a linha só sai no expurgo
+    @Column(name = "excluido_em")
+    @JsonIgnore
+    private LocalDateTime excluidoEm;
+
     public Usuario() {}
 
     // --- Métodos do Spring Security ---
@@ -139,20 +147,6 @@ public class Usuario implements UserDetails {
     public List<Usuario> getDependentes() { return dependentes; }
     public void setDependentes(List<Usuario> dependentes) { this.dependentes = dependentes; }
     
-    public List<Diario> getDiarios() { return diarios; }
-    public void setDiarios(List<Diario> diarios) { this.diarios = diarios; }
-
-    public List<Atividade> getAtividades() { return atividades; }
-    public void setAtividades(List<Atividade> atividades) { this.atividades = atividades; }
-
-    public List<Avaliacao> getAvaliacoes() { return avaliacoes; }
-    public void setAvaliacoes(List<Avaliacao> avaliacoes) { this.avaliacoes = avaliacoes; }
-
-    // --- NOVO GETTER/SETTER PARA TAREFAS ---
-    public List<Tarefa> getTarefas() { return tarefas; }
-    public void setTarefas(List<Tarefa> tarefas) { this.tarefas = tarefas; }
-    // ----------------------------------------
-    
     public String getResetToken() { return resetToken; }
     public void setResetToken(String resetToken) { this.resetToken = resetToken; }
     
@@ -164,4 +158,6 @@ public class Usuario implements UserDetails {
 
     public int getNivel() { return nivel; }
     public void setNivel(int nivel) { this.nivel = nivel; }
+
+    public LocalDateTime getExcluidoEm() { return excluidoEm; }
 }
\ No newline at end of file
@@ -1,8 +1,18 @@
 package com.cantinho_emocoes.repository;
 
+import com.cantinho_emocoes.dto.AtividadeExportacaoDTO;
+import com.cantinho_emocoes.dto.DesenhoDTO;
 import com.cantinho_emocoes.model.Atividade;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface AtividadeRepository extends JpaRepository<Atividade, Long> {
     // CORREÇÃO: Adicionado o "_" (underscore) para garantir que o JPA entenda a relação com Aluno
@@ -12,4 +22,45 @@ public interface AtividadeRepository extends JpaRepository<Atividade, Long> {
     default List<Atividade> findByAlunoIdOrderByDataRealizacaoDesc(Long alunoId) {
         return findByAluno_IdOrderByDataRealizacaoDesc(alunoId);
     }
-}
\ No newline at end of file
+
+    // Listagem do administrador, já com o aluno (sem os de alunos excluídos ainda não expurgados)
+    @Query("SELECT a FROM Atividade a JOIN FETCH a.aluno")
+    List<Atividade> findAllComAluno();
+
+    // --- EXPORTAÇÃO (cursor: precisa de transação aberta e o Stream deve ser fechado) ---
+
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "200"))
+    @Query("""
+        SELECT new com.cantinho_emocoes.dto.AtividadeExportacaoDTO(
+            a.id, a.tipo, a.conteudo, a.dataRealizacao, SUBSTRING(a.desenhoBase64, 1, 40))
+        FROM Atividade a WHERE a.aluno.id = :alunoId
+        ORDER BY a.dataRealizacao, a.id
+        """)
+    Stream<AtividadeExportacaoDTO> streamExportacao(@Param("alunoId") Long alunoId);
+
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "20"))
+    @Query("""
+        SELECT new com.cantinho_emocoes.dto.DesenhoDTO(
+            a.id, u.id, u.nome, CONCAT(a.tipo, '_', a.conteudo), a.dataRealizacao, a.desenhoBase64)
+        FROM Atividade a JOIN a.aluno u
+        WHERE u.id = :alunoId AND a.desenhoBase64 IS NOT NULL
+        ORDER BY a.dataRealizacao, a.id
+        """)
+    Stream<DesenhoDTO> streamDesenhos(@Param("alunoId") Long alunoId);
+
+    // Desenhos da turma de um responsável (professor), por aluno; tipo/conteúdo (em maiúsculas) são filtros opcionais
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "20"))
+    @Query("""
+        SELECT new com.cantinho_emocoes.dto.DesenhoDTO(
+            a.id, u.id, u.nome, CONCAT(a.tipo, '_', a.conteudo), a.dataRealizacao, a.desenhoBase64)
+        FROM Atividade a JOIN a.aluno u
+        WHERE u.responsavel.id = :responsavelId AND a.desenhoBase64 IS NOT NULL
+          AND a.dataRealizacao >= :inicio AND a.dataRealizacao < :fim
+          AND (:tipo IS NULL OR UPPER(a.tipo) = :tipo)
+          AND (:conteudo IS NULL OR UPPER(a.conteudo) = :conteudo)
+        ORDER BY u.nome, u.id, a.dataRealizacao, a.id
+        """)
+    Stream<DesenhoDTO> streamDesenhosTurma(@Param("responsavelId") Long responsavelId,
+                                           @Param("inicio") LocalDateTime inicio, @Param("fim") LocalDateTime fim,
+                                           @Param("tipo") String tipo, @Param("conteudo") String conteudo);
+}
@@ -1,13 +1,38 @@
 package com.cantinho_emocoes.repository;
 
+import com.cantinho_emocoes.dto.VersaoAvaliacaoDTO;
 import com.cantinho_emocoes.model.Avaliacao;
 import com.cantinho_emocoes.model.TipoAvaliacao;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface AvaliacaoRepository extends JpaRepository<Avaliacao, Long> {
     List<Avaliacao> findByAlunoIdOrderByDataAvaliacaoDesc(Long alunoId);
     
     // CORREÇÃO: Retorna List ao invés de Optional para evitar erro de duplicidade
     List<Avaliacao> findByAlunoIdAndTipoAndUnidade(Long alunoId, TipoAvaliacao tipo, String unidade);
-}
\ No newline at end of file
+
+    // Exportação (cursor): precisa de transação aberta e o Stream deve ser fechado
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "100"))
+    Stream<Avaliacao> streamByAlunoIdOrderByDataAvaliacao(Long alunoId);
+
+    // --- RELATÓRIOS ---
+
+    // Respostas já carregadas: o relatório é montado fora de transação
+    @Query("SELECT DISTINCT a FROM Avaliacao a LEFT JOIN FETCH a.respostas WHERE a.aluno.id = :alunoId AND a.unidade = :unidade")
+    List<Avaliacao> findComRespostas(@Param("alunoId") Long alunoId, @Param("unidade") String unidade);
+
+    // Todo salvamento atualiza dataAvaliacao; com a contagem e o maior id, também pega exclusões
+    @Query("""
+        SELECT new com.cantinho_emocoes.dto.VersaoAvaliacaoDTO(COUNT(a), MAX(a.dataAvaliacao), MAX(a.id))
+        FROM Avaliacao a WHERE a.aluno.id = :alunoId AND a.unidade = :unidade
+        """)
+    VersaoAvaliacaoDTO versao(@Param("alunoId") Long alunoId, @Param("unidade") String unidade);
+}
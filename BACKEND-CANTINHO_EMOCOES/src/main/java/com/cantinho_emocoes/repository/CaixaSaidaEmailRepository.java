@@ -0,0 +1,24 @@
+package com.cantinho_emocoes.repository;
+
+import com.cantinho_emocoes.model.CaixaSaidaEmail;
+import com.cantinho_emocoes.model.StatusEmail;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface CaixaSaidaEmailRepository extends JpaRepository<CaixaSaidaEmail, Long> {
+
+    // Reserva um lote de mensagens prontas para envio. O SKIP LOCKED permite
+    // que mais de uma instância do backend despache sem enviar a mesma mensagem duas vezes.
+    // Mensagens ENVIANDO com a reserva vencida (ex: queda do servidor) voltam para a fila.
+    @Query(value = "SELECT * FROM caixa_saida_emails " +
+                   "WHERE status IN ('PENDENTE', 'ENVIANDO') AND proxima_tentativa <= :agora " +
+                   "ORDER BY proxima_tentativa " +
+                   "LIMIT :limite FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<CaixaSaidaEmail> reservarLote(@Param("agora") LocalDateTime agora, @Param("limite") int limite);
+
+    long countByStatus(StatusEmail status);
+}
@@ -1,10 +1,99 @@
 package com.cantinho_emocoes.repository;
 
+import com.cantinho_emocoes.dto.DesenhoDTO;
+import com.cantinho_emocoes.dto.DiarioExportacaoDTO;
+import com.cantinho_emocoes.dto.PontoEmocaoDTO;
 import com.cantinho_emocoes.model.Diario;
+import com.cantinho_emocoes.model.Emocao;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface DiarioRepository extends JpaRepository<Diario, Long> {
     // Busca o diário de uma criança específica, ordenado do mais recente
     List<Diario> findByDependenteIdOrderByDataRegistroDesc(Long dependenteId);
-}
\ No newline at end of file
+
+    // --- DASHBOARD (nada percorre o histórico inteiro: a tabela é particionada por mês) ---
+
+    List<Diario> findByDependenteIdAndDataRegistroGreaterThanEqualOrderByDataRegistroDesc(Long dependenteId, LocalDateTime desde);
+
+    List<Diario> findTop20ByDependenteIdAndEmocaoNotAndDataRegistroGreaterThanEqualOrderByDataRegistroDesc(
+            Long dependenteId, Emocao emocao, LocalDateTime desde);
+
+    List<Diario> findTop5ByDependenteIdAndDataRegistroGreaterThanEqualOrderByDataRegistroDesc(Long dependenteId, LocalDateTime desde);
+
+    // Pelo cubo mantido pelos gatilhos (db/migration/V5), sem abrir as partições. Desenhos (Emocao.CRIATIVO)
+    // não entram no cubo.
+    @Query(value = "SELECT COALESCE(SUM(registros), 0) FROM cubo_emocoes WHERE dependente_id = :dependenteId",
+           nativeQuery = true)
+    long contarPeloCubo(@Param("dependenteId") Long dependenteId);
+
+    // Início do dia em que estão os :quantidade registros mais recentes da criança; com menos registros que
+    // isso, o dia do primeiro. Nulo sem registros.
+    @Query(value = """
+        SELECT CAST(COALESCE(MAX(dia) FILTER (WHERE acumulado >= :quantidade), MIN(dia)) AS timestamp)
+          FROM (SELECT dia, SUM(SUM(registros)) OVER (ORDER BY dia DESC) AS acumulado
+                  FROM cubo_emocoes
+                 WHERE dependente_id = :dependenteId
+                 GROUP BY dia
+                HAVING SUM(registros) > 0) dias
+        """, nativeQuery = true)
+    LocalDateTime inicioDosMaisRecentes(@Param("dependenteId") Long dependenteId, @Param("quantidade") int quantidade);
+
+    // Listagem do administrador, já com a criança: o JOIN (com a restrição de Usuario) também deixa
+    // de fora os diários de excluídos que o expurgo ainda não apagou. Só as partições do período.
+    @Query("""
+        SELECT d FROM Diario d JOIN FETCH d.dependente
+        WHERE d.dataRegistro >= :inicio AND d.dataRegistro < :fim
+        ORDER BY d.dataRegistro DESC
+        """)
+    List<Diario> findComDependenteNoPeriodo(@Param("inicio") LocalDateTime inicio, @Param("fim") LocalDateTime fim);
+
+    // Série do gráfico de emoções (sem os desenhos, Emocao.CRIATIVO)
+    @Query("""
+        SELECT new com.cantinho_emocoes.dto.PontoEmocaoDTO(d.emocao, d.intensidade, d.dataRegistro)
+        FROM Diario d
+        WHERE d.dependente.id = :dependenteId AND d.dataRegistro >= :desde AND d.emocao <> com.cantinho_emocoes.model.Emocao.CRIATIVO
+        ORDER BY d.dataRegistro
+        """)
+    List<PontoEmocaoDTO> findPontosGrafico(@Param("dependenteId") Long dependenteId, @Param("desde") LocalDateTime desde);
+
+    // --- EXPORTAÇÃO (cursor: precisa de transação aberta e o Stream deve ser fechado) ---
+
+    // Sem o desenho: só os primeiros caracteres do data URL, para saber o tipo da imagem
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "200"))
+    @Query("""
+        SELECT new com.cantinho_emocoes.dto.DiarioExportacaoDTO(
+            d.id, d.emocao, d.intensidade, d.relato, d.dataRegistro, SUBSTRING(d.desenhoBase64, 1, 40))
+        FROM Diario d WHERE d.dependente.id = :dependenteId
+        ORDER BY d.dataRegistro, d.id
+        """)
+    Stream<DiarioExportacaoDTO> streamExportacao(@Param("dependenteId") Long dependenteId);
+
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "20"))
+    @Query("""
+        SELECT new com.cantinho_emocoes.dto.DesenhoDTO(d.id, u.id, u.nome, d.emocao, d.dataRegistro, d.desenhoBase64)
+        FROM Diario d JOIN d.dependente u
+        WHERE u.id = :dependenteId AND d.desenhoBase64 IS NOT NULL
+        ORDER BY d.dataRegistro, d.id
+        """)
+    Stream<DesenhoDTO> streamDesenhos(@Param("dependenteId") Long dependenteId);
+
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_FETCH_SIZE, value = "20"))
+    @Query("""
+        SELECT new com.cantinho_emocoes.dto.DesenhoDTO(d.id, u.id, u.nome, d.emocao, d.dataRegistro, d.desenhoBase64)
+        FROM Diario d JOIN d.dependente u
+        WHERE u.responsavel.id = :responsavelId AND d.desenhoBase64 IS NOT NULL
+          AND d.dataRegistro >= :inicio AND d.dataRegistro < :fim
+        ORDER BY u.nome, u.id, d.dataRegistro, d.id
+        """)
+    Stream<DesenhoDTO> streamDesenhosTurma(@Param("responsavelId") Long responsavelId,
+                                           @Param("inicio") LocalDateTime inicio, @Param("fim") LocalDateTime fim);
+}
@@ -0,0 +1,32 @@
+package com.cantinho_emocoes.repository;
+
+import com.cantinho_emocoes.model.EstadoAlertaEmocional;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface EstadoAlertaEmocionalRepository extends JpaRepository<EstadoAlertaEmocional, Long> {
+
+    // Dois diários da mesma criança ao mesmo tempo: o segundo espera o primeiro atualizar o estado
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<EstadoAlertaEmocional> findByDependenteIdAndRegra(Long dependenteId, String regra);
+
+    // Cria a linha sem disputar com outra transação fazendo o mesmo (a chave única decide).
+    // A tabela afetada é declarada para o Hibernate não esvaziar o cache de segundo nível inteiro.
+    @Modifying
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_NATIVE_SPACES, value = "estados_alerta_emocional"))
+    @Query(value = "INSERT INTO estados_alerta_emocional (dependente_id, regra, ocorrencias, total_alertas) " +
+                   "VALUES (:dependenteId, :regra, '{}', 0) ON CONFLICT (dependente_id, regra) DO NOTHING",
+           nativeQuery = true)
+    int criarSeNaoExiste(@Param("dependenteId") Long dependenteId, @Param("regra") String regra);
+}
@@ -1,15 +1,39 @@
 package com.cantinho_emocoes.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.cantinho_emocoes.model.Notificacao;
 import com.cantinho_emocoes.model.Usuario;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface NotificacaoRepository extends JpaRepository<Notificacao, Long> {
-    List<Notificacao> findByUsuarioOrderByDataEnvioDesc(Usuario usuario);
-    List<Notificacao> findByUsuarioAndLidoFalseOrderByDataEnvioDesc(Usuario usuario);
+    // A tabela é particionada por mês em data_envio: todas as consultas recebem
+    // uma data inicial ("desde") para que o Postgres leia apenas as partições recentes.
+
+    List<Notificacao> findByUsuarioAndDataEnvioGreaterThanEqualOrderByDataEnvioDesc(Usuario usuario, LocalDateTime desde);
+
+    // Reenvio do canal SSE (Last-Event-ID): no máximo 100 notificações, na ordem de envio.
+    // Não filtra por ID: uma notificação pode ser confirmada depois de outra com ID maior.
+    List<Notificacao> findTop100ByUsuarioIdAndDataEnvioGreaterThanEqualOrderByDataEnvioAscIdAsc(Long usuarioId, LocalDateTime desde);
+
+    long countByUsuarioIdAndLidoFalseAndDataEnvioGreaterThanEqual(Long usuarioId, LocalDateTime desde);
+
+    // Marcação em lote: um único UPDATE, já restrito ao dono das notificações
+    @Modifying
+    @Query("UPDATE Notificacao n SET n.lido = true " +
+           "WHERE n.usuario.id = :usuarioId AND n.lido = false AND n.dataEnvio >= :desde")
+    int marcarTodasComoLidas(@Param("usuarioId") Long usuarioId, @Param("desde") LocalDateTime desde);
+
+    @Modifying
+    @Query("UPDATE Notificacao n SET n.lido = true " +
+           "WHERE n.usuario.id = :usuarioId AND n.lido = false AND n.dataEnvio >= :desde AND n.id IN :ids")
+    int marcarComoLidas(@Param("usuarioId") Long usuarioId, @Param("ids") Collection<Long> ids, @Param("desde") LocalDateTime desde);
 }
\ No newline at end of file
@@ -1,10 +1,14 @@
 package com.cantinho_emocoes.repository;
 
 import com.cantinho_emocoes.model.Semanario;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import java.util.Optional;
 
 public interface SemanarioRepository extends JpaRepository<Semanario, Long> {
     // Buscar o último Semanário criado
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
     Optional<Semanario> findTopByOrderByDataCriacaoDesc();
 }
\ No newline at end of file
@@ -1,6 +1,9 @@
 package com.cantinho_emocoes.repository;
 
 import com.cantinho_emocoes.model.Tarefa;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import java.util.List;
 import java.util.Optional;
@@ -13,6 +16,7 @@ public interface TarefaRepository extends JpaRepository<Tarefa, Long> {
     List<Tarefa> findTop10ByOrderByDataCriacaoDesc();
     
     // NOVO: Busca todas as tarefas atribuídas a um aluno (para rastreamento de pendentes)
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
     List<Tarefa> findByAlunoIdOrderByDataCriacaoDesc(Long alunoId);
     
     // NOVO: Conta o total de tarefas atribuídas a um aluno (para o dashboard)
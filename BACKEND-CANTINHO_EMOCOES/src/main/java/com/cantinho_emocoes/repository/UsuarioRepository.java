@@ -1,12 +1,36 @@
 package com.cantinho_emocoes.repository;
 
 import com.cantinho_emocoes.model.Usuario;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.AvailableHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
+    // Chamado em toda requisição autenticada (JwtAuthFilter): resultado em cache, região "consultas"
+    @QueryHints(@QueryHint(name = AvailableHints.HINT_CACHEABLE, value = "true"))
     Optional<Usuario> findByEmail(String email);
     
     // --- NOVO MÉTODO NECESSÁRIO PARA RECUPERAÇÃO DE SENHA ---
     Optional<Usuario> findByResetToken(String resetToken);
-}
\ No newline at end of file
+
+    // O usuário e os dependentes dele (a família inteira, no caso de um responsável)
+    @Query("SELECT u.id FROM Usuario u WHERE u.id = :id OR u.responsavel.id = :id")
+    List<Long> findIdsDaFamilia(@Param("id") Long id);
+
+    // Exclusão lógica em um único UPDATE. O e-mail é liberado na hora, para um novo cadastro
+    // não esbarrar na chave única antes do expurgo. Como é um UPDATE em lote, o Hibernate
+    // também limpa as regiões de usuários do cache de segundo nível.
+    @Modifying
+    @Query("UPDATE Usuario u SET u.excluidoEm = :agora, u.email = null, u.resetToken = null, " +
+           "u.resetTokenExpiresAt = null WHERE u.id IN :ids")
+    int marcarComoExcluidos(@Param("ids") Collection<Long> ids, @Param("agora") LocalDateTime agora);
+}
@@ -23,13 +23,20 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
     private static final Logger log = LoggerFactory.getLogger(JwtAuthFilter.class);
 
+    // O EventSource do navegador não envia cabeçalhos, então o canal SSE aceita um ticket de uso único
+    // na URL (ver TicketStreamService). O JWT de login nunca é aceito na URL.
+    private static final String CAMINHO_SSE = "/api/notificacoes/stream";
+
     private final JwtService jwtService;
     private final UserDetailsService userDetailsService; // ✅ CORREÇÃO: Removido @Autowired
+    private final TicketStreamService ticketStreamService;
 
     // ✅ CORREÇÃO: Construtor único para injetar todas as dependências
-    public JwtAuthFilter(JwtService jwtService, UserDetailsService userDetailsService) {
+    public JwtAuthFilter(JwtService jwtService, UserDetailsService userDetailsService,
+                         TicketStreamService ticketStreamService) {
         this.jwtService = jwtService;
         this.userDetailsService = userDetailsService;
+        this.ticketStreamService = ticketStreamService;
     }
 
     @Override
@@ -39,6 +46,11 @@ public class JwtAuthFilter extends OncePerRequestFilter {
             @NonNull FilterChain filterChain
     ) throws ServletException, IOException {
         final String authHeader = request.getHeader("Authorization");
+        if (authHeader == null && CAMINHO_SSE.equals(request.getServletPath()) && request.getParameter("ticket") != null) {
+            autenticarPorTicket(request, request.getParameter("ticket"));
+            filterChain.doFilter(request, response);
+            return;
+        }
         final String jwt;
         final String userEmail;
 
@@ -76,15 +88,7 @@ public class JwtAuthFilter extends OncePerRequestFilter {
 
             if (jwtService.isTokenValid(jwt, userDetails)) {
                 log.debug("Token JWT é VÁLIDO para o usuário: {}", userDetails.getUsername());
-                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                        userDetails,
-                        null,
-                        userDetails.getAuthorities()
-                );
-                authToken.setDetails(
-                        new WebAuthenticationDetailsSource().buildDetails(request)
-                );
-                SecurityContextHolder.getContext().setAuthentication(authToken);
+                autenticar(request, userDetails);
                 log.debug("Usuário {} autenticado e SecurityContextHolder atualizado.", userDetails.getUsername());
             } else {
                 log.warn("Token JWT INVÁLIDO para o usuário: {}", userDetails.getUsername());
@@ -92,4 +96,30 @@ public class JwtAuthFilter extends OncePerRequestFilter {
         }
         filterChain.doFilter(request, response);
     }
-}
\ No newline at end of file
+
+    // Sem ticket válido a requisição segue anônima e a cadeia de segurança responde 403
+    private void autenticarPorTicket(HttpServletRequest request, String ticket) {
+        String email = ticketStreamService.consumir(ticket);
+        if (email == null) {
+            log.warn("Ticket do canal SSE inválido, expirado ou já utilizado.");
+            return;
+        }
+        try {
+            autenticar(request, userDetailsService.loadUserByUsername(email));
+        } catch (UsernameNotFoundException e) {
+            log.warn("Usuário do ticket SSE não encontrado no banco de dados: {}", email);
+        }
+    }
+
+    private void autenticar(HttpServletRequest request, UserDetails userDetails) {
+        UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                userDetails,
+                null,
+                userDetails.getAuthorities()
+        );
+        authToken.setDetails(
+                new WebAuthenticationDetailsSource().buildDetails(request)
+        );
+        SecurityContextHolder.getContext().setAuthentication(authToken);
+    }
+}
@@ -0,0 +1,60 @@
+package com.cantinho_emocoes.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tickets de uso único para abrir o canal SSE de notificações. O EventSource do navegador não envia
+ * cabeçalhos, então a credencial vai na URL; por isso ela não é o JWT de login, e sim um ticket
+ * aleatório que vale poucos segundos e é descartado na primeira conexão. O que sobrar em logs de
+ * acesso, proxies ou no histórico do navegador já não abre nada.
+ */
+@Service
+public class TicketStreamService {
+
+    private record Ticket(String email, long expiraEm) {}
+
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, Ticket> tickets = new ConcurrentHashMap<>();
+
+    @Value("${app.notificacoes.sse.ticket-validade-segundos:30}")
+    private long validadeSegundos;
+
+    /** Emite um ticket para o usuário já autenticado pelo cabeçalho Authorization. */
+    public String emitir(String email) {
+        byte[] bytes = new byte[32];
+        random.nextBytes(bytes);
+        String ticket = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        tickets.put(ticket, new Ticket(email, System.currentTimeMillis() + validadeSegundos * 1000));
+        return ticket;
+    }
+
+    /**
+     * Consome o ticket: a partir daqui ele não vale mais, mesmo que a conexão falhe.
+     * @return E-mail do usuário, ou null se o ticket não existe, já foi usado ou expirou.
+     */
+    public String consumir(String ticket) {
+        Ticket registro = tickets.remove(ticket);
+        if (registro == null || registro.expiraEm() < System.currentTimeMillis()) {
+            return null;
+        }
+        return registro.email();
+    }
+
+    public long getValidadeSegundos() {
+        return validadeSegundos;
+    }
+
+    // Tickets emitidos e nunca usados
+    @Scheduled(fixedDelay = 60000)
+    public void descartarExpirados() {
+        long agora = System.currentTimeMillis();
+        tickets.values().removeIf(t -> t.expiraEm() < agora);
+    }
+}
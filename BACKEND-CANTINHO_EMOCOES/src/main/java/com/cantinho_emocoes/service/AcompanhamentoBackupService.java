@@ -0,0 +1,47 @@
+package com.cantinho_emocoes.service;
+
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registro em memória das operações de backup/restauração, para o endpoint de progresso.
+ * Guarda as em andamento e as últimas finalizadas.
+ */
+@Service
+public class AcompanhamentoBackupService {
+
+    private static final int MAX_FINALIZADAS = 20;
+
+    private final Map<String, OperacaoBackup> operacoes = new ConcurrentHashMap<>();
+
+    public OperacaoBackup iniciar(OperacaoBackup.Tipo tipo, String descricao, Long bytesTotais) {
+        OperacaoBackup operacao = new OperacaoBackup(tipo, descricao, bytesTotais);
+        operacoes.put(operacao.getId(), operacao);
+        limparAntigas();
+        return operacao;
+    }
+
+    public Optional<OperacaoBackup> buscar(String id) {
+        return Optional.ofNullable(operacoes.get(id));
+    }
+
+    // Mais recentes primeiro
+    public List<OperacaoBackup> listar() {
+        return operacoes.values().stream()
+                .sorted(Comparator.comparing(OperacaoBackup::getInicio).reversed())
+                .toList();
+    }
+
+    private void limparAntigas() {
+        List<OperacaoBackup> finalizadas = operacoes.values().stream()
+                .filter(OperacaoBackup::isFinalizada)
+                .sorted(Comparator.comparing(OperacaoBackup::getInicio).reversed())
+                .toList();
+        finalizadas.stream().skip(MAX_FINALIZADAS).forEach(o -> operacoes.remove(o.getId()));
+    }
+}
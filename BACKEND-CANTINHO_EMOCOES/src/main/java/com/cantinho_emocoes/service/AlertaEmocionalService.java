@@ -0,0 +1,115 @@
+package com.cantinho_emocoes.service;
+
+import com.cantinho_emocoes.config.AlertasEmocionaisProperties;
+import com.cantinho_emocoes.config.AlertasEmocionaisProperties.Regra;
+import com.cantinho_emocoes.model.Emocao;
+import com.cantinho_emocoes.model.EstadoAlertaEmocional;
+import com.cantinho_emocoes.model.Usuario;
+import com.cantinho_emocoes.repository.EstadoAlertaEmocionalRepository;
+import com.cantinho_emocoes.repository.UsuarioRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Stream;
+
+/**
+ * Alerta de emoções difíceis: avisa o responsável quando a criança registra, por exemplo, TRISTE ou
+ * BRAVO com intensidade alta várias vezes em poucos dias (regras em app.alertas.*).
+ *
+ * A detecção é incremental: cada diário novo que se encaixa numa regra atualiza só a linha de estado
+ * (criança, regra), com as ocorrências ainda dentro da janela. Diários que não se encaixam em
+ * nenhuma regra não custam nenhuma consulta, e nada varre a tabela de diários.
+ */
+@Service
+public class AlertaEmocionalService {
+
+    private static final Logger log = LoggerFactory.getLogger(AlertaEmocionalService.class);
+    private static final String COR_ALERTA = "bg-red-50 text-red-800 border-red-200";
+    private static final String LINK_PAINEL = "/responsavel";
+
+    private final AlertasEmocionaisProperties propriedades;
+    private final EstadoAlertaEmocionalRepository estadoRepository;
+    private final UsuarioRepository usuarioRepository;
+    private final NotificacaoService notificacaoService;
+
+    public AlertaEmocionalService(AlertasEmocionaisProperties propriedades, EstadoAlertaEmocionalRepository estadoRepository,
+                                  UsuarioRepository usuarioRepository, NotificacaoService notificacaoService) {
+        this.propriedades = propriedades;
+        this.estadoRepository = estadoRepository;
+        this.usuarioRepository = usuarioRepository;
+        this.notificacaoService = notificacaoService;
+    }
+
+    // Depois do commit do diário, numa transação própria: um problema aqui não desfaz o registro da criança
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void aoCriarDiario(DiarioCriadoEvent evento) {
+        if (!propriedades.ativo() || evento.dataRegistro() == null) return;
+        for (Regra regra : propriedades.regras()) {
+            if (regra.seAplica(evento.emocao(), evento.intensidade())) {
+                registrarOcorrencia(regra, evento);
+            }
+        }
+    }
+
+    private void registrarOcorrencia(Regra regra, DiarioCriadoEvent evento) {
+        estadoRepository.criarSeNaoExiste(evento.dependenteId(), regra.nome());
+        EstadoAlertaEmocional estado = estadoRepository.findByDependenteIdAndRegra(evento.dependenteId(), regra.nome())
+                .orElseThrow();
+
+        // Mantém só as ocorrências dentro da janela, e no máximo as últimas N da regra
+        LocalDateTime limite = evento.dataRegistro().minus(regra.janela());
+        List<LocalDateTime> recentes = Stream.concat(Arrays.stream(estado.getOcorrencias()), Stream.of(evento.dataRegistro()))
+                .filter(momento -> momento.isAfter(limite))
+                .sorted()
+                .toList();
+        recentes = recentes.subList(Math.max(0, recentes.size() - regra.ocorrencias()), recentes.size());
+
+        boolean atingiu = recentes.size() >= regra.ocorrencias();
+        boolean jaAvisado = estado.getUltimoAlerta() != null
+                && estado.getUltimoAlerta().plus(regra.intervalo()).isAfter(evento.dataRegistro());
+        if (atingiu && !jaAvisado) {
+            avisar(regra, evento.dependenteId());
+            estado.setUltimoAlerta(evento.dataRegistro());
+            estado.setTotalAlertas(estado.getTotalAlertas() + 1);
+            recentes = List.of(); // um novo alerta precisa de novas ocorrências
+        }
+        estado.setOcorrencias(recentes.toArray(LocalDateTime[]::new));
+        estadoRepository.save(estado);
+    }
+
+    private void avisar(Regra regra, Long dependenteId) {
+        Usuario crianca = usuarioRepository.findById(dependenteId).orElse(null);
+        if (crianca == null || crianca.getResponsavel() == null) return;
+
+        String emocoes = String.join(", ", regra.emocoes().stream().sorted().map(AlertaEmocionalService::nomeEmocao).toList());
+        String mensagem = "⚠️ " + crianca.getNome() + " registrou " + regra.ocorrencias()
+                + " vezes emoções difíceis (" + emocoes + ") com intensidade " + regra.intensidadeMinima()
+                + " ou mais em " + descrever(regra.janela()) + ". Que tal uma conversa com carinho?";
+        notificacaoService.criarNotificacao(crianca.getResponsavel(), mensagem, COR_ALERTA, LINK_PAINEL);
+        log.info("Alerta '{}' enviado para o responsável de {} (id {}).", regra.nome(), crianca.getNome(), dependenteId);
+    }
+
+    private static String nomeEmocao(Emocao emocao) {
+        return emocao.name().charAt(0) + emocao.name().substring(1).toLowerCase(Locale.ROOT);
+    }
+
+    private static String descrever(Duration janela) {
+        long dias = janela.toDays();
+        if (dias >= 1 && janela.equals(Duration.ofDays(dias))) {
+            return dias == 1 ? "1 dia" : dias + " dias";
+        }
+        long horas = Math.max(1, janela.toHours());
+        return horas == 1 ? "1 hora" : horas + " horas";
+    }
+}
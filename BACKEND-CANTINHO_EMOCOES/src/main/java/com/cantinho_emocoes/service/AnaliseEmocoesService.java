@@ -0,0 +1,203 @@
+package com.cantinho_emocoes.service;
+
+import com.cantinho_emocoes.dto.AnaliseEmocoesDTO;
+import com.cantinho_emocoes.model.Emocao;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+
+/**
+ * Tendências emocionais de uma criança: média móvel da intensidade, sequências de dias com a
+ * mesma emoção, variação semana a semana e frequência das transições entre emoções.
+ *
+ * Tudo é calculado pelo PostgreSQL com funções de janela sobre o índice (dependente_id, data_registro,
+ * emocao, intensidade), agrupando pelo código da emoção; o nome só entra no fim, pela tabela emocoes.
+ * Para a JVM só voltam as linhas já agregadas. Registros só de desenho (CRIATIVO) ficam de fora.
+ */
+@Service
+public class AnaliseEmocoesService {
+
+    // Linhas da criança no intervalo [desde, ate) — usa o índice idx_diarios_dependente_data_emocao
+    private static final String REGISTROS = """
+            SELECT id, emocao, intensidade, data_registro
+              FROM diarios
+             WHERE dependente_id = :dependenteId
+               AND emocao IN (SELECT codigo FROM emocoes WHERE NOT desenho)
+               AND data_registro >= :desde AND data_registro < :ate
+            """;
+
+    // Dias sem registro entram com média vazia; a janela é por dias do calendário (ROWS sobre a série)
+    // e pondera cada dia pela quantidade de registros
+    private static final String SQL_MEDIA_MOVEL = """
+            WITH registros AS (%s),
+            por_dia AS (
+                SELECT CAST(data_registro AS date) AS dia, COUNT(*) AS registros, SUM(intensidade) AS soma
+                  FROM registros
+                 GROUP BY 1
+            ),
+            serie AS (
+                SELECT CAST(d AS date) AS dia
+                  FROM generate_series(CAST(:desdeDia AS timestamp), CAST(:fim AS timestamp), interval '1 day') AS d
+            ),
+            movel AS (
+                SELECT s.dia,
+                       COALESCE(p.registros, 0) AS registros,
+                       CAST(p.soma AS numeric) / p.registros AS media_dia,
+                       CAST(SUM(p.soma) OVER janela AS numeric) / NULLIF(SUM(p.registros) OVER janela, 0) AS media_movel
+                  FROM serie s
+                  LEFT JOIN por_dia p ON p.dia = s.dia
+                WINDOW janela AS (ORDER BY s.dia ROWS BETWEEN :anteriores PRECEDING AND CURRENT ROW)
+            )
+            SELECT dia, registros, ROUND(media_dia, 2) AS media_dia, ROUND(media_movel, 2) AS media_movel
+              FROM movel
+             WHERE dia >= :inicio
+             ORDER BY dia
+            """.formatted(REGISTROS);
+
+    // "Ilhas" de dias consecutivos: dentro de uma sequência, dia - row_number() é constante
+    private static final String SQL_SEQUENCIAS = """
+            WITH registros AS (%s),
+            dias AS (
+                SELECT DISTINCT emocao, CAST(data_registro AS date) AS dia
+                  FROM registros
+                 WHERE CAST(:emocao AS smallint) IS NULL OR emocao = CAST(:emocao AS smallint)
+            ),
+            ilhas AS (
+                SELECT emocao, dia,
+                       dia - CAST(ROW_NUMBER() OVER (PARTITION BY emocao ORDER BY dia) AS int) AS grupo
+                  FROM dias
+            )
+            SELECT e.nome AS emocao, MIN(i.dia) AS inicio, MAX(i.dia) AS fim, COUNT(*) AS dias
+              FROM ilhas i
+              JOIN emocoes e ON e.codigo = i.emocao
+             GROUP BY e.nome, i.grupo
+            HAVING COUNT(*) >= :minimoDias
+             ORDER BY dias DESC, fim DESC, emocao
+            """.formatted(REGISTROS);
+
+    // Semanas x emoções completas (com zeros), para o LAG comparar sempre com a semana imediatamente anterior.
+    // GROUPING SETS traz também o total da semana (emocao NULL -> TODAS).
+    private static final String SQL_SEMANAS = """
+            WITH registros AS (%s),
+            contagem AS (
+                SELECT CAST(date_trunc('week', data_registro) AS date) AS semana, emocao,
+                       COUNT(*) AS registros, AVG(intensidade) AS media
+                  FROM registros
+                 GROUP BY GROUPING SETS ((1, emocao), (1))
+            ),
+            semanas AS (
+                SELECT CAST(s AS date) AS semana
+                  FROM generate_series(CAST(:desde AS timestamp), CAST(:fim AS timestamp), interval '1 week') AS s
+            ),
+            presentes AS (SELECT DISTINCT emocao FROM contagem),
+            grade AS (
+                SELECT s.semana, e.emocao,
+                       COALESCE(c.registros, 0) AS registros,
+                       c.media,
+                       LAG(COALESCE(c.registros, 0)) OVER semanal AS registros_anterior,
+                       LAG(c.media) OVER semanal AS media_anterior
+                  FROM semanas s
+                 CROSS JOIN presentes e
+                  LEFT JOIN contagem c ON c.semana = s.semana AND c.emocao IS NOT DISTINCT FROM e.emocao
+                WINDOW semanal AS (PARTITION BY e.emocao ORDER BY s.semana)
+            )
+            SELECT g.semana, COALESCE(n.nome, 'TODAS') AS emocao, g.registros,
+                   COALESCE(g.registros_anterior, 0) AS registros_anterior,
+                   ROUND(g.media, 2) AS media, ROUND(g.media_anterior, 2) AS media_anterior
+              FROM grade g
+              LEFT JOIN emocoes n ON n.codigo = g.emocao
+             WHERE g.semana >= :primeiraSemana
+               AND (g.registros > 0 OR g.registros_anterior > 0)
+             ORDER BY g.semana, n.nome NULLS FIRST
+            """.formatted(REGISTROS);
+
+    private static final String SQL_TRANSICOES = """
+            WITH registros AS (%s),
+            sequencia AS (
+                SELECT emocao, LEAD(emocao) OVER (ORDER BY data_registro, id) AS proxima
+                  FROM registros
+            ),
+            contagem AS (
+                SELECT emocao AS de, proxima AS para, COUNT(*) AS vezes
+                  FROM sequencia
+                 WHERE proxima IS NOT NULL
+                 GROUP BY 1, 2
+            )
+            SELECT de.nome AS de, para.nome AS para, c.vezes,
+                   ROUND(100.0 * c.vezes / SUM(c.vezes) OVER (PARTITION BY c.de), 1) AS percentual
+              FROM contagem c
+              JOIN emocoes de ON de.codigo = c.de
+              JOIN emocoes para ON para.codigo = c.para
+             ORDER BY de.nome, c.vezes DESC, para.nome
+            """.formatted(REGISTROS);
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public AnaliseEmocoesService(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * As quatro consultas rodam na mesma transação e enxergam o mesmo snapshot, mesmo com diários chegando no meio.
+     *
+     * @param inicio      primeiro dia analisado
+     * @param fim         último dia analisado (inclusive)
+     * @param janelaDias  tamanho da média móvel, em dias
+     * @param emocao      filtra as sequências por uma emoção (null = todas)
+     * @param minimoDias  tamanho mínimo de uma sequência para aparecer
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public AnaliseEmocoesDTO analisar(Long dependenteId, LocalDate inicio, LocalDate fim,
+                                      int janelaDias, Emocao emocao, int minimoDias) {
+        LocalDate inicioMediaMovel = inicio.minusDays(janelaDias - 1L);
+        LocalDate primeiraSemana = inicio.minusDays(inicio.getDayOfWeek().getValue() - 1L);
+
+        MapSqlParameterSource mediaMovel = periodo(dependenteId, inicioMediaMovel, fim)
+                .addValue("desdeDia", inicioMediaMovel)
+                .addValue("inicio", inicio)
+                .addValue("fim", fim)
+                .addValue("anteriores", janelaDias - 1);
+        MapSqlParameterSource sequencias = periodo(dependenteId, inicio, fim)
+                .addValue("emocao", emocao != null ? emocao.getCodigo() : null, Types.SMALLINT)
+                .addValue("minimoDias", minimoDias);
+        // Uma semana a mais antes, para a primeira semana do período ter com quem comparar
+        MapSqlParameterSource semanas = periodo(dependenteId, primeiraSemana.minusWeeks(1), fim)
+                .addValue("fim", fim)
+                .addValue("primeiraSemana", primeiraSemana);
+        MapSqlParameterSource transicoes = periodo(dependenteId, inicio, fim);
+
+        return new AnaliseEmocoesDTO(dependenteId, inicio, fim, janelaDias,
+                jdbcTemplate.query(SQL_MEDIA_MOVEL, mediaMovel, (rs, i) -> new AnaliseEmocoesDTO.MediaMovel(
+                        rs.getObject("dia", LocalDate.class), rs.getLong("registros"),
+                        decimal(rs, "media_dia"), decimal(rs, "media_movel"))),
+                jdbcTemplate.query(SQL_SEQUENCIAS, sequencias, (rs, i) -> new AnaliseEmocoesDTO.Sequencia(
+                        rs.getString("emocao"), rs.getObject("inicio", LocalDate.class),
+                        rs.getObject("fim", LocalDate.class), rs.getInt("dias"))),
+                jdbcTemplate.query(SQL_SEMANAS, semanas, (rs, i) -> new AnaliseEmocoesDTO.VariacaoSemanal(
+                        rs.getObject("semana", LocalDate.class), rs.getString("emocao"),
+                        rs.getLong("registros"), rs.getLong("registros_anterior"),
+                        decimal(rs, "media"), decimal(rs, "media_anterior"))),
+                jdbcTemplate.query(SQL_TRANSICOES, transicoes, (rs, i) -> new AnaliseEmocoesDTO.Transicao(
+                        rs.getString("de"), rs.getString("para"), rs.getLong("vezes"), rs.getDouble("percentual"))));
+    }
+
+    // Intervalo [desde, fim + 1 dia) usado no filtro de REGISTROS
+    private static MapSqlParameterSource periodo(Long dependenteId, LocalDate desde, LocalDate fim) {
+        return new MapSqlParameterSource()
+                .addValue("dependenteId", dependenteId)
+                .addValue("desde", desde.atStartOfDay())
+                .addValue("ate", fim.plusDays(1).atStartOfDay());
+    }
+
+    private static Double decimal(ResultSet rs, String coluna) throws SQLException {
+        double valor = rs.getDouble(coluna);
+        return rs.wasNull() ? null : valor;
+    }
+}
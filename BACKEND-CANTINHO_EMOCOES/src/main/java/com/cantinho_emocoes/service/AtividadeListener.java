@@ -0,0 +1,27 @@
+package com.cantinho_emocoes.service;
+
+import com.cantinho_emocoes.model.Atividade;
+import jakarta.persistence.PostPersist;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * Listener JPA da entidade Atividade (gerenciado pelo Spring): atividades novas viram um AtividadeRealizadaEvent.
+ */
+@Component
+public class AtividadeListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public AtividadeListener(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostPersist
+    public void aoCriar(Atividade atividade) {
+        if (atividade.getAluno() != null) {
+            eventPublisher.publishEvent(new AtividadeRealizadaEvent(atividade.getId(), atividade.getAluno().getId(),
+                    atividade.getTipo(), atividade.getConteudo()));
+        }
+    }
+}
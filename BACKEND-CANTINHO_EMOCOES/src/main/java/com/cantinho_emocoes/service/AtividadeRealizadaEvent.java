@@ -0,0 +1,6 @@
+package com.cantinho_emocoes.service;
+
+/**
+ * Publicado pelo AtividadeListener quando uma atividade nova é gravada.
+ */
+public record AtividadeRealizadaEvent(Long atividadeId, Long alunoId, String tipo, String conteudo) {}
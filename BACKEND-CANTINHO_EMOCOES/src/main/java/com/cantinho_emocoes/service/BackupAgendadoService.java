@@ -0,0 +1,360 @@
+package com.cantinho_emocoes.service;
+
+import com.cantinho_emocoes.dto.ArquivoBackupDTO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.IsoFields;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * Backups automáticos na pasta de backups (app.backup.diretorio), num horário configurável.
+ *
+ * Cada arquivo é gravado primeiro como ".parcial" e só renomeado no final, então um arquivo
+ * com o nome definitivo está sempre completo. Ao lado fica um ".sha256" (formato do sha256sum)
+ * e, se o teste de restauração passar, um ".verificado". A retenção mantém os N mais recentes
+ * (horários), o mais recente de cada um dos últimos dias (diários) e de cada uma das últimas
+ * semanas (semanais); o resto é apagado.
+ */
+@Service
+public class BackupAgendadoService {
+
+    private static final Logger log = LoggerFactory.getLogger(BackupAgendadoService.class);
+
+    private static final String PREFIXO = "backup_cantinho_";
+    private static final DateTimeFormatter FORMATO_DATA = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss");
+    private static final String EXT_SHA = ".sha256";
+    private static final String EXT_VERIFICADO = ".verificado";
+    private static final String EXT_PARCIAL = ".parcial";
+
+    private final BackupService backupService;
+    private final BackupNativoService backupNativo;
+    private final AtomicBoolean emExecucao = new AtomicBoolean(false);
+
+    private final Counter sucessos;
+    private final Counter falhas;
+    private final Counter verificacoesFalhas;
+
+    @Value("${app.backup.diretorio:./backups}")
+    private String diretorioBackups;
+
+    @Value("${app.backup.agendado.ativo:true}")
+    private boolean ativo;
+
+    // nativo (padrão, não precisa do pg_dump) | sql | gzip | custom
+    @Value("${app.backup.agendado.formato:nativo}")
+    private String formato;
+
+    // Teste de restauração num schema temporário (só para o formato nativo)
+    @Value("${app.backup.agendado.verificar:true}")
+    private boolean verificar;
+
+    @Value("${app.backup.agendado.manter-horarios:24}")
+    private int manterHorarios;
+
+    @Value("${app.backup.agendado.manter-diarios:7}")
+    private int manterDiarios;
+
+    @Value("${app.backup.agendado.manter-semanais:8}")
+    private int manterSemanais;
+
+    // Diferenciais entre os completos (só no formato nativo)
+    @Value("${app.backup.agendado.diferencial:true}")
+    private boolean diferencial;
+
+    @Value("${app.backup.agendado.dias-entre-completos:7}")
+    private int diasEntreCompletos;
+
+    // Precisa ser maior que dias-entre-completos, senão a cadeia perde alterações
+    @Value("${app.backup.diferencial.retencao-registro-dias:14}")
+    private int retencaoRegistroDias;
+
+    public BackupAgendadoService(BackupService backupService, BackupNativoService backupNativo,
+                                 MeterRegistry meterRegistry) {
+        this.backupService = backupService;
+        this.backupNativo = backupNativo;
+        this.sucessos = Counter.builder("backup.agendado").tag("resultado", "sucesso").register(meterRegistry);
+        this.falhas = Counter.builder("backup.agendado").tag("resultado", "falhou").register(meterRegistry);
+        this.verificacoesFalhas = Counter.builder("backup.agendado").tag("resultado", "verificacao_falhou").register(meterRegistry);
+    }
+
+    // Padrão: de hora em hora fora do horário escolar (19h às 6h)
+    @Scheduled(cron = "${app.backup.agendado.cron:0 0 0-6,19-23 * * *}")
+    public void executarAgendado() {
+        if (!ativo) return;
+        try {
+            executar();
+        } catch (Exception e) {
+            log.error("Falha no backup agendado: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Gera um backup agora (também usado pelo botão do painel) e aplica a retenção.
+     * No formato nativo, com diferenciais ligados, gera um diferencial em relação ao último
+     * arquivo da pasta enquanto o último completo tiver menos de {@code diasEntreCompletos} dias.
+     * @return O nome do arquivo gerado.
+     */
+    public String executar() throws IOException, InterruptedException {
+        if (!emExecucao.compareAndSet(false, true)) {
+            throw new IllegalStateException("Já existe um backup agendado em andamento.");
+        }
+        try {
+            FormatoBackup formatoBackup = FormatoBackup.de(formato);
+            Path pasta = pasta();
+            Files.createDirectories(pasta);
+
+            String nome = null;
+            Optional<BackupNativoService.Manifesto> base = formatoBackup == FormatoBackup.NATIVO ? buscarBase() : Optional.empty();
+            if (base.isPresent()) {
+                try {
+                    nome = gravar(FormatoBackup.DIFERENCIAL, saida -> backupService.gerarBackupDiferencial(saida, base.get()));
+                } catch (IllegalStateException e) {
+                    log.warn("Diferencial não gerado ({}); gerando backup completo.", e.getMessage());
+                }
+            }
+            if (nome == null) {
+                nome = gravar(formatoBackup, saida -> backupService.gerarBackup(saida, formatoBackup));
+            }
+
+            Path destino = pasta.resolve(nome);
+            if (verificar && formatoBackup == FormatoBackup.NATIVO) {
+                verificarArquivo(destino);
+            }
+            aplicarRetencao();
+            if (diferencial) {
+                int apagados = backupNativo.limparRegistroAlteracoes(retencaoRegistroDias);
+                if (apagados > 0) log.info("{} registros de alteração antigos apagados.", apagados);
+            }
+            return nome;
+        } finally {
+            emExecucao.set(false);
+        }
+    }
+
+    @FunctionalInterface
+    private interface GeradorBackup {
+        void gerar(OutputStream saida) throws IOException, InterruptedException;
+    }
+
+    // Grava em ".parcial", calcula o SHA-256 no caminho e só então renomeia para o nome definitivo
+    private String gravar(FormatoBackup formatoBackup, GeradorBackup gerador) throws IOException, InterruptedException {
+        Path pasta = pasta();
+        String nome = PREFIXO + LocalDateTime.now().format(FORMATO_DATA) + "." + formatoBackup.getExtensao();
+        Path destino = pasta.resolve(nome);
+        Path parcial = pasta.resolve(nome + EXT_PARCIAL);
+
+        MessageDigest sha = novoSha256();
+        try (OutputStream saida = new DigestOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(parcial), 64 * 1024), sha)) {
+            gerador.gerar(saida);
+        } catch (IllegalStateException e) {
+            Files.deleteIfExists(parcial);
+            throw e; // base inválida para diferencial: quem chamou decide
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            Files.deleteIfExists(parcial);
+            falhas.increment();
+            throw e;
+        }
+
+        String hash = HexFormat.of().formatHex(sha.digest());
+        Files.move(parcial, destino, StandardCopyOption.ATOMIC_MOVE);
+        Files.writeString(pasta.resolve(nome + EXT_SHA), hash + "  " + nome + "\n", StandardCharsets.UTF_8);
+        sucessos.increment();
+        log.info("Backup agendado gravado: {} ({} bytes).", nome, Files.size(destino));
+        return nome;
+    }
+
+    // Último arquivo da pasta como base do diferencial, se ainda estiver dentro do ciclo do completo
+    private Optional<BackupNativoService.Manifesto> buscarBase() {
+        if (!diferencial) return Optional.empty();
+        try {
+            Map<Path, LocalDateTime> arquivos = arquivosPorData();
+            Optional<LocalDateTime> ultimoCompleto = arquivos.entrySet().stream()
+                    .filter(a -> !ehDiferencial(a.getKey()))
+                    .map(Map.Entry::getValue)
+                    .findFirst();
+            if (ultimoCompleto.isEmpty() || !ehNativo(arquivos.keySet().iterator().next())
+                    || ultimoCompleto.get().isBefore(LocalDateTime.now().minusDays(diasEntreCompletos))) {
+                return Optional.empty();
+            }
+            try (InputStream entrada = Files.newInputStream(arquivos.keySet().iterator().next())) {
+                BackupNativoService.Manifesto manifesto = backupNativo.lerManifesto(entrada);
+                // O registro de alterações mais antigo que isso já pode ter sido apagado
+                if (manifesto.geradoEm().isBefore(LocalDateTime.now().minusDays(retencaoRegistroDias))) {
+                    return Optional.empty();
+                }
+                return Optional.of(manifesto);
+            }
+        } catch (IOException e) {
+            log.warn("Não foi possível ler o backup base ({}); gerando backup completo.", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Manifesto de um backup guardado, para o download de um diferencial a partir dele.
+     */
+    public Optional<BackupNativoService.Manifesto> lerManifesto(String nome) throws IOException {
+        Optional<Path> arquivo = buscarArquivo(nome).filter(this::ehNativo);
+        if (arquivo.isEmpty()) return Optional.empty();
+        try (InputStream entrada = Files.newInputStream(arquivo.get())) {
+            return Optional.of(backupNativo.lerManifesto(entrada));
+        }
+    }
+
+    public List<ArquivoBackupDTO> listarArquivos() throws IOException {
+        List<ArquivoBackupDTO> arquivos = new ArrayList<>();
+        for (Map.Entry<Path, LocalDateTime> arquivo : arquivosPorData().entrySet()) {
+            Path caminho = arquivo.getKey();
+            String nome = caminho.getFileName().toString();
+            Path sha = caminho.resolveSibling(nome + EXT_SHA);
+            String hash = Files.exists(sha) ? Files.readString(sha).split("\\s+")[0] : null;
+            arquivos.add(new ArquivoBackupDTO(nome, Files.size(caminho), arquivo.getValue(), hash,
+                    Files.exists(caminho.resolveSibling(nome + EXT_VERIFICADO)), ehDiferencial(caminho)));
+        }
+        return arquivos;
+    }
+
+    // Resolve o nome pedido no download, sem deixar sair da pasta de backups
+    public Optional<Path> buscarArquivo(String nome) {
+        Path base = pasta();
+        Path caminho = base.resolve(nome).normalize();
+        if (!caminho.startsWith(base) || !nome.startsWith(PREFIXO) || dataDoNome(nome) == null
+                || !Files.isRegularFile(caminho)) {
+            return Optional.empty();
+        }
+        return Optional.of(caminho);
+    }
+
+    private void verificarArquivo(Path arquivo) {
+        String nome = arquivo.getFileName().toString();
+        try (InputStream entrada = Files.newInputStream(arquivo)) {
+            BackupNativoService.Manifesto manifesto = backupNativo.verificar(entrada);
+            Files.writeString(arquivo.resolveSibling(nome + EXT_VERIFICADO),
+                    manifesto.tabelas().size() + " tabelas verificadas em " + LocalDateTime.now() + "\n");
+            log.info("Backup {} verificado: {} tabelas restauradas no schema de teste.", nome, manifesto.tabelas().size());
+        } catch (IOException | RuntimeException e) {
+            verificacoesFalhas.increment();
+            log.error("Backup {} NÃO passou no teste de restauração: {}", nome, e.getMessage());
+        }
+    }
+
+    /**
+     * Mantém: os {@code manterHorarios} mais recentes, o mais recente de cada um dos últimos
+     * {@code manterDiarios} dias e o mais recente de cada uma das últimas {@code manterSemanais}
+     * semanas. Apaga os demais junto com os arquivos auxiliares.
+     */
+    void aplicarRetencao() throws IOException {
+        Map<Path, LocalDateTime> arquivos = arquivosPorData(); // mais recentes primeiro
+        Set<Path> manter = new HashSet<>();
+        Set<LocalDate> dias = new HashSet<>();
+        Set<Integer> semanas = new HashSet<>();
+
+        int posicao = 0;
+        for (Map.Entry<Path, LocalDateTime> arquivo : arquivos.entrySet()) {
+            LocalDateTime data = arquivo.getValue();
+            if (posicao++ < manterHorarios) {
+                manter.add(arquivo.getKey());
+            }
+            if (dias.size() < manterDiarios && dias.add(data.toLocalDate())) {
+                manter.add(arquivo.getKey());
+            }
+            int semana = data.get(IsoFields.WEEK_BASED_YEAR) * 100 + data.get(IsoFields.WEEK_OF_WEEK_BASED_YEAR);
+            if (semanas.size() < manterSemanais && semanas.add(semana)) {
+                manter.add(arquivo.getKey());
+            }
+        }
+
+        // Um diferencial mantido precisa de toda a cadeia até o completo anterior
+        List<Path> cronologica = new ArrayList<>(arquivos.keySet());
+        Collections.reverse(cronologica);
+        for (int i = cronologica.size() - 1; i >= 0; i--) {
+            if (!manter.contains(cronologica.get(i)) || !ehDiferencial(cronologica.get(i))) continue;
+            for (int j = i - 1; j >= 0; j--) {
+                manter.add(cronologica.get(j));
+                if (!ehDiferencial(cronologica.get(j))) break;
+            }
+        }
+
+        for (Path arquivo : arquivos.keySet()) {
+            if (manter.contains(arquivo)) continue;
+            String nome = arquivo.getFileName().toString();
+            Files.deleteIfExists(arquivo);
+            Files.deleteIfExists(arquivo.resolveSibling(nome + EXT_SHA));
+            Files.deleteIfExists(arquivo.resolveSibling(nome + EXT_VERIFICADO));
+            log.info("Backup {} removido pela retenção.", nome);
+        }
+    }
+
+    // Arquivos de backup completos da pasta, do mais recente para o mais antigo
+    private Map<Path, LocalDateTime> arquivosPorData() throws IOException {
+        Path pasta = pasta();
+        if (!Files.isDirectory(pasta)) return Map.of();
+
+        Map<Path, LocalDateTime> arquivos = new TreeMap<>(Comparator.reverseOrder());
+        try (Stream<Path> conteudo = Files.list(pasta)) {
+            conteudo.filter(Files::isRegularFile).forEach(caminho -> {
+                LocalDateTime data = dataDoNome(caminho.getFileName().toString());
+                if (data != null) arquivos.put(caminho, data);
+            });
+        }
+        return arquivos;
+    }
+
+    // "backup_cantinho_20250301_020000.zip" -> 2025-03-01T02:00; null se não for um backup completo
+    private LocalDateTime dataDoNome(String nome) {
+        if (!nome.startsWith(PREFIXO) || nome.endsWith(EXT_SHA) || nome.endsWith(EXT_VERIFICADO)
+                || nome.endsWith(EXT_PARCIAL)) {
+            return null;
+        }
+        int inicio = PREFIXO.length();
+        int fim = inicio + "yyyyMMdd_HHmmss".length();
+        if (nome.length() <= fim) return null;
+        try {
+            return LocalDateTime.parse(nome.substring(inicio, fim), FORMATO_DATA);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    private boolean ehDiferencial(Path arquivo) {
+        return arquivo.getFileName().toString().endsWith("." + FormatoBackup.DIFERENCIAL.getExtensao());
+    }
+
+    private boolean ehNativo(Path arquivo) {
+        return arquivo.getFileName().toString().endsWith("." + FormatoBackup.NATIVO.getExtensao());
+    }
+
+    private Path pasta() {
+        return Path.of(diretorioBackups).toAbsolutePath().normalize();
+    }
+
+    private static MessageDigest novoSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
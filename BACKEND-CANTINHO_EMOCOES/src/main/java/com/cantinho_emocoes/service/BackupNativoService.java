@@ -0,0 +1,972 @@
+package com.cantinho_emocoes.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.io.*;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.regex.Pattern;
+import java.util.zip.*;
+
+/**
+ * Backup/restore feito dentro da aplicação, pelo COPY do próprio driver (CopyManager),
+ * sem depender dos binários pg_dump/psql.
+ *
+ * O arquivo gerado é um ZIP com um manifest.json (tabelas, colunas e valores das sequences),
+ * uma entrada "tabelas/<nome>.copy" por tabela, com os dados no formato binário do COPY, e no
+ * fim o conferencia.json (linhas, bytes e SHA-256 de cada entrada, calculados durante a cópia).
+ * As tabelas são lidas em paralelo, cada uma na sua conexão, todas no mesmo snapshot
+ * (pg_export_snapshot), como faz o pg_dump -j, e cada COPY vai direto para a sua entrada do
+ * ZIP por um canal limitado (Tubo), sem arquivo temporário.
+ * Até o formato 3 as entradas eram "<nome>.copy.gz" e os checksums vinham no próprio manifesto.
+ * Só dados: o schema continua sendo criado pela aplicação.
+ *
+ * Diferencial: com base no manifesto do backup anterior, exporta das tabelas rastreadas
+ * (db/migration/V3__registro_alteracoes.sql) só as linhas cujas chaves foram alteradas por
+ * transações invisíveis no snapshot anterior, mais a lista dessas chaves ("chaves/<nome>.copy"),
+ * para o restore saber o que atualizar e o que apagar.
+ */
+@Service
+public class BackupNativoService {
+
+    private static final Logger log = LoggerFactory.getLogger(BackupNativoService.class);
+
+    static final String MANIFESTO = "manifest.json";
+    private static final String CONFERENCIA = "conferencia.json";
+    private static final String PASTA_TABELAS = "tabelas/";
+    private static final String PASTA_CHAVES = "chaves/";
+    private static final String EXTENSAO = ".copy";
+    private static final String EXTENSAO_GZIP = ".copy.gz"; // até o formato 3
+    private static final int VERSAO_FORMATO = 4;
+    private static final int BUFFER = 64 * 1024;
+
+    // Blocos de BUFFER bytes que cada tabela pode adiantar enquanto o ZIP grava outra (ver Tubo)
+    private static final int BLOCOS_POR_TUBO = 16;
+
+    // Controle dos diferenciais, histórico do Flyway, dados derivados (cubo de emoções, refeito pelos gatilhos
+    // de diarios) e a tabela de referência emocoes, que vem da migração (V4) e é igual em toda versão do
+    // esquema: não entram no backup. No diferencial, a emocoes seria apagada e recarregada inteira, o que a
+    // FK de diarios não permite.
+    private static final Set<String> TABELAS_INTERNAS = Set.of("registro_alteracoes", "tabelas_rastreadas", "backups_aplicados",
+            "flyway_schema_history", "cubo_emocoes", "cubo_emocoes_escola", "emocoes");
+
+    // Texto de um pg_snapshot (xmin:xmax:xip,...): validado antes de ir para o SQL
+    private static final Pattern SNAPSHOT = Pattern.compile("\\d+:\\d+:[\\d,]*");
+
+    private final DataSource dataSource;
+    private final ObjectMapper objectMapper;
+
+    // Quantas tabelas são copiadas ao mesmo tempo (cada uma usa uma conexão do pool)
+    @Value("${app.backup.nativo.paralelismo:4}")
+    private int paralelismo;
+
+    public BackupNativoService(DataSource dataSource, ObjectMapper objectMapper) {
+        this.dataSource = dataSource;
+        this.objectMapper = objectMapper;
+    }
+
+    public enum TipoBackup { COMPLETO, DIFERENCIAL }
+
+    // Conteúdo do manifest.json. snapshotBase só existe no diferencial. versaoEsquema é a versão do Flyway
+    // do banco de origem (a partir do formato 3): o COPY binário depende dos tipos das colunas.
+    public record Manifesto(int versao, TipoBackup tipo, LocalDateTime geradoEm, String snapshot, String snapshotBase,
+                            String versaoEsquema, List<TabelaManifesto> tabelas, List<SequenceManifesto> sequences) {
+        public boolean isDiferencial() {
+            return tipo == TipoBackup.DIFERENCIAL;
+        }
+
+        Manifesto comTabelas(List<TabelaManifesto> conferidas) {
+            return new Manifesto(versao, tipo, geradoEm, snapshot, snapshotBase, versaoEsquema, conferidas, sequences);
+        }
+    }
+
+    // rastreio != null: a entrada traz só as linhas alteradas (diferencial). A partir do formato 4, linhas,
+    // bytes e checksums ficam nulos no manifest.json e vêm no conferencia.json.
+    public record TabelaManifesto(String nome, List<String> colunas, Long linhas, Long bytes, String sha256,
+                                  Rastreio rastreio) {}
+
+    public record Rastreio(List<String> chave, boolean substituir, Long chaves, String chavesSha256) {}
+
+    public record SequenceManifesto(String nome, Long ultimoValor) {}
+
+    // Tabela a exportar; rastreamento != null quando há registro de alterações para ela
+    private record Tabela(String nome, List<String> colunas, Rastreamento rastreamento) {}
+
+    private record Rastreamento(List<String> chave, boolean substituir) {}
+
+    // Um COPY TO já passado para o ZIP
+    private record Copia(long linhas, long bytes, String sha256) {}
+
+    // Tabela sendo lida em outra thread; chaves != null no diferencial de tabela rastreada
+    private record TabelaEmCopia(Tabela tabela, Tubo dados, Tubo chaves, Future<TabelaManifesto> manifesto) {}
+
+    public void exportar(OutputStream destino, OperacaoBackup operacao) throws IOException {
+        exportar(destino, operacao, null);
+    }
+
+    /**
+     * Diferencial em relação ao backup cujo manifesto é {@code base} (completo ou diferencial).
+     * Recusa (IllegalStateException) se o banco foi restaurado depois da base: as transações
+     * registradas já não correspondem àquele snapshot.
+     */
+    public void exportarDiferencial(OutputStream destino, OperacaoBackup operacao, Manifesto base) throws IOException {
+        if (base.snapshot() == null || !SNAPSHOT.matcher(base.snapshot()).matches()) {
+            throw new IllegalStateException("O backup base não tem snapshot registrado; gere um backup completo.");
+        }
+        LocalDateTime ultimaRestauracao = ultimaRestauracao();
+        if (ultimaRestauracao != null && ultimaRestauracao.isAfter(base.geradoEm())) {
+            throw new IllegalStateException("O banco foi restaurado depois do backup base; gere um backup completo.");
+        }
+        String versaoAtual = versaoEsquemaAtual();
+        if (!Objects.equals(base.versaoEsquema(), versaoAtual)) {
+            // Uma migração pode ter mudado colunas ou a chave registrada das alterações (ex.: V8)
+            throw new IllegalStateException("O backup base é do esquema " + descreverVersao(base.versaoEsquema())
+                    + " e o banco está no " + descreverVersao(versaoAtual) + "; gere um backup completo.");
+        }
+        exportar(destino, operacao, base.snapshot());
+    }
+
+    /**
+     * Gera o ZIP direto no destino: o manifesto primeiro, depois as tabelas, na ordem das chaves
+     * estrangeiras, e por fim a conferência com os checksums calculados no caminho.
+     */
+    private void exportar(OutputStream destino, OperacaoBackup operacao, String snapshotBase) throws IOException {
+        try (Connection coordenador = dataSource.getConnection()) {
+            coordenador.setAutoCommit(false);
+            coordenador.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            coordenador.setReadOnly(true);
+            try {
+                String snapshotExportado = consultarTexto(coordenador, "SELECT pg_export_snapshot()");
+                String snapshot = consultarTexto(coordenador, "SELECT pg_current_snapshot()::text");
+                String versaoEsquema = versaoEsquema(coordenador);
+                List<Tabela> tabelas = listarTabelas(coordenador);
+                List<SequenceManifesto> sequences = listarSequences(coordenador);
+
+                Manifesto manifesto = new Manifesto(VERSAO_FORMATO,
+                        snapshotBase == null ? TipoBackup.COMPLETO : TipoBackup.DIFERENCIAL,
+                        LocalDateTime.now(), snapshot, snapshotBase, versaoEsquema,
+                        tabelas.stream().map(t -> estrutura(t, snapshotBase)).toList(), sequences);
+
+                ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(destino, BUFFER));
+                gravarJson(zip, MANIFESTO, manifesto);
+                // O snapshot só vale enquanto a transação do coordenador estiver aberta
+                List<TabelaManifesto> copiadas = copiarEmParalelo(zip, tabelas, snapshotExportado, snapshotBase, operacao);
+                gravarJson(zip, CONFERENCIA, copiadas);
+                zip.finish();
+                zip.flush();
+                log.info("Backup nativo {} concluído: {} tabelas.", manifesto.tipo(), copiadas.size());
+            } finally {
+                coordenador.rollback();
+            }
+        } catch (SQLException e) {
+            throw new IOException("Erro ao copiar os dados: " + e.getMessage(), e);
+        }
+    }
+
+    // Tabela como vai no manifest.json: contagens e checksums só na conferência
+    private static TabelaManifesto estrutura(Tabela tabela, String snapshotBase) {
+        Rastreio rastreio = snapshotBase == null || tabela.rastreamento() == null ? null
+                : new Rastreio(tabela.rastreamento().chave(), tabela.rastreamento().substituir(), null, null);
+        return new TabelaManifesto(tabela.nome(), tabela.colunas(), null, null, null, rastreio);
+    }
+
+    private void gravarJson(ZipOutputStream zip, String nome, Object conteudo) throws IOException {
+        zip.putNextEntry(new ZipEntry(nome));
+        zip.write(objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(conteudo));
+        zip.closeEntry();
+    }
+
+    /**
+     * Restaura um ZIP gerado por {@link #exportar}. Tudo acontece numa única transação e
+     * qualquer checksum divergente desfaz a restauração inteira.
+     * Completo: as tabelas do manifesto são esvaziadas e recarregadas com COPY FROM STDIN,
+     * na ordem das chaves estrangeiras.
+     * Diferencial: só é aceito se o último backup aplicado no banco for a base dele.
+     */
+    public void restaurar(InputStream arquivo, OperacaoBackup operacao) throws IOException {
+        ZipInputStream zip = new ZipInputStream(arquivo);
+        Manifesto manifesto = lerManifesto(zip);
+
+        try (Connection conexao = dataSource.getConnection()) {
+            conferirVersaoEsquema(conexao, manifesto);
+            conexao.setAutoCommit(false);
+            try {
+                try (Statement st = conexao.createStatement()) {
+                    // Não registra as linhas restauradas como alterações (ver registrar_alteracao())
+                    st.execute("SET LOCAL app.restaurando = 'on'");
+                }
+
+                if (manifesto.isDiferencial()) {
+                    aplicarDiferencial(zip, manifesto, conexao, operacao);
+                } else {
+                    operacao.setEtapa("Limpando tabelas");
+                    try (Statement st = conexao.createStatement()) {
+                        st.execute("TRUNCATE TABLE " + String.join(", ", manifesto.tabelas().stream()
+                                .map(t -> identificador(t.nome())).toList()) + " CASCADE");
+                    }
+                    carregarEntradas(zip, manifesto, conexao, operacao,
+                            (tabela, chaves) -> identificador(tabela.nome()) + " (" + listaColunas(tabela.colunas()) + ")");
+                }
+
+                operacao.setEtapa("Ajustando sequences");
+                restaurarSequences(conexao, manifesto.sequences());
+                registrarAplicacao(conexao, manifesto);
+
+                conexao.commit();
+                log.info("Restore nativo {} concluído: {} tabelas.", manifesto.tipo(), manifesto.tabelas().size());
+            } catch (SQLException | IOException | RuntimeException e) {
+                conexao.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            throw new IOException("Erro ao restaurar os dados: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Teste de restauração: carrega o ZIP num schema temporário, com tabelas vazias copiadas da
+     * estrutura atual (sem constraints), conferindo linhas e checksums. A transação é sempre
+     * desfeita no final, então o schema some e o banco real não é tocado.
+     * @return O manifesto verificado, com as contagens e os checksums conferidos.
+     */
+    public Manifesto verificar(InputStream arquivo) throws IOException {
+        ZipInputStream zip = new ZipInputStream(arquivo);
+        Manifesto manifesto = lerManifesto(zip);
+        String esquema = "verificacao_backup_" + Long.toHexString(System.nanoTime());
+
+        try (Connection conexao = dataSource.getConnection()) {
+            conferirVersaoEsquema(conexao, manifesto);
+            conexao.setAutoCommit(false);
+            try (Statement st = conexao.createStatement()) {
+                st.execute("CREATE SCHEMA " + esquema);
+                for (TabelaManifesto tabela : manifesto.tabelas()) {
+                    st.execute("CREATE TABLE " + esquema + "." + identificador(tabela.nome())
+                            + " (LIKE public." + identificador(tabela.nome()) + ")");
+                    if (tabela.rastreio() != null) {
+                        st.execute("CREATE TABLE " + esquema + "." + identificador(tabela.nome() + "__chaves") + " (chave jsonb)");
+                    }
+                }
+                List<TabelaManifesto> conferidas = carregarEntradas(zip, manifesto, conexao, null, (tabela, chaves) -> chaves
+                        ? esquema + "." + identificador(tabela.nome() + "__chaves") + " (chave)"
+                        : esquema + "." + identificador(tabela.nome()) + " (" + listaColunas(tabela.colunas()) + ")");
+                return manifesto.comTabelas(conferidas);
+            } finally {
+                conexao.rollback();
+            }
+        } catch (SQLException e) {
+            throw new IOException("Falha no teste de restauração: " + e.getMessage(), e);
+        }
+    }
+
+    // Lê só o manifesto de um ZIP (ex.: para usar um backup guardado como base do diferencial).
+    // A partir do formato 4, sem as contagens e os checksums (ver verificar)
+    public Manifesto lerManifesto(InputStream arquivo) throws IOException {
+        return lerManifesto(new ZipInputStream(arquivo));
+    }
+
+    private Manifesto lerManifesto(ZipInputStream zip) throws IOException {
+        ZipEntry entrada = zip.getNextEntry();
+        if (entrada == null || !MANIFESTO.equals(entrada.getName())) {
+            throw new IOException("Arquivo inválido: o manifest.json deve ser a primeira entrada do ZIP.");
+        }
+        Manifesto manifesto = objectMapper.readValue(zip.readAllBytes(), Manifesto.class);
+        if (manifesto.versao() > VERSAO_FORMATO) {
+            throw new IOException("Versão de backup não suportada: " + manifesto.versao());
+        }
+        return manifesto;
+    }
+
+    /**
+     * Aplica um diferencial: carrega linhas e chaves em tabelas temporárias e depois, na ordem
+     * das FKs, faz upsert das linhas alteradas; por fim, na ordem inversa, apaga as chaves que
+     * não existiam mais no snapshot do diferencial.
+     */
+    private void aplicarDiferencial(ZipInputStream zip, Manifesto manifesto, Connection conexao,
+                                    OperacaoBackup operacao) throws IOException, SQLException {
+        String ultimo = ultimoSnapshotAplicado(conexao);
+        if (!Objects.equals(ultimo, manifesto.snapshotBase())) {
+            throw new IOException("Este diferencial depende do backup com snapshot " + manifesto.snapshotBase()
+                    + ", mas o último aplicado no banco foi " + ultimo + ". Restaure antes a sequência correta.");
+        }
+
+        try (Statement st = conexao.createStatement()) {
+            for (TabelaManifesto tabela : manifesto.tabelas()) {
+                if (tabela.rastreio() != null) {
+                    st.execute("CREATE TEMP TABLE " + temporaria(tabela, false)
+                            + " (LIKE public." + identificador(tabela.nome()) + ") ON COMMIT DROP");
+                    st.execute("CREATE TEMP TABLE " + temporaria(tabela, true) + " (chave jsonb) ON COMMIT DROP");
+                } else {
+                    // Tabela sem rastreamento vem inteira: substitui o conteúdo
+                    st.execute("DELETE FROM public." + identificador(tabela.nome()));
+                }
+            }
+        }
+
+        carregarEntradas(zip, manifesto, conexao, operacao, (tabela, chaves) -> {
+            if (tabela.rastreio() == null) {
+                return "public." + identificador(tabela.nome()) + " (" + listaColunas(tabela.colunas()) + ")";
+            }
+            return chaves ? temporaria(tabela, true) + " (chave)"
+                    : temporaria(tabela, false) + " (" + listaColunas(tabela.colunas()) + ")";
+        });
+
+        operacao.setEtapa("Aplicando alterações");
+        try (Statement st = conexao.createStatement()) {
+            for (TabelaManifesto tabela : manifesto.tabelas()) {
+                if (tabela.rastreio() == null) continue;
+                String alvo = "public." + identificador(tabela.nome());
+                String colunas = listaColunas(tabela.colunas());
+                if (tabela.rastreio().substituir()) {
+                    st.execute("DELETE FROM " + alvo + " t USING " + chavesAlteradas(tabela) + " k WHERE "
+                            + igualdade("t", "k", tabela.rastreio().chave()));
+                    st.execute("INSERT INTO " + alvo + " (" + colunas + ") SELECT " + colunas
+                            + " FROM " + temporaria(tabela, false));
+                } else {
+                    List<String> atualizaveis = tabela.colunas().stream()
+                            .filter(c -> !tabela.rastreio().chave().contains(c)).toList();
+                    String conflito = atualizaveis.isEmpty() ? "DO NOTHING" : "DO UPDATE SET " + String.join(", ",
+                            atualizaveis.stream().map(c -> identificador(c) + " = EXCLUDED." + identificador(c)).toList());
+                    st.execute("INSERT INTO " + alvo + " (" + colunas + ") SELECT " + colunas
+                            + " FROM " + temporaria(tabela, false)
+                            + " ON CONFLICT (" + listaColunas(tabela.rastreio().chave()) + ") " + conflito);
+                }
+            }
+
+            List<TabelaManifesto> inversa = new ArrayList<>(manifesto.tabelas());
+            Collections.reverse(inversa);
+            for (TabelaManifesto tabela : inversa) {
+                if (tabela.rastreio() == null || tabela.rastreio().substituir()) continue;
+                st.execute("DELETE FROM public." + identificador(tabela.nome()) + " t USING " + chavesAlteradas(tabela)
+                        + " k WHERE " + igualdade("t", "k", tabela.rastreio().chave())
+                        + " AND NOT EXISTS (SELECT 1 FROM " + temporaria(tabela, false) + " d WHERE "
+                        + igualdade("d", "k", tabela.rastreio().chave()) + ")");
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface DestinoCopia {
+        // Alvo do COPY FROM (tabela + colunas) para a entrada de dados ou de chaves
+        String alvo(TabelaManifesto tabela, boolean chaves);
+    }
+
+    /**
+     * COPY FROM STDIN de cada entrada do ZIP, calculando SHA-256 e quantidade de linhas. Até o formato 3
+     * cada entrada é conferida com o manifesto logo depois de carregada; a partir do 4, todas são
+     * conferidas no fim com o conferencia.json, antes de quem chamou confirmar a transação.
+     * @return As tabelas do manifesto com as contagens e os checksums conferidos.
+     */
+    private List<TabelaManifesto> carregarEntradas(ZipInputStream zip, Manifesto manifesto, Connection conexao,
+                                                   OperacaoBackup operacao, DestinoCopia destino) throws IOException, SQLException {
+        boolean comConferencia = manifesto.versao() >= 4;
+        String extensao = comConferencia ? EXTENSAO : EXTENSAO_GZIP;
+        Map<String, TabelaManifesto> porNome = new HashMap<>();
+        Set<String> pendentes = new LinkedHashSet<>();
+        for (TabelaManifesto tabela : manifesto.tabelas()) {
+            porNome.put(tabela.nome(), tabela);
+            pendentes.add(PASTA_TABELAS + tabela.nome() + extensao);
+            if (tabela.rastreio() != null) pendentes.add(PASTA_CHAVES + tabela.nome() + extensao);
+        }
+        CopyManager copy = conexao.unwrap(PGConnection.class).getCopyAPI();
+        Map<String, Copia> carregadas = new HashMap<>();
+        List<TabelaManifesto> conferencia = null;
+
+        ZipEntry entrada;
+        while ((entrada = zip.getNextEntry()) != null) {
+            String nome = entrada.getName();
+            if (comConferencia && CONFERENCIA.equals(nome)) {
+                conferencia = List.of(objectMapper.readValue(zip.readAllBytes(), TabelaManifesto[].class));
+                continue;
+            }
+            boolean chaves = nome.startsWith(PASTA_CHAVES);
+            if (!nome.endsWith(extensao) || (!chaves && !nome.startsWith(PASTA_TABELAS))) continue;
+            String pasta = chaves ? PASTA_CHAVES : PASTA_TABELAS;
+            TabelaManifesto tabela = porNome.get(nome.substring(pasta.length(), nome.length() - extensao.length()));
+            if (tabela == null || !pendentes.remove(nome)) {
+                throw new IOException("Entrada fora do manifesto: " + nome);
+            }
+
+            if (operacao != null) operacao.setEtapa("Carregando " + tabela.nome());
+            MessageDigest sha = novoSha256();
+            InputStream conteudo = new SemFecharInputStream(zip);
+            InputStream dados = new DigestInputStream(
+                    comConferencia ? conteudo : new GZIPInputStream(conteudo, BUFFER), sha);
+            long linhas = copy.copyIn("COPY " + destino.alvo(tabela, chaves) + " FROM STDIN (FORMAT binary)", dados, BUFFER);
+            String shaCalculado = HexFormat.of().formatHex(sha.digest());
+
+            if (!comConferencia) {
+                String shaEsperado = chaves ? tabela.rastreio().chavesSha256() : tabela.sha256();
+                Long linhasEsperadas = chaves ? tabela.rastreio().chaves() : tabela.linhas();
+                if (!shaCalculado.equals(shaEsperado) || !Objects.equals(linhas, linhasEsperadas)) {
+                    throw new IOException("Checksum divergente em " + nome + ". Nada foi alterado.");
+                }
+            }
+            carregadas.put(nome, new Copia(linhas, 0, shaCalculado));
+        }
+        if (!pendentes.isEmpty()) {
+            throw new IOException("Arquivo incompleto, faltam as entradas: " + pendentes);
+        }
+        if (!comConferencia) return manifesto.tabelas();
+        if (conferencia == null) {
+            throw new IOException("Arquivo incompleto, falta a entrada " + CONFERENCIA + ". Nada foi alterado.");
+        }
+        return conferir(manifesto, conferencia, carregadas);
+    }
+
+    // Confere o que foi carregado com o conferencia.json (formato 4), tabela por tabela do manifesto
+    private static List<TabelaManifesto> conferir(Manifesto manifesto, List<TabelaManifesto> conferencia,
+                                                  Map<String, Copia> carregadas) throws IOException {
+        Map<String, TabelaManifesto> conferidasPorNome = new HashMap<>();
+        conferencia.forEach(t -> conferidasPorNome.put(t.nome(), t));
+
+        List<TabelaManifesto> conferidas = new ArrayList<>();
+        for (TabelaManifesto tabela : manifesto.tabelas()) {
+            TabelaManifesto conferida = conferidasPorNome.get(tabela.nome());
+            String dados = PASTA_TABELAS + tabela.nome() + EXTENSAO;
+            if (conferida == null || !conferida.colunas().equals(tabela.colunas())
+                    || (conferida.rastreio() == null) != (tabela.rastreio() == null)) {
+                throw new IOException("Conferência não corresponde ao manifesto em " + tabela.nome() + ". Nada foi alterado.");
+            }
+            if (!confere(carregadas.get(dados), conferida.linhas(), conferida.sha256())) {
+                throw new IOException("Checksum divergente em " + dados + ". Nada foi alterado.");
+            }
+            if (conferida.rastreio() != null) {
+                String chaves = PASTA_CHAVES + tabela.nome() + EXTENSAO;
+                if (!confere(carregadas.get(chaves), conferida.rastreio().chaves(), conferida.rastreio().chavesSha256())) {
+                    throw new IOException("Checksum divergente em " + chaves + ". Nada foi alterado.");
+                }
+            }
+            conferidas.add(conferida);
+        }
+        return conferidas;
+    }
+
+    private static boolean confere(Copia carregada, Long linhas, String sha256) {
+        return carregada != null && Objects.equals(carregada.linhas(), linhas) && carregada.sha256().equals(sha256);
+    }
+
+    /**
+     * Lê as tabelas em paralelo (até {@code paralelismo} ao mesmo tempo) e grava cada uma na sua entrada
+     * do ZIP, em ordem. Quem está à frente da tabela sendo gravada espera com o Tubo cheio; como as
+     * leituras começam na mesma ordem da gravação, a da vez sempre já está rodando.
+     * @return As tabelas com linhas, bytes e SHA-256 calculados durante a cópia.
+     */
+    private List<TabelaManifesto> copiarEmParalelo(ZipOutputStream zip, List<Tabela> tabelas, String snapshotExportado,
+                                                   String snapshotBase, OperacaoBackup operacao) throws IOException {
+        int threads = Math.max(1, Math.min(paralelismo, tabelas.size()));
+        ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "backup-nativo");
+            t.setDaemon(true);
+            return t;
+        });
+        try {
+            List<TabelaEmCopia> emCopia = new ArrayList<>();
+            for (Tabela tabela : tabelas) {
+                Tubo dados = new Tubo();
+                Tubo chaves = snapshotBase != null && tabela.rastreamento() != null ? new Tubo() : null;
+                emCopia.add(new TabelaEmCopia(tabela, dados, chaves, executor.submit(
+                        () -> copiarTabela(tabela, snapshotExportado, snapshotBase, dados, chaves))));
+            }
+
+            operacao.setEtapa("Copiando tabelas (0/" + tabelas.size() + ")");
+            List<TabelaManifesto> copiadas = new ArrayList<>();
+            for (TabelaEmCopia copia : emCopia) {
+                gravarEntrada(zip, PASTA_TABELAS + copia.tabela().nome() + EXTENSAO, copia.dados());
+                if (copia.chaves() != null) {
+                    gravarEntrada(zip, PASTA_CHAVES + copia.tabela().nome() + EXTENSAO, copia.chaves());
+                }
+                TabelaManifesto manifesto = aguardar(copia.manifesto());
+                operacao.adicionarBytes(manifesto.bytes());
+                copiadas.add(manifesto);
+                operacao.setEtapa("Copiando tabelas (" + copiadas.size() + "/" + tabelas.size() + ")");
+            }
+            return copiadas;
+        } finally {
+            executor.shutdownNow(); // em caso de falha, interrompe quem ainda espera com o Tubo cheio
+        }
+    }
+
+    private static void gravarEntrada(ZipOutputStream zip, String nome, Tubo tubo) throws IOException {
+        zip.putNextEntry(new ZipEntry(nome));
+        tubo.entrada().transferTo(zip);
+        zip.closeEntry();
+    }
+
+    private static TabelaManifesto aguardar(Future<TabelaManifesto> futuro) throws IOException {
+        try {
+            return futuro.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Backup interrompido.", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Falha ao copiar tabelas: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    // COPY ... TO STDOUT de uma tabela para o(s) seu(s) Tubo(s) (no diferencial, só as linhas alteradas e as chaves)
+    private TabelaManifesto copiarTabela(Tabela tabela, String snapshotExportado, String snapshotBase,
+                                         Tubo tuboDados, Tubo tuboChaves) throws SQLException, IOException {
+        try (Connection conexao = dataSource.getConnection()) {
+            conexao.setAutoCommit(false);
+            conexao.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            conexao.setReadOnly(true);
+            try {
+                try (Statement st = conexao.createStatement()) {
+                    st.execute("SET TRANSACTION SNAPSHOT '" + snapshotExportado + "'");
+                }
+                CopyManager copy = conexao.unwrap(PGConnection.class).getCopyAPI();
+                String nome = tabela.nome();
+                String colunas = listaColunas(tabela.colunas());
+
+                // Tabela particionada não aceita COPY direto: lê pela consulta (inclui todas as partições)
+                String consulta = "SELECT " + colunas + " FROM public." + identificador(nome) + " t";
+                if (tuboChaves != null) {
+                    consulta = "SELECT " + listaColunas("t", tabela.colunas()) + " FROM public." + identificador(nome)
+                            + " t WHERE EXISTS (SELECT 1 FROM " + chavesAlteradas(tabela, snapshotBase)
+                            + " k WHERE " + igualdade("t", "k", tabela.rastreamento().chave()) + ")";
+                }
+                Copia dados = copiarParaTubo(copy, consulta, tuboDados);
+                Copia chaves = null;
+                if (tuboChaves != null) {
+                    chaves = copiarParaTubo(copy, "SELECT DISTINCT r.chave FROM registro_alteracoes r WHERE "
+                            + filtroAlteracoes(nome, snapshotBase), tuboChaves);
+                }
+
+                Rastreio rastreio = chaves == null ? null : new Rastreio(tabela.rastreamento().chave(),
+                        tabela.rastreamento().substituir(), chaves.linhas(), chaves.sha256());
+                return new TabelaManifesto(nome, tabela.colunas(), dados.linhas(), dados.bytes(), dados.sha256(), rastreio);
+            } finally {
+                conexao.rollback();
+            }
+        } catch (SQLException | IOException | RuntimeException e) {
+            // Quem grava o ZIP pode estar esperando neste Tubo: recebe a falha em vez do fim da entrada
+            tuboDados.falhar(e);
+            if (tuboChaves != null) tuboChaves.falhar(e);
+            throw e;
+        }
+    }
+
+    // O Tubo só recebe o fim da entrada se o COPY terminar sem erro
+    private Copia copiarParaTubo(CopyManager copy, String consulta, Tubo tubo) throws SQLException, IOException {
+        MessageDigest sha = novoSha256();
+        ContadorBytes saida = new ContadorBytes(new DigestOutputStream(tubo.saida(), sha));
+        long linhas = copy.copyOut("COPY (" + consulta + ") TO STDOUT (FORMAT binary)", saida);
+        saida.close();
+        return new Copia(linhas, saida.total, HexFormat.of().formatHex(sha.digest()));
+    }
+
+    // Alterações feitas por transações que o snapshot base ainda não enxergava
+    private static String filtroAlteracoes(String tabela, String snapshotBase) {
+        String snapshot = literal(snapshotBase) + "::pg_snapshot";
+        return "r.tabela = " + literal(tabela) + " AND r.xid >= pg_snapshot_xmin(" + snapshot + ")"
+                + " AND NOT pg_visible_in_snapshot(r.xid, " + snapshot + ")";
+    }
+
+    // Chaves alteradas desde a base, já como colunas tipadas da tabela (exportação)
+    private static String chavesAlteradas(Tabela tabela, String snapshotBase) {
+        return "(SELECT (jsonb_populate_record(NULL::public." + identificador(tabela.nome()) + ", r.chave)).*"
+                + " FROM registro_alteracoes r WHERE " + filtroAlteracoes(tabela.nome(), snapshotBase) + ")";
+    }
+
+    // Chaves vindas do diferencial, já como colunas tipadas da tabela (restore)
+    private static String chavesAlteradas(TabelaManifesto tabela) {
+        return "(SELECT (jsonb_populate_record(NULL::public." + identificador(tabela.nome()) + ", chave)).*"
+                + " FROM " + temporaria(tabela, true) + ")";
+    }
+
+    private static String temporaria(TabelaManifesto tabela, boolean chaves) {
+        return "pg_temp." + identificador((chaves ? "chaves_" : "delta_") + tabela.nome());
+    }
+
+    private static String igualdade(String a, String b, List<String> colunas) {
+        return String.join(" AND ", colunas.stream()
+                .map(c -> a + "." + identificador(c) + " = " + b + "." + identificador(c)).toList());
+    }
+
+    /**
+     * Tabelas do schema public (partições ficam de fora: entram pela tabela mãe), em ordem de
+     * dependência das chaves estrangeiras, para que o restore carregue os "pais" primeiro.
+     */
+    private List<Tabela> listarTabelas(Connection conexao) throws SQLException {
+        List<String> nomes = new ArrayList<>();
+        try (PreparedStatement ps = conexao.prepareStatement("""
+                SELECT c.relname FROM pg_class c
+                JOIN pg_namespace n ON n.oid = c.relnamespace
+                WHERE n.nspname = 'public' AND c.relkind IN ('r', 'p') AND NOT c.relispartition
+                ORDER BY c.relname
+                """); ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                if (!TABELAS_INTERNAS.contains(rs.getString(1))) nomes.add(rs.getString(1));
+            }
+        }
+
+        Map<String, Set<String>> dependencias = new HashMap<>();
+        try (PreparedStatement ps = conexao.prepareStatement("""
+                SELECT filha.relname, pai.relname FROM pg_constraint c
+                JOIN pg_class filha ON filha.oid = c.conrelid
+                JOIN pg_class pai ON pai.oid = c.confrelid
+                JOIN pg_namespace n ON n.oid = c.connamespace
+                WHERE c.contype = 'f' AND n.nspname = 'public' AND c.conrelid <> c.confrelid
+                """); ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                dependencias.computeIfAbsent(rs.getString(1), k -> new HashSet<>()).add(rs.getString(2));
+            }
+        }
+
+        // Ordenação topológica simples (o schema é pequeno)
+        List<String> ordenadas = new ArrayList<>();
+        Set<String> restantes = new LinkedHashSet<>(nomes);
+        while (!restantes.isEmpty()) {
+            List<String> prontas = restantes.stream()
+                    .filter(t -> dependencias.getOrDefault(t, Set.of()).stream()
+                            .noneMatch(pai -> restantes.contains(pai) && !pai.equals(t)))
+                    .toList();
+            if (prontas.isEmpty()) {
+                prontas = List.copyOf(restantes); // ciclo de FKs: segue na ordem alfabética
+            }
+            ordenadas.addAll(prontas);
+            prontas.forEach(restantes::remove);
+        }
+
+        Map<String, Rastreamento> rastreadas = listarRastreadas(conexao);
+        List<Tabela> tabelas = new ArrayList<>();
+        for (String nome : ordenadas) {
+            tabelas.add(new Tabela(nome, listarColunas(conexao, nome), rastreadas.get(nome)));
+        }
+        return tabelas;
+    }
+
+    private Map<String, Rastreamento> listarRastreadas(Connection conexao) throws SQLException {
+        Map<String, Rastreamento> rastreadas = new HashMap<>();
+        if (consultarTexto(conexao, "SELECT to_regclass('tabelas_rastreadas')::text") == null) {
+            return rastreadas;
+        }
+        try (PreparedStatement ps = conexao.prepareStatement("SELECT tabela, chave, substituir FROM tabelas_rastreadas");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                List<String> chave = List.of((String[]) rs.getArray(2).getArray());
+                rastreadas.put(rs.getString(1), new Rastreamento(chave, rs.getBoolean(3)));
+            }
+        }
+        return rastreadas;
+    }
+
+    // Colunas graváveis (sem as geradas), na ordem física
+    private List<String> listarColunas(Connection conexao, String tabela) throws SQLException {
+        List<String> colunas = new ArrayList<>();
+        try (PreparedStatement ps = conexao.prepareStatement("""
+                SELECT a.attname FROM pg_attribute a
+                WHERE a.attrelid = ?::regclass AND a.attnum > 0 AND NOT a.attisdropped AND a.attgenerated = ''
+                ORDER BY a.attnum
+                """)) {
+            ps.setString(1, identificador(tabela));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) colunas.add(rs.getString(1));
+            }
+        }
+        return colunas;
+    }
+
+    private List<SequenceManifesto> listarSequences(Connection conexao) throws SQLException {
+        Set<String> internas = sequencesInternas(conexao);
+        List<SequenceManifesto> sequences = new ArrayList<>();
+        try (PreparedStatement ps = conexao.prepareStatement(
+                "SELECT sequencename, last_value FROM pg_sequences WHERE schemaname = 'public' ORDER BY sequencename");
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                long valor = rs.getLong(2);
+                Long ultimoValor = rs.wasNull() ? null : valor; // wasNull vale para a última coluna lida
+                if (!internas.contains(rs.getString(1))) sequences.add(new SequenceManifesto(rs.getString(1), ultimoValor));
+            }
+        }
+        return sequences;
+    }
+
+    // As das tabelas que ficam fora do backup (ids de backups_aplicados, registro_alteracoes...) seguem as
+    // linhas que continuam no banco: voltar o valor delas faria o próximo INSERT repetir um id.
+    // Backups antigos ainda as trazem no manifesto.
+    private void restaurarSequences(Connection conexao, List<SequenceManifesto> sequences) throws SQLException {
+        Set<String> internas = sequencesInternas(conexao);
+        try (PreparedStatement ps = conexao.prepareStatement("SELECT setval(?::regclass, ?, ?)")) {
+            for (SequenceManifesto seq : sequences) {
+                if (internas.contains(seq.nome())) continue;
+                ps.setString(1, identificador(seq.nome()));
+                ps.setLong(2, seq.ultimoValor() != null ? seq.ultimoValor() : 1);
+                ps.setBoolean(3, seq.ultimoValor() != null);
+                ps.execute();
+            }
+        }
+    }
+
+    // Sequences das colunas serial/identity das TABELAS_INTERNAS
+    private static Set<String> sequencesInternas(Connection conexao) throws SQLException {
+        Set<String> internas = new HashSet<>();
+        try (PreparedStatement ps = conexao.prepareStatement("""
+                SELECT s.relname FROM pg_class s
+                JOIN pg_depend d ON d.objid = s.oid AND d.classid = 'pg_class'::regclass AND d.deptype IN ('a', 'i')
+                JOIN pg_class t ON t.oid = d.refobjid
+                JOIN pg_namespace n ON n.oid = s.relnamespace
+                WHERE s.relkind = 'S' AND n.nspname = 'public' AND t.relname = ANY (?)
+                """)) {
+            ps.setArray(1, conexao.createArrayOf("text", TABELAS_INTERNAS.toArray()));
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) internas.add(rs.getString(1));
+            }
+        }
+        return internas;
+    }
+
+    /**
+     * Apaga do registro as alterações mais antigas que {@code dias}. Diferenciais só podem usar
+     * bases mais novas que isso (ver BackupAgendadoService).
+     * @return Quantidade de registros apagados.
+     */
+    public int limparRegistroAlteracoes(int dias) throws IOException {
+        try (Connection conexao = dataSource.getConnection();
+             PreparedStatement ps = conexao.prepareStatement(
+                     "DELETE FROM registro_alteracoes WHERE momento < now() - make_interval(days => ?)")) {
+            ps.setInt(1, dias);
+            return ps.executeUpdate();
+        } catch (SQLException e) {
+            throw new IOException("Erro ao limpar o registro de alterações: " + e.getMessage(), e);
+        }
+    }
+
+    // Guarda qual snapshot o banco passou a refletir (ponto de partida do próximo diferencial)
+    private void registrarAplicacao(Connection conexao, Manifesto manifesto) throws SQLException {
+        if (manifesto.snapshot() == null) return; // backups da versão 1 não tinham snapshot
+        try (PreparedStatement ps = conexao.prepareStatement(
+                "INSERT INTO backups_aplicados (snapshot, tipo) VALUES (?, ?)")) {
+            ps.setString(1, manifesto.snapshot());
+            ps.setString(2, manifesto.tipo().name());
+            ps.executeUpdate();
+        }
+    }
+
+    /**
+     * O COPY binário só carrega nas mesmas colunas e tipos em que foi gerado: um arquivo de outra versão
+     * do esquema falharia no meio do COPY, com um erro sem explicação, ou gravaria dados errados.
+     * Backups anteriores ao formato 3 não trazem a versão e também são recusados.
+     */
+    private void conferirVersaoEsquema(Connection conexao, Manifesto manifesto) throws SQLException, IOException {
+        String versaoAtual = versaoEsquema(conexao);
+        if (manifesto.versaoEsquema() == null) {
+            throw new IOException("Este backup não registra a versão do esquema (gerado antes do formato 3) e não pode ser "
+                    + "conferido com o banco, que está no " + descreverVersao(versaoAtual)
+                    + ". Use um backup nativo mais recente ou um backup SQL (pg_dump).");
+        }
+        if (!manifesto.versaoEsquema().equals(versaoAtual)) {
+            throw new IOException("Este backup é do " + descreverVersao(manifesto.versaoEsquema()) + " e o banco está no "
+                    + descreverVersao(versaoAtual) + ". Restaure-o num banco com a mesma versão do esquema "
+                    + "ou use um backup gerado depois da última migração.");
+        }
+    }
+
+    private String versaoEsquemaAtual() throws IOException {
+        try (Connection conexao = dataSource.getConnection()) {
+            return versaoEsquema(conexao);
+        } catch (SQLException e) {
+            throw new IOException("Erro ao consultar a versão do esquema: " + e.getMessage(), e);
+        }
+    }
+
+    // Última migração do Flyway aplicada com sucesso (null num banco sem histórico do Flyway)
+    private static String versaoEsquema(Connection conexao) throws SQLException {
+        try (Statement st = conexao.createStatement();
+             ResultSet rs = st.executeQuery("SELECT version FROM flyway_schema_history WHERE success AND version IS NOT NULL "
+                     + "ORDER BY installed_rank DESC LIMIT 1")) {
+            return rs.next() ? rs.getString(1) : null;
+        }
+    }
+
+    private static String descreverVersao(String versao) {
+        return versao != null ? "esquema V" + versao : "esquema sem versão registrada";
+    }
+
+    private String ultimoSnapshotAplicado(Connection conexao) throws SQLException {
+        try (Statement st = conexao.createStatement();
+             ResultSet rs = st.executeQuery("SELECT snapshot FROM backups_aplicados ORDER BY id DESC LIMIT 1")) {
+            return rs.next() ? rs.getString(1) : null;
+        }
+    }
+
+    private LocalDateTime ultimaRestauracao() throws IOException {
+        try (Connection conexao = dataSource.getConnection();
+             Statement st = conexao.createStatement();
+             ResultSet rs = st.executeQuery("SELECT max(aplicado_em) FROM backups_aplicados")) {
+            rs.next();
+            Timestamp momento = rs.getTimestamp(1);
+            return momento != null ? momento.toLocalDateTime() : null;
+        } catch (SQLException e) {
+            throw new IOException("Erro ao consultar as restaurações: " + e.getMessage(), e);
+        }
+    }
+
+    private static String consultarTexto(Connection conexao, String sql) throws SQLException {
+        try (Statement st = conexao.createStatement(); ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getString(1);
+        }
+    }
+
+    private static String identificador(String nome) {
+        return "\"" + nome.replace("\"", "\"\"") + "\"";
+    }
+
+    private static String literal(String valor) {
+        return "'" + valor.replace("'", "''") + "'";
+    }
+
+    private static String listaColunas(List<String> colunas) {
+        return String.join(", ", colunas.stream().map(BackupNativoService::identificador).toList());
+    }
+
+    private static String listaColunas(String apelido, List<String> colunas) {
+        return String.join(", ", colunas.stream().map(c -> apelido + "." + identificador(c)).toList());
+    }
+
+    private static MessageDigest novoSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Canal limitado entre a thread que faz o COPY de uma tabela e a que grava o ZIP: no máximo
+     * BLOCOS_POR_TUBO blocos em memória. Cheio, o COPY espera (interrompível pelo shutdownNow);
+     * vazio, quem grava espera. Uma falha do COPY chega a quem grava como IOException.
+     */
+    private static final class Tubo {
+        private static final byte[] FIM = new byte[0];
+
+        private final BlockingQueue<byte[]> blocos = new ArrayBlockingQueue<>(BLOCOS_POR_TUBO);
+        private volatile Exception falha;
+
+        OutputStream saida() {
+            return new BufferedOutputStream(new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    colocar(new byte[] {(byte) b});
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    if (len > 0) colocar(Arrays.copyOfRange(b, off, off + len));
+                }
+
+                @Override
+                public void close() throws IOException {
+                    colocar(FIM);
+                }
+            }, BUFFER);
+        }
+
+        InputStream entrada() {
+            return new InputStream() {
+                private byte[] atual;
+                private int posicao;
+
+                @Override
+                public int read() throws IOException {
+                    byte[] um = new byte[1];
+                    return read(um, 0, 1) < 0 ? -1 : um[0] & 0xFF;
+                }
+
+                @Override
+                public int read(byte[] b, int off, int len) throws IOException {
+                    if (len == 0) return 0;
+                    if (atual == FIM) return -1;
+                    if (atual == null || posicao == atual.length) {
+                        atual = retirar();
+                        posicao = 0;
+                        if (atual == FIM) {
+                            if (falha != null) throw new IOException("Falha na cópia: " + falha.getMessage(), falha);
+                            return -1;
+                        }
+                    }
+                    int n = Math.min(len, atual.length - posicao);
+                    System.arraycopy(atual, posicao, b, off, n);
+                    posicao += n;
+                    return n;
+                }
+            };
+        }
+
+        // Descarta o que não foi lido: a entrada não vai ser usada
+        void falhar(Exception e) {
+            falha = e;
+            blocos.clear();
+            blocos.offer(FIM);
+        }
+
+        private void colocar(byte[] bloco) throws IOException {
+            try {
+                blocos.put(bloco);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Backup cancelado.");
+            }
+        }
+
+        private byte[] retirar() throws IOException {
+            try {
+                return blocos.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Backup interrompido.");
+            }
+        }
+    }
+
+    // Conta os bytes (sem compactação) que o COPY escreve
+    private static class ContadorBytes extends FilterOutputStream {
+        private long total;
+
+        ContadorBytes(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            total++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            total += len;
+        }
+    }
+
+    // Impede que o COPY feche o ZipInputStream ao terminar uma entrada
+    private static class SemFecharInputStream extends FilterInputStream {
+        SemFecharInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -4,23 +4,29 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 @Service
 public class BackupService {
 
     private static final Logger log = LoggerFactory.getLogger(BackupService.class);
 
-    // Caminho específico para o seu Windows Local (conforme você informou)
+    // Caminho específico para o seu Windows Local (usado quando app.backup.pg-bin não é informado)
     private static final String WINDOWS_PG_PATH = "C:\\pg18\\pgsql\\bin\\";
 
+    private static final int BUFFER = 64 * 1024;
+
     @Value("${spring.datasource.url}")
     private String dbUrl;
 
@@ -30,6 +36,32 @@ public class BackupService {
     @Value("${spring.datasource.password}")
     private String dbPassword;
 
+    // Pasta no servidor com backups locais (usada pelo restore paralelo em formato diretório)
+    @Value("${app.backup.diretorio:./backups}")
+    private String diretorioBackups;
+
+    // Pasta dos binários do PostgreSQL (pg_dump, psql, pg_restore). Vazio = usa o PATH
+    @Value("${app.backup.pg-bin:}")
+    private String pastaBinarios;
+
+    private final AcompanhamentoBackupService acompanhamento;
+    private final BackupNativoService backupNativo;
+    private final CacheEntidadesService cacheEntidades;
+
+    // Aplica as restaurações e acompanha o fim dos processos de restore sem prender a requisição
+    private final ExecutorService restauracaoExecutor = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "backup-restore");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public BackupService(AcompanhamentoBackupService acompanhamento, BackupNativoService backupNativo,
+                         CacheEntidadesService cacheEntidades) {
+        this.acompanhamento = acompanhamento;
+        this.backupNativo = backupNativo;
+        this.cacheEntidades = cacheEntidades;
+    }
+
     private Map<String, String> getDbInfo() {
         String cleanUrl = dbUrl.replace("jdbc:postgresql://", "");
         int queryParamIndex = cleanUrl.indexOf("?");
@@ -50,22 +82,34 @@ public class BackupService {
 
     private String getCommand(String command) {
         String os = System.getProperty("os.name").toLowerCase();
+        boolean windows = os.contains("win");
+        if (pastaBinarios != null && !pastaBinarios.isBlank()) {
+            return Path.of(pastaBinarios, windows ? command + ".exe" : command).toString();
+        }
         // Se for Windows, usa o caminho fixo. Se for Linux (VPS), usa o comando direto.
-        if (os.contains("win")) {
+        if (windows) {
             return WINDOWS_PG_PATH + command + ".exe";
         } else {
             return command;
         }
     }
 
-    public File gerarBackup() throws IOException, InterruptedException {
+    /**
+     * Executa o pg_dump e repassa a saída dele direto para o destino (a resposta HTTP),
+     * sem arquivo temporário. Em SQL_GZIP a compactação é feita durante o envio.
+     */
+    public void gerarBackup(OutputStream destino, FormatoBackup formato) throws IOException, InterruptedException {
+        if (formato == FormatoBackup.NATIVO) {
+            gerarBackupNativo(destino);
+            return;
+        }
+        if (formato == FormatoBackup.DIFERENCIAL) {
+            throw new IllegalArgumentException("O backup diferencial precisa de um backup base.");
+        }
         Map<String, String> info = getDbInfo();
-        String timestamp = LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss"));
-        File backupFile = File.createTempFile("backup_cantinho_" + timestamp + "_", ".sql");
-
         String pgDumpCmd = getCommand("pg_dump");
 
-        ProcessBuilder pb = new ProcessBuilder(
+        List<String> comando = new ArrayList<>(List.of(
             pgDumpCmd,
             "-h", info.get("host"),
             "-p", info.get("port"),
@@ -73,72 +117,312 @@ public class BackupService {
             "--no-owner",
             "--no-acl",
             "--clean",
-            "--if-exists",
-            "-f", backupFile.getAbsolutePath(),
-            info.get("db")
-        );
+            "--if-exists"
+        ));
+        if (formato == FormatoBackup.CUSTOM) {
+            comando.add("-Fc"); // formato custom: compactado e restaurável em paralelo pelo pg_restore
+        }
+        comando.add(info.get("db"));
 
+        ProcessBuilder pb = new ProcessBuilder(comando);
         pb.environment().put("PGPASSWORD", dbPassword);
-        pb.redirectErrorStream(true);
 
-        log.info("Iniciando backup no OS [{}] usando: {}", System.getProperty("os.name"), pgDumpCmd);
-        
+        OperacaoBackup operacao = acompanhamento.iniciar(OperacaoBackup.Tipo.BACKUP, "Download " + formato.getExtensao(), null);
+        log.info("Iniciando backup [{}] no OS [{}] usando: {}", formato, System.getProperty("os.name"), pgDumpCmd);
+
         Process process = pb.start();
-        
-        // Lê logs para debug
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (!line.contains("pg_dump: warning")) { // Ignora warnings simples
-                    log.info("Backup Output: {}", line);
-                }
+        Thread logErros = registrarSaida(process.getErrorStream(), "Backup Output", "pg_dump: warning");
+        boolean concluido = false;
+
+        try {
+            operacao.setEtapa("Transferindo");
+            OutputStream saida = new ContadorOutputStream(destino, operacao);
+            if (formato == FormatoBackup.SQL_GZIP) {
+                GZIPOutputStream gzip = new GZIPOutputStream(saida, BUFFER);
+                process.getInputStream().transferTo(gzip);
+                gzip.finish();
+            } else {
+                process.getInputStream().transferTo(saida);
+            }
+            saida.flush();
+
+            int exitCode = process.waitFor();
+            logErros.join();
+            if (exitCode != 0) {
+                throw new RuntimeException("Erro no pg_dump. Código: " + exitCode + ". Verifique se o postgresql-client está instalado.");
             }
+            concluido = true;
+            operacao.concluir();
+            log.info("Backup [{}] concluído: {} bytes enviados.", formato, operacao.getBytesProcessados());
+        } catch (IOException | RuntimeException e) {
+            // Ex: o navegador cancelou o download; não deixa o pg_dump rodando à toa
+            operacao.falhar(e.getMessage());
+            throw e;
+        } finally {
+            if (!concluido) process.destroyForcibly();
         }
+    }
 
-        int exitCode = process.waitFor();
-        if (exitCode != 0) {
-            throw new RuntimeException("Erro no pg_dump. Código: " + exitCode + ". Verifique se o postgresql-client está instalado.");
+    // Backup pelo COPY do driver, sem precisar do postgresql-client instalado
+    private void gerarBackupNativo(OutputStream destino) throws IOException {
+        OperacaoBackup operacao = acompanhamento.iniciar(OperacaoBackup.Tipo.BACKUP, "Download nativo (zip)", null);
+        log.info("Iniciando backup nativo (COPY).");
+        try {
+            backupNativo.exportar(destino, operacao);
+            operacao.concluir();
+        } catch (IOException | RuntimeException e) {
+            operacao.falhar(e.getMessage());
+            throw e;
         }
+    }
 
-        return backupFile;
+    /**
+     * Backup diferencial (nativo): só as linhas alteradas desde o backup cujo manifesto é {@code base}.
+     * Restaurar = aplicar o completo e depois cada diferencial da sequência, em ordem.
+     */
+    public void gerarBackupDiferencial(OutputStream destino, BackupNativoService.Manifesto base) throws IOException {
+        OperacaoBackup operacao = acompanhamento.iniciar(OperacaoBackup.Tipo.BACKUP, "Diferencial (dif.zip)", null);
+        log.info("Iniciando backup diferencial a partir do snapshot {}.", base.snapshot());
+        try {
+            backupNativo.exportarDiferencial(destino, operacao, base);
+            operacao.concluir();
+        } catch (IOException | RuntimeException e) {
+            operacao.falhar(e.getMessage());
+            throw e;
+        }
     }
 
-    public void restaurarBackup(MultipartFile file) throws IOException, InterruptedException {
-        Map<String, String> info = getDbInfo();
-        
-        Path tempFile = Files.createTempFile("restore_", ".sql");
-        file.transferTo(tempFile.toFile());
+    /**
+     * Restauração de um upload: os bytes recebidos vão para um arquivo temporário (a requisição só espera
+     * o upload terminar) e a aplicação roda em segundo plano, no psql (SQL, também aceito compactado em
+     * gzip), no pg_restore (formato custom) ou no restore nativo (zip). O progresso é o do recebimento e
+     * depois o da leitura do arquivo pela aplicação.
+     * @return A operação, para acompanhamento pelo endpoint de status.
+     */
+    public OperacaoBackup restaurarBackup(InputStream upload, Long tamanho, String descricao) throws IOException {
+        OperacaoBackup operacao = acompanhamento.iniciar(OperacaoBackup.Tipo.RESTAURACAO, descricao, tamanho);
+        operacao.setEtapa("Recebendo");
+        Path arquivo = Files.createTempFile("restore-", ".upload");
+        try {
+            try (OutputStream destino = Files.newOutputStream(arquivo)) {
+                new ContadorInputStream(upload, operacao).transferTo(destino);
+            }
+            if (tamanho != null && Files.size(arquivo) != tamanho) {
+                throw new IOException("Upload incompleto: " + Files.size(arquivo) + " de " + tamanho + " bytes.");
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(arquivo);
+            operacao.falhar("Falha no recebimento do arquivo: " + e.getMessage());
+            throw e;
+        }
+
+        restauracaoExecutor.execute(() -> {
+            try {
+                aplicarRestauracao(arquivo, operacao);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                operacao.falhar("Restauração interrompida.");
+            } catch (Exception e) {
+                log.error("Falha no restore {}.", operacao.getId(), e);
+                operacao.falhar(e.getMessage());
+            } finally {
+                try {
+                    Files.deleteIfExists(arquivo);
+                } catch (IOException e) {
+                    log.warn("Não foi possível apagar o arquivo temporário {}: {}", arquivo, e.getMessage());
+                }
+            }
+        });
+        return operacao;
+    }
 
-        String psqlCmd = getCommand("psql");
+    // Roda no restauracaoExecutor, com o upload já inteiro no arquivo temporário
+    private void aplicarRestauracao(Path arquivo, OperacaoBackup operacao) throws IOException, InterruptedException {
+        operacao.iniciarEtapa("Aplicando");
+        try (BufferedInputStream entrada = new BufferedInputStream(
+                new ContadorInputStream(Files.newInputStream(arquivo), operacao), BUFFER)) {
+            FormatoBackup formato = detectarFormato(entrada);
+            if (formato == FormatoBackup.NATIVO) {
+                // Aplicado numa transação só
+                backupNativo.restaurar(entrada, operacao);
+                cacheEntidades.limparTudo(); // o banco mudou por baixo do Hibernate
+                operacao.concluir();
+                log.info("Restore nativo {} concluído.", operacao.getId());
+                return;
+            }
+            InputStream dados = formato == FormatoBackup.SQL_GZIP ? new GZIPInputStream(entrada, BUFFER) : entrada;
 
-        ProcessBuilder pb = new ProcessBuilder(
-            psqlCmd,
-            "-h", info.get("host"),
-            "-p", info.get("port"),
-            "-U", dbUser,
-            "-d", info.get("db"),
-            "-f", tempFile.toAbsolutePath().toString()
-        );
+            Map<String, String> info = getDbInfo();
+            List<String> comando = formato == FormatoBackup.CUSTOM
+                    ? comandoPgRestore(info, List.of()) // sem arquivo: o pg_restore lê do stdin
+                    : new ArrayList<>(List.of(getCommand("psql"),
+                            "-h", info.get("host"), "-p", info.get("port"), "-U", dbUser, "-d", info.get("db")));
+
+            log.info("Iniciando restore [{}] no OS [{}] usando: {}", formato, System.getProperty("os.name"), comando.get(0));
+            Process process = iniciarProcessoRestore(comando);
+            try (OutputStream stdin = process.getOutputStream()) {
+                dados.transferTo(stdin);
+            } catch (IOException e) {
+                // O processo pode ter morrido (erro no SQL)
+                process.destroyForcibly();
+                throw new IOException("Falha durante o envio dos dados: " + e.getMessage(), e);
+            }
 
+            operacao.setEtapa("Finalizando");
+            aguardar(process, operacao, comando.get(0));
+        }
+    }
+
+    /**
+     * Restauração paralela (pg_restore -j) de um backup em formato diretório (pg_dump -Fd)
+     * que já está no servidor, dentro da pasta de backups. Roda inteiramente em segundo plano.
+     */
+    public OperacaoBackup restaurarDiretorio(String nomeDiretorio, Integer jobs) throws IOException {
+        Path base = Path.of(diretorioBackups).toAbsolutePath().normalize();
+        Path diretorio = base.resolve(nomeDiretorio).normalize();
+        if (!diretorio.startsWith(base) || !Files.isRegularFile(diretorio.resolve("toc.dat"))) {
+            throw new IllegalArgumentException("Diretório de backup inválido: " + nomeDiretorio);
+        }
+
+        int paralelismo = jobs != null && jobs > 0 ? jobs : Runtime.getRuntime().availableProcessors();
+        List<String> comando = comandoPgRestore(getDbInfo(),
+                List.of("-j", String.valueOf(paralelismo), "-Fd", diretorio.toString()));
+
+        OperacaoBackup operacao = acompanhamento.iniciar(OperacaoBackup.Tipo.RESTAURACAO,
+                "Diretório " + nomeDiretorio + " (" + paralelismo + " jobs)", null);
+        log.info("Iniciando restore paralelo de {} com {} jobs.", diretorio, paralelismo);
+
+        Process process = iniciarProcessoRestore(comando);
+        process.getOutputStream().close(); // nada a enviar pelo stdin
+        operacao.setEtapa("Aplicando em paralelo");
+        aguardarEmSegundoPlano(process, operacao, "pg_restore");
+        return operacao;
+    }
+
+    private List<String> comandoPgRestore(Map<String, String> info, List<String> extras) {
+        List<String> comando = new ArrayList<>(List.of(getCommand("pg_restore"),
+                "-h", info.get("host"), "-p", info.get("port"), "-U", dbUser, "-d", info.get("db"),
+                "--clean", "--if-exists", "--no-owner", "--no-acl"));
+        comando.addAll(extras);
+        return comando;
+    }
+
+    private Process iniciarProcessoRestore(List<String> comando) throws IOException {
+        ProcessBuilder pb = new ProcessBuilder(comando);
         pb.environment().put("PGPASSWORD", dbPassword);
         pb.redirectErrorStream(true);
+        Process process = pb.start();
+        registrarSaida(process.getInputStream(), "Restore Output", null);
+        return process;
+    }
 
-        log.info("Iniciando restore no OS [{}] usando: {}", System.getProperty("os.name"), psqlCmd);
+    private void aguardarEmSegundoPlano(Process process, OperacaoBackup operacao, String nomeComando) {
+        restauracaoExecutor.execute(() -> {
+            try {
+                aguardar(process, operacao, nomeComando);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                operacao.falhar("Restauração interrompida.");
+            }
+        });
+    }
 
-        Process process = pb.start();
-        
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                log.info("Restore Output: {}", line);
+    private void aguardar(Process process, OperacaoBackup operacao, String nomeComando) throws InterruptedException {
+        try {
+            int exitCode = process.waitFor();
+            if (exitCode == 0) {
+                cacheEntidades.limparTudo();
+                operacao.concluir();
+                log.info("Restore {} concluído.", operacao.getId());
+            } else {
+                operacao.falhar("Erro no " + nomeComando + ". Código: " + exitCode);
+            }
+        } catch (InterruptedException e) {
+            process.destroyForcibly();
+            throw e;
+        }
+    }
+
+    // Identifica o conteúdo pelos primeiros bytes: "PGDMP" (custom), "PK" (zip nativo), 1F 8B (gzip) ou SQL puro
+    private FormatoBackup detectarFormato(BufferedInputStream entrada) throws IOException {
+        entrada.mark(8);
+        byte[] cabecalho = entrada.readNBytes(5);
+        entrada.reset();
+
+        if (cabecalho.length >= 5 && new String(cabecalho, StandardCharsets.US_ASCII).equals("PGDMP")) {
+            return FormatoBackup.CUSTOM;
+        }
+        if (cabecalho.length >= 4 && cabecalho[0] == 'P' && cabecalho[1] == 'K' && cabecalho[2] == 3 && cabecalho[3] == 4) {
+            return FormatoBackup.NATIVO;
+        }
+        if (cabecalho.length >= 2 && (cabecalho[0] & 0xFF) == 0x1F && (cabecalho[1] & 0xFF) == 0x8B) {
+            return FormatoBackup.SQL_GZIP;
+        }
+        return FormatoBackup.SQL;
+    }
+
+    // Lê a saída de log do processo em outra thread (no backup, só o stderr, sem misturar com os dados)
+    private Thread registrarSaida(InputStream saidaProcesso, String prefixo, String ignorar) {
+        Thread t = new Thread(() -> {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(saidaProcesso))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (ignorar == null || !line.contains(ignorar)) {
+                        log.info("{}: {}", prefixo, line);
+                    }
+                }
+            } catch (IOException e) {
+                log.debug("Leitura do stderr interrompida: {}", e.getMessage());
             }
+        }, "backup-log");
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+
+    // Conta os bytes lidos (do upload ou do arquivo temporário), atualizando o progresso da operação
+    private static class ContadorInputStream extends FilterInputStream {
+        private final OperacaoBackup operacao;
+
+        ContadorInputStream(InputStream in, OperacaoBackup operacao) {
+            super(in);
+            this.operacao = operacao;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b != -1) operacao.adicionarBytes(1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int lidos = in.read(b, off, len);
+            if (lidos > 0) operacao.adicionarBytes(lidos);
+            return lidos;
         }
+    }
+
+    // Conta os bytes que passam, atualizando o progresso da operação
+    private static class ContadorOutputStream extends FilterOutputStream {
+        private final OperacaoBackup operacao;
 
-        int exitCode = process.waitFor();
-        Files.deleteIfExists(tempFile);
+        ContadorOutputStream(OutputStream out, OperacaoBackup operacao) {
+            super(out);
+            this.operacao = operacao;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            operacao.adicionarBytes(1);
+        }
 
-        if (exitCode != 0) {
-            throw new RuntimeException("Erro no psql. Código: " + exitCode);
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            operacao.adicionarBytes(len);
         }
     }
-}
\ No newline at end of file
+}
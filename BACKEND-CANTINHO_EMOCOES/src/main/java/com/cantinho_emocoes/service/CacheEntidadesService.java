@@ -0,0 +1,62 @@
+package com.cantinho_emocoes.service;
+
+import com.cantinho_emocoes.model.Usuario;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Remoções explícitas do cache de segundo nível (ver CacheEntidadesConfig), para o que o Hibernate não
+ * enxerga sozinho: o XP gravado por SQL na GamificacaoService, filhos criados ou removidos sem passar
+ * pela lista de dependentes do responsável, restaurações de backup e o expurgo de usuários excluídos.
+ *
+ * Dentro de uma transação a remoção acontece depois do commit, para nenhuma leitura concorrente
+ * recolocar no cache o estado antigo. Com a réplica de leitura ativa, quem recoloca é sempre uma leitura
+ * na primária: as da réplica (atrasada) não gravam no cache (RoteamentoLeituraJpaDialect).
+ */
+@Service
+public class CacheEntidadesService {
+
+    private static final String DEPENDENTES = Usuario.class.getName() + ".dependentes";
+
+    private final Cache cache;
+
+    public CacheEntidadesService(EntityManagerFactory entityManagerFactory) {
+        this.cache = entityManagerFactory.getCache().unwrap(Cache.class);
+    }
+
+    public void removerUsuario(Long id) {
+        depoisDoCommit(() -> cache.evictEntityData(Usuario.class, id));
+    }
+
+    public void removerDependentes(Long responsavelId) {
+        depoisDoCommit(() -> cache.evictCollectionData(DEPENDENTES, responsavelId));
+    }
+
+    public void limparTudo() {
+        depoisDoCommit(cache::evictAllRegions);
+    }
+
+    // XP e nível mudam por UPDATE direto em usuarios
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void aoConcederXp(XpConcedidoEvent evento) {
+        cache.evictEntityData(Usuario.class, evento.usuarioId());
+    }
+
+    private static void depoisDoCommit(Runnable remocao) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            remocao.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                remocao.run(); // também no rollback: não custa e cobre o que o Hibernate já tiver gravado no cache
+            }
+        });
+    }
+}
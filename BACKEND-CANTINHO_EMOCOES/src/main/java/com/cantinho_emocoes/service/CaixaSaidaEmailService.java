@@ -0,0 +1,148 @@
+package com.cantinho_emocoes.service;
+
+import com.cantinho_emocoes.model.CaixaSaidaEmail;
+import com.cantinho_emocoes.model.StatusEmail;
+import com.cantinho_emocoes.repository.CaixaSaidaEmailRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caixa de saída de e-mails: quem precisa mandar um e-mail apenas grava a mensagem
+ * (na mesma transação do negócio) e o despacho agendado envia em lotes, com nova
+ * tentativa e espera exponencial em caso de falha. Assim nenhuma requisição HTTP
+ * fica presa esperando o SMTP.
+ */
+@Service
+public class CaixaSaidaEmailService {
+
+    private static final Logger log = LoggerFactory.getLogger(CaixaSaidaEmailService.class);
+
+    private final CaixaSaidaEmailRepository caixaSaidaRepository;
+    private final GmailEmailService emailService;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Counter enviados;
+    private final Counter falhasTemporarias;
+    private final Counter descartados;
+    private final Timer duracaoLote;
+    private final AtomicLong pendentes = new AtomicLong();
+
+    @Value("${app.email.despacho.tamanho-lote:50}")
+    private int tamanhoLote;
+
+    @Value("${app.email.despacho.max-tentativas:6}")
+    private int maxTentativas;
+
+    @Value("${app.email.despacho.espera-inicial-segundos:30}")
+    private long esperaInicialSegundos;
+
+    @Value("${app.email.despacho.espera-maxima-minutos:60}")
+    private long esperaMaximaMinutos;
+
+    @Value("${app.email.despacho.reserva-minutos:5}")
+    private long reservaMinutos;
+
+    public CaixaSaidaEmailService(CaixaSaidaEmailRepository caixaSaidaRepository,
+                                  GmailEmailService emailService,
+                                  TransactionTemplate transactionTemplate,
+                                  MeterRegistry meterRegistry) {
+        this.caixaSaidaRepository = caixaSaidaRepository;
+        this.emailService = emailService;
+        this.transactionTemplate = transactionTemplate;
+
+        this.enviados = Counter.builder("email.envios").tag("resultado", "enviado").register(meterRegistry);
+        this.falhasTemporarias = Counter.builder("email.envios").tag("resultado", "nova_tentativa").register(meterRegistry);
+        this.descartados = Counter.builder("email.envios").tag("resultado", "falhou").register(meterRegistry);
+        this.duracaoLote = Timer.builder("email.despacho.lote").register(meterRegistry);
+        Gauge.builder("email.caixa_saida.pendentes", pendentes, AtomicLong::get).register(meterRegistry);
+    }
+
+    // MANDATORY: a mensagem só faz sentido junto com a transação que a originou
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void enfileirar(String destinatario, String assunto, String corpoHtml) {
+        caixaSaidaRepository.save(new CaixaSaidaEmail(destinatario, assunto, corpoHtml));
+    }
+
+    @Scheduled(fixedDelayString = "${app.email.despacho.intervalo-ms:2000}")
+    public void despachar() {
+        List<CaixaSaidaEmail> lote;
+        do {
+            lote = reservarLote();
+            if (!lote.isEmpty()) {
+                List<CaixaSaidaEmail> atual = lote;
+                duracaoLote.record(() -> enviarERegistrar(atual));
+            }
+        } while (lote.size() == tamanhoLote);
+
+        pendentes.set(caixaSaidaRepository.countByStatus(StatusEmail.PENDENTE));
+    }
+
+    // Transação curta: apenas marca o lote como ENVIANDO. O SMTP roda fora dela.
+    private List<CaixaSaidaEmail> reservarLote() {
+        return transactionTemplate.execute(status -> {
+            LocalDateTime agora = LocalDateTime.now();
+            List<CaixaSaidaEmail> lote = caixaSaidaRepository.reservarLote(agora, tamanhoLote);
+            for (CaixaSaidaEmail email : lote) {
+                email.setStatus(StatusEmail.ENVIANDO);
+                email.setProximaTentativa(agora.plusMinutes(reservaMinutos));
+            }
+            return lote;
+        });
+    }
+
+    private void enviarERegistrar(List<CaixaSaidaEmail> lote) {
+        Map<Long, String> falhas = emailService.enviarLote(lote);
+
+        transactionTemplate.executeWithoutResult(status -> {
+            LocalDateTime agora = LocalDateTime.now();
+            for (CaixaSaidaEmail email : lote) {
+                String erro = falhas.get(email.getId());
+                email.setTentativas(email.getTentativas() + 1);
+
+                if (erro == null) {
+                    email.setStatus(StatusEmail.ENVIADO);
+                    email.setDataEnvio(agora);
+                    email.setUltimoErro(null);
+                    enviados.increment();
+                } else if (email.getTentativas() >= maxTentativas) {
+                    email.setStatus(StatusEmail.FALHOU);
+                    email.setUltimoErro(erro);
+                    descartados.increment();
+                    log.error("E-mail {} para {} descartado após {} tentativas: {}",
+                            email.getId(), email.getDestinatario(), email.getTentativas(), erro);
+                } else {
+                    email.setStatus(StatusEmail.PENDENTE);
+                    email.setUltimoErro(erro);
+                    email.setProximaTentativa(agora.plus(calcularEspera(email.getTentativas())));
+                    falhasTemporarias.increment();
+                    log.warn("Falha ao enviar e-mail {} (tentativa {}), nova tentativa em {}: {}",
+                            email.getId(), email.getTentativas(), email.getProximaTentativa(), erro);
+                }
+            }
+            caixaSaidaRepository.saveAll(lote);
+        });
+    }
+
+    // Espera exponencial: 30s, 1min, 2min, 4min... limitada ao máximo configurado
+    private Duration calcularEspera(int tentativas) {
+        Duration espera = Duration.ofSeconds(esperaInicialSegundos).multipliedBy(1L << Math.min(tentativas - 1, 20));
+        Duration maxima = Duration.ofMinutes(esperaMaximaMinutos);
+        return espera.compareTo(maxima) > 0 ? maxima : espera;
+    }
+}
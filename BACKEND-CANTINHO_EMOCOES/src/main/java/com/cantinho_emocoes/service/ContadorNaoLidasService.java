@@ -0,0 +1,70 @@
+package com.cantinho_emocoes.service;
+
+import com.cantinho_emocoes.repository.NotificacaoRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contador em memória de notificações não lidas por usuário (o "badge" do app).
+ *
+ * O valor é carregado do banco na primeira consulta (COUNT coberto pelo índice
+ * usuario_id, lido, data_envio) e depois apenas somado/subtraído a cada commit.
+ * Entradas expiram para corrigir qualquer divergência, por exemplo com outra instância do backend.
+ */
+@Service
+public class ContadorNaoLidasService {
+
+    private final NotificacaoRepository notificacaoRepository;
+    private final Map<Long, Contador> contadores = new ConcurrentHashMap<>();
+
+    @Value("${app.notificacoes.contador-validade-segundos:300}")
+    private long validadeSegundos;
+
+    // Mesma janela da listagem, para o badge bater com o que o usuário vê
+    @Value("${app.notificacoes.janela-dias:90}")
+    private int janelaDias;
+
+    public ContadorNaoLidasService(NotificacaoRepository notificacaoRepository) {
+        this.notificacaoRepository = notificacaoRepository;
+    }
+
+    public long contar(Long usuarioId) {
+        long agora = System.currentTimeMillis();
+        Contador contador = contadores.compute(usuarioId, (id, atual) ->
+                atual != null && agora - atual.carregadoEm < validadeSegundos * 1000
+                        ? atual
+                        : new Contador(notificacaoRepository.countByUsuarioIdAndLidoFalseAndDataEnvioGreaterThanEqual(
+                                id, LocalDateTime.now().minusDays(janelaDias)), agora));
+        return Math.max(0, contador.valor.get());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void aoCriar(NotificacaoCriadaEvent evento) {
+        // Só ajusta quem já está em memória; os demais serão carregados na próxima consulta
+        Contador contador = contadores.get(evento.usuarioId());
+        if (contador != null) contador.valor.incrementAndGet();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void aoMarcarComoLidas(NotificacoesLidasEvent evento) {
+        Contador contador = contadores.get(evento.usuarioId());
+        if (contador != null) contador.valor.addAndGet(-evento.quantidade());
+    }
+
+    private static final class Contador {
+        private final AtomicLong valor;
+        private final long carregadoEm;
+
+        Contador(long valor, long carregadoEm) {
+            this.valor = new AtomicLong(valor);
+            this.carregadoEm = carregadoEm;
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.cantinho_emocoes.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Desenhos são gravados como data URL ("data:image/png;base64,...", vindo do canvas.toDataURL).
+ * Aqui ficam a extensão do arquivo e a decodificação em blocos, direto para um OutputStream,
+ * sem montar o byte[] da imagem inteira.
+ */
+public final class DesenhoBase64 {
+
+    // Múltiplo de 4: cada bloco de base64 decodifica sozinho
+    private static final int BLOCO = 16 * 1024;
+
+    private DesenhoBase64() {}
+
+    // "data:image/jpeg;base64,..." -> "jpg". Sem cabeçalho (base64 puro), assume PNG.
+    public static String extensao(String dataUrlOuPrefixo) {
+        if (dataUrlOuPrefixo == null || !dataUrlOuPrefixo.startsWith("data:")) return "png";
+        int fim = dataUrlOuPrefixo.indexOf(';');
+        String mime = fim > 5 ? dataUrlOuPrefixo.substring(5, fim) : "";
+        return switch (mime) {
+            case "image/jpeg", "image/jpg" -> "jpg";
+            case "image/svg+xml" -> "svg";
+            case "image/webp" -> "webp";
+            case "image/gif" -> "gif";
+            default -> "png";
+        };
+    }
+
+    public static byte[] decodificar(String dataUrl) {
+        ByteArrayOutputStream imagem = new ByteArrayOutputStream(dataUrl.length() * 3 / 4);
+        try {
+            decodificar(dataUrl, imagem);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // ByteArrayOutputStream não lança
+        }
+        return imagem.toByteArray();
+    }
+
+    public static void decodificar(String dataUrl, OutputStream destino) throws IOException {
+        int inicio = dataUrl.startsWith("data:") ? dataUrl.indexOf(',') + 1 : 0;
+        int fim = dataUrl.length();
+
+        // Quebras de linha/espaços (base64 "MIME") não permitem cortar em blocos exatos
+        for (int i = inicio; i < fim; i++) {
+            if (Character.isWhitespace(dataUrl.charAt(i))) {
+                destino.write(Base64.getMimeDecoder().decode(dataUrl.substring(inicio)));
+                return;
+            }
+        }
+
+        Base64.Decoder decoder = Base64.getDecoder();
+        for (int pos = inicio; pos < fim; pos += BLOCO) {
+            String bloco = dataUrl.substring(pos, Math.min(fim, pos + BLOCO));
+            destino.write(decoder.decode(bloco.getBytes(StandardCharsets.US_ASCII)));
+        }
+    }
+}
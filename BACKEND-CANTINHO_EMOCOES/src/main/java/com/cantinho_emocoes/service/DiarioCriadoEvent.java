@@ -0,0 +1,12 @@
+package com.cantinho_emocoes.service;
+
+import com.cantinho_emocoes.model.Emocao;
+
+import java.time.LocalDateTime;
+
+/**
+ * Publicado pelo DiarioListener quando um diário novo é gravado (além do DiarioRegistradoEvent),
+ * com o que os ouvintes incrementais precisam, sem voltar ao banco.
+ */
+public record DiarioCriadoEvent(Long diarioId, Long dependenteId, Emocao emocao, int intensidade,
+                                LocalDateTime dataRegistro) {}
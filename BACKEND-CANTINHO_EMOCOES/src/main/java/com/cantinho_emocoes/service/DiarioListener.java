@@ -0,0 +1,39 @@
+package com.cantinho_emocoes.service;
+
+import com.cantinho_emocoes.model.Diario;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * Listener JPA da entidade Diario (gerenciado pelo Spring): qualquer gravação, venha de onde vier
+ * (aluno, professor ou admin), vira um DiarioRegistradoEvent; diários novos geram também um DiarioCriadoEvent.
+ */
+@Component
+public class DiarioListener {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public DiarioListener(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @PostPersist
+    public void aoCriar(Diario diario) {
+        if (diario.getDependente() != null) {
+            eventPublisher.publishEvent(new DiarioCriadoEvent(diario.getId(), diario.getDependente().getId(),
+                    diario.getEmocao(), diario.getIntensidade(), diario.getDataRegistro()));
+        }
+        aoGravar(diario);
+    }
+
+    @PostUpdate
+    @PostRemove
+    public void aoGravar(Diario diario) {
+        if (diario.getDependente() != null) {
+            eventPublisher.publishEvent(new DiarioRegistradoEvent(diario.getDependente().getId()));
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.cantinho_emocoes.service;
+
+/**
+ * Publicado pelo DiarioListener quando um diário é criado, alterado ou apagado.
+ * Os ouvintes usam @TransactionalEventListener para só reagir após o commit.
+ */
+public record DiarioRegistradoEvent(Long dependenteId) {}
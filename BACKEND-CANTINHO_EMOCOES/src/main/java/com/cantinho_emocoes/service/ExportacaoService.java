@@ -0,0 +1,285 @@
+package com.cantinho_emocoes.service;
+
+import com.cantinho_emocoes.dto.AtividadeExportacaoDTO;
+import com.cantinho_emocoes.dto.DesenhoDTO;
+import com.cantinho_emocoes.dto.DiarioExportacaoDTO;
+import com.cantinho_emocoes.model.Avaliacao;
+import com.cantinho_emocoes.model.Usuario;
+import com.cantinho_emocoes.repository.AtividadeRepository;
+import com.cantinho_emocoes.repository.AvaliacaoRepository;
+import com.cantinho_emocoes.repository.DiarioRepository;
+import com.cantinho_emocoes.repository.UsuarioRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Exportação completa de uma criança num ZIP gerado em streaming: JSONs escritos com o
+ * JsonGenerator (item a item) e os desenhos como arquivos de imagem de verdade.
+ *
+ * As linhas são lidas por cursor (Stream do repositório com fetch size), em projeções que
+ * não são gerenciadas pelo Hibernate; cada tabela é percorrida duas vezes: uma sem a coluna
+ * do desenho (para o JSON) e outra só com os desenhos. Assim o uso de memória não cresce com
+ * a quantidade de registros e nada é gravado em disco.
+ *
+ * Os desenhos são decodificados em paralelo num pool limitado e gravados no ZIP na ordem da
+ * consulta; só uma janela pequena de desenhos fica em memória por exportação.
+ */
+@Service
+public class ExportacaoService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportacaoService.class);
+    private static final DateTimeFormatter DATA_ARQUIVO = DateTimeFormatter.ofPattern("yyyy-MM-dd_HHmmss");
+
+    private final UsuarioRepository usuarioRepository;
+    private final DiarioRepository diarioRepository;
+    private final AtividadeRepository atividadeRepository;
+    private final AvaliacaoRepository avaliacaoRepository;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+    private final ExecutorService decodificacaoExecutor;
+
+    // Desenhos decodificados (ou em decodificação) aguardando a vez de entrar no ZIP
+    @Value("${app.exportacao.desenhos.janela:16}")
+    private int janelaDesenhos;
+
+    public ExportacaoService(UsuarioRepository usuarioRepository, DiarioRepository diarioRepository,
+                             AtividadeRepository atividadeRepository, AvaliacaoRepository avaliacaoRepository,
+                             ObjectMapper objectMapper, EntityManager entityManager,
+                             @Value("${app.exportacao.desenhos.threads:4}") int threadsDecodificacao) {
+        this.usuarioRepository = usuarioRepository;
+        this.diarioRepository = diarioRepository;
+        this.atividadeRepository = atividadeRepository;
+        this.avaliacaoRepository = avaliacaoRepository;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
+        this.decodificacaoExecutor = new ThreadPoolExecutor(threadsDecodificacao, threadsDecodificacao, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "exportacao-desenhos");
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        decodificacaoExecutor.shutdownNow();
+    }
+
+    // Só dentro de uma transação os Streams dos repositórios usam cursor de verdade
+    @Transactional(readOnly = true)
+    public void exportarDependente(Long dependenteId, OutputStream destino) throws IOException {
+        Usuario dependente = usuarioRepository.findById(dependenteId)
+                .orElseThrow(() -> new ResourceNotFoundException("Dependente não encontrado"));
+
+        ZipOutputStream zip = new ZipOutputStream(destino);
+
+        Map<String, Object> dados = new LinkedHashMap<>();
+        dados.put("id", dependente.getId());
+        dados.put("nome", dependente.getNome());
+        dados.put("dataNascimento", dependente.getDataNascimento());
+        dados.put("avatarUrl", dependente.getAvatarUrl());
+        dados.put("exportadoEm", LocalDateTime.now());
+        zip.putNextEntry(new ZipEntry("dependente.json"));
+        zip.write(objectMapper.writerWithDefaultPrettyPrinter().writeValueAsBytes(dados));
+        zip.closeEntry();
+
+        try (Stream<DiarioExportacaoDTO> diarios = diarioRepository.streamExportacao(dependenteId)) {
+            escreverJson(zip, "diarios.json", diarios.map(d -> {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("id", d.id());
+                item.put("emocao", d.emocao());
+                item.put("intensidade", d.intensidade());
+                item.put("relato", d.relato());
+                item.put("dataRegistro", d.dataRegistro());
+                item.put("desenho", d.prefixoDesenho() == null ? null
+                        : caminhoDesenho("desenhos/diarios/", d.id(), d.dataRegistro(), d.emocao().name(), d.prefixoDesenho()));
+                return item;
+            }));
+        }
+
+        try (Stream<AtividadeExportacaoDTO> atividades = atividadeRepository.streamExportacao(dependenteId)) {
+            escreverJson(zip, "atividades.json", atividades.map(a -> {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("id", a.id());
+                item.put("tipo", a.tipo());
+                item.put("conteudo", a.conteudo());
+                item.put("dataRealizacao", a.dataRealizacao());
+                item.put("desenho", a.prefixoDesenho() == null ? null
+                        : caminhoDesenho("desenhos/atividades/", a.id(), a.dataRealizacao(),
+                                a.tipo() + "_" + a.conteudo(), a.prefixoDesenho()));
+                return item;
+            }));
+        }
+
+        try (Stream<Avaliacao> avaliacoes = avaliacaoRepository.streamByAlunoIdOrderByDataAvaliacao(dependenteId)) {
+            escreverJson(zip, "avaliacoes.json", avaliacoes.map(av -> {
+                Map<String, Object> item = new LinkedHashMap<>();
+                item.put("id", av.getId());
+                item.put("tipo", av.getTipo());
+                item.put("unidade", av.getUnidade());
+                item.put("dataAvaliacao", av.getDataAvaliacao());
+                item.put("observacao", av.getObservacao());
+                item.put("respostas", av.getRespostas() == null ? Map.of() : new TreeMap<>(av.getRespostas()));
+                entityManager.detach(av); // não acumula entidades no contexto de persistência
+                return item;
+            }));
+        }
+
+        try (Stream<DesenhoDTO> desenhos = diarioRepository.streamDesenhos(dependenteId)) {
+            escreverDesenhos(zip, desenhos, d -> caminhoDesenho("desenhos/diarios/", d));
+        }
+        try (Stream<DesenhoDTO> desenhos = atividadeRepository.streamDesenhos(dependenteId)) {
+            escreverDesenhos(zip, desenhos, d -> caminhoDesenho("desenhos/atividades/", d));
+        }
+
+        zip.finish();
+        zip.flush();
+    }
+
+    /**
+     * Desenhos da turma de um responsável (professor) no período [inicio, fim), com uma pasta por aluno.
+     * tipo/conteudo filtram as atividades (ex: VOGAL e A); diários não têm tipo, então só entram
+     * quando pedidos e sem esses filtros.
+     */
+    @Transactional(readOnly = true)
+    public void exportarDesenhosTurma(Long responsavelId, LocalDateTime inicio, LocalDateTime fim,
+                                      String tipo, String conteudo, boolean incluirDiarios,
+                                      OutputStream destino) throws IOException {
+        ZipOutputStream zip = new ZipOutputStream(destino);
+
+        try (Stream<DesenhoDTO> desenhos = atividadeRepository.streamDesenhosTurma(responsavelId, inicio, fim, tipo, conteudo)) {
+            escreverDesenhos(zip, desenhos, d -> caminhoDesenho(pastaAluno(d) + "atividades/", d));
+        }
+        if (incluirDiarios && tipo == null && conteudo == null) {
+            try (Stream<DesenhoDTO> desenhos = diarioRepository.streamDesenhosTurma(responsavelId, inicio, fim)) {
+                escreverDesenhos(zip, desenhos, d -> caminhoDesenho(pastaAluno(d) + "diarios/", d));
+            }
+        }
+
+        zip.finish();
+        zip.flush();
+    }
+
+    /**
+     * Nome do arquivo do desenho dentro do ZIP: pasta + data + id + rótulo (emoção ou atividade).
+     * Usado tanto no JSON quanto na hora de gravar a imagem, para os dois baterem.
+     */
+    public static String caminhoDesenho(String pasta, Long id, LocalDateTime data, String rotulo, String prefixoDataUrl) {
+        String dataTexto = data != null ? data.format(DATA_ARQUIVO) : "sem-data";
+        String nomeRotulo = rotulo == null ? "" : "_" + rotulo.replaceAll("[^\\p{L}\\p{N}_-]+", "-");
+        return pasta + dataTexto + "_" + id + nomeRotulo + "." + DesenhoBase64.extensao(prefixoDataUrl);
+    }
+
+    private static String caminhoDesenho(String pasta, DesenhoDTO d) {
+        return caminhoDesenho(pasta, d.id(), d.data(), d.rotulo(), d.desenhoBase64());
+    }
+
+    // Nome + id: dois alunos com o mesmo nome não dividem a pasta
+    private static String pastaAluno(DesenhoDTO d) {
+        String nome = d.alunoNome() == null ? "aluno" : d.alunoNome().replaceAll("[^\\p{L}\\p{N}]+", "_");
+        return nome + "_" + d.alunoId() + "/";
+    }
+
+    // Array JSON escrito item a item direto na entrada do ZIP
+    private void escreverJson(ZipOutputStream zip, String nome, Stream<?> itens) throws IOException {
+        zip.putNextEntry(new ZipEntry(nome));
+        JsonGenerator json = objectMapper.getFactory().createGenerator(zip);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        json.useDefaultPrettyPrinter();
+        json.writeStartArray();
+        try {
+            itens.forEach(item -> {
+                try {
+                    json.writeObject(item);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        json.writeEndArray();
+        json.close();
+        zip.closeEntry();
+    }
+
+    // A consulta é lida nesta thread; cada desenho vai para o pool e entra no ZIP na mesma ordem,
+    // assim que os anteriores foram gravados
+    private void escreverDesenhos(ZipOutputStream zip, Stream<DesenhoDTO> desenhos,
+                                  Function<DesenhoDTO, String> caminho) throws IOException {
+        // PNG/JPG já são compactados: comprimir de novo só gastaria CPU
+        zip.setLevel(Deflater.NO_COMPRESSION);
+        Deque<DesenhoPendente> pendentes = new ArrayDeque<>();
+        try {
+            Iterator<DesenhoDTO> it = desenhos.iterator();
+            while (it.hasNext()) {
+                DesenhoDTO d = it.next();
+                pendentes.add(new DesenhoPendente(caminho.apply(d),
+                        decodificacaoExecutor.submit(() -> DesenhoBase64.decodificar(d.desenhoBase64()))));
+                if (pendentes.size() >= janelaDesenhos) {
+                    gravarDesenho(zip, pendentes.poll());
+                }
+            }
+            while (!pendentes.isEmpty()) {
+                gravarDesenho(zip, pendentes.poll());
+            }
+        } finally {
+            // Cliente desconectou ou falhou no meio: não deixa trabalho inútil no pool
+            pendentes.forEach(p -> p.imagem().cancel(true));
+            zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+        }
+    }
+
+    private void gravarDesenho(ZipOutputStream zip, DesenhoPendente desenho) throws IOException {
+        byte[] imagem;
+        try {
+            imagem = desenho.imagem().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Exportação interrompida");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IllegalArgumentException) {
+                // Base64 corrompido: perde-se só esse desenho, não a exportação inteira
+                log.warn("Desenho ignorado na exportação ({}): {}", desenho.caminho(), e.getCause().getMessage());
+                return;
+            }
+            throw new IOException("Falha ao decodificar " + desenho.caminho(), e.getCause());
+        }
+        zip.putNextEntry(new ZipEntry(desenho.caminho()));
+        zip.write(imagem);
+        zip.closeEntry();
+    }
+
+    private record DesenhoPendente(String caminho, Future<byte[]> imagem) {}
+}
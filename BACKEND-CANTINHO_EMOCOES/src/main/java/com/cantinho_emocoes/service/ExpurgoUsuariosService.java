@@ -0,0 +1,105 @@
+package com.cantinho_emocoes.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Expurgo dos usuários excluídos (usuarios.excluido_em, preenchido pela UsuarioService): apaga os dados
+ * de cada um em lotes de app.exclusao.expurgo.tamanho-lote linhas, cada lote na sua própria transação
+ * curta, e por fim a linha do usuário. O que tiver chegado durante o expurgo sai junto com ela, pelas
+ * chaves ON DELETE CASCADE (db/migration/V7).
+ *
+ * Os gatilhos de diarios descontam do cubo de emoções e gravam o registro de alterações a cada lote.
+ */
+@Service
+public class ExpurgoUsuariosService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExpurgoUsuariosService.class);
+
+    // Tabela, coluna do usuário e chave para escolher o lote. As respostas das avaliações saem com as
+    // avaliações (cascata); o cubo vem depois dos diários, quando só restam células zeradas.
+    private record Tabela(String nome, String coluna, String chave) {}
+
+    private static final List<Tabela> TABELAS = List.of(
+            new Tabela("notificacoes", "usuario_id", "id"),
+            new Tabela("lancamentos_xp", "usuario_id", "id"),
+            new Tabela("estados_alerta_emocional", "dependente_id", "id"),
+            new Tabela("avaliacoes", "aluno_id", "id"),
+            new Tabela("atividades", "aluno_id", "id"),
+            new Tabela("tarefas", "aluno_id", "id"),
+            new Tabela("diarios", "dependente_id", "id"),
+            new Tabela("cubo_emocoes", "dependente_id", "dia, hora, emocao"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final CacheEntidadesService cacheEntidades;
+    private final Counter usuariosExpurgados;
+    private final Counter linhasExpurgadas;
+    private final AtomicLong pendentes = new AtomicLong();
+
+    @Value("${app.exclusao.expurgo.tamanho-lote:1000}")
+    private int tamanhoLote;
+
+    // Usuários por execução; os demais ficam para a próxima
+    @Value("${app.exclusao.expurgo.usuarios-por-execucao:20}")
+    private int usuariosPorExecucao;
+
+    public ExpurgoUsuariosService(JdbcTemplate jdbcTemplate, CacheEntidadesService cacheEntidades,
+                                  MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.cacheEntidades = cacheEntidades;
+        this.usuariosExpurgados = Counter.builder("usuarios.expurgo.usuarios").register(meterRegistry);
+        this.linhasExpurgadas = Counter.builder("usuarios.expurgo.linhas").register(meterRegistry);
+        Gauge.builder("usuarios.expurgo.pendentes", pendentes, AtomicLong::get).register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.exclusao.expurgo.intervalo-ms:60000}", initialDelay = 30000)
+    public void expurgar() {
+        // Dependentes antes dos responsáveis: a cascata da família não pega os dados deles de uma vez só
+        List<Long> ids = jdbcTemplate.queryForList("""
+                SELECT id FROM usuarios
+                 WHERE excluido_em IS NOT NULL
+                 ORDER BY responsavel_id IS NULL, excluido_em
+                 LIMIT ?
+                """, Long.class, usuariosPorExecucao);
+
+        for (Long id : ids) {
+            expurgarUsuario(id);
+        }
+        if (!ids.isEmpty()) {
+            cacheEntidades.limparTudo(); // tarefas e consultas em cache apontavam para linhas apagadas por SQL
+        }
+        pendentes.set(jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM usuarios WHERE excluido_em IS NOT NULL", Long.class));
+    }
+
+    private void expurgarUsuario(Long id) {
+        long inicio = System.currentTimeMillis();
+        long total = 0;
+        for (Tabela tabela : TABELAS) {
+            // Nomes fixos da lista acima, seguros para concatenar
+            String sql = "DELETE FROM " + tabela.nome() + " WHERE " + tabela.coluna() + " = ? AND (" + tabela.chave() + ") IN ("
+                    + "SELECT " + tabela.chave() + " FROM " + tabela.nome() + " WHERE " + tabela.coluna() + " = ? LIMIT ?)";
+            int removidas;
+            do {
+                removidas = jdbcTemplate.update(sql, id, id, tamanhoLote);
+                total += removidas;
+                linhasExpurgadas.increment(removidas);
+            } while (removidas == tamanhoLote);
+        }
+        // Só se continuar marcado (uma restauração de backup pode ter trazido a linha de volta sem a marca)
+        if (jdbcTemplate.update("DELETE FROM usuarios WHERE id = ? AND excluido_em IS NOT NULL", id) > 0) {
+            usuariosExpurgados.increment();
+        }
+        log.info("Usuário {} expurgado: {} linhas em {} ms.", id, total, System.currentTimeMillis() - inicio);
+    }
+}
@@ -0,0 +1,33 @@
+package com.cantinho_emocoes.service;
+
+public enum FormatoBackup {
+    SQL("sql", "application/sql"),             // SQL puro (compatível com o restore via psql)
+    SQL_GZIP("sql.gz", "application/gzip"),    // SQL puro compactado em gzip durante o envio
+    CUSTOM("dump", "application/octet-stream"), // Formato custom do pg_dump (-Fc), já compactado
+    NATIVO("zip", "application/zip"),          // ZIP gerado pela própria aplicação via COPY (sem pg_dump)
+    DIFERENCIAL("dif.zip", "application/zip"); // ZIP nativo só com as alterações desde um backup base
+
+    private final String extensao;
+    private final String contentType;
+
+    FormatoBackup(String extensao, String contentType) {
+        this.extensao = extensao;
+        this.contentType = contentType;
+    }
+
+    public String getExtensao() { return extensao; }
+    public String getContentType() { return contentType; }
+
+    // Aceita "sql", "gzip"/"sql.gz", "custom"/"dump", "nativo"/"zip" e "diferencial" vindos da URL
+    public static FormatoBackup de(String valor) {
+        if (valor == null) return SQL;
+        return switch (valor.trim().toLowerCase()) {
+            case "sql" -> SQL;
+            case "gzip", "gz", "sql.gz", "sql_gzip" -> SQL_GZIP;
+            case "custom", "dump" -> CUSTOM;
+            case "nativo", "zip" -> NATIVO;
+            case "diferencial", "dif.zip" -> DIFERENCIAL;
+            default -> throw new IllegalArgumentException("Formato de backup inválido: " + valor);
+        };
+    }
+}
@@ -0,0 +1,157 @@
+package com.cantinho_emocoes.service;
+
+import com.cantinho_emocoes.model.MotivoXp;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * XP e nível das crianças: diários, atividades e tarefas cumpridas rendem pontos.
+ *
+ * Cada prêmio vira um lançamento no extrato (lancamentos_xp, só INSERT) e soma no saldo de usuarios
+ * num único comando: o INSERT ... ON CONFLICT DO NOTHING descarta o que já foi lançado e o UPDATE
+ * xp = xp + pontos recalcula o nível no mesmo lugar. Sem ler-alterar-gravar a entidade, prêmios
+ * simultâneos (várias abas) nunca se perdem, e a linha do usuário fica travada só por esse comando.
+ */
+@Service
+public class GamificacaoService {
+
+    // Uma linha do extrato
+    public record Premio(MotivoXp motivo, Long referenciaId, int pontos) {}
+
+    public record SaldoXp(int xp, int nivel) {}
+
+    // xp_semana sai do saldo já travado menos o que foi ganho antes da semana: com outra premiação
+    // simultânea, o snapshot do comando não enxergaria os lançamentos dela desta semana
+    private static final String SQL_CONCEDER = """
+            WITH lancados AS (
+                INSERT INTO lancamentos_xp (usuario_id, motivo, referencia_id, pontos, data_lancamento)
+                VALUES %s
+                ON CONFLICT ON CONSTRAINT uk_lancamento_xp_origem DO NOTHING
+                RETURNING pontos
+            )
+            UPDATE usuarios u
+               SET xp = u.xp + l.pontos,
+                   nivel = 1 + (u.xp + l.pontos) / ?
+              FROM (SELECT SUM(pontos) AS pontos FROM lancados) l
+             WHERE u.id = ? AND l.pontos IS NOT NULL
+            RETURNING u.xp, u.nivel, u.responsavel_id, u.nome, u.avatar_url,
+                      u.xp - (SELECT COALESCE(SUM(x.pontos), 0) FROM lancamentos_xp x
+                               WHERE x.usuario_id = u.id AND x.data_lancamento < ?) AS xp_semana
+            """;
+
+    // A atividade cumpre uma tarefa quando ainda há tarefas atribuídas do mesmo tipo/conteúdo
+    // (LIVRE vale por qualquer conteúdo) sem atividade correspondente — mesma regra de /pendentes
+    private static final String SQL_CUMPRIU_TAREFA = """
+            SELECT (SELECT COUNT(*) FROM tarefas t
+                     WHERE t.aluno_id = :alunoId AND upper(trim(COALESCE(t.tipo, ''))) = :tipo
+                       AND (:tipo = 'LIVRE' OR upper(trim(COALESCE(t.conteudo, ''))) = :conteudo))
+                >= (SELECT COUNT(*) FROM atividades a
+                     WHERE a.aluno_id = :alunoId AND a.id <= :atividadeId AND upper(trim(COALESCE(a.tipo, ''))) = :tipo
+                       AND (:tipo = 'LIVRE' OR upper(trim(COALESCE(a.conteudo, ''))) = :conteudo))
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.gamificacao.xp-por-nivel:100}")
+    private int xpPorNivel;
+
+    @Value("${app.gamificacao.xp.diario:10}")
+    private int xpDiario;
+
+    @Value("${app.gamificacao.xp.atividade:15}")
+    private int xpAtividade;
+
+    @Value("${app.gamificacao.xp.tarefa:25}")
+    private int xpTarefa;
+
+    public GamificacaoService(NamedParameterJdbcTemplate jdbcTemplate, ApplicationEventPublisher eventPublisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+    }
+
+    // Depois do commit, numa transação própria e curta: um problema aqui não desfaz o registro da criança
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void aoCriarDiario(DiarioCriadoEvent evento) {
+        conceder(evento.dependenteId(), List.of(new Premio(MotivoXp.DIARIO, evento.diarioId(), xpDiario)));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void aoRealizarAtividade(AtividadeRealizadaEvent evento) {
+        List<Premio> premios = new ArrayList<>();
+        premios.add(new Premio(MotivoXp.ATIVIDADE, evento.atividadeId(), xpAtividade));
+        if (cumpriuTarefa(evento)) {
+            premios.add(new Premio(MotivoXp.TAREFA, evento.atividadeId(), xpTarefa));
+        }
+        conceder(evento.alunoId(), premios);
+    }
+
+    /**
+     * Lança os prêmios e soma no saldo, num único comando. Prêmios já lançados são ignorados.
+     *
+     * @return o novo saldo, ou vazio se nada foi lançado (repetido ou usuário inexistente)
+     */
+    @Transactional
+    public Optional<SaldoXp> conceder(Long usuarioId, List<Premio> premios) {
+        List<Premio> validos = premios.stream().filter(p -> p.pontos() > 0).toList();
+        if (usuarioId == null || validos.isEmpty()) return Optional.empty();
+
+        LocalDateTime agora = LocalDateTime.now();
+        LocalDate semana = inicioDaSemana(agora.toLocalDate());
+        List<Object> parametros = new ArrayList<>();
+        for (Premio premio : validos) {
+            Collections.addAll(parametros, usuarioId, premio.motivo().name(), premio.referenciaId(), premio.pontos(),
+                    Timestamp.valueOf(agora));
+        }
+        Collections.addAll(parametros, xpPorNivel, usuarioId, Timestamp.valueOf(semana.atStartOfDay()));
+
+        String valores = String.join(", ", Collections.nCopies(validos.size(), "(?, ?, ?, ?, ?)"));
+        List<XpConcedidoEvent> alterados = jdbcTemplate.getJdbcTemplate().query(SQL_CONCEDER.formatted(valores), (rs, i) -> {
+            long responsavelId = rs.getLong("responsavel_id");
+            return new XpConcedidoEvent(usuarioId, rs.wasNull() ? null : responsavelId, rs.getString("nome"),
+                    rs.getString("avatar_url"), rs.getInt("xp"), rs.getInt("nivel"), semana, rs.getInt("xp_semana"));
+        }, parametros.toArray());
+        alterados.forEach(eventPublisher::publishEvent);
+        return alterados.stream().findFirst().map(e -> new SaldoXp(e.xp(), e.nivel()));
+    }
+
+    /** Segunda-feira da semana da data (as semanas do ranking começam na segunda). */
+    public static LocalDate inicioDaSemana(LocalDate data) {
+        return data.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
+    /** XP total para chegar ao nível seguinte. */
+    public int metaDoNivel(int nivel) {
+        return nivel * xpPorNivel;
+    }
+
+    private boolean cumpriuTarefa(AtividadeRealizadaEvent evento) {
+        String tipo = evento.tipo() == null ? "" : evento.tipo().trim().toUpperCase();
+        String conteudo = evento.conteudo() == null ? "" : evento.conteudo().trim().toUpperCase();
+        MapSqlParameterSource parametros = new MapSqlParameterSource()
+                .addValue("alunoId", evento.alunoId())
+                .addValue("atividadeId", evento.atividadeId())
+                .addValue("tipo", tipo)
+                .addValue("conteudo", conteudo);
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(SQL_CUMPRIU_TAREFA, parametros, Boolean.class));
+    }
+}
@@ -4,13 +4,23 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
+import com.cantinho_emocoes.model.CaixaSaidaEmail;
+
 import jakarta.mail.MessagingException;
 import jakarta.mail.internet.MimeMessage;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
 @Service
 public class GmailEmailService {
 
@@ -23,34 +33,60 @@ public class GmailEmailService {
     @Value("${spring.mail.username}")
     private String fromEmail;
 
-    public boolean sendPasswordResetEmail(String toEmail, String userName, String resetLink) {
+    public String montarEmailRedefinicaoSenha(String userName, String resetLink) {
+        return "Olá " + userName + ",<br><br>" +
+               "Você solicitou a redefinição de sua senha. " +
+               "Clique no link a seguir para redefinir:<br>" +
+               "<a href=\"" + resetLink + "\">Redefinir Senha</a><br><br>" +
+               "Se você não solicitou isso, por favor, ignore este e-mail.";
+    }
 
-        MimeMessage mimeMessage = mailSender.createMimeMessage();
+    /**
+     * Envia um lote de mensagens da caixa de saída usando uma única conexão SMTP
+     * (o JavaMailSender abre o Transport uma vez para todo o array).
+     * @return Mapa ID da mensagem -> erro, apenas para as mensagens que falharam.
+     */
+    public Map<Long, String> enviarLote(List<CaixaSaidaEmail> lote) {
+        Map<Long, String> falhas = new HashMap<>();
+        Map<MimeMessage, Long> idsPorMensagem = new IdentityHashMap<>();
+        List<MimeMessage> mensagens = new ArrayList<>();
+
+        for (CaixaSaidaEmail email : lote) {
+            try {
+                MimeMessage mimeMessage = mailSender.createMimeMessage();
+                MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, "utf-8");
+                helper.setText(email.getCorpoHtml(), true); // true = é HTML
+                helper.setTo(email.getDestinatario());
+                helper.setSubject(email.getAssunto());
+                helper.setFrom(fromEmail); // O remetente é o mesmo da conta configurada
+                mensagens.add(mimeMessage);
+                idsPorMensagem.put(mimeMessage, email.getId());
+            } catch (MessagingException e) {
+                falhas.put(email.getId(), e.getMessage());
+            }
+        }
+
+        if (mensagens.isEmpty()) return falhas;
 
         try {
-            // Use MimeMessageHelper para criar e-mails com HTML, anexos, etc.
-            // O "true" indica que o conteúdo é HTML.
-            MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, "utf-8");
-
-            // Construa o corpo do email HTML
-            String htmlContent = "Olá " + userName + ",<br><br>" +
-                                 "Você solicitou a redefinição de sua senha. " +
-                                 "Clique no link a seguir para redefinir:<br>" +
-                                 "<a href=\"" + resetLink + "\">Redefinir Senha</a><br><br>" +
-                                 "Se você não solicitou isso, por favor, ignore este e-mail.";
-
-            helper.setText(htmlContent, true); // true = é HTML
-            helper.setTo(toEmail);
-            helper.setSubject("Redefina sua Senha");
-            helper.setFrom(fromEmail); // O remetente é o mesmo da conta configurada
-
-            mailSender.send(mimeMessage);
-            logger.info("E-mail de redefinição de senha enviado para {} com sucesso!", toEmail);
-            return true;
-
-        } catch (MessagingException e) {
-            logger.error("Falha ao enviar e-mail para {}: {}", toEmail, e.getMessage());
-            return false;
+            mailSender.send(mensagens.toArray(new MimeMessage[0]));
+        } catch (MailSendException e) {
+            // Falha parcial: o Spring informa exatamente quais mensagens não foram aceitas
+            if (e.getFailedMessages().isEmpty()) {
+                idsPorMensagem.values().forEach(id -> falhas.put(id, e.getMessage()));
+            } else {
+                e.getFailedMessages().forEach((mensagem, erro) -> {
+                    Long id = idsPorMensagem.get(mensagem);
+                    if (id != null) falhas.put(id, erro.getMessage());
+                });
+            }
+        } catch (MailException e) {
+            // Falha de conexão/autenticação: nenhuma mensagem do lote saiu
+            logger.error("Falha ao conectar no servidor SMTP: {}", e.getMessage());
+            idsPorMensagem.values().forEach(id -> falhas.put(id, e.getMessage()));
         }
+
+        logger.info("Lote de e-mails processado: {} enviado(s), {} falha(s).", lote.size() - falhas.size(), falhas.size());
+        return falhas;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,399 @@
+package com.cantinho_emocoes.service;
+
+import com.cantinho_emocoes.dto.PontoEmocaoDTO;
+import com.cantinho_emocoes.repository.DiarioRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.imageio.ImageIO;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Gráfico de emoções de uma criança como imagem (PNG ou SVG), desenhado no servidor com Java2D:
+ * linha do tempo do estado emocional e distribuição das emoções no período.
+ *
+ * As imagens ficam em cache por (criança, período, tamanho, formato, versão dos dados). A versão
+ * de cada criança sobe a cada DiarioRegistradoEvent, depois do commit; o dia atual também entra na
+ * chave, porque o período é contado a partir de hoje.
+ */
+@Service
+public class GraficoEmocoesService {
+
+    public enum Formato {
+        PNG("image/png"),
+        SVG("image/svg+xml");
+
+        private final String contentType;
+
+        Formato(String contentType) {
+            this.contentType = contentType;
+        }
+
+        public String getContentType() { return contentType; }
+
+        public static Formato de(String valor) {
+            if (valor == null || valor.isBlank()) return PNG;
+            for (Formato f : values()) {
+                if (f.name().equalsIgnoreCase(valor)) return f;
+            }
+            throw new IllegalArgumentException("Formato inválido: " + valor + ". Use png ou svg.");
+        }
+    }
+
+    public record Imagem(byte[] conteudo, Formato formato) {}
+
+    // Mesma escala da linha do tempo do painel (emotionValueMap no front)
+    private static final Map<String, Integer> NIVEL = Map.of(
+            "BRAVO", 1, "MEDO", 2, "TRISTE", 2, "ANSIOSO", 3, "CALMO", 4, "FELIZ", 6);
+    private static final Map<String, Color> CORES = new LinkedHashMap<>();
+    static {
+        CORES.put("FELIZ", new Color(0xFBBF24));
+        CORES.put("CALMO", new Color(0x34D399));
+        CORES.put("ANSIOSO", new Color(0xF97316));
+        CORES.put("TRISTE", new Color(0x60A5FA));
+        CORES.put("MEDO", new Color(0xA78BFA));
+        CORES.put("BRAVO", new Color(0xEF4444));
+    }
+    private static final Color LINHA = new Color(0x8B5CF6);
+    private static final Color TEXTO = new Color(0x6B7280);
+    private static final Color GRADE = new Color(0xE5E7EB);
+    private static final Color OUTRAS = new Color(0x9CA3AF);
+    private static final DateTimeFormatter DIA_MES = DateTimeFormatter.ofPattern("dd/MM");
+
+    private final DiarioRepository diarioRepository;
+    private final Map<Long, AtomicLong> versoes = new ConcurrentHashMap<>();
+    private final Map<String, Imagem> cache;
+
+    public GraficoEmocoesService(DiarioRepository diarioRepository,
+                                 @Value("${app.graficos.cache-max:500}") int maxCache) {
+        this.diarioRepository = diarioRepository;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Imagem> maisAntiga) {
+                return size() > maxCache;
+            }
+        };
+    }
+
+    /** Identifica a imagem: muda quando os dados, o pedido ou o dia mudam (usada também como ETag). */
+    public String chave(Long dependenteId, int dias, int largura, int altura, Formato formato) {
+        long versao = versoes.computeIfAbsent(dependenteId, id -> new AtomicLong()).get();
+        return dependenteId + "-" + dias + "-" + largura + "x" + altura + "-" + formato.name().toLowerCase()
+                + "-" + LocalDate.now() + "-v" + versao;
+    }
+
+    public Imagem obter(Long dependenteId, int dias, int largura, int altura, Formato formato) {
+        String chave = chave(dependenteId, dias, largura, altura, formato);
+        synchronized (cache) {
+            Imagem existente = cache.get(chave);
+            if (existente != null) return existente;
+        }
+        LocalDateTime fim = LocalDateTime.now();
+        LocalDateTime inicio = fim.toLocalDate().minusDays(dias - 1L).atStartOfDay();
+        List<PontoEmocaoDTO> pontos = diarioRepository.findPontosGrafico(dependenteId, inicio);
+        Imagem imagem = new Imagem(desenhar(pontos, inicio, fim, largura, altura, formato), formato);
+        synchronized (cache) {
+            cache.put(chave, imagem);
+        }
+        return imagem;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void aoRegistrarDiario(DiarioRegistradoEvent evento) {
+        versoes.computeIfAbsent(evento.dependenteId(), id -> new AtomicLong()).incrementAndGet();
+        String prefixo = evento.dependenteId() + "-";
+        synchronized (cache) {
+            cache.keySet().removeIf(chave -> chave.startsWith(prefixo));
+        }
+    }
+
+    // --- DESENHO ---
+
+    private byte[] desenhar(List<PontoEmocaoDTO> pontos, LocalDateTime inicio, LocalDateTime fim,
+                            int largura, int altura, Formato formato) {
+        if (formato == Formato.SVG) {
+            TelaSvg tela = new TelaSvg(largura, altura);
+            desenharGrafico(tela, pontos, inicio, fim, largura, altura);
+            return tela.finalizar();
+        }
+        BufferedImage imagem = new BufferedImage(largura, altura, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = imagem.createGraphics();
+        try {
+            desenharGrafico(new TelaJava2D(g), pontos, inicio, fim, largura, altura);
+        } finally {
+            g.dispose();
+        }
+        ByteArrayOutputStream png = new ByteArrayOutputStream();
+        try {
+            ImageIO.write(imagem, "png", png);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return png.toByteArray();
+    }
+
+    private void desenharGrafico(Tela tela, List<PontoEmocaoDTO> pontos, LocalDateTime inicio, LocalDateTime fim,
+                                 int largura, int altura) {
+        float fonte = (float) Math.max(9, Math.min(16, Math.min(largura, altura) / 22.0));
+        double margem = fonte;
+        tela.retangulo(0, 0, largura, altura, Color.WHITE, 0);
+
+        // Lado a lado em imagens largas; um embaixo do outro nas mais quadradas
+        boolean ladoALado = largura >= altura * 1.6;
+        double larguraLinha = ladoALado ? (largura - 3 * margem) * 0.62 : largura - 2 * margem;
+        double alturaLinha = ladoALado ? altura - 2 * margem : (altura - 3 * margem) * 0.58;
+        double xDistribuicao = ladoALado ? 2 * margem + larguraLinha : margem;
+        double yDistribuicao = ladoALado ? margem : 2 * margem + alturaLinha;
+
+        desenharLinhaDoTempo(tela, pontos, inicio, fim, margem, margem, larguraLinha, alturaLinha, fonte);
+        desenharDistribuicao(tela, pontos, xDistribuicao, yDistribuicao,
+                ladoALado ? largura - xDistribuicao - margem : larguraLinha,
+                ladoALado ? alturaLinha : altura - yDistribuicao - margem, fonte);
+    }
+
+    private void desenharLinhaDoTempo(Tela tela, List<PontoEmocaoDTO> pontos, LocalDateTime inicio, LocalDateTime fim,
+                                      double x, double y, double largura, double altura, float fonte) {
+        double eixo = fonte * 4.5; // espaço dos rótulos das emoções
+        double baseX = x + eixo;
+        double larguraUtil = Math.max(1, largura - eixo);
+        double alturaUtil = Math.max(1, altura - fonte * 1.8);
+        double passo = alturaUtil / 6.5;
+
+        String[][] niveis = {{"6", "Feliz"}, {"4", "Calmo"}, {"3", "Ansioso"}, {"2", "Triste"}, {"1", "Bravo"}};
+        for (String[] nivel : niveis) {
+            double ny = y + alturaUtil - Integer.parseInt(nivel[0]) * passo;
+            tela.linha(baseX, ny, baseX + larguraUtil, ny, GRADE, 1);
+            tela.texto(nivel[1], baseX - fonte * 0.4, ny + fonte * 0.35, fonte * 0.85f, TEXTO, Alinhamento.FIM, false);
+        }
+        tela.texto(inicio.format(DIA_MES), baseX, y + altura, fonte * 0.85f, TEXTO, Alinhamento.INICIO, false);
+        tela.texto(fim.format(DIA_MES), baseX + larguraUtil, y + altura, fonte * 0.85f, TEXTO, Alinhamento.FIM, false);
+
+        List<PontoEmocaoDTO> validos = pontos.stream().filter(p -> NIVEL.containsKey(p.emocao().name())).toList();
+        if (validos.isEmpty()) {
+            tela.texto("Sem registros no período", baseX + larguraUtil / 2, y + alturaUtil / 2, fonte, TEXTO, Alinhamento.MEIO, false);
+            return;
+        }
+
+        double duracao = Math.max(1, Duration.between(inicio, fim).toSeconds());
+        double[] xs = new double[validos.size()];
+        double[] ys = new double[validos.size()];
+        for (int i = 0; i < validos.size(); i++) {
+            PontoEmocaoDTO p = validos.get(i);
+            xs[i] = baseX + larguraUtil * Math.min(1, Duration.between(inicio, p.dataRegistro()).toSeconds() / duracao);
+            ys[i] = y + alturaUtil - NIVEL.get(p.emocao().name()) * passo;
+        }
+        tela.area(xs, ys, y + alturaUtil, new Color(139, 92, 246, 28));
+        tela.polilinha(xs, ys, LINHA, Math.max(1.5f, fonte / 6));
+        double raio = Math.max(2.5, Math.min(fonte / 2.5, larguraUtil / validos.size() / 2.5));
+        for (int i = 0; i < validos.size(); i++) {
+            tela.circulo(xs[i], ys[i], raio, CORES.getOrDefault(validos.get(i).emocao().name(), OUTRAS), LINHA);
+        }
+    }
+
+    private void desenharDistribuicao(Tela tela, List<PontoEmocaoDTO> pontos,
+                                      double x, double y, double largura, double altura, float fonte) {
+        Map<String, Long> contagem = new LinkedHashMap<>();
+        CORES.keySet().forEach(e -> contagem.put(e, 0L));
+        pontos.forEach(p -> contagem.merge(p.emocao().name(), 1L, Long::sum));
+        long maior = contagem.values().stream().mapToLong(Long::longValue).max().orElse(0);
+
+        double rotulo = fonte * 4.5;
+        double numero = fonte * 2.5;
+        double larguraBarra = Math.max(1, largura - rotulo - numero);
+        double linhaAltura = altura / contagem.size();
+        double barra = Math.min(fonte * 1.3, linhaAltura * 0.7);
+        int i = 0;
+        for (Map.Entry<String, Long> item : contagem.entrySet()) {
+            double cy = y + linhaAltura * i + linhaAltura / 2;
+            String nome = item.getKey().charAt(0) + item.getKey().substring(1).toLowerCase(Locale.ROOT);
+            tela.texto(nome, x + rotulo - fonte * 0.4, cy + fonte * 0.35, fonte * 0.85f, TEXTO, Alinhamento.FIM, false);
+            double comprimento = maior == 0 ? 0 : larguraBarra * item.getValue() / maior;
+            tela.retangulo(x + rotulo, cy - barra / 2, larguraBarra, barra, new Color(0xF3F4F6), barra / 2);
+            if (comprimento > 0) {
+                tela.retangulo(x + rotulo, cy - barra / 2, Math.max(barra, comprimento), barra,
+                        CORES.getOrDefault(item.getKey(), OUTRAS), barra / 2);
+            }
+            tela.texto(String.valueOf(item.getValue()), x + rotulo + larguraBarra + fonte * 0.4, cy + fonte * 0.35,
+                    fonte * 0.85f, new Color(0x374151), Alinhamento.INICIO, true);
+            i++;
+        }
+    }
+
+    // --- SAÍDAS: a mesma rotina de desenho serve para o PNG (Java2D) e para o SVG (texto) ---
+
+    private enum Alinhamento { INICIO, MEIO, FIM }
+
+    private interface Tela {
+        void retangulo(double x, double y, double largura, double altura, Color cor, double raio);
+        void linha(double x1, double y1, double x2, double y2, Color cor, float espessura);
+        void polilinha(double[] xs, double[] ys, Color cor, float espessura);
+        void area(double[] xs, double[] ys, double base, Color cor);
+        void circulo(double cx, double cy, double raio, Color preenchimento, Color borda);
+        void texto(String texto, double x, double y, float tamanho, Color cor, Alinhamento alinhamento, boolean negrito);
+    }
+
+    private static final class TelaJava2D implements Tela {
+        private final Graphics2D g;
+
+        TelaJava2D(Graphics2D g) {
+            this.g = g;
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            g.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, RenderingHints.VALUE_STROKE_PURE);
+        }
+
+        public void retangulo(double x, double y, double largura, double altura, Color cor, double raio) {
+            g.setColor(cor);
+            g.fill(new RoundRectangle2D.Double(x, y, largura, altura, raio * 2, raio * 2));
+        }
+
+        public void linha(double x1, double y1, double x2, double y2, Color cor, float espessura) {
+            g.setColor(cor);
+            g.setStroke(new BasicStroke(espessura));
+            g.draw(new Line2D.Double(x1, y1, x2, y2));
+        }
+
+        public void polilinha(double[] xs, double[] ys, Color cor, float espessura) {
+            Path2D.Double caminho = new Path2D.Double();
+            caminho.moveTo(xs[0], ys[0]);
+            for (int i = 1; i < xs.length; i++) caminho.lineTo(xs[i], ys[i]);
+            g.setColor(cor);
+            g.setStroke(new BasicStroke(espessura, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+            g.draw(caminho);
+        }
+
+        public void area(double[] xs, double[] ys, double base, Color cor) {
+            Path2D.Double caminho = new Path2D.Double();
+            caminho.moveTo(xs[0], base);
+            for (int i = 0; i < xs.length; i++) caminho.lineTo(xs[i], ys[i]);
+            caminho.lineTo(xs[xs.length - 1], base);
+            caminho.closePath();
+            g.setColor(cor);
+            g.fill(caminho);
+        }
+
+        public void circulo(double cx, double cy, double raio, Color preenchimento, Color borda) {
+            Ellipse2D.Double circulo = new Ellipse2D.Double(cx - raio, cy - raio, raio * 2, raio * 2);
+            g.setColor(preenchimento);
+            g.fill(circulo);
+            g.setColor(borda);
+            g.setStroke(new BasicStroke(1.2f));
+            g.draw(circulo);
+        }
+
+        public void texto(String texto, double x, double y, float tamanho, Color cor, Alinhamento alinhamento, boolean negrito) {
+            g.setFont(new Font(Font.SANS_SERIF, negrito ? Font.BOLD : Font.PLAIN, 1).deriveFont(tamanho));
+            FontMetrics metricas = g.getFontMetrics();
+            double largura = metricas.stringWidth(texto);
+            double inicio = switch (alinhamento) {
+                case INICIO -> x;
+                case MEIO -> x - largura / 2;
+                case FIM -> x - largura;
+            };
+            g.setColor(cor);
+            g.drawString(texto, (float) inicio, (float) y);
+        }
+    }
+
+    private static final class TelaSvg implements Tela {
+        private final StringBuilder svg = new StringBuilder(8 * 1024);
+
+        TelaSvg(int largura, int altura) {
+            svg.append("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").append(largura)
+                    .append("\" height=\"").append(altura).append("\" viewBox=\"0 0 ").append(largura).append(' ')
+                    .append(altura).append("\" font-family=\"sans-serif\">");
+        }
+
+        byte[] finalizar() {
+            return svg.append("</svg>").toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        public void retangulo(double x, double y, double largura, double altura, Color cor, double raio) {
+            svg.append("<rect x=\"").append(n(x)).append("\" y=\"").append(n(y)).append("\" width=\"").append(n(largura))
+                    .append("\" height=\"").append(n(altura)).append('"');
+            if (raio > 0) svg.append(" rx=\"").append(n(raio)).append('"');
+            svg.append(preenchimento(cor)).append("/>");
+        }
+
+        public void linha(double x1, double y1, double x2, double y2, Color cor, float espessura) {
+            svg.append("<line x1=\"").append(n(x1)).append("\" y1=\"").append(n(y1)).append("\" x2=\"").append(n(x2))
+                    .append("\" y2=\"").append(n(y2)).append('"').append(traco(cor, espessura)).append("/>");
+        }
+
+        public void polilinha(double[] xs, double[] ys, Color cor, float espessura) {
+            svg.append("<polyline fill=\"none\" stroke-linejoin=\"round\" stroke-linecap=\"round\" points=\"");
+            for (int i = 0; i < xs.length; i++) svg.append(n(xs[i])).append(',').append(n(ys[i])).append(' ');
+            svg.append('"').append(traco(cor, espessura)).append("/>");
+        }
+
+        public void area(double[] xs, double[] ys, double base, Color cor) {
+            svg.append("<polygon points=\"").append(n(xs[0])).append(',').append(n(base)).append(' ');
+            for (int i = 0; i < xs.length; i++) svg.append(n(xs[i])).append(',').append(n(ys[i])).append(' ');
+            svg.append(n(xs[xs.length - 1])).append(',').append(n(base)).append('"').append(preenchimento(cor)).append("/>");
+        }
+
+        public void circulo(double cx, double cy, double raio, Color preenchimento, Color borda) {
+            svg.append("<circle cx=\"").append(n(cx)).append("\" cy=\"").append(n(cy)).append("\" r=\"").append(n(raio))
+                    .append('"').append(preenchimento(preenchimento)).append(traco(borda, 1.2f)).append("/>");
+        }
+
+        public void texto(String texto, double x, double y, float tamanho, Color cor, Alinhamento alinhamento, boolean negrito) {
+            String ancora = switch (alinhamento) {
+                case INICIO -> "start";
+                case MEIO -> "middle";
+                case FIM -> "end";
+            };
+            svg.append("<text x=\"").append(n(x)).append("\" y=\"").append(n(y)).append("\" font-size=\"").append(n(tamanho))
+                    .append("\" text-anchor=\"").append(ancora).append('"');
+            if (negrito) svg.append(" font-weight=\"bold\"");
+            svg.append(preenchimento(cor)).append('>').append(escapar(texto)).append("</text>");
+        }
+
+        private static String preenchimento(Color cor) {
+            String atributo = " fill=\"" + hex(cor) + "\"";
+            return cor.getAlpha() < 255 ? atributo + " fill-opacity=\"" + n(cor.getAlpha() / 255.0) + "\"" : atributo;
+        }
+
+        private static String traco(Color cor, float espessura) {
+            return " stroke=\"" + hex(cor) + "\" stroke-width=\"" + n(espessura) + "\"";
+        }
+
+        private static String hex(Color cor) {
+            return String.format("#%02x%02x%02x", cor.getRed(), cor.getGreen(), cor.getBlue());
+        }
+
+        private static String n(double valor) {
+            return String.format(Locale.ROOT, "%.2f", valor);
+        }
+
+        private static String escapar(String texto) {
+            return texto.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
+        }
+    }
+}
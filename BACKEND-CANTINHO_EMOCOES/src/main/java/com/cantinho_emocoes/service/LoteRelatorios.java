@@ -0,0 +1,116 @@
+package com.cantinho_emocoes.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Boletins de uma unidade para vários alunos, num único ZIP ou PDF (progresso consultado pelo professor).
+ */
+public class LoteRelatorios {
+
+    public enum Formato {
+        ZIP("zip", "application/zip"),
+        PDF("pdf", "application/pdf");
+
+        private final String extensao;
+        private final String contentType;
+
+        Formato(String extensao, String contentType) {
+            this.extensao = extensao;
+            this.contentType = contentType;
+        }
+
+        public String getExtensao() { return extensao; }
+        public String getContentType() { return contentType; }
+
+        public static Formato de(String valor) {
+            if (valor == null || valor.isBlank()) return ZIP;
+            for (Formato f : values()) {
+                if (f.name().equalsIgnoreCase(valor)) return f;
+            }
+            throw new IllegalArgumentException("Formato inválido: " + valor + ". Use zip ou pdf.");
+        }
+    }
+
+    public enum Status { EM_ANDAMENTO, CONCLUIDO, CANCELADO, FALHOU }
+
+    private final String id = UUID.randomUUID().toString();
+    private final String unidade;
+    private final Formato formato;
+    private final int total;
+    private final LocalDateTime inicio = LocalDateTime.now();
+    private final AtomicInteger processados = new AtomicInteger();
+    private final List<String> falhas = new CopyOnWriteArrayList<>(); // alunos que ficaram de fora
+    private volatile boolean cancelamentoSolicitado;
+    private volatile Status status = Status.EM_ANDAMENTO;
+    private volatile LocalDateTime fim;
+    private volatile String erro;
+    private volatile byte[] arquivo;
+
+    public LoteRelatorios(String unidade, Formato formato, int total) {
+        this.unidade = unidade;
+        this.formato = formato;
+        this.total = total;
+    }
+
+    public void registrarProcessado() {
+        processados.incrementAndGet();
+    }
+
+    public void registrarFalha(String aluno, String motivo) {
+        falhas.add(aluno + ": " + motivo);
+    }
+
+    public void solicitarCancelamento() {
+        cancelamentoSolicitado = true;
+    }
+
+    public void concluir(byte[] arquivo) {
+        this.arquivo = arquivo;
+        this.status = Status.CONCLUIDO;
+        this.fim = LocalDateTime.now();
+    }
+
+    public void cancelar() {
+        this.status = Status.CANCELADO;
+        this.fim = LocalDateTime.now();
+    }
+
+    public void falhar(String erro) {
+        this.erro = erro;
+        this.status = Status.FALHOU;
+        this.fim = LocalDateTime.now();
+    }
+
+    public boolean isFinalizado() {
+        return status != Status.EM_ANDAMENTO;
+    }
+
+    // Getters (serializados no endpoint de progresso)
+    public String getId() { return id; }
+    public String getUnidade() { return unidade; }
+    public Formato getFormato() { return formato; }
+    public int getTotal() { return total; }
+    public int getProcessados() { return processados.get(); }
+    public List<String> getFalhas() { return falhas; }
+    public boolean isCancelamentoSolicitado() { return cancelamentoSolicitado; }
+    public LocalDateTime getInicio() { return inicio; }
+    public Status getStatus() { return status; }
+    public LocalDateTime getFim() { return fim; }
+    public String getErro() { return erro; }
+    @JsonIgnore
+    public byte[] getArquivo() { return arquivo; }
+
+    public int getPercentual() {
+        return total == 0 ? 100 : Math.min(100, processados.get() * 100 / total);
+    }
+
+    public Integer getTamanho() {
+        return arquivo == null ? null : arquivo.length;
+    }
+}
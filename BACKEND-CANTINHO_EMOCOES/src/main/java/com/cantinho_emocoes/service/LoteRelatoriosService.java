@@ -0,0 +1,190 @@
+package com.cantinho_emocoes.service;
+
+import jakarta.annotation.PreDestroy;
+import org.apache.pdfbox.io.MemoryUsageSetting;
+import org.apache.pdfbox.multipdf.PDFMergerUtility;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Boletins de fim de unidade da turma inteira: os PDFs de cada aluno são gerados em paralelo
+ * (ForkJoinPool do tamanho dos núcleos, reaproveitando o cache do RelatorioAvaliacaoService)
+ * e juntados na ordem pedida num ZIP ou num único PDF (PDFBox).
+ *
+ * O lote roda em segundo plano, com progresso e cancelamento; o arquivo final fica em memória
+ * até sair da lista dos últimos lotes.
+ */
+@Service
+public class LoteRelatoriosService {
+
+    private static final Logger log = LoggerFactory.getLogger(LoteRelatoriosService.class);
+    private static final int MAX_FINALIZADOS = 10;
+
+    public record AlunoLote(Long id, String nome) {}
+
+    private final RelatorioAvaliacaoService relatorioService;
+    private final ForkJoinPool renderizacaoPool;
+    private final ExecutorService coordenacaoExecutor = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "relatorios-lote");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Map<String, LoteRelatorios> lotes = new ConcurrentHashMap<>();
+
+    public LoteRelatoriosService(RelatorioAvaliacaoService relatorioService,
+                                 @Value("${app.relatorios.lote.paralelismo:0}") int paralelismo) {
+        this.relatorioService = relatorioService;
+        // 0 = um por núcleo. As threads padrão do ForkJoinPool usam o class loader do sistema, que
+        // dentro do jar do Spring Boot não enxerga os templates; por isso a fábrica própria.
+        ClassLoader classLoader = LoteRelatoriosService.class.getClassLoader();
+        this.renderizacaoPool = new ForkJoinPool(paralelismo > 0 ? paralelismo : Runtime.getRuntime().availableProcessors(),
+                pool -> {
+                    ForkJoinWorkerThread t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    t.setName("relatorios-lote-" + t.getPoolIndex());
+                    t.setContextClassLoader(classLoader);
+                    t.setDaemon(true);
+                    return t;
+                }, null, false);
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        lotes.values().forEach(LoteRelatorios::solicitarCancelamento);
+        coordenacaoExecutor.shutdownNow();
+        renderizacaoPool.shutdownNow();
+    }
+
+    public LoteRelatorios iniciar(String unidade, List<AlunoLote> alunos, LoteRelatorios.Formato formato) {
+        LoteRelatorios lote = new LoteRelatorios(unidade, formato, alunos.size());
+        lotes.put(lote.getId(), lote);
+        limparAntigos();
+        coordenacaoExecutor.execute(() -> executar(lote, alunos));
+        return lote;
+    }
+
+    public Optional<LoteRelatorios> buscar(String id) {
+        return Optional.ofNullable(lotes.get(id));
+    }
+
+    public Optional<LoteRelatorios> cancelar(String id) {
+        LoteRelatorios lote = lotes.get(id);
+        if (lote != null && !lote.isFinalizado()) {
+            lote.solicitarCancelamento();
+        }
+        return Optional.ofNullable(lote);
+    }
+
+    private void executar(LoteRelatorios lote, List<AlunoLote> alunos) {
+        // Tudo é enviado ao pool de uma vez; a montagem abaixo consome na ordem da lista
+        List<CompletableFuture<byte[]>> pdfs = alunos.stream()
+                .map(aluno -> CompletableFuture.supplyAsync(() -> gerar(lote, aluno), renderizacaoPool))
+                .toList();
+        try {
+            ByteArrayOutputStream saida = new ByteArrayOutputStream();
+            if (lote.getFormato() == LoteRelatorios.Formato.ZIP) {
+                try (ZipOutputStream zip = new ZipOutputStream(saida)) {
+                    zip.setLevel(Deflater.BEST_SPEED);
+                    for (int i = 0; i < alunos.size(); i++) {
+                        byte[] pdf = aguardar(lote, pdfs.get(i));
+                        if (pdf == null) continue;
+                        AlunoLote aluno = alunos.get(i);
+                        zip.putNextEntry(new ZipEntry(nomeArquivo(aluno) + ".pdf"));
+                        zip.write(pdf);
+                        zip.closeEntry();
+                    }
+                }
+            } else {
+                PDFMergerUtility juncao = new PDFMergerUtility();
+                for (CompletableFuture<byte[]> futuro : pdfs) {
+                    byte[] pdf = aguardar(lote, futuro);
+                    if (pdf != null) juncao.addSource(new ByteArrayInputStream(pdf));
+                }
+                juncao.setDestinationStream(saida);
+                juncao.mergeDocuments(MemoryUsageSetting.setupMainMemoryOnly());
+            }
+            lote.concluir(saida.toByteArray());
+            log.info("Lote de boletins {} ({}) concluído: {} aluno(s), {} falha(s).",
+                    lote.getId(), lote.getUnidade(), lote.getTotal(), lote.getFalhas().size());
+        } catch (CancellationException e) {
+            pdfs.forEach(f -> f.cancel(false));
+            lote.cancelar();
+            log.info("Lote de boletins {} cancelado.", lote.getId());
+        } catch (Exception e) {
+            pdfs.forEach(f -> f.cancel(false));
+            log.error("Falha no lote de boletins {}.", lote.getId(), e);
+            lote.falhar(e.getMessage());
+        }
+    }
+
+    // Roda no ForkJoinPool. Um aluno com erro fica de fora (registrado no lote) sem derrubar o resto.
+    private byte[] gerar(LoteRelatorios lote, AlunoLote aluno) {
+        if (lote.isCancelamentoSolicitado()) {
+            throw new CancellationException();
+        }
+        try {
+            return relatorioService.obterPdf(aluno.id(), lote.getUnidade());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Boletim de {} (id {}) não gerado: {}", aluno.nome(), aluno.id(), e.getMessage());
+            lote.registrarFalha(aluno.nome(), e.getMessage());
+            return null;
+        } finally {
+            lote.registrarProcessado();
+        }
+    }
+
+    // Espera em fatias curtas para o cancelamento valer mesmo no meio de um PDF demorado
+    private byte[] aguardar(LoteRelatorios lote, CompletableFuture<byte[]> futuro) throws IOException {
+        while (true) {
+            if (lote.isCancelamentoSolicitado()) {
+                throw new CancellationException();
+            }
+            try {
+                return futuro.get(300, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // continua esperando
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException();
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof CancellationException cancelado) throw cancelado;
+                throw new IOException(e.getCause());
+            }
+        }
+    }
+
+    private static String nomeArquivo(AlunoLote aluno) {
+        String nome = aluno.nome() == null ? "aluno" : aluno.nome().replaceAll("[^\\p{L}\\p{N}]+", "_");
+        return nome + "_" + aluno.id();
+    }
+
+    private void limparAntigos() {
+        lotes.values().stream()
+                .filter(LoteRelatorios::isFinalizado)
+                .sorted(Comparator.comparing(LoteRelatorios::getInicio).reversed())
+                .skip(MAX_FINALIZADOS)
+                .forEach(l -> lotes.remove(l.getId()));
+    }
+}
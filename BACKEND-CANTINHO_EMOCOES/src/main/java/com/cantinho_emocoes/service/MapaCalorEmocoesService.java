@@ -0,0 +1,111 @@
+package com.cantinho_emocoes.service;
+
+import com.cantinho_emocoes.dto.MapaCalorEmocoesDTO;
+import com.cantinho_emocoes.model.Emocao;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Types;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Mapa de calor das emoções (por dia, dia da semana, hora e emoção) de um grupo de alunos.
+ *
+ * Lê só o cubo mantido pelos gatilhos de diarios (db/migration/V5__cubo_emocoes.sql): no máximo uma
+ * linha por aluno, dia, hora e emoção, ou por dia, hora e emoção no caso da escola inteira.
+ * Os três recortes saem de uma única consulta com GROUPING SETS, agrupada pelo código da emoção;
+ * o nome só entra no fim, pela tabela emocoes.
+ */
+@Service
+public class MapaCalorEmocoesService {
+
+    private static final String SQL_RECORTES = """
+            WITH celulas AS (%s),
+            recortes AS (
+                SELECT CASE WHEN GROUPING(dia) = 0 THEN 'DIA' WHEN GROUPING(hora) = 0 THEN 'HORA' ELSE 'EMOCAO' END AS recorte,
+                       dia, dia_semana, hora, emocao,
+                       SUM(registros) AS registros,
+                       ROUND(CAST(SUM(soma_intensidade) AS numeric) / SUM(registros), 2) AS media
+                  FROM celulas
+                 GROUP BY GROUPING SETS ((dia, emocao), (dia_semana, hora, emocao), (emocao))
+            )
+            SELECT r.recorte, r.dia, r.dia_semana, r.hora, e.nome AS emocao, r.registros, r.media
+              FROM recortes r
+              JOIN emocoes e ON e.codigo = r.emocao
+             ORDER BY r.recorte, r.dia, r.dia_semana, r.hora, e.nome
+            """;
+
+    private static final String FILTROS = """
+             dia BETWEEN :inicio AND :fim AND registros > 0
+               AND (CAST(:emocao AS smallint) IS NULL OR emocao = CAST(:emocao AS smallint))
+            """;
+
+    private static final String CELULAS_ESCOLA = """
+            SELECT dia, CAST(EXTRACT(isodow FROM dia) AS int) AS dia_semana, hora, emocao, registros, soma_intensidade
+              FROM cubo_emocoes_escola
+             WHERE""" + FILTROS;
+
+    private static final String CELULAS_ALUNOS = """
+            SELECT dia, CAST(EXTRACT(isodow FROM dia) AS int) AS dia_semana, hora, emocao, registros, soma_intensidade
+              FROM cubo_emocoes
+             WHERE dependente_id IN (%s) AND""" + FILTROS;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public MapaCalorEmocoesService(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** Escola inteira, do cubo já somado. */
+    public MapaCalorEmocoesDTO daEscola(LocalDate inicio, LocalDate fim, Emocao emocao) {
+        return consultar(CELULAS_ESCOLA, filtros(inicio, fim, emocao), inicio, fim);
+    }
+
+    /** Todos os alunos vinculados ao responsável (a turma do professor). */
+    public MapaCalorEmocoesDTO daTurma(Long responsavelId, LocalDate inicio, LocalDate fim, Emocao emocao) {
+        return consultar(CELULAS_ALUNOS.formatted("SELECT id FROM usuarios WHERE responsavel_id = :responsavelId AND excluido_em IS NULL"),
+                filtros(inicio, fim, emocao).addValue("responsavelId", responsavelId), inicio, fim);
+    }
+
+    /** Só os alunos informados (a permissão sobre eles é conferida por quem chama). */
+    public MapaCalorEmocoesDTO dosAlunos(List<Long> alunoIds, LocalDate inicio, LocalDate fim, Emocao emocao) {
+        return consultar(CELULAS_ALUNOS.formatted(":alunoIds"),
+                filtros(inicio, fim, emocao).addValue("alunoIds", alunoIds), inicio, fim);
+    }
+
+    /** Refaz o cubo a partir de diarios (ex.: depois de uma correção manual no banco). */
+    public void reconstruir() {
+        jdbcTemplate.getJdbcTemplate().execute("SELECT reconstruir_cubo_emocoes()");
+    }
+
+    private MapaCalorEmocoesDTO consultar(String celulas, MapSqlParameterSource parametros, LocalDate inicio, LocalDate fim) {
+        List<MapaCalorEmocoesDTO.Celula> dias = new ArrayList<>();
+        List<MapaCalorEmocoesDTO.Celula> diaSemanaHora = new ArrayList<>();
+        List<MapaCalorEmocoesDTO.Celula> emocoes = new ArrayList<>();
+
+        jdbcTemplate.query(SQL_RECORTES.formatted(celulas), parametros, rs -> {
+            String recorte = rs.getString("recorte");
+            MapaCalorEmocoesDTO.Celula celula = new MapaCalorEmocoesDTO.Celula(
+                    "DIA".equals(recorte) ? rs.getObject("dia", LocalDate.class) : null,
+                    "HORA".equals(recorte) ? rs.getInt("dia_semana") : null,
+                    "HORA".equals(recorte) ? rs.getInt("hora") : null,
+                    rs.getString("emocao"), rs.getLong("registros"), rs.getDouble("media"));
+            switch (recorte) {
+                case "DIA" -> dias.add(celula);
+                case "HORA" -> diaSemanaHora.add(celula);
+                default -> emocoes.add(celula);
+            }
+        });
+        return new MapaCalorEmocoesDTO(inicio, fim, dias, diaSemanaHora, emocoes);
+    }
+
+    private static MapSqlParameterSource filtros(LocalDate inicio, LocalDate fim, Emocao emocao) {
+        return new MapSqlParameterSource()
+                .addValue("inicio", inicio)
+                .addValue("fim", fim)
+                .addValue("emocao", emocao != null ? emocao.getCodigo() : null, Types.SMALLINT);
+    }
+}
@@ -0,0 +1,9 @@
+package com.cantinho_emocoes.service;
+
+import com.cantinho_emocoes.dto.NotificacaoDTO;
+
+/**
+ * Publicado pela NotificacaoService ao gravar uma notificação.
+ * Os ouvintes usam @TransactionalEventListener para só reagir após o commit.
+ */
+public record NotificacaoCriadaEvent(Long usuarioId, NotificacaoDTO notificacao) {}
@@ -1,25 +1,35 @@
 package com.cantinho_emocoes.service;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.cantinho_emocoes.dto.NotificacaoDTO;
 import com.cantinho_emocoes.model.Notificacao;
 import com.cantinho_emocoes.model.Usuario;
 import com.cantinho_emocoes.repository.NotificacaoRepository;
-import com.cantinho_emocoes.repository.UsuarioRepository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Service
 public class NotificacaoService {
 
     private final NotificacaoRepository notificacaoRepository;
-    private final UsuarioRepository usuarioRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ContadorNaoLidasService contadorNaoLidas;
 
-    public NotificacaoService(NotificacaoRepository notificacaoRepository, UsuarioRepository usuarioRepository) {
+    // Janela padrão das consultas: limita a leitura às partições mensais mais recentes
+    @Value("${app.notificacoes.janela-dias:90}")
+    private int janelaDias;
+
+    public NotificacaoService(NotificacaoRepository notificacaoRepository, ApplicationEventPublisher eventPublisher,
+                              ContadorNaoLidasService contadorNaoLidas) {
         this.notificacaoRepository = notificacaoRepository;
-        this.usuarioRepository = usuarioRepository;
+        this.eventPublisher = eventPublisher;
+        this.contadorNaoLidas = contadorNaoLidas;
     }
 
     @Transactional
@@ -34,32 +44,49 @@ public class NotificacaoService {
             false, // lido = false por padrão
             cor
         );
-        return notificacaoRepository.save(notificacao);
+        Notificacao salva = notificacaoRepository.save(notificacao);
+
+        // Entregue pelo canal SSE somente depois do commit (ver NotificacaoStreamHub)
+        eventPublisher.publishEvent(new NotificacaoCriadaEvent(destinatario.getId(), NotificacaoDTO.de(salva)));
+        return salva;
     }
 
     @Transactional(readOnly = true)
     public List<Notificacao> listarNotificacoesDoUsuario(Usuario usuario) {
-        return notificacaoRepository.findByUsuarioOrderByDataEnvioDesc(usuario);
+        return notificacaoRepository.findByUsuarioAndDataEnvioGreaterThanEqualOrderByDataEnvioDesc(usuario, inicioJanela());
     }
 
-    @Transactional(readOnly = true)
-    public List<Notificacao> listarNotificacoesNaoLidasDoUsuario(Usuario usuario) {
-        return notificacaoRepository.findByUsuarioAndLidoFalseOrderByDataEnvioDesc(usuario);
+    public long contarNaoLidas(Long usuarioId) {
+        return contadorNaoLidas.contar(usuarioId);
+    }
+
+    /**
+     * Marca como lidas as notificações informadas em um único UPDATE.
+     * Notificações de outros usuários são simplesmente ignoradas pelo filtro do próprio UPDATE.
+     * @return Quantidade de notificações que passaram de não lida para lida.
+     */
+    @Transactional
+    public int marcarComoLidas(Long usuarioId, Collection<Long> ids) {
+        // Seleção vazia não é "todas": isso tem a sua própria operação, marcarTodasComoLidas
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("Informe ao menos uma notificação.");
+        }
+        return aposMarcar(usuarioId, notificacaoRepository.marcarComoLidas(usuarioId, ids, inicioJanela()));
     }
 
     @Transactional
-    public Notificacao marcarNotificacaoComoLida(Long notificacaoId, String userEmail) {
-        Usuario usuarioAutenticado = usuarioRepository.findByEmail(userEmail)
-                .orElseThrow(() -> new IllegalArgumentException("Usuário não encontrado: " + userEmail));
+    public int marcarTodasComoLidas(Long usuarioId) {
+        return aposMarcar(usuarioId, notificacaoRepository.marcarTodasComoLidas(usuarioId, inicioJanela()));
+    }
 
-        Notificacao notificacao = notificacaoRepository.findById(notificacaoId)
-                .orElseThrow(() -> new IllegalArgumentException("Notificação não encontrada com ID: " + notificacaoId));
-        
-        if (!notificacao.getUsuario().getId().equals(usuarioAutenticado.getId())) {
-            throw new SecurityException("Usuário não autorizado a marcar esta notificação como lida.");
+    private int aposMarcar(Long usuarioId, int alteradas) {
+        if (alteradas > 0) {
+            eventPublisher.publishEvent(new NotificacoesLidasEvent(usuarioId, alteradas));
         }
-        
-        notificacao.setLido(true);
-        return notificacaoRepository.save(notificacao);
+        return alteradas;
+    }
+
+    private LocalDateTime inicioJanela() {
+        return LocalDateTime.now().minusDays(janelaDias);
     }
-}
\ No newline at end of file
+}
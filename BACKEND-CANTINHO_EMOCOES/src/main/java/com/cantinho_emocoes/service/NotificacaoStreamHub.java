@@ -0,0 +1,262 @@
+package com.cantinho_emocoes.service;
+
+import com.cantinho_emocoes.dto.NotificacaoDTO;
+import com.cantinho_emocoes.model.Notificacao;
+import com.cantinho_emocoes.repository.NotificacaoRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Central de distribuição (fan-out) das notificações via Server-Sent Events.
+ *
+ * Publicar nunca bloqueia: cada conexão tem uma fila limitada e um pequeno pool
+ * de threads esvazia essas filas. Se um cliente lento enche a fila, a conexão é
+ * encerrada e o navegador reconecta com o cabeçalho Last-Event-ID, recebendo o
+ * que perdeu direto do banco.
+ *
+ * O ID dos eventos é a maior data de envio já entregue na conexão, não o ID da notificação:
+ * IDs saem da sequence antes do commit, e uma transação lenta confirma uma notificação de ID
+ * menor depois de outras. No reenvio volta-se uma margem (sobreposicao-reenvio-segundos) antes
+ * dessa data; o que se repetir o cliente descarta pelo ID da notificação nos dados.
+ */
+@Component
+public class NotificacaoStreamHub {
+
+    private static final Logger log = LoggerFactory.getLogger(NotificacaoStreamHub.class);
+
+    private final NotificacaoRepository notificacaoRepository;
+    private final Map<Long, Set<Conexao>> conexoesPorUsuario = new ConcurrentHashMap<>();
+    private final ExecutorService envioExecutor;
+
+    @Value("${app.notificacoes.sse.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${app.notificacoes.sse.tamanho-fila:32}")
+    private int tamanhoFila;
+
+    @Value("${app.notificacoes.sse.sobreposicao-reenvio-segundos:60}")
+    private long sobreposicaoReenvioSegundos;
+
+    @Value("${app.notificacoes.janela-dias:90}")
+    private int janelaDias;
+
+    public NotificacaoStreamHub(NotificacaoRepository notificacaoRepository,
+                                @Value("${app.notificacoes.sse.threads-envio:4}") int threadsEnvio) {
+        this.notificacaoRepository = notificacaoRepository;
+        this.envioExecutor = new ThreadPoolExecutor(threadsEnvio, threadsEnvio, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "sse-notificacoes");
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /**
+     * Abre o canal de um usuário. Se o cliente informar o último ID de evento recebido,
+     * as notificações desde então (com a margem de sobreposição) são reenviadas antes das novas.
+     */
+    public SseEmitter conectar(Long usuarioId, String ultimoEventoId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        LocalDateTime cursor = lerCursor(ultimoEventoId);
+        Conexao conexao = new Conexao(usuarioId, emitter, tamanhoFila, cursor);
+
+        // Registra antes do reenvio para não perder o que for publicado no meio do caminho
+        conexoesPorUsuario.computeIfAbsent(usuarioId, id -> ConcurrentHashMap.newKeySet()).add(conexao);
+        emitter.onCompletion(() -> remover(conexao));
+        emitter.onTimeout(() -> remover(conexao));
+        emitter.onError(e -> remover(conexao));
+
+        try {
+            if (cursor != null) {
+                LocalDateTime inicioJanela = LocalDateTime.now().minusDays(janelaDias);
+                LocalDateTime desde = cursor.minusSeconds(sobreposicaoReenvioSegundos);
+                List<NotificacaoDTO> perdidas = notificacaoRepository
+                        .findTop100ByUsuarioIdAndDataEnvioGreaterThanEqualOrderByDataEnvioAscIdAsc(
+                                usuarioId, desde.isAfter(inicioJanela) ? desde : inicioJanela).stream()
+                        .map(NotificacaoDTO::de)
+                        .toList();
+                for (NotificacaoDTO n : perdidas) {
+                    conexao.reenviar(n);
+                }
+            } else {
+                // Comentário inicial para o navegador considerar o canal aberto
+                emitter.send(SseEmitter.event().comment("conectado"));
+            }
+        } catch (IOException e) {
+            conexao.encerrar();
+            return emitter;
+        }
+
+        conexao.liberar();
+        agendarEnvio(conexao);
+        return emitter;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void publicar(NotificacaoCriadaEvent evento) {
+        Set<Conexao> conexoes = conexoesPorUsuario.get(evento.usuarioId());
+        if (conexoes == null) return;
+
+        for (Conexao conexao : conexoes) {
+            if (conexao.enfileirar(evento.notificacao())) {
+                agendarEnvio(conexao);
+            } else {
+                log.debug("Fila SSE cheia para o usuário {}; encerrando conexão para forçar reconexão.", evento.usuarioId());
+                conexao.encerrar();
+            }
+        }
+    }
+
+    // Mantém proxies e balanceadores de carga sem derrubar conexões ociosas
+    @Scheduled(fixedRateString = "${app.notificacoes.sse.heartbeat-ms:25000}")
+    public void enviarHeartbeat() {
+        conexoesPorUsuario.values().forEach(conexoes -> conexoes.forEach(conexao -> {
+            if (conexao.enfileirar(null)) {
+                agendarEnvio(conexao);
+            }
+        }));
+    }
+
+    public int totalConexoes() {
+        return conexoesPorUsuario.values().stream().mapToInt(Set::size).sum();
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        conexoesPorUsuario.values().forEach(conexoes -> conexoes.forEach(Conexao::encerrar));
+        envioExecutor.shutdownNow();
+    }
+
+    // Cursor de reconexão: data de envio (ISO) ou, de clientes conectados antes dela, o ID da notificação
+    private LocalDateTime lerCursor(String ultimoEventoId) {
+        if (ultimoEventoId == null || ultimoEventoId.isBlank()) return null;
+        try {
+            return LocalDateTime.parse(ultimoEventoId.trim());
+        } catch (DateTimeParseException e) {
+            try {
+                return notificacaoRepository.findById(Long.valueOf(ultimoEventoId.trim()))
+                        .map(Notificacao::getDataEnvio)
+                        .orElse(null);
+            } catch (NumberFormatException ignorado) {
+                log.debug("Last-Event-ID inválido ignorado: {}", ultimoEventoId);
+                return null;
+            }
+        }
+    }
+
+    private void agendarEnvio(Conexao conexao) {
+        if (conexao.reservarEnvio()) {
+            envioExecutor.execute(() -> {
+                conexao.esvaziarFila();
+                // Algo pode ter chegado entre o fim do esvaziamento e a liberação
+                if (conexao.temPendentes()) agendarEnvio(conexao);
+            });
+        }
+    }
+
+    private void remover(Conexao conexao) {
+        conexoesPorUsuario.computeIfPresent(conexao.usuarioId, (id, conexoes) -> {
+            conexoes.remove(conexao);
+            return conexoes.isEmpty() ? null : conexoes;
+        });
+    }
+
+    private static final class Conexao {
+        // Marca o heartbeat na fila (ArrayBlockingQueue não aceita null)
+        private static final NotificacaoDTO HEARTBEAT = new NotificacaoDTO(null, null, null, null, false, null);
+
+        private final Long usuarioId;
+        private final SseEmitter emitter;
+        private final Queue<NotificacaoDTO> fila;
+        private final AtomicBoolean enviando = new AtomicBoolean(true); // liberada após o reenvio inicial
+        // IDs reenviados na abertura: podem estar também na fila, publicados durante o reenvio
+        private final Set<Long> reenviadas = new HashSet<>();
+        private LocalDateTime cursor; // maior data de envio entregue; só a thread que detém o envio mexe
+        private volatile boolean encerrada = false;
+
+        Conexao(Long usuarioId, SseEmitter emitter, int capacidade, LocalDateTime cursor) {
+            this.usuarioId = usuarioId;
+            this.emitter = emitter;
+            this.fila = new ArrayBlockingQueue<>(capacidade);
+            this.cursor = cursor;
+        }
+
+        boolean enfileirar(NotificacaoDTO notificacao) {
+            return !encerrada && fila.offer(notificacao == null ? HEARTBEAT : notificacao);
+        }
+
+        boolean reservarEnvio() {
+            return !encerrada && enviando.compareAndSet(false, true);
+        }
+
+        void liberar() {
+            enviando.set(false);
+        }
+
+        boolean temPendentes() {
+            return !encerrada && !fila.isEmpty();
+        }
+
+        void esvaziarFila() {
+            try {
+                NotificacaoDTO n;
+                while (!encerrada && (n = fila.poll()) != null) {
+                    if (n == HEARTBEAT) {
+                        emitter.send(SseEmitter.event().comment("ping"));
+                    } else if (!reenviadas.remove(n.id())) { // ignora o que já saiu no reenvio
+                        enviarAgora(n);
+                    }
+                }
+            } catch (IOException | IllegalStateException e) {
+                encerrar();
+            } finally {
+                liberar();
+            }
+        }
+
+        void reenviar(NotificacaoDTO n) throws IOException {
+            enviarAgora(n);
+            reenviadas.add(n.id());
+        }
+
+        void enviarAgora(NotificacaoDTO n) throws IOException {
+            // O cursor não recua: uma notificação atrasada não faz o próximo reenvio voltar mais
+            if (cursor == null || n.dataEnvio().isAfter(cursor)) cursor = n.dataEnvio();
+            emitter.send(SseEmitter.event()
+                    .id(cursor.toString())
+                    .name("notificacao")
+                    .data(n));
+        }
+
+        void encerrar() {
+            if (!encerrada) {
+                encerrada = true;
+                fila.clear();
+                emitter.complete();
+            }
+        }
+    }
+}
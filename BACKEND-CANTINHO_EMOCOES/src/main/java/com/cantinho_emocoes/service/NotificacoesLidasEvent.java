@@ -0,0 +1,6 @@
+package com.cantinho_emocoes.service;
+
+/**
+ * Publicado após uma marcação de notificações como lidas, com quantas linhas o UPDATE alterou.
+ */
+public record NotificacoesLidasEvent(Long usuarioId, int quantidade) {}
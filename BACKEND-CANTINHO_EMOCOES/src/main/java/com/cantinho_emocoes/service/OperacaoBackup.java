@@ -0,0 +1,78 @@
+package com.cantinho_emocoes.service;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Acompanhamento de um backup ou restauração em andamento (consultado pelo painel do admin).
+ */
+public class OperacaoBackup {
+
+    public enum Tipo { BACKUP, RESTAURACAO }
+    public enum Status { EM_ANDAMENTO, CONCLUIDA, FALHOU }
+
+    private final String id = UUID.randomUUID().toString();
+    private final Tipo tipo;
+    private final String descricao;
+    private final Long bytesTotais; // null quando o tamanho final não é conhecido
+    private final LocalDateTime inicio = LocalDateTime.now();
+    private final AtomicLong bytesProcessados = new AtomicLong();
+    private volatile Status status = Status.EM_ANDAMENTO;
+    private volatile String etapa = "Iniciando";
+    private volatile LocalDateTime fim;
+    private volatile String erro;
+
+    public OperacaoBackup(Tipo tipo, String descricao, Long bytesTotais) {
+        this.tipo = tipo;
+        this.descricao = descricao;
+        this.bytesTotais = bytesTotais;
+    }
+
+    public void adicionarBytes(long quantidade) {
+        bytesProcessados.addAndGet(quantidade);
+    }
+
+    public void setEtapa(String etapa) {
+        this.etapa = etapa;
+    }
+
+    // Etapa com progresso próprio (ex.: aplicar o upload depois de recebê-lo): a contagem recomeça
+    public void iniciarEtapa(String etapa) {
+        bytesProcessados.set(0);
+        this.etapa = etapa;
+    }
+
+    public void concluir() {
+        this.etapa = "Concluída";
+        this.status = Status.CONCLUIDA;
+        this.fim = LocalDateTime.now();
+    }
+
+    public void falhar(String erro) {
+        this.erro = erro;
+        this.status = Status.FALHOU;
+        this.fim = LocalDateTime.now();
+    }
+
+    public boolean isFinalizada() {
+        return status != Status.EM_ANDAMENTO;
+    }
+
+    // Getters (serializados no endpoint de progresso)
+    public String getId() { return id; }
+    public Tipo getTipo() { return tipo; }
+    public String getDescricao() { return descricao; }
+    public Long getBytesTotais() { return bytesTotais; }
+    public LocalDateTime getInicio() { return inicio; }
+    public long getBytesProcessados() { return bytesProcessados.get(); }
+    public Status getStatus() { return status; }
+    public String getEtapa() { return etapa; }
+    public LocalDateTime getFim() { return fim; }
+    public String getErro() { return erro; }
+
+    public Integer getPercentual() {
+        if (bytesTotais == null || bytesTotais <= 0) return null;
+        return (int) Math.min(100, bytesProcessados.get() * 100 / bytesTotais);
+    }
+}
@@ -0,0 +1,120 @@
+package com.cantinho_emocoes.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Manutenção das tabelas particionadas por mês (criadas em db/migration).
+ * Cria as partições futuras e descarta as expiradas inteiras, com DETACH + DROP,
+ * em vez de apagar linha a linha (sem DELETE em massa e sem carga extra de VACUUM).
+ *
+ * As tabelas não têm partição DEFAULT (V9 e V10): uma linha sem partição do mês é recusada.
+ * Por isso os meses seguintes são criados também na inicialização, e não só no job diário.
+ */
+@Service
+public class ParticionamentoService {
+
+    private static final Logger log = LoggerFactory.getLogger(ParticionamentoService.class);
+    private static final DateTimeFormatter FORMATO_MES = DateTimeFormatter.ofPattern("yyyyMM");
+
+    // Quantos meses (incluindo o atual) ficam sempre com partição pronta
+    private static final int MESES_A_FRENTE = 4;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.notificacoes.retencao-meses:12}")
+    private int retencaoNotificacoesMeses;
+
+    public ParticionamentoService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Scheduled(cron = "${app.particoes.cron:0 30 3 * * *}")
+    public void manterParticoes() {
+        criarParticoesFuturas("notificacoes");
+        descartarParticoesExpiradas("notificacoes", retencaoNotificacoesMeses);
+        // Diários não expiram: meses antigos são arquivados à mão (DETACH PARTITION ... CONCURRENTLY, ver db/migration/V8)
+        criarParticoesFuturas("diarios");
+    }
+
+    // A aplicação pode ter ficado parada além dos meses já prontos
+    @EventListener(ApplicationReadyEvent.class)
+    public void criarParticoesNaInicializacao() {
+        criarParticoesFuturas("notificacoes");
+        criarParticoesFuturas("diarios");
+    }
+
+    public void criarParticoesFuturas(String tabela) {
+        jdbcTemplate.queryForObject("SELECT criar_particoes_mensais(?, current_date, ?)::text",
+                String.class, tabela, MESES_A_FRENTE);
+    }
+
+    /** Cria, se ainda não existir, a partição do mês da data (para linhas gravadas fora dos meses prontos). */
+    public void garantirParticao(String tabela, LocalDate dia) {
+        jdbcTemplate.queryForObject("SELECT criar_particoes_mensais(?, ?, 1)::text", String.class, tabela, dia);
+    }
+
+    /**
+     * Descarta as partições cujo mês inteiro é anterior ao limite de retenção.
+     * O DETACH é CONCURRENTLY: não bloqueia leituras e escritas na tabela-mãe, mas não roda dentro
+     * de transação (cada comando aqui é confirmado sozinho).
+     * @return Quantidade de partições removidas.
+     */
+    public int descartarParticoesExpiradas(String tabela, int retencaoMeses) {
+        if (retencaoMeses <= 0) return 0; // retenção desativada
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("DETACH PARTITION ... CONCURRENTLY não roda dentro de uma transação.");
+        }
+
+        YearMonth limite = YearMonth.from(LocalDate.now()).minusMonths(retencaoMeses);
+        int removidas = 0;
+
+        for (String particao : listarParticoesMensais(tabela)) {
+            YearMonth mes = mesDaParticao(tabela, particao);
+            if (mes != null && mes.isBefore(limite)) {
+                // Nomes vêm do catálogo e seguem o padrão <tabela>_pAAAAMM, seguros para concatenar.
+                // Um DETACH CONCURRENTLY interrompido deixa a partição pendente: só falta o FINALIZE
+                String modo = desanexacaoPendente(particao) ? " FINALIZE" : " CONCURRENTLY";
+                jdbcTemplate.execute("ALTER TABLE " + tabela + " DETACH PARTITION " + particao + modo);
+                jdbcTemplate.execute("DROP TABLE " + particao);
+                log.info("Partição {} descartada (retenção de {} meses).", particao, retencaoMeses);
+                removidas++;
+            }
+        }
+        return removidas;
+    }
+
+    public List<String> listarParticoesMensais(String tabela) {
+        return jdbcTemplate.queryForList(
+                "SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid " +
+                "WHERE i.inhparent = to_regclass(?) ORDER BY c.relname",
+                String.class, tabela).stream()
+                .filter(nome -> mesDaParticao(tabela, nome) != null)
+                .toList();
+    }
+
+    private boolean desanexacaoPendente(String particao) {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT i.inhdetachpending FROM pg_inherits i WHERE i.inhrelid = to_regclass(?)",
+                Boolean.class, particao));
+    }
+
+    private YearMonth mesDaParticao(String tabela, String particao) {
+        Matcher m = Pattern.compile(Pattern.quote(tabela) + "_p(\\d{6})").matcher(particao);
+        return m.matches() ? YearMonth.parse(m.group(1), FORMATO_MES) : null;
+    }
+}
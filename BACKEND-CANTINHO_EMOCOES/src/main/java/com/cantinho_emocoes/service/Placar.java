@@ -0,0 +1,160 @@
+package com.cantinho_emocoes.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Placar ordenado por pontos (maior primeiro; empate pelo menor id), em memória.
+ *
+ * É uma treap com o tamanho de cada subárvore: atualizar e a posição de um participante custam
+ * O(log n), e os k primeiros O(k + log n). Não é thread-safe: quem usa controla o acesso.
+ */
+public final class Placar {
+
+    public record Participante(Long id, long pontos) {}
+
+    private static final class No {
+        final Long id;
+        final long pontos;
+        final int prioridade = ThreadLocalRandom.current().nextInt();
+        No esquerda;
+        No direita;
+        int tamanho = 1;
+
+        No(Long id, long pontos) {
+            this.id = id;
+            this.pontos = pontos;
+        }
+    }
+
+    private final Map<Long, Long> pontosPorId = new HashMap<>();
+    private No raiz;
+
+    public int tamanho() {
+        return pontosPorId.size();
+    }
+
+    public Long pontos(Long id) {
+        return pontosPorId.get(id);
+    }
+
+    /** Define os pontos do participante (entra no placar se ainda não estiver). */
+    public void definir(Long id, long pontos) {
+        Long atual = pontosPorId.put(id, pontos);
+        if (atual != null) {
+            if (atual == pontos) return;
+            raiz = remover(raiz, id, atual);
+        }
+        No[] partes = dividir(raiz, id, pontos);
+        raiz = juntar(juntar(partes[0], new No(id, pontos)), partes[1]);
+    }
+
+    public void somar(Long id, long pontos) {
+        Long atual = pontosPorId.get(id);
+        definir(id, (atual != null ? atual : 0) + pontos);
+    }
+
+    public void remover(Long id) {
+        Long atual = pontosPorId.remove(id);
+        if (atual != null) raiz = remover(raiz, id, atual);
+    }
+
+    /**
+     * Posição no placar, com empate dividindo a posição (1, 1, 3...): 1 + quantos têm mais pontos.
+     * Null se o participante não está no placar.
+     */
+    public Integer posicao(Long id) {
+        Long pontos = pontosPorId.get(id);
+        return pontos == null ? null : acima(pontos) + 1;
+    }
+
+    /** Os k primeiros, em ordem. */
+    public List<Participante> primeiros(int k) {
+        List<Participante> lista = new ArrayList<>(Math.min(k, tamanho()));
+        Deque<No> pilha = new ArrayDeque<>();
+        No no = raiz;
+        while ((no != null || !pilha.isEmpty()) && lista.size() < k) {
+            while (no != null) {
+                pilha.push(no);
+                no = no.esquerda;
+            }
+            no = pilha.pop();
+            lista.add(new Participante(no.id, no.pontos));
+            no = no.direita;
+        }
+        return lista;
+    }
+
+    // Quantos participantes têm mais pontos que o valor informado
+    private int acima(long pontos) {
+        int total = 0;
+        No no = raiz;
+        while (no != null) {
+            if (no.pontos > pontos) {
+                total += tamanho(no.esquerda) + 1;
+                no = no.direita;
+            } else {
+                no = no.esquerda;
+            }
+        }
+        return total;
+    }
+
+    // Ordem do placar: mais pontos primeiro, depois menor id
+    private static boolean antes(Long id, long pontos, No no) {
+        return pontos != no.pontos ? pontos > no.pontos : id < no.id;
+    }
+
+    // [0]: os que vêm antes de (id, pontos); [1]: os demais
+    private static No[] dividir(No no, Long id, long pontos) {
+        if (no == null) return new No[] {null, null};
+        if (antes(id, pontos, no)) {
+            No[] partes = dividir(no.esquerda, id, pontos);
+            no.esquerda = partes[1];
+            atualizar(no);
+            return new No[] {partes[0], no};
+        }
+        No[] partes = dividir(no.direita, id, pontos);
+        no.direita = partes[0];
+        atualizar(no);
+        return new No[] {no, partes[1]};
+    }
+
+    private static No juntar(No a, No b) {
+        if (a == null) return b;
+        if (b == null) return a;
+        if (a.prioridade > b.prioridade) {
+            a.direita = juntar(a.direita, b);
+            atualizar(a);
+            return a;
+        }
+        b.esquerda = juntar(a, b.esquerda);
+        atualizar(b);
+        return b;
+    }
+
+    private static No remover(No no, Long id, long pontos) {
+        if (no == null) return null;
+        if (no.id.equals(id)) return juntar(no.esquerda, no.direita);
+        if (antes(id, pontos, no)) {
+            no.esquerda = remover(no.esquerda, id, pontos);
+        } else {
+            no.direita = remover(no.direita, id, pontos);
+        }
+        atualizar(no);
+        return no;
+    }
+
+    private static void atualizar(No no) {
+        no.tamanho = 1 + tamanho(no.esquerda) + tamanho(no.direita);
+    }
+
+    private static int tamanho(No no) {
+        return no == null ? 0 : no.tamanho;
+    }
+}
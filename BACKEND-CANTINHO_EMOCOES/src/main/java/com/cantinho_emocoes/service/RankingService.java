@@ -0,0 +1,223 @@
+package com.cantinho_emocoes.service;
+
+import com.cantinho_emocoes.dto.RankingDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Ranking de XP das crianças, por turma (alunos do mesmo responsável) ou da escola, no total ou na semana.
+ *
+ * Os placares ficam em memória (ver Placar) e são carregados do banco na inicialização; depois cada
+ * XpConcedidoEvent só reposiciona a criança. Consultar os k primeiros custa O(k) e a posição de um
+ * aluno O(log n), sem nenhum ORDER BY xp em usuarios.
+ *
+ * Os eventos trazem os totais (não os pontos ganhos) e XP nunca diminui: aplicar o maior valor torna a
+ * ordem de chegada dos eventos indiferente. Excluídos saem na hora (UsuariosExcluidosEvent); trocas
+ * de turma sem XP novo são corrigidas pela reconstrução diária.
+ */
+@Service
+public class RankingService {
+
+    private static final Logger log = LoggerFactory.getLogger(RankingService.class);
+
+    public enum Escopo {
+        TURMA, ESCOLA;
+
+        public static Escopo de(String valor) {
+            if (valor == null || valor.isBlank()) return TURMA;
+            for (Escopo e : values()) {
+                if (e.name().equalsIgnoreCase(valor)) return e;
+            }
+            throw new IllegalArgumentException("Escopo inválido: " + valor + ". Use turma ou escola.");
+        }
+    }
+
+    public enum Periodo {
+        TOTAL, SEMANA;
+
+        public static Periodo de(String valor) {
+            if (valor == null || valor.isBlank()) return TOTAL;
+            for (Periodo p : values()) {
+                if (p.name().equalsIgnoreCase(valor)) return p;
+            }
+            throw new IllegalArgumentException("Período inválido: " + valor + ". Use total ou semana.");
+        }
+    }
+
+    private record Aluno(Long id, String nome, String avatarUrl, Long responsavelId) {}
+
+    // Placares de um período: a escola inteira e um por turma
+    private static final class Placares {
+        final Placar escola = new Placar();
+        final Map<Long, Placar> turmas = new HashMap<>();
+
+        Placar turma(Long responsavelId) {
+            return turmas.computeIfAbsent(responsavelId, id -> new Placar());
+        }
+
+        void definir(Aluno aluno, long pontos) {
+            escola.definir(aluno.id(), pontos);
+            if (aluno.responsavelId() != null) turma(aluno.responsavelId()).definir(aluno.id(), pontos);
+        }
+
+        void remover(Aluno aluno) {
+            escola.remover(aluno.id());
+            removerDaTurma(aluno);
+        }
+
+        void removerDaTurma(Aluno aluno) {
+            if (aluno.responsavelId() == null) return;
+            Placar turma = turmas.get(aluno.responsavelId());
+            if (turma == null) return;
+            turma.remover(aluno.id());
+            if (turma.tamanho() == 0) turmas.remove(aluno.responsavelId());
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReadWriteLock trava = new ReentrantReadWriteLock();
+
+    private Map<Long, Aluno> alunos = new HashMap<>();
+    private Placares total = new Placares();
+    private Placares semanal = new Placares();
+    private LocalDate semana = GamificacaoService.inicioDaSemana(LocalDate.now());
+
+    public RankingService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** Carrega os placares do banco: na inicialização e uma vez por dia. */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${app.ranking.reconstruir-cron:0 45 3 * * *}")
+    public void reconstruir() {
+        LocalDate semanaAtual = GamificacaoService.inicioDaSemana(LocalDate.now());
+        Map<Long, Aluno> novosAlunos = new HashMap<>();
+        Placares novoTotal = new Placares();
+        Placares novoSemanal = new Placares();
+
+        trava.writeLock().lock(); // eventos esperam a recarga, para nenhum se perder na troca
+        try {
+            jdbcTemplate.query("SELECT id, nome, avatar_url, responsavel_id, xp FROM usuarios WHERE perfil = 'CRIANCA' AND excluido_em IS NULL", rs -> {
+                long responsavelId = rs.getLong("responsavel_id");
+                Aluno aluno = new Aluno(rs.getLong("id"), rs.getString("nome"), rs.getString("avatar_url"),
+                        rs.wasNull() ? null : responsavelId);
+                novosAlunos.put(aluno.id(), aluno);
+                novoTotal.definir(aluno, rs.getInt("xp"));
+            });
+            jdbcTemplate.query("""
+                    SELECT usuario_id, SUM(pontos) AS pontos
+                      FROM lancamentos_xp
+                     WHERE data_lancamento >= ?
+                     GROUP BY usuario_id
+                    """, rs -> {
+                Aluno aluno = novosAlunos.get(rs.getLong("usuario_id"));
+                if (aluno != null) novoSemanal.definir(aluno, rs.getLong("pontos"));
+            }, Timestamp.valueOf(semanaAtual.atStartOfDay()));
+
+            alunos = novosAlunos;
+            total = novoTotal;
+            semanal = novoSemanal;
+            semana = semanaAtual;
+        } finally {
+            trava.writeLock().unlock();
+        }
+        log.info("Ranking carregado: {} alunos, {} com XP na semana de {}.", novosAlunos.size(),
+                novoSemanal.escola.tamanho(), semanaAtual);
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void aoConcederXp(XpConcedidoEvent evento) {
+        trava.writeLock().lock();
+        try {
+            if (evento.semana().isAfter(semana)) { // virou a semana: o placar semanal recomeça
+                semana = evento.semana();
+                semanal = new Placares();
+            }
+
+            Aluno aluno = new Aluno(evento.usuarioId(), evento.nome(), evento.avatarUrl(), evento.responsavelId());
+            Aluno anterior = alunos.put(aluno.id(), aluno);
+            if (anterior != null && !Objects.equals(anterior.responsavelId(), aluno.responsavelId())) {
+                total.removerDaTurma(anterior);
+                semanal.removerDaTurma(anterior);
+            }
+
+            total.definir(aluno, maior(total.escola.pontos(aluno.id()), evento.xp()));
+            if (evento.semana().equals(semana)) {
+                semanal.definir(aluno, maior(semanal.escola.pontos(aluno.id()), evento.xpSemana()));
+            }
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
+    public void aoExcluirUsuarios(UsuariosExcluidosEvent evento) {
+        trava.writeLock().lock();
+        try {
+            for (Long id : evento.usuarioIds()) {
+                Aluno aluno = alunos.remove(id);
+                if (aluno != null) {
+                    total.remover(aluno);
+                    semanal.remover(aluno);
+                }
+            }
+        } finally {
+            trava.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @param responsavelId turma consultada (ignorado no escopo ESCOLA)
+     * @param alunoId       aluno cuja posição também deve voltar (opcional)
+     */
+    public RankingDTO consultar(Escopo escopo, Periodo periodo, Long responsavelId, int limite, Long alunoId) {
+        trava.readLock().lock();
+        try {
+            Placares placares = periodo == Periodo.SEMANA ? semanal : total;
+            // Semana que já terminou sem nenhum XP novo: o placar guardado é da semana passada
+            boolean semanaVencida = periodo == Periodo.SEMANA
+                    && GamificacaoService.inicioDaSemana(LocalDate.now()).isAfter(semana);
+            Placar placar = semanaVencida ? new Placar()
+                    : escopo == Escopo.ESCOLA ? placares.escola
+                    : placares.turmas.getOrDefault(responsavelId, new Placar());
+
+            List<RankingDTO.Posicao> primeiros = placar.primeiros(limite).stream()
+                    .map(p -> posicao(placar, p.id()))
+                    .toList();
+            RankingDTO.Posicao doAluno = alunoId == null ? null : posicao(placar, alunoId);
+            return new RankingDTO(escopo.name(), periodo.name(),
+                    periodo == Periodo.SEMANA ? GamificacaoService.inicioDaSemana(LocalDate.now()) : null,
+                    placar.tamanho(), primeiros, doAluno);
+        } finally {
+            trava.readLock().unlock();
+        }
+    }
+
+    private RankingDTO.Posicao posicao(Placar placar, Long alunoId) {
+        Aluno aluno = alunos.get(alunoId);
+        Long pontos = placar.pontos(alunoId);
+        return new RankingDTO.Posicao(placar.posicao(alunoId), alunoId,
+                aluno != null ? aluno.nome() : null, aluno != null ? aluno.avatarUrl() : null,
+                pontos != null ? pontos : 0);
+    }
+
+    private static long maior(Long atual, long novo) {
+        return atual == null ? novo : Math.max(atual, novo);
+    }
+}
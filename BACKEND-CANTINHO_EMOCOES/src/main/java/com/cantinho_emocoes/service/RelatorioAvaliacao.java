@@ -0,0 +1,60 @@
+package com.cantinho_emocoes.service;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Geração de um relatório de avaliação em PDF (consultada pelo link de download).
+ * Depois de concluída, guarda o PDF enquanto estiver no cache do RelatorioAvaliacaoService.
+ */
+public class RelatorioAvaliacao {
+
+    public enum Status { EM_ANDAMENTO, CONCLUIDO, FALHOU }
+
+    private final String id = UUID.randomUUID().toString();
+    private final Long alunoId;
+    private final String unidade;
+    private final String chave; // aluno + unidade + versão das avaliações
+    private final LocalDateTime inicio = LocalDateTime.now();
+    private volatile Status status = Status.EM_ANDAMENTO;
+    private volatile LocalDateTime fim;
+    private volatile String erro;
+    private volatile byte[] pdf;
+
+    public RelatorioAvaliacao(Long alunoId, String unidade, String chave) {
+        this.alunoId = alunoId;
+        this.unidade = unidade;
+        this.chave = chave;
+    }
+
+    public void concluir(byte[] pdf) {
+        this.pdf = pdf;
+        this.status = Status.CONCLUIDO;
+        this.fim = LocalDateTime.now();
+    }
+
+    public void falhar(String erro) {
+        this.erro = erro;
+        this.status = Status.FALHOU;
+        this.fim = LocalDateTime.now();
+    }
+
+    // Getters (serializados no endpoint de acompanhamento)
+    public String getId() { return id; }
+    public Long getAlunoId() { return alunoId; }
+    public String getUnidade() { return unidade; }
+    @JsonIgnore
+    public String getChave() { return chave; }
+    public LocalDateTime getInicio() { return inicio; }
+    public Status getStatus() { return status; }
+    public LocalDateTime getFim() { return fim; }
+    public String getErro() { return erro; }
+    @JsonIgnore
+    public byte[] getPdf() { return pdf; }
+
+    public Integer getTamanho() {
+        return pdf == null ? null : pdf.length;
+    }
+}
@@ -0,0 +1,256 @@
+package com.cantinho_emocoes.service;
+
+import com.cantinho_emocoes.dto.VersaoAvaliacaoDTO;
+import com.cantinho_emocoes.model.Avaliacao;
+import com.cantinho_emocoes.model.TipoAvaliacao;
+import com.cantinho_emocoes.model.Usuario;
+import com.cantinho_emocoes.repository.AvaliacaoRepository;
+import com.cantinho_emocoes.repository.UsuarioRepository;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.pdf.BaseFont;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.Context;
+import org.xhtmlrenderer.pdf.ITextRenderer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Relatório de avaliação de um aluno numa unidade (as quatro áreas, com o texto das questões) em PDF.
+ *
+ * A geração roda num pool próprio: o endpoint só registra o pedido e devolve o link de
+ * acompanhamento, sem prender threads do Tomcat. O template Thymeleaf é compilado uma vez
+ * (cache do próprio Thymeleaf) e cada thread do pool reaproveita o seu ITextRenderer, com as
+ * fontes já registradas. O PDF fica em cache enquanto a versão das avaliações não mudar.
+ */
+@Service
+public class RelatorioAvaliacaoService {
+
+    private static final Logger log = LoggerFactory.getLogger(RelatorioAvaliacaoService.class);
+    private static final String TEMPLATE = "relatorios/avaliacao";
+    private static final Locale PT_BR = Locale.forLanguageTag("pt-BR");
+
+    public record Item(String numero, String texto, String resposta) {}
+
+    public record Secao(String sigla, String titulo, LocalDateTime dataAvaliacao, String observacao, List<Item> itens) {
+        public long total(String resposta) {
+            return itens.stream().filter(i -> resposta.equals(i.resposta())).count();
+        }
+    }
+
+    private final AvaliacaoRepository avaliacaoRepository;
+    private final UsuarioRepository usuarioRepository;
+    private final QuestoesAvaliacao questoesAvaliacao;
+    private final ITemplateEngine templateEngine;
+    private final ExecutorService renderizacaoExecutor;
+    private final List<Path> fontes;
+    private final ThreadLocal<ITextRenderer> renderizadores = ThreadLocal.withInitial(this::criarRenderizador);
+
+    // Cache LRU por chave (aluno + unidade + versão); os pedidos em andamento também ficam aqui,
+    // para dois pedidos iguais não gerarem o mesmo PDF duas vezes
+    private final Map<String, RelatorioAvaliacao> porChave;
+    private final Map<String, RelatorioAvaliacao> porId = new ConcurrentHashMap<>();
+
+    public RelatorioAvaliacaoService(AvaliacaoRepository avaliacaoRepository, UsuarioRepository usuarioRepository,
+                                     QuestoesAvaliacao questoesAvaliacao, ITemplateEngine templateEngine,
+                                     @Value("${app.relatorios.threads:2}") int threads,
+                                     @Value("${app.relatorios.cache-max:200}") int maxCache,
+                                     @Value("${app.relatorios.fontes:}") String pastaFontes) {
+        this.avaliacaoRepository = avaliacaoRepository;
+        this.usuarioRepository = usuarioRepository;
+        this.questoesAvaliacao = questoesAvaliacao;
+        this.templateEngine = templateEngine;
+        this.renderizacaoExecutor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "relatorios-pdf");
+                    t.setDaemon(true);
+                    return t;
+                });
+        this.fontes = listarFontes(pastaFontes);
+        this.porChave = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, RelatorioAvaliacao> maisAntigo) {
+                boolean remover = size() > maxCache && maisAntigo.getValue().getStatus() != RelatorioAvaliacao.Status.EM_ANDAMENTO;
+                if (remover) {
+                    porId.remove(maisAntigo.getValue().getId());
+                }
+                return remover;
+            }
+        };
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        renderizacaoExecutor.shutdownNow();
+    }
+
+    /**
+     * Registra o pedido e gera o PDF em segundo plano. Se o mesmo relatório (com as mesmas
+     * avaliações) já foi gerado ou está sendo gerado, devolve esse mesmo pedido.
+     */
+    public RelatorioAvaliacao solicitar(Long alunoId, String unidade) {
+        String chave = chave(alunoId, unidade);
+        RelatorioAvaliacao novo;
+        synchronized (porChave) {
+            RelatorioAvaliacao existente = porChave.get(chave);
+            if (existente != null && existente.getStatus() != RelatorioAvaliacao.Status.FALHOU) {
+                return existente;
+            }
+            novo = new RelatorioAvaliacao(alunoId, unidade, chave);
+            registrar(novo);
+        }
+
+        renderizacaoExecutor.execute(() -> {
+            try {
+                novo.concluir(renderizar(alunoId, unidade));
+            } catch (Exception e) {
+                log.error("Falha ao gerar o relatório do aluno {} ({}).", alunoId, unidade, e);
+                novo.falhar(e.getMessage());
+            }
+        });
+        return novo;
+    }
+
+    /**
+     * PDF atual do aluno na unidade, na thread atual: vem do cache ou é gerado agora (e guardado).
+     * Usado pelos lotes, que já rodam no seu próprio pool.
+     */
+    public byte[] obterPdf(Long alunoId, String unidade) throws IOException {
+        String chave = chave(alunoId, unidade);
+        synchronized (porChave) {
+            RelatorioAvaliacao existente = porChave.get(chave);
+            if (existente != null && existente.getStatus() == RelatorioAvaliacao.Status.CONCLUIDO) {
+                return existente.getPdf();
+            }
+        }
+        byte[] pdf = renderizar(alunoId, unidade);
+        RelatorioAvaliacao gerado = new RelatorioAvaliacao(alunoId, unidade, chave);
+        gerado.concluir(pdf);
+        synchronized (porChave) {
+            RelatorioAvaliacao existente = porChave.get(chave);
+            if (existente == null || existente.getStatus() == RelatorioAvaliacao.Status.FALHOU) {
+                registrar(gerado);
+            }
+        }
+        return pdf;
+    }
+
+    public Optional<RelatorioAvaliacao> buscar(String id) {
+        return Optional.ofNullable(porId.get(id));
+    }
+
+    /** Gera o PDF na thread atual (sem passar pelo cache). */
+    public byte[] renderizar(Long alunoId, String unidade) throws IOException {
+        Usuario aluno = usuarioRepository.findById(alunoId)
+                .orElseThrow(() -> new ResourceNotFoundException("Aluno não encontrado"));
+        Map<TipoAvaliacao, Avaliacao> porTipo = new LinkedHashMap<>();
+        for (Avaliacao avaliacao : avaliacaoRepository.findComRespostas(alunoId, unidade)) {
+            porTipo.putIfAbsent(avaliacao.getTipo(), avaliacao);
+        }
+
+        List<Secao> secoes = new ArrayList<>();
+        questoesAvaliacao.todos().forEach((tipo, modelo) -> {
+            Avaliacao avaliacao = porTipo.get(tipo);
+            Map<String, String> respostas = avaliacao != null && avaliacao.getRespostas() != null
+                    ? avaliacao.getRespostas() : Map.of();
+            List<Item> itens = modelo.questoes().entrySet().stream()
+                    .map(q -> new Item(q.getKey(), q.getValue(), respostas.get(q.getKey())))
+                    .toList();
+            secoes.add(new Secao(tipo.name(), modelo.titulo(),
+                    avaliacao != null ? avaliacao.getDataAvaliacao() : null,
+                    avaliacao != null ? avaliacao.getObservacao() : null, itens));
+        });
+
+        Context contexto = new Context(PT_BR);
+        contexto.setVariable("aluno", aluno);
+        contexto.setVariable("unidade", unidade);
+        contexto.setVariable("secoes", secoes);
+        contexto.setVariable("geradoEm", LocalDateTime.now());
+        String html = templateEngine.process(TEMPLATE, contexto);
+
+        ITextRenderer renderizador = renderizadores.get();
+        renderizador.setDocumentFromString(html);
+        renderizador.layout();
+        ByteArrayOutputStream pdf = new ByteArrayOutputStream(64 * 1024);
+        try {
+            renderizador.createPDF(pdf);
+        } catch (DocumentException e) {
+            throw new IOException("Falha ao montar o PDF: " + e.getMessage(), e);
+        }
+        return pdf.toByteArray();
+    }
+
+    // Chamado com o lock de porChave. Versões anteriores do mesmo relatório não serão mais pedidas.
+    private void registrar(RelatorioAvaliacao relatorio) {
+        String prefixo = relatorio.getAlunoId() + "|" + relatorio.getUnidade() + "|";
+        porChave.values().removeIf(r -> {
+            boolean antigo = r.getChave().startsWith(prefixo) && r.getStatus() != RelatorioAvaliacao.Status.EM_ANDAMENTO;
+            if (antigo) porId.remove(r.getId());
+            return antigo;
+        });
+        porChave.put(relatorio.getChave(), relatorio);
+        porId.put(relatorio.getId(), relatorio);
+    }
+
+    // Salvar uma avaliação sempre atualiza dataAvaliacao, então a chave muda junto com o conteúdo
+    private String chave(Long alunoId, String unidade) {
+        String nome = usuarioRepository.findById(alunoId)
+                .orElseThrow(() -> new ResourceNotFoundException("Aluno não encontrado"))
+                .getNome();
+        VersaoAvaliacaoDTO versao = avaliacaoRepository.versao(alunoId, unidade);
+        return alunoId + "|" + unidade + "|" + versao.total() + "|" + versao.ultimaAlteracao() + "|"
+                + versao.maiorId() + "|" + nome;
+    }
+
+    // BaseFont guarda as fontes já lidas: cada renderizador só registra as que já estão em memória
+    private ITextRenderer criarRenderizador() {
+        ITextRenderer renderizador = new ITextRenderer();
+        for (Path fonte : fontes) {
+            try {
+                renderizador.getFontResolver().addFont(fonte.toString(), BaseFont.IDENTITY_H, BaseFont.EMBEDDED);
+            } catch (Exception e) {
+                log.warn("Fonte ignorada nos relatórios ({}): {}", fonte, e.getMessage());
+            }
+        }
+        return renderizador;
+    }
+
+    private static List<Path> listarFontes(String pastaFontes) {
+        if (pastaFontes == null || pastaFontes.isBlank()) {
+            return List.of();
+        }
+        Path pasta = Path.of(pastaFontes);
+        if (!Files.isDirectory(pasta)) {
+            log.warn("Pasta de fontes dos relatórios não encontrada: {}. Usando as fontes padrão do PDF.", pasta);
+            return List.of();
+        }
+        try (Stream<Path> arquivos = Files.list(pasta)) {
+            return arquivos.filter(f -> f.getFileName().toString().toLowerCase().matches(".*\\.(ttf|otf)"))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            log.warn("Não foi possível listar as fontes em {}: {}", pasta, e.getMessage());
+            return List.of();
+        }
+    }
+}
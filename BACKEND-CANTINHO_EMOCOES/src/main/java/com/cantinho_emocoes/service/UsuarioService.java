@@ -7,6 +7,7 @@ import com.cantinho_emocoes.model.Perfil;
 import com.cantinho_emocoes.model.Usuario;
 import com.cantinho_emocoes.repository.UsuarioRepository;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
@@ -26,28 +27,49 @@ public class UsuarioService {
     private final UsuarioRepository usuarioRepository;
     private final PasswordEncoder passwordEncoder;
     private final GmailEmailService emailService;
+    private final CaixaSaidaEmailService caixaSaidaEmailService;
+    private final GamificacaoService gamificacaoService;
+    private final CacheEntidadesService cacheEntidades;
+    private final ApplicationEventPublisher eventPublisher;
     
     @Value("${app.frontend.url}")
     private String frontendBaseUrl;
 
-    public UsuarioService(UsuarioRepository usuarioRepository, PasswordEncoder passwordEncoder, GmailEmailService emailService) {
+    public UsuarioService(UsuarioRepository usuarioRepository, PasswordEncoder passwordEncoder, GmailEmailService emailService,
+                          CaixaSaidaEmailService caixaSaidaEmailService, GamificacaoService gamificacaoService,
+                          CacheEntidadesService cacheEntidades, ApplicationEventPublisher eventPublisher) {
         this.usuarioRepository = usuarioRepository;
         this.passwordEncoder = passwordEncoder;
         this.emailService = emailService;
+        this.caixaSaidaEmailService = caixaSaidaEmailService;
+        this.gamificacaoService = gamificacaoService;
+        this.cacheEntidades = cacheEntidades;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional(readOnly = true)
     public PerfilDTO getPerfilDoUsuario(String email) {
         Usuario usuario = usuarioRepository.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("Usuário não encontrado: " + email));
+        return montarPerfil(usuario);
+    }
+
+    // Perfil de uma criança (XP e nível vêm dos diários, atividades e tarefas; ver GamificacaoService)
+    @Transactional(readOnly = true)
+    public PerfilDTO getPerfilDoDependente(Long id) {
+        Usuario crianca = usuarioRepository.findById(id)
+            .orElseThrow(() -> new RuntimeException("Aluno não encontrado"));
+        return montarPerfil(crianca);
+    }
 
+    private PerfilDTO montarPerfil(Usuario usuario) {
         return new PerfilDTO(
             usuario.getNome(),
             usuario.getEmail(),
             usuario.getAvatarUrl(),
-            1, // Nivel fictício
-            0, // XP fictício
-            100,
+            usuario.getNivel(),
+            usuario.getXp(),
+            gamificacaoService.metaDoNivel(usuario.getNivel()),
             Collections.emptySet()
         );
     }
@@ -69,6 +91,8 @@ public class UsuarioService {
         crianca.setResponsavel(responsavel);
         crianca.setDataCadastro(LocalDate.now());
 
+        // A criança não entra na lista do responsável: a coleção em cache fica desatualizada
+        cacheEntidades.removerDependentes(responsavel.getId());
         return usuarioRepository.save(crianca);
     }
 
@@ -107,7 +131,7 @@ public class UsuarioService {
     public void excluirDependente(Long id) {
         Usuario crianca = usuarioRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("Aluno não encontrado"));
-        usuarioRepository.delete(crianca);
+        excluir(crianca);
     }
 
     // --- RECUPERAÇÃO DE SENHA ---
@@ -123,7 +147,9 @@ public class UsuarioService {
             usuarioRepository.save(usuario);
 
             String resetLink = frontendBaseUrl + "/resetar-senha?token=" + token;
-            emailService.sendPasswordResetEmail(usuario.getEmail(), usuario.getNome(), resetLink);
+            // O e-mail vai para a caixa de saída na mesma transação; o envio acontece em segundo plano
+            caixaSaidaEmailService.enfileirar(usuario.getEmail(), "Redefina sua Senha",
+                    emailService.montarEmailRedefinicaoSenha(usuario.getNome(), resetLink));
         }
     }
 
@@ -153,14 +179,14 @@ public class UsuarioService {
 
     @Transactional
     public void excluirContaFamilia(Usuario responsavel) {
-        usuarioRepository.delete(responsavel);
+        excluir(responsavel);
     }
 
     @Transactional
     public void excluirContaFamilia(String email) {
         Usuario responsavel = usuarioRepository.findByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("Usuário não encontrado."));
-        usuarioRepository.delete(responsavel);
+        excluir(responsavel);
     }
 
     // --- NOVOS MÉTODOS PARA O ADMINISTRADOR ---
@@ -209,6 +235,14 @@ public class UsuarioService {
             throw new RuntimeException("Não é permitido excluir contas de Administrador.");
         }
 
-        usuarioRepository.delete(usuario);
+        excluir(usuario);
+    }
+
+    // Exclusão lógica do usuário e dos dependentes: somem na hora (ver @SQLRestriction em Usuario)
+    // e os dados são apagados depois, em lotes, pelo ExpurgoUsuariosService
+    private void excluir(Usuario usuario) {
+        List<Long> ids = usuarioRepository.findIdsDaFamilia(usuario.getId());
+        usuarioRepository.marcarComoExcluidos(ids, LocalDateTime.now());
+        eventPublisher.publishEvent(new UsuariosExcluidosEvent(ids));
     }
 }
\ No newline at end of file
@@ -0,0 +1,10 @@
+package com.cantinho_emocoes.service;
+
+import java.util.List;
+
+/**
+ * Publicado pela UsuarioService ao marcar usuários como excluídos (o próprio e, se for um responsável,
+ * os dependentes). Os dados continuam no banco até o ExpurgoUsuariosService; os ouvintes usam
+ * @TransactionalEventListener para só reagir após o commit.
+ */
+public record UsuariosExcluidosEvent(List<Long> usuarioIds) {}
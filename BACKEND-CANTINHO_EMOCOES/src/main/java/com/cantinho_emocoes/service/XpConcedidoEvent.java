@@ -0,0 +1,11 @@
+package com.cantinho_emocoes.service;
+
+import java.time.LocalDate;
+
+/**
+ * Publicado pela GamificacaoService quando o saldo de XP de uma criança muda, já com os totais
+ * (geral e da semana que começa em {@code semana}), e não só os pontos ganhos.
+ * Os ouvintes usam @TransactionalEventListener para só reagir após o commit.
+ */
+public record XpConcedidoEvent(Long usuarioId, Long responsavelId, String nome, String avatarUrl,
+                               int xp, int nivel, LocalDate semana, int xpSemana) {}
@@ -0,0 +1,34 @@
+-- =============================================================================
+-- NOTIFICACOES SEM PARTICAO DEFAULT
+-- A V2 cria a particao DEFAULT notificacoes_padrao para as datas fora dos meses criados.
+-- Basta uma linha nela (ex.: o ParticionamentoService ficou sem rodar e o mes chegou sem
+-- particao) para todo CREATE TABLE ... PARTITION OF daquele mes falhar, e com ela o
+-- PostgreSQL recusa o DETACH PARTITION ... CONCURRENTLY do expurgo. As linhas dela vao
+-- para as particoes mensais e ela e removida; as particoes futuras sao criadas na
+-- inicializacao e todo dia pelo ParticionamentoService.
+-- Migracao Flyway. Idempotente: sem a notificacoes_padrao, nao faz nada.
+-- =============================================================================
+
+DO $$
+DECLARE
+    mes date;
+BEGIN
+    IF to_regclass('notificacoes_padrao') IS NULL THEN
+        RETURN;
+    END IF;
+
+    -- Sai e volta pela tabela principal: o registro de alteracoes (V3) ve a remocao e a reinsercao
+    CREATE TEMP TABLE notificacoes_movidas ON COMMIT DROP AS
+        SELECT id, usuario_id, mensagem, link, data_envio, lido, cor FROM notificacoes_padrao;
+    DELETE FROM notificacoes WHERE tableoid = 'notificacoes_padrao'::regclass;
+
+    ALTER TABLE notificacoes DETACH PARTITION notificacoes_padrao;
+    DROP TABLE notificacoes_padrao;
+
+    FOR mes IN SELECT DISTINCT date_trunc('month', data_envio)::date FROM notificacoes_movidas LOOP
+        PERFORM criar_particoes_mensais('notificacoes', mes, 1);
+    END LOOP;
+
+    INSERT INTO notificacoes (id, usuario_id, mensagem, link, data_envio, lido, cor)
+        SELECT id, usuario_id, mensagem, link, data_envio, lido, cor FROM notificacoes_movidas;
+END $$;
@@ -0,0 +1,177 @@
+-- =============================================================================
+-- ESQUEMA INICIAL
+-- Tabelas como o Hibernate as criava (ddl-auto=update) quando o Flyway foi adotado.
+-- Bancos que ja existiam recebem so o baseline nesta versao; os ajustes seguintes
+-- (particionamento, gatilhos, indices) sao idempotentes e rodam sobre eles.
+-- =============================================================================
+
+
+create table atividades (
+    aluno_id bigint not null,
+    data_realizacao timestamp(6),
+    id bigint generated by default as identity,
+    conteudo varchar(255),
+    desenho_base64 TEXT,
+    tipo varchar(255),
+    primary key (id)
+);
+
+create table avaliacao_respostas (
+    avaliacao_id bigint not null,
+    numero_questao varchar(255) not null,
+    resposta varchar(255),
+    primary key (avaliacao_id, numero_questao)
+);
+
+create table avaliacoes (
+    aluno_id bigint not null,
+    data_avaliacao timestamp(6),
+    id bigint generated by default as identity,
+    observacao varchar(255),
+    tipo varchar(255) check (tipo in ('EF','EO','TS','ET')),
+    unidade varchar(255),
+    primary key (id)
+);
+
+create table caixa_saida_emails (
+    tentativas integer not null,
+    data_criacao timestamp(6) not null,
+    data_envio timestamp(6),
+    id bigint generated by default as identity,
+    proxima_tentativa timestamp(6) not null,
+    assunto varchar(255) not null,
+    corpo_html TEXT not null,
+    destinatario varchar(255) not null,
+    status varchar(255) not null check (status in ('PENDENTE','ENVIANDO','ENVIADO','FALHOU')),
+    ultimo_erro TEXT,
+    primary key (id)
+);
+
+create table diarios (
+    emocao smallint not null,
+    intensidade integer not null,
+    data_registro timestamp(6),
+    dependente_id bigint not null,
+    id bigint generated by default as identity,
+    desenho_base64 TEXT,
+    relato TEXT,
+    primary key (id)
+);
+
+create table estados_alerta_emocional (
+    total_alertas integer not null,
+    dependente_id bigint not null,
+    id bigint generated by default as identity,
+    ultimo_alerta timestamp(6),
+    regra varchar(255) not null,
+    ocorrencias timestamp(6) array not null,
+    primary key (id),
+    constraint uk_estado_alerta_dependente_regra unique (dependente_id, regra)
+);
+
+create table lancamentos_xp (
+    pontos integer not null,
+    data_lancamento timestamp(6) not null,
+    id bigint generated by default as identity,
+    referencia_id bigint not null,
+    usuario_id bigint not null,
+    motivo varchar(20) not null check (motivo in ('DIARIO','ATIVIDADE','TAREFA')),
+    primary key (id),
+    constraint uk_lancamento_xp_origem unique (usuario_id, motivo, referencia_id)
+);
+
+create table notificacoes (
+    lido boolean not null,
+    data_envio timestamp(6) not null,
+    id bigint generated by default as identity,
+    usuario_id bigint not null,
+    cor varchar(255),
+    link varchar(255),
+    mensagem TEXT not null,
+    primary key (id)
+);
+
+create table semanarios (
+    data_criacao timestamp(6),
+    id bigint generated by default as identity,
+    objetivos TEXT,
+    quarta TEXT,
+    quinta TEXT,
+    segunda TEXT,
+    sexta TEXT,
+    terca TEXT,
+    titulo varchar(255),
+    primary key (id)
+);
+
+create table tarefas (
+    aluno_id bigint,
+    data_criacao timestamp(6),
+    id bigint generated by default as identity,
+    conteudo varchar(255),
+    tipo varchar(255),
+    primary key (id)
+);
+
+create table usuarios (
+    data_cadastro date not null,
+    data_nascimento date,
+    nivel integer,
+    xp integer,
+    id bigint generated by default as identity,
+    reset_token_expires_at timestamp(6),
+    responsavel_id bigint,
+    avatar_url varchar(255),
+    email varchar(255),
+    nome varchar(255) not null,
+    perfil varchar(255) not null check (perfil in ('ADMINISTRADOR','RESPONSAVEL','CRIANCA')),
+    pin varchar(255),
+    reset_token varchar(255),
+    senha varchar(255),
+    primary key (id),
+    constraint UKkfsp0s1tflm1cwlj8idhqsad0 unique (email)
+);
+
+create index idx_diarios_dependente_data_emocao
+   on diarios (dependente_id, data_registro, emocao, intensidade);
+
+create index idx_lancamentos_xp_usuario_data
+   on lancamentos_xp (usuario_id, data_lancamento);
+
+create index idx_notificacoes_usuario_lido_data
+   on notificacoes (usuario_id, lido, data_envio);
+
+alter table if exists atividades
+   add constraint FK5a7nwvtsid3k49fwnvbmy2eny
+   foreign key (aluno_id)
+   references usuarios;
+
+alter table if exists avaliacao_respostas
+   add constraint FKqw4slmsfl2rwcv3mvjuvi0vjc
+   foreign key (avaliacao_id)
+   references avaliacoes;
+
+alter table if exists avaliacoes
+   add constraint FK2x4fakyrb175hpylbrx9p17d3
+   foreign key (aluno_id)
+   references usuarios;
+
+alter table if exists diarios
+   add constraint FKid815lok2usrl2pflrh43g1v2
+   foreign key (dependente_id)
+   references usuarios;
+
+alter table if exists notificacoes
+   add constraint FK3jcnk0ggmxklk5sjxm2plk5ml
+   foreign key (usuario_id)
+   references usuarios;
+
+alter table if exists tarefas
+   add constraint FKk6ij5xa6ybrkqg0u9ycs4yhcs
+   foreign key (aluno_id)
+   references usuarios;
+
+alter table if exists usuarios
+   add constraint FKpjtoos09w02vx5o8w12xwer1c
+   foreign key (responsavel_id)
+   references usuarios;
@@ -0,0 +1,73 @@
+-- =============================================================================
+-- NOTIFICACOES PARTICIONADAS POR MES (data_envio)
+-- Migracao Flyway. Idempotente: tambem roda sobre os bancos anteriores ao Flyway.
+-- =============================================================================
+
+-- Cria 'meses' particoes mensais a partir de 'inicio' (as que ja existirem sao ignoradas).
+-- Nome das particoes: <tabela>_pAAAAMM. Tambem usada pelo ParticionamentoService.
+CREATE OR REPLACE FUNCTION criar_particoes_mensais(tabela text, inicio date, meses int) RETURNS void AS $$
+DECLARE
+    mes date := date_trunc('month', inicio)::date;
+    nome text;
+BEGIN
+    FOR i IN 1..meses LOOP
+        nome := tabela || '_p' || to_char(mes, 'YYYYMM');
+        IF to_regclass(nome) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                           nome, tabela, mes, (mes + interval '1 month')::date);
+        END IF;
+        mes := (mes + interval '1 month')::date;
+    END LOOP;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Conversao unica da tabela comum criada pelo Hibernate para a tabela particionada.
+DO $$
+DECLARE
+    primeiro_mes date;
+    proximo_id bigint;
+BEGIN
+    IF (SELECT relkind FROM pg_class WHERE oid = to_regclass('notificacoes')) = 'r' THEN
+        ALTER TABLE notificacoes RENAME TO notificacoes_legado;
+        ALTER INDEX IF EXISTS notificacoes_pkey RENAME TO notificacoes_legado_pkey;
+        DROP INDEX IF EXISTS idx_notificacoes_usuario_lido_data;
+
+        -- A tabela particionada usa uma sequencia comum, continuando a numeracao atual
+        SELECT COALESCE(max(id), 0) + 1, date_trunc('month', COALESCE(min(data_envio), now()))::date
+          INTO proximo_id, primeiro_mes
+          FROM notificacoes_legado;
+        ALTER TABLE notificacoes_legado ALTER COLUMN id DROP IDENTITY IF EXISTS;
+        CREATE SEQUENCE IF NOT EXISTS notificacoes_id_seq;
+        PERFORM setval('notificacoes_id_seq', proximo_id, false);
+
+        -- A chave primaria precisa conter a coluna de particionamento
+        CREATE TABLE notificacoes (
+            id bigint NOT NULL DEFAULT nextval('notificacoes_id_seq'),
+            usuario_id bigint NOT NULL REFERENCES usuarios (id),
+            mensagem text NOT NULL,
+            link varchar(255),
+            data_envio timestamp(6) NOT NULL,
+            lido boolean NOT NULL,
+            cor varchar(255),
+            PRIMARY KEY (id, data_envio)
+        ) PARTITION BY RANGE (data_envio);
+        ALTER SEQUENCE notificacoes_id_seq OWNED BY notificacoes.id;
+
+        CREATE INDEX idx_notificacoes_usuario_lido_data ON notificacoes (usuario_id, lido, data_envio);
+
+        -- Rede de seguranca para datas fora das particoes criadas (deve ficar vazia)
+        CREATE TABLE notificacoes_padrao PARTITION OF notificacoes DEFAULT;
+
+        PERFORM criar_particoes_mensais('notificacoes', primeiro_mes,
+            ((extract(year FROM age(date_trunc('month', now()), primeiro_mes)) * 12
+              + extract(month FROM age(date_trunc('month', now()), primeiro_mes)))::int + 1));
+
+        INSERT INTO notificacoes (id, usuario_id, mensagem, link, data_envio, lido, cor)
+            SELECT id, usuario_id, mensagem, link, data_envio, lido, cor FROM notificacoes_legado;
+
+        DROP TABLE notificacoes_legado;
+    END IF;
+
+    -- Mes atual e os proximos tres sempre prontos
+    PERFORM criar_particoes_mensais('notificacoes', current_date, 4);
+END $$;
@@ -0,0 +1,90 @@
+-- =============================================================================
+-- REGISTRO DE ALTERACOES (base dos backups diferenciais)
+-- Cada INSERT/UPDATE/DELETE nas tabelas rastreadas grava a chave da linha e a
+-- transacao que a alterou. O backup diferencial exporta so as chaves alteradas
+-- por transacoes que nao estavam visiveis no snapshot do backup anterior.
+-- Migracao Flyway. Idempotente: tambem roda sobre os bancos anteriores ao Flyway.
+-- =============================================================================
+
+-- chave: colunas que identificam a linha no registro.
+-- substituir: a chave nao e unica (colecoes); o restore apaga e reinsere o grupo todo.
+CREATE TABLE IF NOT EXISTS tabelas_rastreadas (
+    tabela text PRIMARY KEY,
+    chave text[] NOT NULL,
+    substituir boolean NOT NULL DEFAULT false
+);
+
+INSERT INTO tabelas_rastreadas (tabela, chave, substituir) VALUES
+    ('usuarios',            ARRAY['id'],                 false),
+    ('diarios',             ARRAY['id'],                 false),
+    ('atividades',          ARRAY['id'],                 false),
+    ('tarefas',             ARRAY['id'],                 false),
+    ('avaliacoes',          ARRAY['id'],                 false),
+    ('avaliacao_respostas', ARRAY['avaliacao_id'],       true),
+    ('semanarios',          ARRAY['id'],                 false),
+    ('notificacoes',        ARRAY['id', 'data_envio'],   false)
+ON CONFLICT (tabela) DO UPDATE SET chave = EXCLUDED.chave, substituir = EXCLUDED.substituir;
+
+CREATE TABLE IF NOT EXISTS registro_alteracoes (
+    id bigserial PRIMARY KEY,
+    tabela text NOT NULL,
+    operacao char(1) NOT NULL,              -- I, U ou D
+    chave jsonb NOT NULL,
+    xid xid8 NOT NULL DEFAULT pg_current_xact_id(),
+    momento timestamptz NOT NULL DEFAULT now()
+);
+CREATE INDEX IF NOT EXISTS idx_registro_alteracoes_xid ON registro_alteracoes (xid);
+CREATE INDEX IF NOT EXISTS idx_registro_alteracoes_momento ON registro_alteracoes (momento);
+
+-- Estado do banco em relacao aos backups: cada restore (completo ou diferencial) grava o
+-- snapshot que aplicou, para o proximo diferencial conferir se a sequencia esta correta.
+CREATE TABLE IF NOT EXISTS backups_aplicados (
+    id bigserial PRIMARY KEY,
+    snapshot text NOT NULL,
+    tipo text NOT NULL,
+    aplicado_em timestamptz NOT NULL DEFAULT now()
+);
+
+-- Argumentos do gatilho: a tabela rastreada e as colunas da chave (o nome vai como argumento
+-- porque, numa tabela particionada, TG_TABLE_NAME e o nome da particao).
+-- Durante um restore (app.restaurando = on) nada e registrado, senao cada linha restaurada viraria uma "alteracao".
+CREATE OR REPLACE FUNCTION registrar_alteracao() RETURNS trigger AS $$
+DECLARE
+    chave_nova jsonb;
+    chave_antiga jsonb;
+    nome_tabela text := TG_ARGV[0];
+    colunas text[] := TG_ARGV[1:];
+BEGIN
+    IF current_setting('app.restaurando', true) = 'on' THEN
+        RETURN NULL;
+    END IF;
+    IF TG_OP <> 'DELETE' THEN
+        SELECT jsonb_object_agg(c, to_jsonb(NEW) -> c) INTO chave_nova FROM unnest(colunas) AS c;
+    END IF;
+    IF TG_OP <> 'INSERT' THEN
+        SELECT jsonb_object_agg(c, to_jsonb(OLD) -> c) INTO chave_antiga FROM unnest(colunas) AS c;
+    END IF;
+
+    IF chave_nova IS NOT NULL THEN
+        INSERT INTO registro_alteracoes (tabela, operacao, chave) VALUES (nome_tabela, left(TG_OP, 1), chave_nova);
+    END IF;
+    -- DELETE, ou UPDATE que mudou a chave: a linha antiga tambem precisa sumir no restore
+    IF chave_antiga IS NOT NULL AND chave_antiga IS DISTINCT FROM chave_nova THEN
+        INSERT INTO registro_alteracoes (tabela, operacao, chave) VALUES (nome_tabela, left(TG_OP, 1), chave_antiga);
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- (Re)cria os gatilhos das tabelas rastreadas que ja existem
+DO $$
+DECLARE
+    t record;
+BEGIN
+    FOR t IN SELECT tabela, chave FROM tabelas_rastreadas WHERE to_regclass(tabela) IS NOT NULL LOOP
+        EXECUTE format('DROP TRIGGER IF EXISTS trg_registrar_alteracao ON %I', t.tabela);
+        EXECUTE format('CREATE TRIGGER trg_registrar_alteracao AFTER INSERT OR UPDATE OR DELETE ON %I '
+                       || 'FOR EACH ROW EXECUTE FUNCTION registrar_alteracao(%s)',
+                       t.tabela, (SELECT string_agg(quote_literal(c), ', ') FROM unnest(t.tabela || t.chave) c));
+    END LOOP;
+END $$;
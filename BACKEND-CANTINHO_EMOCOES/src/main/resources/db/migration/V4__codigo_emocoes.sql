@@ -0,0 +1,61 @@
+-- =============================================================================
+-- CODIGO DAS EMOCOES
+-- diarios.emocao guarda um smallint (2 bytes) em vez do nome da emocao; o nome e o
+-- tipo (emocao ou registro so de desenho) ficam na tabela de referencia emocoes.
+-- Os codigos sao os mesmos do enum Emocao e nunca mudam nem sao reaproveitados.
+-- Converte na primeira execucao os bancos que ainda tem a coluna em texto.
+-- Migracao Flyway. Idempotente: tambem roda sobre os bancos anteriores ao Flyway.
+-- =============================================================================
+
+CREATE TABLE IF NOT EXISTS emocoes (
+    codigo smallint PRIMARY KEY,
+    nome varchar(20) NOT NULL UNIQUE,
+    desenho boolean NOT NULL DEFAULT false
+);
+
+INSERT INTO emocoes (codigo, nome, desenho) VALUES
+    (1, 'FELIZ', false),
+    (2, 'TRISTE', false),
+    (3, 'BRAVO', false),
+    (4, 'MEDO', false),
+    (5, 'CALMO', false),
+    (6, 'ANSIOSO', false),
+    (7, 'NOJINHO', false),
+    (8, 'CRIATIVO', true)
+ON CONFLICT (codigo) DO UPDATE SET nome = EXCLUDED.nome, desenho = EXCLUDED.desenho;
+
+DO $$
+DECLARE
+    desconhecidas text;
+BEGIN
+    IF (SELECT data_type FROM information_schema.columns
+         WHERE table_schema = current_schema() AND table_name = 'diarios' AND column_name = 'emocao') <> 'smallint' THEN
+
+        -- Valores fora da tabela de referencia interrompem a inicializacao: melhor corrigir do que perder o dado
+        SELECT string_agg(DISTINCT COALESCE(d.emocao, '(nulo)'), ', ') INTO desconhecidas
+          FROM diarios d
+         WHERE NOT EXISTS (SELECT 1 FROM emocoes e WHERE e.nome = upper(trim(d.emocao)));
+        IF desconhecidas IS NOT NULL THEN
+            RAISE EXCEPTION 'diarios.emocao tem valores sem codigo em emocoes: %', desconhecidas;
+        END IF;
+
+        -- O cubo de emocoes guarda a emocao em texto: e recriado com codigos pela V5__cubo_emocoes.sql
+        DROP TABLE IF EXISTS cubo_emocoes;
+        DROP TABLE IF EXISTS cubo_emocoes_escola;
+
+        -- USING nao aceita subconsulta; a tabela de referencia confere o resultado logo abaixo, pela FK
+        ALTER TABLE diarios ALTER COLUMN emocao TYPE smallint USING
+            CASE upper(trim(emocao))
+                WHEN 'FELIZ' THEN 1 WHEN 'TRISTE' THEN 2 WHEN 'BRAVO' THEN 3 WHEN 'MEDO' THEN 4
+                WHEN 'CALMO' THEN 5 WHEN 'ANSIOSO' THEN 6 WHEN 'NOJINHO' THEN 7 WHEN 'CRIATIVO' THEN 8
+            END;
+    END IF;
+
+    IF NOT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'fk_diarios_emocao') THEN
+        ALTER TABLE diarios ADD CONSTRAINT fk_diarios_emocao FOREIGN KEY (emocao) REFERENCES emocoes (codigo);
+    END IF;
+END $$;
+
+-- Substituido pelo idx_diarios_dependente_data_emocao (criado na V1 e recriado na tabela particionada pela V8),
+-- que cobre tambem emocao e intensidade
+DROP INDEX IF EXISTS idx_diarios_dependente_data;
@@ -0,0 +1,121 @@
+-- =============================================================================
+-- CUBO DE EMOCOES (mapa de calor da turma / da escola)
+-- Contagem e soma das intensidades por (dia, hora, codigo da emocao): uma tabela por crianca,
+-- para recortes de qualquer grupo de alunos, e outra ja somada para a escola inteira.
+-- Mantidas pelos gatilhos de diarios, por comando (transition tables): um INSERT de
+-- varias linhas (ou um COPY do restore) vira um unico upsert agregado.
+-- Dados derivados: ficam fora dos backups e sao refeitos pelos proprios gatilhos.
+-- Migracao Flyway. Idempotente: tambem roda sobre os bancos anteriores ao Flyway.
+-- =============================================================================
+
+-- Celulas zeradas (so acontecem com exclusoes) continuam na tabela; as consultas usam registros > 0.
+-- A reconstrucao bloqueia escritas em diarios ate o fim da transacao, para nada ser contado duas vezes.
+CREATE OR REPLACE FUNCTION reconstruir_cubo_emocoes() RETURNS void AS $$
+BEGIN
+    LOCK TABLE diarios IN SHARE MODE;
+    DELETE FROM cubo_emocoes;
+    DELETE FROM cubo_emocoes_escola;
+    INSERT INTO cubo_emocoes (dependente_id, dia, hora, emocao, registros, soma_intensidade)
+    SELECT d.dependente_id, CAST(d.data_registro AS date), CAST(EXTRACT(hour FROM d.data_registro) AS smallint), d.emocao,
+           COUNT(*), SUM(d.intensidade)
+      FROM diarios d
+      JOIN emocoes e ON e.codigo = d.emocao
+     WHERE NOT e.desenho AND d.data_registro IS NOT NULL
+     GROUP BY 1, 2, 3, 4;
+    INSERT INTO cubo_emocoes_escola (dia, hora, emocao, registros, soma_intensidade)
+    SELECT dia, hora, emocao, SUM(registros), SUM(soma_intensidade)
+      FROM cubo_emocoes
+     GROUP BY 1, 2, 3;
+END;
+$$ LANGUAGE plpgsql;
+
+DO $$
+BEGIN
+    IF to_regclass('cubo_emocoes') IS NULL THEN
+        CREATE TABLE cubo_emocoes (
+            dependente_id bigint NOT NULL,
+            dia date NOT NULL,
+            hora smallint NOT NULL,
+            emocao smallint NOT NULL,
+            registros integer NOT NULL,
+            soma_intensidade bigint NOT NULL,
+            PRIMARY KEY (dependente_id, dia, hora, emocao)
+        );
+        CREATE TABLE cubo_emocoes_escola (
+            dia date NOT NULL,
+            hora smallint NOT NULL,
+            emocao smallint NOT NULL,
+            registros integer NOT NULL,
+            soma_intensidade bigint NOT NULL,
+            PRIMARY KEY (dia, hora, emocao)
+        );
+        PERFORM reconstruir_cubo_emocoes(); -- primeira carga com o historico existente
+    END IF;
+END $$;
+
+-- O SQL dinamico enxerga as transition tables (novas/antigas) do gatilho.
+-- As celulas sao atualizadas sempre na mesma ordem, para dois comandos concorrentes nao se travarem.
+CREATE OR REPLACE FUNCTION atualizar_cubo_emocoes() RETURNS trigger AS $$
+DECLARE
+    origem text;
+BEGIN
+    IF TG_OP = 'TRUNCATE' THEN
+        DELETE FROM cubo_emocoes;
+        DELETE FROM cubo_emocoes_escola;
+        RETURN NULL;
+    END IF;
+
+    origem := CASE TG_OP
+        WHEN 'INSERT' THEN 'SELECT dependente_id, emocao, intensidade, data_registro, 1 AS sinal FROM novas'
+        WHEN 'DELETE' THEN 'SELECT dependente_id, emocao, intensidade, data_registro, -1 AS sinal FROM antigas'
+        ELSE 'SELECT dependente_id, emocao, intensidade, data_registro, 1 AS sinal FROM novas '
+             || 'UNION ALL SELECT dependente_id, emocao, intensidade, data_registro, -1 FROM antigas'
+    END;
+
+    EXECUTE format($sql$
+        WITH linhas AS (%s),
+        variacao AS (
+            SELECT l.dependente_id, CAST(l.data_registro AS date) AS dia,
+                   CAST(EXTRACT(hour FROM l.data_registro) AS smallint) AS hora, l.emocao,
+                   SUM(l.sinal) AS registros, SUM(l.sinal * l.intensidade) AS soma
+              FROM linhas l
+              JOIN emocoes e ON e.codigo = l.emocao
+             WHERE NOT e.desenho AND l.data_registro IS NOT NULL
+             GROUP BY 1, 2, 3, 4
+            HAVING SUM(sinal) <> 0 OR SUM(sinal * intensidade) <> 0
+        ),
+        por_aluno AS (
+            INSERT INTO cubo_emocoes AS c (dependente_id, dia, hora, emocao, registros, soma_intensidade)
+            SELECT dependente_id, dia, hora, emocao, registros, soma
+              FROM variacao
+             ORDER BY dependente_id, dia, hora, emocao
+            ON CONFLICT (dependente_id, dia, hora, emocao) DO UPDATE
+               SET registros = c.registros + EXCLUDED.registros,
+                   soma_intensidade = c.soma_intensidade + EXCLUDED.soma_intensidade
+        )
+        INSERT INTO cubo_emocoes_escola AS c (dia, hora, emocao, registros, soma_intensidade)
+        SELECT dia, hora, emocao, SUM(registros), SUM(soma)
+          FROM variacao
+         GROUP BY dia, hora, emocao
+         ORDER BY dia, hora, emocao
+        ON CONFLICT (dia, hora, emocao) DO UPDATE
+           SET registros = c.registros + EXCLUDED.registros,
+               soma_intensidade = c.soma_intensidade + EXCLUDED.soma_intensidade
+    $sql$, origem);
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Transition tables exigem um gatilho por evento
+DROP TRIGGER IF EXISTS trg_cubo_emocoes_insert ON diarios;
+DROP TRIGGER IF EXISTS trg_cubo_emocoes_update ON diarios;
+DROP TRIGGER IF EXISTS trg_cubo_emocoes_delete ON diarios;
+DROP TRIGGER IF EXISTS trg_cubo_emocoes_truncate ON diarios;
+CREATE TRIGGER trg_cubo_emocoes_insert AFTER INSERT ON diarios
+    REFERENCING NEW TABLE AS novas FOR EACH STATEMENT EXECUTE FUNCTION atualizar_cubo_emocoes();
+CREATE TRIGGER trg_cubo_emocoes_update AFTER UPDATE ON diarios
+    REFERENCING OLD TABLE AS antigas NEW TABLE AS novas FOR EACH STATEMENT EXECUTE FUNCTION atualizar_cubo_emocoes();
+CREATE TRIGGER trg_cubo_emocoes_delete AFTER DELETE ON diarios
+    REFERENCING OLD TABLE AS antigas FOR EACH STATEMENT EXECUTE FUNCTION atualizar_cubo_emocoes();
+CREATE TRIGGER trg_cubo_emocoes_truncate AFTER TRUNCATE ON diarios
+    FOR EACH STATEMENT EXECUTE FUNCTION atualizar_cubo_emocoes();
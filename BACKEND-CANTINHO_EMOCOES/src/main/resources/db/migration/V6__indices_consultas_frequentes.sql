@@ -0,0 +1,25 @@
+-- =============================================================================
+-- INDICES DAS CONSULTAS MAIS FREQUENTES
+-- Criados com CONCURRENTLY para nao bloquear escritas nas tabelas ja em uso; por
+-- isso o script roda fora de transacao (V6__indices_consultas_frequentes.sql.conf).
+-- Se a criacao for interrompida, o indice fica INVALID: apague-o e rode de novo.
+-- Ja existiam antes do Flyway (V1):
+--   diarios (dependente_id, data_registro, ...) -> idx_diarios_dependente_data_emocao
+--   notificacoes (usuario_id, lido, data_envio) -> idx_notificacoes_usuario_lido_data
+--     (tabela particionada: o PostgreSQL nao aceita CONCURRENTLY nela, ver V2)
+-- =============================================================================
+
+-- Historico de atividades do aluno (painel do responsavel, relatorios)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_atividades_aluno_data ON atividades (aluno_id, data_realizacao);
+
+-- Tarefas do aluno e conferencia de tarefas cumpridas (gamificacao)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_tarefas_aluno_data ON tarefas (aluno_id, data_criacao);
+
+-- Avaliacao do aluno por tipo e unidade (boletim)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_avaliacoes_aluno_tipo_unidade ON avaliacoes (aluno_id, tipo, unidade);
+
+-- Dependentes de um responsavel (turma, ranking, mapa de calor)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_usuarios_responsavel ON usuarios (responsavel_id);
+
+-- Redefinicao de senha pelo token
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_usuarios_reset_token ON usuarios (reset_token);
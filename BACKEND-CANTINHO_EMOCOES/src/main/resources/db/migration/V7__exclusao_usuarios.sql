@@ -0,0 +1,58 @@
+-- =============================================================================
+-- EXCLUSAO DE USUARIOS: MARCACAO IMEDIATA + EXPURGO EM SEGUNDO PLANO
+-- Excluir um usuario (ou uma familia) so preenche usuarios.excluido_em; o
+-- ExpurgoUsuariosService apaga os dados depois, em lotes, e por fim a linha do usuario.
+-- As chaves estrangeiras para usuarios passam a ON DELETE CASCADE: o banco remove o que
+-- sobrar, sem o Hibernate carregar diarios, atividades e desenhos para apagar um a um.
+-- Migracao Flyway. Idempotente: tambem roda sobre os bancos anteriores ao Flyway.
+-- =============================================================================
+
+ALTER TABLE usuarios ADD COLUMN IF NOT EXISTS excluido_em timestamp(6);
+
+-- Fila do expurgo: so as linhas marcadas entram no indice
+CREATE INDEX IF NOT EXISTS idx_usuarios_excluidos ON usuarios (excluido_em) WHERE excluido_em IS NOT NULL;
+
+-- Extrato de XP e estados de alerta nao tinham chave estrangeira: sobras de exclusoes antigas saem antes
+DELETE FROM lancamentos_xp l WHERE NOT EXISTS (SELECT 1 FROM usuarios u WHERE u.id = l.usuario_id);
+DELETE FROM estados_alerta_emocional e WHERE NOT EXISTS (SELECT 1 FROM usuarios u WHERE u.id = e.dependente_id);
+
+-- Remove as chaves sem cascata, com o nome que tiverem (geradas pelo Hibernate, pela V2 ou
+-- duplicadas). Em tabelas particionadas so a chave da tabela-mae e removida; as das particoes vao junto.
+DO $$
+DECLARE
+    fk record;
+BEGIN
+    FOR fk IN
+        SELECT conrelid::regclass AS tabela, conname
+          FROM pg_constraint
+         WHERE contype = 'f' AND conparentid = 0 AND confdeltype <> 'c'
+           AND confrelid IN ('usuarios'::regclass, 'avaliacoes'::regclass)
+    LOOP
+        EXECUTE format('ALTER TABLE %s DROP CONSTRAINT %I', fk.tabela, fk.conname);
+    END LOOP;
+END $$;
+
+-- (tabela, coluna, tabela referenciada). Todas as colunas ja tem indice para a cascata.
+DO $$
+DECLARE
+    chave text[];
+BEGIN
+    FOREACH chave SLICE 1 IN ARRAY ARRAY[
+        ['usuarios', 'responsavel_id', 'usuarios'],
+        ['diarios', 'dependente_id', 'usuarios'],
+        ['atividades', 'aluno_id', 'usuarios'],
+        ['avaliacoes', 'aluno_id', 'usuarios'],
+        ['avaliacao_respostas', 'avaliacao_id', 'avaliacoes'],
+        ['tarefas', 'aluno_id', 'usuarios'],
+        ['notificacoes', 'usuario_id', 'usuarios'],
+        ['lancamentos_xp', 'usuario_id', 'usuarios'],
+        ['estados_alerta_emocional', 'dependente_id', 'usuarios']
+    ]
+    LOOP
+        IF NOT EXISTS (SELECT 1 FROM pg_constraint
+                        WHERE conname = format('fk_%s_%s', chave[1], chave[2]) AND conrelid = to_regclass(chave[1])) THEN
+            EXECUTE format('ALTER TABLE %I ADD CONSTRAINT %I FOREIGN KEY (%I) REFERENCES %I (id) ON DELETE CASCADE',
+                           chave[1], format('fk_%s_%s', chave[1], chave[2]), chave[2], chave[3]);
+        END IF;
+    END LOOP;
+END $$;
@@ -0,0 +1,101 @@
+-- =============================================================================
+-- DIARIOS PARTICIONADOS POR MES (data_registro)
+-- Consultas com intervalo de datas (dashboard, analises, listagem do administrador) so
+-- leem as particoes do periodo; meses antigos podem ser arquivados com
+-- ALTER TABLE diarios DETACH PARTITION diarios_pAAAAMM CONCURRENTLY, sem DELETE em massa.
+-- As particoes futuras sao criadas pelo ParticionamentoService (funcao da V2).
+-- Migracao Flyway. Idempotente: tambem roda sobre os bancos anteriores ao Flyway.
+--
+-- O registro de alteracoes passa a identificar os diarios por (id, data_registro), como a
+-- nova chave primaria: o primeiro backup depois desta migracao deve ser completo.
+-- =============================================================================
+
+DO $$
+DECLARE
+    primeiro_mes date;
+    proximo_id bigint;
+BEGIN
+    IF (SELECT relkind FROM pg_class WHERE oid = to_regclass('diarios')) = 'r' THEN
+        -- A coluna de particionamento nao aceita nulo: diarios antigos sem data ficam com a do cadastro da crianca
+        UPDATE diarios d SET data_registro = u.data_cadastro
+          FROM usuarios u
+         WHERE u.id = d.dependente_id AND d.data_registro IS NULL;
+
+        ALTER TABLE diarios RENAME TO diarios_legado;
+        ALTER INDEX IF EXISTS diarios_pkey RENAME TO diarios_legado_pkey;
+        DROP INDEX IF EXISTS idx_diarios_dependente_data_emocao;
+        -- Os gatilhos (cubo e registro de alteracoes) vao com a tabela antiga; o cubo ja esta em dia
+        -- e a copia abaixo nao e uma alteracao
+
+        -- A tabela particionada usa uma sequencia comum, continuando a numeracao atual
+        SELECT COALESCE(max(id), 0) + 1, date_trunc('month', COALESCE(min(data_registro), now()))::date
+          INTO proximo_id, primeiro_mes
+          FROM diarios_legado;
+        ALTER TABLE diarios_legado ALTER COLUMN id DROP IDENTITY IF EXISTS;
+        CREATE SEQUENCE IF NOT EXISTS diarios_id_seq;
+        PERFORM setval('diarios_id_seq', proximo_id, false);
+
+        -- A chave primaria precisa conter a coluna de particionamento
+        CREATE TABLE diarios (
+            id bigint NOT NULL DEFAULT nextval('diarios_id_seq'),
+            dependente_id bigint NOT NULL,
+            emocao smallint NOT NULL,
+            intensidade integer NOT NULL,
+            relato text,
+            desenho_base64 text,
+            data_registro timestamp(6) NOT NULL,
+            PRIMARY KEY (id, data_registro)
+        ) PARTITION BY RANGE (data_registro);
+        ALTER SEQUENCE diarios_id_seq OWNED BY diarios.id;
+
+        CREATE INDEX idx_diarios_dependente_data_emocao ON diarios (dependente_id, data_registro, emocao, intensidade);
+
+        -- Rede de seguranca para datas fora das particoes criadas (deve ficar vazia)
+        CREATE TABLE diarios_padrao PARTITION OF diarios DEFAULT;
+
+        PERFORM criar_particoes_mensais('diarios', primeiro_mes,
+            ((extract(year FROM age(date_trunc('month', now()), primeiro_mes)) * 12
+              + extract(month FROM age(date_trunc('month', now()), primeiro_mes)))::int + 1));
+
+        INSERT INTO diarios (id, dependente_id, emocao, intensidade, relato, desenho_base64, data_registro)
+            SELECT id, dependente_id, emocao, intensidade, relato, desenho_base64, data_registro FROM diarios_legado;
+
+        DROP TABLE diarios_legado;
+
+        ALTER TABLE diarios ADD CONSTRAINT fk_diarios_dependente_id
+            FOREIGN KEY (dependente_id) REFERENCES usuarios (id) ON DELETE CASCADE;
+        ALTER TABLE diarios ADD CONSTRAINT fk_diarios_emocao
+            FOREIGN KEY (emocao) REFERENCES emocoes (codigo);
+
+        -- Chaves ja registradas ganham a data, para o diferencial encontrar as linhas que ainda existem
+        UPDATE registro_alteracoes r
+           SET chave = r.chave || jsonb_build_object('data_registro', d.data_registro)
+          FROM diarios d
+         WHERE r.tabela = 'diarios' AND NOT r.chave ? 'data_registro'
+           AND d.id = CAST(r.chave ->> 'id' AS bigint);
+    END IF;
+
+    -- Mes atual e os proximos tres sempre prontos
+    PERFORM criar_particoes_mensais('diarios', current_date, 4);
+END $$;
+
+-- Registro de alteracoes (V3) pela nova chave
+UPDATE tabelas_rastreadas SET chave = ARRAY['id', 'data_registro'] WHERE tabela = 'diarios';
+DROP TRIGGER IF EXISTS trg_registrar_alteracao ON diarios;
+CREATE TRIGGER trg_registrar_alteracao AFTER INSERT OR UPDATE OR DELETE ON diarios
+    FOR EACH ROW EXECUTE FUNCTION registrar_alteracao('diarios', 'id', 'data_registro');
+
+-- Cubo de emocoes (V5): em tabela particionada, o gatilho por comando recebe nas transition
+-- tables as linhas de todas as particoes afetadas
+DROP TRIGGER IF EXISTS trg_cubo_emocoes_insert ON diarios;
+DROP TRIGGER IF EXISTS trg_cubo_emocoes_update ON diarios;
+DROP TRIGGER IF EXISTS trg_cubo_emocoes_delete ON diarios;
+DROP TRIGGER IF EXISTS trg_cubo_emocoes_truncate ON diarios;
+CREATE TRIGGER trg_cubo_emocoes_insert AFTER INSERT ON diarios
+    REFERENCING NEW TABLE AS novas FOR EACH STATEMENT EXECUTE FUNCTION atualizar_cubo_emocoes();
+CREATE TRIGGER trg_cubo_emocoes_update AFTER UPDATE ON diarios
+    REFERENCING OLD TABLE AS antigas NEW TABLE AS novas FOR EACH STATEMENT EXECUTE FUNCTION atualizar_cubo_emocoes();
+CREATE TRIGGER trg_cubo_emocoes_delete AFTER DELETE ON diarios
+    REFERENCING OLD TABLE AS antigas FOR EACH STATEMENT EXECUTE FUNCTION atualizar_cubo_emocoes();
+CREATE TRIGGER trg_cubo_emocoes_truncate AFTER TRUNCATE ON diarios
+    FOR EACH STATEMENT EXECUTE FUNCTION atualizar_cubo_emocoes();
@@ -0,0 +1,34 @@
+-- =============================================================================
+-- DIARIOS SEM PARTICAO DEFAULT
+-- A V8 cria a particao DEFAULT diarios_padrao para as datas fora dos meses criados. Com ela,
+-- o PostgreSQL recusa o DETACH PARTITION ... CONCURRENTLY que arquiva os meses antigos (e o
+-- DETACH comum bloqueia a tabela inteira). As linhas dela (diarios com data editada para um
+-- mes sem particao) vao para as particoes mensais e ela e removida. Dai em diante, quem
+-- grava uma data fora dos meses prontos cria antes a particao (ParticionamentoService).
+-- Migracao Flyway. Idempotente: sem a diarios_padrao, nao faz nada.
+-- =============================================================================
+
+DO $$
+DECLARE
+    mes date;
+BEGIN
+    IF to_regclass('diarios_padrao') IS NULL THEN
+        RETURN;
+    END IF;
+
+    -- Sai e volta pela tabela principal: os gatilhos do cubo (V5) e do registro de alteracoes (V3)
+    -- veem a remocao e a reinsercao, e o saldo fica igual
+    CREATE TEMP TABLE diarios_movidos ON COMMIT DROP AS
+        SELECT id, dependente_id, emocao, intensidade, relato, desenho_base64, data_registro FROM diarios_padrao;
+    DELETE FROM diarios WHERE tableoid = 'diarios_padrao'::regclass;
+
+    ALTER TABLE diarios DETACH PARTITION diarios_padrao;
+    DROP TABLE diarios_padrao;
+
+    FOR mes IN SELECT DISTINCT date_trunc('month', data_registro)::date FROM diarios_movidos LOOP
+        PERFORM criar_particoes_mensais('diarios', mes, 1);
+    END LOOP;
+
+    INSERT INTO diarios (id, dependente_id, emocao, intensidade, relato, desenho_base64, data_registro)
+        SELECT id, dependente_id, emocao, intensidade, relato, desenho_base64, data_registro FROM diarios_movidos;
+END $$;
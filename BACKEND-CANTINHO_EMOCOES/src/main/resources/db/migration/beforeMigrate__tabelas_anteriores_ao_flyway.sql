@@ -0,0 +1,67 @@
+-- =============================================================================
+-- PREPARACAO DOS BANCOS ANTERIORES AO FLYWAY (callback beforeMigrate)
+-- Roda antes de toda migracao e nao tem versao nem checksum. Bancos criados antes do
+-- Flyway recebem o baseline na V1 sem executa-la; os que vieram de uma versao antiga do
+-- sistema nao tem as tabelas abaixo, que a V1 cria e a V7 ja encontra (limpa o extrato
+-- de XP e os estados de alerta e cria as chaves estrangeiras de ambos).
+-- Mesmas definicoes da V1. Num banco vazio nao faz nada: quem cria as tabelas e a V1.
+-- Tambem completa data_registro dos diarios antigos antes da V8, que particiona por ela.
+-- =============================================================================
+
+DO $$
+BEGIN
+    IF to_regclass('usuarios') IS NULL THEN
+        RETURN;
+    END IF;
+
+    -- Fila de envio dos e-mails (CaixaSaidaEmailService)
+    CREATE TABLE IF NOT EXISTS caixa_saida_emails (
+        tentativas integer not null,
+        data_criacao timestamp(6) not null,
+        data_envio timestamp(6),
+        id bigint generated by default as identity,
+        proxima_tentativa timestamp(6) not null,
+        assunto varchar(255) not null,
+        corpo_html TEXT not null,
+        destinatario varchar(255) not null,
+        status varchar(255) not null check (status in ('PENDENTE','ENVIANDO','ENVIADO','FALHOU')),
+        ultimo_erro TEXT,
+        primary key (id)
+    );
+
+    -- Estado incremental das regras de alerta por crianca (AlertaEmocionalService)
+    CREATE TABLE IF NOT EXISTS estados_alerta_emocional (
+        total_alertas integer not null,
+        dependente_id bigint not null,
+        id bigint generated by default as identity,
+        ultimo_alerta timestamp(6),
+        regra varchar(255) not null,
+        ocorrencias timestamp(6) array not null,
+        primary key (id),
+        constraint uk_estado_alerta_dependente_regra unique (dependente_id, regra)
+    );
+
+    -- Extrato de XP (GamificacaoService): a chave unica descarta os premios repetidos
+    CREATE TABLE IF NOT EXISTS lancamentos_xp (
+        pontos integer not null,
+        data_lancamento timestamp(6) not null,
+        id bigint generated by default as identity,
+        referencia_id bigint not null,
+        usuario_id bigint not null,
+        motivo varchar(20) not null check (motivo in ('DIARIO','ATIVIDADE','TAREFA')),
+        primary key (id),
+        constraint uk_lancamento_xp_origem unique (usuario_id, motivo, referencia_id)
+    );
+
+    CREATE INDEX IF NOT EXISTS idx_lancamentos_xp_usuario_data
+        ON lancamentos_xp (usuario_id, data_lancamento);
+
+    -- A coluna de particionamento da V8 nao aceita nulo: diarios sem data ficam com a do cadastro
+    -- da crianca, ou a de hoje se o cadastro tambem nao tiver data
+    IF (SELECT relkind FROM pg_class WHERE oid = to_regclass('diarios')) = 'r' THEN
+        UPDATE diarios d
+           SET data_registro = COALESCE((SELECT u.data_cadastro FROM usuarios u WHERE u.id = d.dependente_id),
+                                        CURRENT_DATE)
+         WHERE d.data_registro IS NULL;
+    END IF;
+END $$;
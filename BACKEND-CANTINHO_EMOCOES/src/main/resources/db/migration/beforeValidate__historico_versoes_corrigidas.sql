@@ -0,0 +1,36 @@
+-- =============================================================================
+-- HISTORICO DO FLYWAY DE VERSOES INTERMEDIARIAS (callback beforeValidate)
+-- Roda antes da validacao e nao tem versao nem checksum. Algumas migracoes ja publicadas
+-- passaram por versoes intermediarias que depois foram desfeitas, e os bancos que as
+-- rodaram nao passariam na validacao. Aqui o historico desses bancos volta a apontar para
+-- os scripts atuais; so linhas com os checksums conhecidos sao alteradas, e o esquema
+-- resultante e o mesmo.
+--   V1 e V6: reescritas por um tempo. A V1 reescrita so fazia diferenca em banco vazio
+--            (diarios.emocao em texto, convertida pela V4).
+--   V4:      so comentarios mudaram (duas vezes).
+--   V1.1:    criava caixa_saida_emails, lancamentos_xp e estados_alerta_emocional, que
+--            agora vem da V1 (ou do callback beforeMigrate, nos bancos anteriores ao Flyway).
+--   V8:      reescrita por um tempo sem criar a particao diarios_padrao, que a V9 agora
+--            remove; nesses bancos a V9 nao encontra a particao e nao faz nada.
+--   V9:      so o cabecalho mudou.
+-- =============================================================================
+
+DO $$
+BEGIN
+    IF to_regclass('flyway_schema_history') IS NULL THEN
+        RETURN;
+    END IF;
+
+    UPDATE flyway_schema_history SET checksum = 553546664
+     WHERE version = '1' AND checksum = 1714296704;
+    UPDATE flyway_schema_history SET checksum = -1997005150
+     WHERE version = '4' AND checksum IN (2143411566, -1077728353);
+    UPDATE flyway_schema_history SET checksum = -1656391586
+     WHERE version = '6' AND checksum = -1287064005;
+    UPDATE flyway_schema_history SET checksum = -1704120558
+     WHERE version = '8' AND checksum = -1771882116;
+    UPDATE flyway_schema_history SET checksum = 989673588
+     WHERE version = '9' AND checksum = -334236247;
+    DELETE FROM flyway_schema_history
+     WHERE version = '1.1' AND script = 'V1_1__tabelas_email_xp_alertas.sql' AND checksum = -95976006;
+END $$;
@@ -0,0 +1,166 @@
+package com.cantinho_emocoes.service;
+
+import com.cantinho_emocoes.config.AlertasEmocionaisProperties;
+import com.cantinho_emocoes.config.AlertasEmocionaisProperties.Regra;
+import com.cantinho_emocoes.model.Emocao;
+import com.cantinho_emocoes.model.EstadoAlertaEmocional;
+import com.cantinho_emocoes.model.Usuario;
+import com.cantinho_emocoes.repository.EstadoAlertaEmocionalRepository;
+import com.cantinho_emocoes.repository.UsuarioRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Janela e intervalo das regras de alerta, com os repositórios simulados: o estado de cada
+ * (criança, regra) fica num mapa, como ficaria na tabela estados_alerta_emocional.
+ */
+class AlertaEmocionalServiceTest {
+
+    private static final Long CRIANCA = 3L;
+    private static final LocalDateTime INICIO = LocalDateTime.of(2026, 10, 5, 9, 0);
+
+    // 3 ocorrências em 7 dias; depois de um alerta, nada por 7 dias
+    private static final Regra FREQUENTES = new Regra("frequentes", Set.of(Emocao.TRISTE, Emocao.BRAVO), 4, 3,
+            Duration.ofDays(7), Duration.ofDays(7));
+
+    private final Map<String, EstadoAlertaEmocional> estados = new HashMap<>();
+    private EstadoAlertaEmocionalRepository estadoRepository;
+    private NotificacaoService notificacaoService;
+    private Usuario responsavel;
+    private AlertaEmocionalService service;
+
+    @BeforeEach
+    void preparar() {
+        estadoRepository = mock(EstadoAlertaEmocionalRepository.class);
+        when(estadoRepository.criarSeNaoExiste(anyLong(), anyString())).thenAnswer(chamada -> {
+            String regra = chamada.getArgument(1);
+            if (estados.containsKey(regra)) return 0;
+            EstadoAlertaEmocional estado = new EstadoAlertaEmocional();
+            estado.setDependenteId(chamada.getArgument(0));
+            estado.setRegra(regra);
+            estados.put(regra, estado);
+            return 1;
+        });
+        when(estadoRepository.findByDependenteIdAndRegra(anyLong(), anyString()))
+                .thenAnswer(chamada -> Optional.ofNullable(estados.get(chamada.<String>getArgument(1))));
+        when(estadoRepository.save(any())).thenAnswer(chamada -> chamada.getArgument(0));
+
+        responsavel = new Usuario();
+        Usuario crianca = new Usuario();
+        crianca.setNome("Bia");
+        crianca.setResponsavel(responsavel);
+        UsuarioRepository usuarioRepository = mock(UsuarioRepository.class);
+        when(usuarioRepository.findById(CRIANCA)).thenReturn(Optional.of(crianca));
+
+        notificacaoService = mock(NotificacaoService.class);
+        service = new AlertaEmocionalService(new AlertasEmocionaisProperties(true, List.of(FREQUENTES)),
+                estadoRepository, usuarioRepository, notificacaoService);
+    }
+
+    @Test
+    void avisaAoAtingirAsOcorrenciasDentroDaJanela() {
+        registrar(Emocao.TRISTE, 4, INICIO);
+        registrar(Emocao.BRAVO, 5, INICIO.plusDays(2));
+        verify(notificacaoService, never()).criarNotificacao(any(), anyString(), anyString(), anyString());
+
+        registrar(Emocao.TRISTE, 4, INICIO.plusDays(6));
+
+        verify(notificacaoService).criarNotificacao(eq(responsavel), contains("Bia registrou 3 vezes"), anyString(), anyString());
+        EstadoAlertaEmocional estado = estados.get("frequentes");
+        assertEquals(1, estado.getTotalAlertas());
+        assertEquals(INICIO.plusDays(6), estado.getUltimoAlerta());
+        assertEquals(0, estado.getOcorrencias().length); // o próximo alerta precisa de novas ocorrências
+    }
+
+    @Test
+    void ocorrenciasForaDaJanelaNaoContam() {
+        registrar(Emocao.TRISTE, 4, INICIO);
+        registrar(Emocao.TRISTE, 4, INICIO.plusDays(5));
+        // A primeira saiu da janela de 7 dias (o limite é exclusivo)
+        registrar(Emocao.TRISTE, 4, INICIO.plusDays(7));
+
+        verify(notificacaoService, never()).criarNotificacao(any(), anyString(), anyString(), anyString());
+        assertArrayEquals(new LocalDateTime[] {INICIO.plusDays(5), INICIO.plusDays(7)},
+                estados.get("frequentes").getOcorrencias());
+    }
+
+    @Test
+    void guardaNoMaximoAsUltimasOcorrenciasEmOrdem() {
+        registrar(Emocao.TRISTE, 4, INICIO);
+        registrar(Emocao.TRISTE, 4, INICIO.plusHours(1));
+        registrar(Emocao.TRISTE, 4, INICIO.plusHours(2)); // alerta: a partir daqui, 7 dias sem avisar
+
+        // Diários fora de ordem ficam ordenados, e só as 3 ocorrências mais recentes são guardadas
+        registrar(Emocao.TRISTE, 4, INICIO.plusDays(2));
+        registrar(Emocao.TRISTE, 4, INICIO.plusDays(1));
+        registrar(Emocao.TRISTE, 4, INICIO.plusDays(4));
+        registrar(Emocao.TRISTE, 4, INICIO.plusDays(3));
+
+        assertArrayEquals(new LocalDateTime[] {INICIO.plusDays(2), INICIO.plusDays(3), INICIO.plusDays(4)},
+                estados.get("frequentes").getOcorrencias());
+        verify(notificacaoService, times(1)).criarNotificacao(any(), anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void naoAvisaDeNovoAntesDoIntervalo() {
+        registrar(Emocao.TRISTE, 4, INICIO);
+        registrar(Emocao.TRISTE, 4, INICIO.plusHours(1));
+        registrar(Emocao.TRISTE, 4, INICIO.plusHours(2)); // alerta
+
+        // Novas 3 ocorrências ainda dentro do intervalo de 7 dias do último alerta
+        registrar(Emocao.BRAVO, 4, INICIO.plusDays(1));
+        registrar(Emocao.BRAVO, 4, INICIO.plusDays(2));
+        registrar(Emocao.BRAVO, 4, INICIO.plusDays(3));
+        verify(notificacaoService, times(1)).criarNotificacao(any(), anyString(), anyString(), anyString());
+        assertEquals(3, estados.get("frequentes").getOcorrencias().length);
+
+        // Passado o intervalo, as ocorrências que continuam na janela disparam o segundo alerta
+        registrar(Emocao.BRAVO, 4, INICIO.plusDays(7).plusHours(3));
+        verify(notificacaoService, times(2)).criarNotificacao(any(), anyString(), anyString(), anyString());
+        assertEquals(2, estados.get("frequentes").getTotalAlertas());
+    }
+
+    @Test
+    void diariosForaDaRegraNaoConsultamOEstado() {
+        registrar(Emocao.FELIZ, 5, INICIO);
+        registrar(Emocao.TRISTE, 3, INICIO); // abaixo da intensidade mínima
+        service.aoCriarDiario(new DiarioCriadoEvent(1L, CRIANCA, Emocao.TRISTE, 5, null));
+
+        verifyNoInteractions(estadoRepository, notificacaoService);
+    }
+
+    @Test
+    void desativadoNaoFazNada() {
+        service = new AlertaEmocionalService(new AlertasEmocionaisProperties(false, List.of(FREQUENTES)),
+                estadoRepository, mock(UsuarioRepository.class), notificacaoService);
+        registrar(Emocao.TRISTE, 5, INICIO);
+
+        verifyNoInteractions(estadoRepository, notificacaoService);
+    }
+
+    private void registrar(Emocao emocao, int intensidade, LocalDateTime momento) {
+        service.aoCriarDiario(new DiarioCriadoEvent(null, CRIANCA, emocao, intensidade, momento));
+    }
+}
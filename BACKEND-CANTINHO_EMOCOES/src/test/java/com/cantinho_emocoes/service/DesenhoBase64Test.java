@@ -0,0 +1,79 @@
+package com.cantinho_emocoes.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class DesenhoBase64Test {
+
+    @Test
+    void extensaoPeloTipoDaDataUrl() {
+        assertEquals("png", DesenhoBase64.extensao("data:image/png;base64,AAAA"));
+        assertEquals("jpg", DesenhoBase64.extensao("data:image/jpeg;base64,AAAA"));
+        assertEquals("jpg", DesenhoBase64.extensao("data:image/jpg;base64,AAAA"));
+        assertEquals("svg", DesenhoBase64.extensao("data:image/svg+xml;base64,AAAA"));
+        assertEquals("webp", DesenhoBase64.extensao("data:image/webp;base64,AAAA"));
+        assertEquals("gif", DesenhoBase64.extensao("data:image/gif;base64,AAAA"));
+        // Só o prefixo (como vem das consultas que não leem o desenho inteiro)
+        assertEquals("jpg", DesenhoBase64.extensao("data:image/jpeg;b"));
+    }
+
+    @Test
+    void extensaoPadraoEPng() {
+        assertEquals("png", DesenhoBase64.extensao(null));
+        assertEquals("png", DesenhoBase64.extensao("iVBORw0KGgo="));
+        assertEquals("png", DesenhoBase64.extensao("data:;base64,AAAA"));
+        assertEquals("png", DesenhoBase64.extensao("data:image/bmp;base64,AAAA"));
+        assertEquals("png", DesenhoBase64.extensao("data:image/png"));
+    }
+
+    @Test
+    void decodificaDataUrlEBase64Puro() {
+        byte[] imagem = aleatorios(100);
+        String base64 = Base64.getEncoder().encodeToString(imagem);
+
+        assertArrayEquals(imagem, DesenhoBase64.decodificar("data:image/png;base64," + base64));
+        assertArrayEquals(imagem, DesenhoBase64.decodificar(base64));
+        assertArrayEquals(new byte[0], DesenhoBase64.decodificar("data:image/png;base64,"));
+    }
+
+    // Tamanhos em volta do bloco de 16 KB de base64 (12 KB decodificados), com e sem padding no fim
+    @Test
+    void decodificaEmBlocosSemPerderBytes() throws IOException {
+        for (int tamanho : new int[] {12 * 1024 - 1, 12 * 1024, 12 * 1024 + 1, 12 * 1024 + 2, 36 * 1024 + 1, 100_000}) {
+            byte[] imagem = aleatorios(tamanho);
+            String dataUrl = "data:image/png;base64," + Base64.getEncoder().encodeToString(imagem);
+
+            ByteArrayOutputStream destino = new ByteArrayOutputStream();
+            DesenhoBase64.decodificar(dataUrl, destino);
+            assertArrayEquals(imagem, destino.toByteArray(), "tamanho " + tamanho);
+        }
+    }
+
+    @Test
+    void aceitaBase64ComQuebrasDeLinha() {
+        byte[] imagem = aleatorios(50_000);
+        String mime = Base64.getMimeEncoder().encodeToString(imagem);
+
+        assertArrayEquals(imagem, DesenhoBase64.decodificar("data:image/png;base64," + mime));
+        assertArrayEquals(imagem, DesenhoBase64.decodificar(mime));
+    }
+
+    @Test
+    void recusaBase64Invalido() {
+        assertThrows(IllegalArgumentException.class, () -> DesenhoBase64.decodificar("data:image/png;base64,@@@@"));
+    }
+
+    private static byte[] aleatorios(int tamanho) {
+        byte[] bytes = new byte[tamanho];
+        new Random(tamanho).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,122 @@
+package com.cantinho_emocoes.service;
+
+import com.cantinho_emocoes.model.MotivoXp;
+import com.cantinho_emocoes.service.GamificacaoService.Premio;
+import com.cantinho_emocoes.service.GamificacaoService.SaldoXp;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * O descarte dos prêmios repetidos é do próprio banco (ON CONFLICT DO NOTHING): aqui entra o que a
+ * GamificacaoService faz com isso, com o JdbcTemplate simulado.
+ */
+class GamificacaoServiceTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private ApplicationEventPublisher eventPublisher;
+    private GamificacaoService service;
+
+    @BeforeEach
+    void preparar() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        NamedParameterJdbcTemplate named = mock(NamedParameterJdbcTemplate.class);
+        when(named.getJdbcTemplate()).thenReturn(jdbcTemplate);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        service = new GamificacaoService(named, eventPublisher);
+        ReflectionTestUtils.setField(service, "xpPorNivel", 100);
+    }
+
+    @Test
+    void premioRepetidoNaoPublicaNada() {
+        // Tudo já lançado: o INSERT não devolve linhas e o UPDATE não atualiza o saldo
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(Object[].class))).thenReturn(List.of());
+
+        Optional<SaldoXp> saldo = service.conceder(5L, List.of(new Premio(MotivoXp.DIARIO, 10L, 10)));
+
+        assertTrue(saldo.isEmpty());
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
+    @Test
+    void premioNovoDevolveOSaldoEPublicaOEvento() throws Exception {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("responsavel_id")).thenReturn(2L);
+        when(rs.getString("nome")).thenReturn("João");
+        when(rs.getInt("xp")).thenReturn(130);
+        when(rs.getInt("nivel")).thenReturn(2);
+        when(rs.getInt("xp_semana")).thenReturn(40);
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(Object[].class)))
+                .thenAnswer(chamada -> List.of(chamada.<RowMapper<?>>getArgument(1).mapRow(rs, 0)));
+
+        Optional<SaldoXp> saldo = service.conceder(5L, List.of(new Premio(MotivoXp.DIARIO, 10L, 10)));
+
+        assertEquals(Optional.of(new SaldoXp(130, 2)), saldo);
+        ArgumentCaptor<XpConcedidoEvent> evento = ArgumentCaptor.forClass(XpConcedidoEvent.class);
+        verify(eventPublisher).publishEvent(evento.capture());
+        assertEquals(5L, evento.getValue().usuarioId());
+        assertEquals(2L, evento.getValue().responsavelId());
+        assertEquals(130, evento.getValue().xp());
+        assertEquals(40, evento.getValue().xpSemana());
+        assertEquals(GamificacaoService.inicioDaSemana(LocalDate.now()), evento.getValue().semana());
+    }
+
+    @Test
+    void lancaTodosOsPremiosNumUnicoComandoComDescarteDosRepetidos() {
+        when(jdbcTemplate.query(anyString(), any(RowMapper.class), any(Object[].class))).thenReturn(List.of());
+
+        service.conceder(5L, List.of(
+                new Premio(MotivoXp.ATIVIDADE, 7L, 15),
+                new Premio(MotivoXp.TAREFA, 7L, 25)));
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object[]> parametros = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate).query(sql.capture(), any(RowMapper.class), parametros.capture());
+        assertTrue(sql.getValue().contains("VALUES (?, ?, ?, ?, ?), (?, ?, ?, ?, ?)"));
+        assertTrue(sql.getValue().contains("ON CONFLICT ON CONSTRAINT uk_lancamento_xp_origem DO NOTHING"));
+
+        Object[] valores = parametros.getValue();
+        assertEquals(13, valores.length); // 5 por prêmio + xp por nível, usuário e início da semana
+        assertEquals(List.of(5L, "ATIVIDADE", 7L, 15), List.of(valores[0], valores[1], valores[2], valores[3]));
+        assertEquals(List.of(5L, "TAREFA", 7L, 25), List.of(valores[5], valores[6], valores[7], valores[8]));
+        assertEquals(List.of(100, 5L), List.of(valores[10], valores[11]));
+        assertEquals(Timestamp.valueOf(GamificacaoService.inicioDaSemana(LocalDate.now()).atStartOfDay()), valores[12]);
+    }
+
+    @Test
+    void premiosSemPontosOuSemUsuarioNaoVaoAoBanco() {
+        assertTrue(service.conceder(5L, List.of(new Premio(MotivoXp.DIARIO, 10L, 0))).isEmpty());
+        assertTrue(service.conceder(5L, List.of()).isEmpty());
+        assertTrue(service.conceder(null, List.of(new Premio(MotivoXp.DIARIO, 10L, 10))).isEmpty());
+
+        verifyNoInteractions(jdbcTemplate, eventPublisher);
+    }
+
+    @Test
+    void semanaComecaNaSegunda() {
+        assertEquals(LocalDate.of(2026, 10, 19), GamificacaoService.inicioDaSemana(LocalDate.of(2026, 10, 19)));
+        assertEquals(LocalDate.of(2026, 10, 19), GamificacaoService.inicioDaSemana(LocalDate.of(2026, 10, 25)));
+        assertEquals(LocalDate.of(2026, 10, 12), GamificacaoService.inicioDaSemana(LocalDate.of(2026, 10, 18)));
+    }
+}
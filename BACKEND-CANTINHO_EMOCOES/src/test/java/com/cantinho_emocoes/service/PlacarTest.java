@@ -0,0 +1,142 @@
+package com.cantinho_emocoes.service;
+
+import com.cantinho_emocoes.service.Placar.Participante;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlacarTest {
+
+    @Test
+    void placarVazio() {
+        Placar placar = new Placar();
+
+        assertEquals(0, placar.tamanho());
+        assertNull(placar.posicao(1L));
+        assertNull(placar.pontos(1L));
+        assertTrue(placar.primeiros(10).isEmpty());
+    }
+
+    @Test
+    void ordenaPorPontosDoMaiorParaOMenor() {
+        Placar placar = new Placar();
+        placar.definir(1L, 30);
+        placar.definir(2L, 50);
+        placar.definir(3L, 10);
+
+        assertEquals(List.of(new Participante(2L, 50), new Participante(1L, 30), new Participante(3L, 10)),
+                placar.primeiros(10));
+        assertEquals(List.of(new Participante(2L, 50), new Participante(1L, 30)), placar.primeiros(2));
+        assertEquals(1, placar.posicao(2L));
+        assertEquals(2, placar.posicao(1L));
+        assertEquals(3, placar.posicao(3L));
+    }
+
+    @Test
+    void empateDesempataPeloMenorIdEDivideAPosicao() {
+        Placar placar = new Placar();
+        placar.definir(7L, 20);
+        placar.definir(3L, 20);
+        placar.definir(5L, 10);
+        placar.definir(1L, 20);
+
+        assertEquals(List.of(1L, 3L, 7L, 5L), placar.primeiros(4).stream().map(Participante::id).toList());
+        assertEquals(1, placar.posicao(1L));
+        assertEquals(1, placar.posicao(3L));
+        assertEquals(1, placar.posicao(7L));
+        assertEquals(4, placar.posicao(5L));
+    }
+
+    @Test
+    void atualizarMudaAPosicaoSemDuplicar() {
+        Placar placar = new Placar();
+        placar.definir(1L, 10);
+        placar.definir(2L, 20);
+
+        placar.definir(1L, 30);
+        assertEquals(2, placar.tamanho());
+        assertEquals(List.of(new Participante(1L, 30), new Participante(2L, 20)), placar.primeiros(10));
+
+        placar.definir(1L, 30); // mesmos pontos: nada muda
+        assertEquals(2, placar.tamanho());
+        assertEquals(1, placar.posicao(1L));
+
+        placar.somar(2L, 15);
+        placar.somar(3L, 5); // ainda não estava no placar
+        assertEquals(List.of(new Participante(2L, 35), new Participante(1L, 30), new Participante(3L, 5)),
+                placar.primeiros(10));
+        assertEquals(35L, placar.pontos(2L));
+    }
+
+    @Test
+    void removerTiraDoPlacar() {
+        Placar placar = new Placar();
+        placar.definir(1L, 10);
+        placar.definir(2L, 20);
+        placar.definir(3L, 20);
+
+        placar.remover(2L);
+        placar.remover(99L); // não estava: nada muda
+
+        assertEquals(2, placar.tamanho());
+        assertNull(placar.posicao(2L));
+        assertNull(placar.pontos(2L));
+        assertEquals(List.of(new Participante(3L, 20), new Participante(1L, 10)), placar.primeiros(10));
+        assertEquals(1, placar.posicao(3L));
+        assertEquals(2, placar.posicao(1L));
+    }
+
+    // Operações aleatórias, com muitos empates, conferidas contra uma lista ordenada
+    @Test
+    void confereComListaOrdenada() {
+        Random random = new Random(42);
+        Placar placar = new Placar();
+        Map<Long, Long> esperado = new HashMap<>();
+
+        for (int passo = 0; passo < 5000; passo++) {
+            long id = 1 + random.nextInt(200);
+            int operacao = random.nextInt(10);
+            if (operacao < 5) {
+                long pontos = random.nextInt(50);
+                placar.definir(id, pontos);
+                esperado.put(id, pontos);
+            } else if (operacao < 8) {
+                long pontos = random.nextInt(10);
+                placar.somar(id, pontos);
+                esperado.merge(id, pontos, Long::sum);
+            } else {
+                placar.remover(id);
+                esperado.remove(id);
+            }
+
+            assertEquals(esperado.size(), placar.tamanho());
+            if (passo % 50 == 0) {
+                conferir(placar, esperado);
+            }
+        }
+        conferir(placar, esperado);
+    }
+
+    private static void conferir(Placar placar, Map<Long, Long> esperado) {
+        List<Participante> ordenados = new ArrayList<>(esperado.entrySet().stream()
+                .map(e -> new Participante(e.getKey(), e.getValue()))
+                .toList());
+        ordenados.sort(Comparator.comparingLong(Participante::pontos).reversed().thenComparing(Participante::id));
+
+        assertEquals(ordenados, placar.primeiros(ordenados.size() + 5));
+        assertEquals(ordenados.subList(0, Math.min(10, ordenados.size())), placar.primeiros(10));
+        for (Participante p : ordenados) {
+            long acima = ordenados.stream().filter(o -> o.pontos() > p.pontos()).count();
+            assertEquals(acima + 1, placar.posicao(p.id()).longValue());
+        }
+    }
+}